@@ -0,0 +1,88 @@
+package com.logging.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.logging.codec.LogBatchCodec;
+import com.logging.compress.BlockCompressor;
+import com.logging.model.ParsedLog;
+
+/**
+ * Content coding of a forwarded batch body, {@value #BATCH_SIZE} logs in the binary batch format, and the ratio it
+ * achieves: each benchmark also reports the bytes it reads and writes, whose quotient is the ratio
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+	private static final int BATCH_SIZE = 500;
+
+	@Param({ "lz4", "deflate" })
+	public String codec;
+
+	private BlockCompressor compressor;
+	private byte[] body;
+	private byte[] compressed;
+
+	/**
+	 * Uncompressed and compressed bytes per thread, reported as totals next to the time per operation
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Bytes {
+		public long uncompressed;
+		public long compressed;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			uncompressed = 0;
+			compressed = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		List<ParsedLog> batch = new ArrayList<>();
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			batch.add(Fixtures.parsedLog(i));
+		}
+		compressor = BlockCompressor.forName(codec);
+		body = LogBatchCodec.encode(batch);
+		compressed = compressor.compress(body);
+	}
+
+	@Benchmark
+	public byte[] compress(Bytes bytes) {
+		byte[] output = compressor.compress(body);
+		bytes.uncompressed += body.length;
+		bytes.compressed += output.length;
+		return output;
+	}
+
+	@Benchmark
+	public byte[] decompress(Bytes bytes) {
+		byte[] output = compressor.decompress(compressed, body.length);
+		bytes.uncompressed += output.length;
+		bytes.compressed += compressed.length;
+		return output;
+	}
+}
@@ -0,0 +1,166 @@
+package com.logging.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.logging.concurrent.ExecutionMode;
+import com.logging.config.CollectorProperties;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.processor.LogProcessor;
+import com.logging.server.TcpLogServer;
+
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Platform against virtual threads where the collector blocks: many slow shippers connected to the blocking TCP
+ * engine, and processing tasks that wait on I/O. The time per operation is the time to get through all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+	private static final int PORT = 19090;
+
+	// Lines per shipper, one every SHIPPER_INTERVAL_MS
+	private static final int LINES_PER_SHIPPER = 5;
+	private static final long SHIPPER_INTERVAL_MS = 10;
+
+	// Stand-in for a blocking forward or socket wait in a processing task
+	private static final long TASK_BLOCKING_MS = 1;
+
+	private static final long TIMEOUT_SECONDS = 60;
+
+	@Param({ "PLATFORM", "VIRTUAL" })
+	public ExecutionMode mode;
+
+	/**
+	 * Shippers connected, or processing tasks scheduled, at once
+	 */
+	@Param({ "100", "1000" })
+	public int concurrency;
+
+	private Scheduler scheduler;
+	private TcpLogServer tcpLogServer;
+	private LongAdder logsProcessed;
+	private byte[] line;
+
+	@Setup
+	public void setUp(Blackhole blackhole) throws IOException, InterruptedException {
+		MetricsRegistry metricsRegistry = new MetricsRegistry();
+		LogProcessor logProcessor = new LogProcessor(new Fixtures.BlackholeForwarder(blackhole), metricsRegistry);
+		logsProcessed = metricsRegistry.counter("totalLogsProcessed");
+		line = (Fixtures.rawMessage("linux_login") + "\n").getBytes(StandardCharsets.UTF_8);
+
+		scheduler = mode.newScheduler("collector-processor", 30, 20000);
+		CollectorProperties properties = new CollectorProperties();
+		properties.getTcp().setPort(PORT);
+		tcpLogServer = new TcpLogServer(logProcessor, scheduler, properties, mode);
+		tcpLogServer.start();
+		awaitListening();
+	}
+
+	private static void awaitListening() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+		while (System.nanoTime() < deadline) {
+			try (Socket probe = new Socket(InetAddress.getLoopbackAddress(), PORT)) {
+				return;
+			} catch (IOException e) {
+				Thread.sleep(10);
+			}
+		}
+		throw new IllegalStateException("TCP server not listening on port " + PORT);
+	}
+
+	@TearDown
+	public void tearDown() {
+		tcpLogServer.stop();
+		scheduler.dispose();
+	}
+
+	/**
+	 * Shippers connect at once, each sends a line every 10 milliseconds and disconnects. A platform worker is held by its
+	 * connection between lines, so connections beyond the pool wait for one to close. Shippers that stayed connected
+	 * would never be served beyond the pool in platform mode, the benchmark could not complete.
+	 */
+	@Benchmark
+	public long slowShippers() throws InterruptedException {
+		long target = logsProcessed.sum() + (long) concurrency * LINES_PER_SHIPPER;
+		List<Thread> shippers = new ArrayList<>(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			// The same kind of client in both modes, only the server side differs
+			shippers.add(Thread.ofVirtual().start(this::ship));
+		}
+		for (Thread shipper : shippers) {
+			shipper.join();
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+		while (logsProcessed.sum() < target) {
+			if (System.nanoTime() > deadline) {
+				throw new IllegalStateException("Processed " + logsProcessed.sum() + " logs of " + target);
+			}
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+		}
+		return target;
+	}
+
+	private void ship() {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), PORT)) {
+			// Each line leaves at once instead of waiting for the acknowledgement of the previous one
+			socket.setTcpNoDelay(true);
+			OutputStream out = socket.getOutputStream();
+			for (int i = 0; i < LINES_PER_SHIPPER; i++) {
+				out.write(line);
+				out.flush();
+				Thread.sleep(SHIPPER_INTERVAL_MS);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Shipper failed: " + e.getMessage(), e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Processing tasks that block for a millisecond each, scheduled at once on the processing scheduler
+	 */
+	@Benchmark
+	public void blockingTasks() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			scheduler.schedule(() -> {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(TASK_BLOCKING_MS));
+				done.countDown();
+			});
+		}
+		if (!done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+			throw new IllegalStateException(done.getCount() + " tasks still running");
+		}
+	}
+}
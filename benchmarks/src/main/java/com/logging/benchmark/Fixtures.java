@@ -0,0 +1,90 @@
+package com.logging.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.logging.config.CollectorProperties;
+import com.logging.entity.LogEntry;
+import com.logging.forwarder.LogForwarder;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.model.ParsedLog;
+
+/**
+ * Sample data shared by the benchmarks, shaped like what client-service generates
+ */
+final class Fixtures {
+
+	static final String[] CATEGORIES = { "linux_login", "linux_logout", "windows_login", "windows_event" };
+	static final String[] SEVERITIES = { "INFO", "WARN", "ERROR", "DEBUG" };
+	static final Instant START = Instant.parse("2025-01-16T00:00:00Z");
+
+	private Fixtures() {
+	}
+
+	/**
+	 * @param format linux_login, linux_logout, windows_login or unknown
+	 * @return JSON wrapped syslog line, as received by the collector
+	 */
+	static String rawMessage(String format) {
+		String message = switch (format) {
+		case "linux_login" ->
+			"<86> aiops9242 sudo: pam_unix(sudo:session): session opened for user root(uid=0) by motadata(uid=1000)";
+		case "linux_logout" -> "<86> web-server-01 systemd-logind: session closed for user developer";
+		case "windows_login" ->
+			"<134> WIN-EQ5V3RA5F7H Microsoft-Windows-Security-Auditing: A user account was successfully logged on. Account Name: Motadata";
+		default -> "<3> db-server-02 kernel: [12345.678] eth0: link down, carrier lost on interface";
+		};
+		return "{\"message\":\"" + message + "\"}";
+	}
+
+	static byte[] rawMessageBytes(String format) {
+		return rawMessage(format).getBytes(StandardCharsets.UTF_8);
+	}
+
+	static ParsedLog parsedLog(int i) {
+		ParsedLog log = new ParsedLog();
+		log.setTimestamp(START.plusMillis(i).toString());
+		log.setEventCategory(CATEGORIES[i % CATEGORIES.length]);
+		log.setEventSourceType(i % 2 == 0 ? "linux" : "windows");
+		log.setUsername("user" + (i % 100));
+		log.setHostname("host-" + (i % 20));
+		log.setSeverity(SEVERITIES[i % SEVERITIES.length]);
+		log.setRawMessage("<86> host-" + (i % 20) + " sudo: session opened for user user" + (i % 100) + " by admin");
+		log.setIsBlacklisted(i % 50 == 0);
+		return log;
+	}
+
+	static LogEntry logEntry(int i) {
+		LogEntry log = new LogEntry();
+		log.setTimestamp(START.plusMillis(i).toString());
+		log.setEventCategory(CATEGORIES[i % CATEGORIES.length]);
+		log.setEventSourceType(i % 2 == 0 ? "linux" : "windows");
+		log.setUsername("user" + (i % 1000));
+		log.setHostname("host-" + (i % 20));
+		log.setSeverity(SEVERITIES[i % SEVERITIES.length]);
+		log.setRawMessage("<86> host-" + (i % 20) + " sudo: session opened for user user" + (i % 1000) + " by admin");
+		log.setIsBlacklisted(i % 50 == 0);
+		return log;
+	}
+
+	/**
+	 * Forwarder that hands every log to a blackhole instead of queueing it for the server
+	 */
+	static final class BlackholeForwarder extends LogForwarder {
+
+		private final Blackhole blackhole;
+
+		BlackholeForwarder(Blackhole blackhole) {
+			super(WebClient.create(), new CollectorProperties(), new MetricsRegistry());
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void forward(ParsedLog parsedLog) {
+			blackhole.consume(parsedLog);
+		}
+	}
+}
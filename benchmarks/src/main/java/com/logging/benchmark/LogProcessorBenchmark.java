@@ -0,0 +1,75 @@
+package com.logging.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.logging.metrics.MetricsRegistry;
+import com.logging.model.ParsedLog;
+import com.logging.processor.LogParser;
+import com.logging.processor.LogProcessor;
+
+/**
+ * Per message cost of the collector: JSON wrapper, parsing and enrichment, for each message format
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogProcessorBenchmark {
+
+	@Param({ "linux_login", "linux_logout", "windows_login", "unknown" })
+	public String format;
+
+	private LogProcessor logProcessor;
+	private LogParser logParser;
+	private String rawMessage;
+	private byte[] rawMessageBytes;
+	private String message;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		logProcessor = new LogProcessor(new Fixtures.BlackholeForwarder(blackhole), new MetricsRegistry());
+		logParser = new LogParser();
+		rawMessage = Fixtures.rawMessage(format);
+		rawMessageBytes = Fixtures.rawMessageBytes(format);
+		message = rawMessage.substring("{\"message\":\"".length(), rawMessage.length() - 2);
+	}
+
+	/**
+	 * String entry point, as used by the blocking TCP engine
+	 */
+	@Benchmark
+	public void processLog() {
+		logProcessor.processLog(rawMessage);
+	}
+
+	/**
+	 * Byte frame entry point, as used by the NIO TCP and UDP engines
+	 */
+	@Benchmark
+	public void processLogBytes() {
+		logProcessor.processLog(rawMessageBytes, 0, rawMessageBytes.length);
+	}
+
+	/**
+	 * Tokenizer alone, without the JSON wrapper
+	 */
+	@Benchmark
+	public ParsedLog parse() {
+		return logParser.parse(message);
+	}
+}
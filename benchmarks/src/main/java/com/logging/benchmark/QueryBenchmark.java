@@ -0,0 +1,142 @@
+package com.logging.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.logging.entity.LogEntry;
+import com.logging.ingest.IngestSettings;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.model.LogQuery;
+import com.logging.replication.ReplicationSettings;
+import com.logging.rollup.TimeSeriesRollups;
+import com.logging.service.impl.LogStorageServiceImpl;
+import com.logging.storage.ColumnarLogStore;
+import com.logging.storage.InMemoryLogStore;
+import com.logging.storage.LogStore;
+import com.logging.storage.RetentionPolicy;
+
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * <code>GET /logs</code> against an in-memory store, by store engine, store size and filter selectivity <br/>
+ *
+ * Entries are spread over 4 categories, 4 severities, 1000 usernames and one timestamp per millisecond, 1 in 50 is
+ * blacklisted. Raw messages name the host and the username. The store is filled once per trial, 10M entries need a
+ * heap of about 4 GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms6g", "-Xmx6g" })
+public class QueryBenchmark {
+
+	private static final int LIMIT = 100;
+
+	@Param({ "10000", "1000000", "10000000" })
+	public int size;
+
+	/**
+	 * memory: heap entries, filters answered by posting lists <br/>
+	 * columnar: off-heap columns, filters answered by column scans
+	 */
+	@Param({ "memory", "columnar" })
+	public String engine;
+
+	/**
+	 * - scan: no filter, storage order <br/>
+	 * - category: 1 in 4 <br/>
+	 * - username: 1 in 1000 <br/>
+	 * - combined: category, severity and blacklisted, 1 in 200 <br/>
+	 * - latest: no filter, newest first <br/>
+	 * - latestErrors: severity, newest first <br/>
+	 * - timeRange: one second in the middle of the store <br/>
+	 * - text: one raw.message term, 1 in 1000 <br/>
+	 * - phrase: a raw.message phrase ending with the same term <br/>
+	 * - prefix: a raw.message prefix, 11 in 1000
+	 */
+	@Param({ "scan", "category", "username", "combined", "latest", "latestErrors", "timeRange", "text", "phrase",
+			"prefix" })
+	public String query;
+
+	private LogStorageServiceImpl logStorageService;
+	private LogQuery logQuery;
+
+	@Setup
+	public void setUp() {
+		LogStore logStore = "columnar".equals(engine) ? new ColumnarLogStore() : new InMemoryLogStore();
+		String[] usernames = new String[1000];
+		String[] messages = new String[usernames.length];
+		for (int i = 0; i < usernames.length; i++) {
+			usernames[i] = "user" + i;
+			messages[i] = "<86> host-" + (i % 20) + " sudo: session opened for user " + usernames[i] + " by admin";
+		}
+		for (int i = 0; i < size; i++) {
+			LogEntry logEntry = new LogEntry();
+			logEntry.setTimestamp(Fixtures.START.plusMillis(i).toString());
+			logEntry.setReceivedAt(null);
+			logEntry.setEventCategory(Fixtures.CATEGORIES[i % Fixtures.CATEGORIES.length]);
+			logEntry.setSeverity(Fixtures.SEVERITIES[(i / 4) % Fixtures.SEVERITIES.length]);
+			logEntry.setUsername(usernames[i % usernames.length]);
+			logEntry.setRawMessage(messages[i % messages.length]);
+			logEntry.setIsBlacklisted(i % 50 == 0);
+			logStore.append(logEntry);
+		}
+		// The constructor indexes what the store already holds
+		logStorageService = new LogStorageServiceImpl(Schedulers.immediate(), logStore, new MetricsRegistry(),
+				RetentionPolicy.UNLIMITED, new TimeSeriesRollups(), IngestSettings.DEFAULT,
+				ReplicationSettings.STANDALONE);
+
+		logQuery = new LogQuery();
+		logQuery.setLimit(LIMIT);
+		switch (query) {
+		case "category" -> logQuery.setService("linux_logout");
+		case "username" -> logQuery.setUsername("user500");
+		case "combined" -> {
+			logQuery.setService("linux_login");
+			logQuery.setLevel("error");
+			logQuery.setIsBlacklisted(true);
+		}
+		case "latest" -> logQuery.setOrder("desc");
+		case "latestErrors" -> {
+			logQuery.setLevel("error");
+			logQuery.setOrder("desc");
+		}
+		case "timeRange" -> {
+			logQuery.setFrom(Fixtures.START.plusMillis(size / 2));
+			logQuery.setTo(Fixtures.START.plusMillis(size / 2 + 1000));
+			logQuery.setLimit(null);
+		}
+		case "text" -> logQuery.setQ("user500");
+		case "phrase" -> logQuery.setQ("\"opened for user user500\"");
+		case "prefix" -> logQuery.setQ("user50*");
+		default -> {
+		}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		logStorageService.close();
+		logStorageService = null;
+	}
+
+	@Benchmark
+	public List<LogEntry> queryLogs() {
+		return logStorageService.queryLogs(logQuery).collectList().block();
+	}
+}
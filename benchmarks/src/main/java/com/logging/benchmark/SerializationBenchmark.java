@@ -0,0 +1,118 @@
+package com.logging.benchmark;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logging.codec.LogBatchCodec;
+import com.logging.entity.LogEntry;
+import com.logging.model.ParsedLog;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Serialization cost on both sides of the forwarder link and in the segment store <br/>
+ *
+ * - Jackson 3 (tools.jackson) is what the WebFlux codecs use: the forwarder encodes batches of {@link ParsedLog}, the
+ * server decodes them as {@link LogEntry}. <br/>
+ * - {@link LogBatchCodec} is the binary alternative for the same batches, the default of the forwarder. <br/>
+ * - Jackson 2 (com.fasterxml) is what the segment store uses per record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+	private static final int BATCH_SIZE = 500;
+
+	private final JsonMapper jsonMapper = JsonMapper.builder().build();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private ParsedLog parsedLog;
+	private List<ParsedLog> batch;
+	private byte[] encodedBatch;
+	private byte[] binaryBatch;
+	private LogEntry logEntry;
+	private byte[] encodedEntry;
+
+	@Setup
+	public void setUp() throws Exception {
+		parsedLog = Fixtures.parsedLog(7);
+		batch = new ArrayList<>();
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			batch.add(Fixtures.parsedLog(i));
+		}
+		encodedBatch = jsonMapper.writeValueAsBytes(batch);
+		binaryBatch = LogBatchCodec.encode(batch);
+		logEntry = Fixtures.logEntry(7);
+		encodedEntry = objectMapper.writeValueAsBytes(logEntry);
+	}
+
+	@Benchmark
+	public byte[] encodeParsedLog() {
+		return jsonMapper.writeValueAsBytes(parsedLog);
+	}
+
+	/**
+	 * Forwarder request body, {@value #BATCH_SIZE} logs
+	 */
+	@Benchmark
+	public byte[] encodeBatch() {
+		return jsonMapper.writeValueAsBytes(batch);
+	}
+
+	/**
+	 * Server side of the same request
+	 */
+	@Benchmark
+	public List<LogEntry> decodeBatch() {
+		return jsonMapper.readValue(encodedBatch, new tools.jackson.core.type.TypeReference<List<LogEntry>>() {
+		});
+	}
+
+	@Benchmark
+	public byte[] encodeBinaryBatch() {
+		return LogBatchCodec.encode(batch);
+	}
+
+	/**
+	 * Server side, entries share the receive time like in log-server's controller
+	 */
+	@Benchmark
+	public List<LogEntry> decodeBinaryBatch() {
+		String receivedAt = Instant.now().toString();
+		return LogBatchCodec.decode(binaryBatch, () -> new LogEntry(receivedAt));
+	}
+
+	/**
+	 * Segment store record encoding
+	 */
+	@Benchmark
+	public byte[] encodeLogEntry() throws Exception {
+		return objectMapper.writeValueAsBytes(logEntry);
+	}
+
+	/**
+	 * Segment store record decoding, paid by every read
+	 */
+	@Benchmark
+	public LogEntry decodeLogEntry() throws Exception {
+		return objectMapper.readValue(encodedEntry, LogEntry.class);
+	}
+}
@@ -0,0 +1,178 @@
+package com.logging.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.logging.compress.BlockCompressor;
+import com.logging.entity.LogEntry;
+import com.logging.index.LogIndex;
+import com.logging.ingest.IngestSettings;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.replication.ReplicationSettings;
+import com.logging.rollup.TimeSeriesRollups;
+import com.logging.service.impl.LogStorageServiceImpl;
+import com.logging.storage.ColumnarLogStore;
+import com.logging.storage.InMemoryLogStore;
+import com.logging.storage.LogStore;
+import com.logging.storage.RetentionPolicy;
+import com.logging.storage.SegmentLogStore;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Server ingest: the storage write path alone, and the service entry points under contention from concurrent request
+ * threads. Every iteration starts from an empty store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageIngestBenchmark {
+
+	private static final int POOL_SIZE = 1024;
+	private static final int BATCH_SIZE = 100;
+
+	/**
+	 * memory-lz4 seals blocks of 512 entries like the default configuration
+	 */
+	@Param({ "memory", "memory-lz4", "columnar", "segment" })
+	public String engine;
+
+	private final LogEntry[] entries = new LogEntry[POOL_SIZE];
+	private final List<LogEntry> batch = new ArrayList<>();
+
+	private Path directory;
+	private LogStore logStore;
+	private LogIndex logIndex;
+	private Scheduler scheduler;
+	private LogStorageServiceImpl logStorageService;
+
+	/**
+	 * Accepted and rejected entries per thread, reported next to the throughput
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+		public long accepted;
+		public long rejected;
+		private int next;
+
+		int next() {
+			return next++ & (POOL_SIZE - 1);
+		}
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			accepted = 0;
+			rejected = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void createEntries() {
+		for (int i = 0; i < POOL_SIZE; i++) {
+			entries[i] = Fixtures.logEntry(i);
+		}
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			batch.add(entries[i]);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void openStore() throws IOException {
+		if ("segment".equals(engine)) {
+			directory = Files.createTempDirectory("segment-bench");
+			logStore = new SegmentLogStore(directory, 64 * 1024 * 1024, 4096, 50);
+		} else if ("columnar".equals(engine)) {
+			logStore = new ColumnarLogStore();
+		} else if ("memory-lz4".equals(engine)) {
+			logStore = new InMemoryLogStore(BlockCompressor.forName("lz4"), 512);
+		} else {
+			logStore = new InMemoryLogStore();
+		}
+		logIndex = new LogIndex();
+		scheduler = Schedulers.newBoundedElastic(20, 10_000, "log-processor", 60, true);
+		logStorageService = new LogStorageServiceImpl(scheduler, logStore, new MetricsRegistry(),
+				RetentionPolicy.UNLIMITED, new TimeSeriesRollups(), IngestSettings.DEFAULT,
+				ReplicationSettings.STANDALONE);
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeStore() throws IOException {
+		logStorageService.close();
+		scheduler.dispose();
+		logStore.close();
+		if (directory != null) {
+			try (Stream<Path> files = Files.walk(directory)) {
+				for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+					Files.delete(file);
+				}
+			}
+			directory = null;
+		}
+	}
+
+	/**
+	 * What the storage writer does per entry: append to the store and index it, single writer
+	 */
+	@Benchmark
+	@Threads(1)
+	public long append(Counters counters) {
+		LogEntry logEntry = entries[counters.next()];
+		long sequence = logStore.append(logEntry);
+		logIndex.add(sequence, logEntry);
+		counters.accepted++;
+		return sequence;
+	}
+
+	/**
+	 * <code>POST /ingest</code>: one ring buffer slot per request, rejected entries are counted, not retried
+	 */
+	@Benchmark
+	@Threads(4)
+	public void ingestLog(Counters counters) {
+		try {
+			logStorageService.ingestLog(entries[counters.next()]).block();
+			counters.accepted++;
+		} catch (RuntimeException e) {
+			counters.rejected++;
+		}
+	}
+
+	/**
+	 * <code>POST /ingest/batch</code>: batches of {@value #BATCH_SIZE}, one ring buffer claim per batch
+	 */
+	@Benchmark
+	@Threads(4)
+	public int ingestBatch(Counters counters) {
+		int accepted = logStorageService.ingestBatch(batch).block().accepted();
+		counters.accepted += accepted;
+		counters.rejected += BATCH_SIZE - accepted;
+		return accepted;
+	}
+}
@@ -0,0 +1,91 @@
+package com.logging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Binds the <code>client.*</code> section of application.yml
+ */
+@Data
+@ConfigurationProperties(prefix = "client")
+public class ClientProperties {
+
+	private Collector collector = new Collector();
+
+	private Server server = new Server();
+
+	private LoadTest loadTest = new LoadTest();
+
+	@Data
+	public static class Collector {
+
+		private String host = "localhost";
+
+		private int tcpPort = 9090;
+
+		private int udpPort = 9091;
+
+		/**
+		 * Port of the collector's <code>POST /ingest</code> endpoint
+		 */
+		private int httpPort = 8081;
+	}
+
+	@Data
+	public static class Server {
+
+		/**
+		 * Base URL of log-server, read for the end to end latency reported under <code>/metrics</code>
+		 */
+		private String url = "http://localhost:8080";
+	}
+
+	@Data
+	public static class LoadTest {
+
+		/**
+		 * Replaces the 1-2 second demo generator with the load generator
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Target logs per second over all connections, paced open loop
+		 */
+		private int rate = 10000;
+
+		/**
+		 * Sender threads, each with its own TCP connection, UDP socket and share of the rate
+		 */
+		private int connections = 4;
+
+		private int durationSeconds = 60;
+
+		private int reportIntervalSeconds = 5;
+
+		/**
+		 * Logs generated up front per {@link com.logging.generator.LogGenerator}, replayed round robin
+		 */
+		private int corpusSize = 1000;
+
+		/**
+		 * Maximum HTTP requests awaiting a response per connection, further HTTP sends count as errors
+		 */
+		private int maxHttpInFlight = 256;
+
+		private Mix mix = new Mix();
+	}
+
+	/**
+	 * Relative weights of the protocols, e.g. 1/1/0 sends half over TCP and half over UDP
+	 */
+	@Data
+	public static class Mix {
+
+		private int tcp = 1;
+
+		private int udp = 1;
+
+		private int http = 0;
+	}
+}
@@ -0,0 +1,250 @@
+package com.logging.loadtest;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.logging.config.ClientProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One sender thread of a load test, owning a TCP connection, a UDP socket and a share of the HTTP requests <br/>
+ *
+ * Sends are paced open loop: the n-th log is due at start + n * interval whatever happened to the previous ones, and
+ * its <code>sent.at</code> is that intended time, not the time the send actually started. A collector that stalls the
+ * sender therefore shows up in the measured latency instead of silently lowering the offered load (coordinated
+ * omission). <br/>
+ *
+ * TCP writes are buffered and flushed whenever the thread is about to wait for the next due time, so a connection
+ * that is behind schedule catches up with large writes.
+ */
+@Slf4j
+class LoadConnection implements Runnable {
+
+	private static final long RECONNECT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final ClientProperties.Collector collector;
+	private final ClientProperties.Mix mix;
+	private final List<String> corpus;
+	private final LoadStats stats;
+	private final HttpClient httpClient;
+	private final URI ingestUri;
+	private final Semaphore httpInFlight;
+
+	private final long intervalNanos;
+	private final long startNanos;
+	private final long startMicros;
+	private final long endNanos;
+
+	private Socket tcpSocket;
+	private OutputStream tcpOutput;
+	private long lastConnectAttempt;
+	private DatagramChannel udpChannel;
+
+	private volatile boolean running = true;
+
+	/**
+	 * @param properties
+	 * @param corpus      JSON wrappers without their closing brace, so that sent.at can be appended
+	 * @param stats
+	 * @param httpClient
+	 * @param ratePerSecond
+	 * @param startNanos  {@link System#nanoTime()} of the common start
+	 * @param startMicros wall clock of the common start, in epoch microseconds
+	 */
+	LoadConnection(ClientProperties properties, List<String> corpus, LoadStats stats, HttpClient httpClient,
+			double ratePerSecond, long startNanos, long startMicros) {
+		this.collector = properties.getCollector();
+		this.mix = properties.getLoadTest().getMix();
+		this.corpus = corpus;
+		this.stats = stats;
+		this.httpClient = httpClient;
+		this.ingestUri = URI.create("http://" + collector.getHost() + ":" + collector.getHttpPort() + "/ingest");
+		this.httpInFlight = new Semaphore(properties.getLoadTest().getMaxHttpInFlight());
+		this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+		this.startNanos = startNanos;
+		this.startMicros = startMicros;
+		this.endNanos = startNanos + TimeUnit.SECONDS.toNanos(properties.getLoadTest().getDurationSeconds());
+	}
+
+	@Override
+	public void run() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int next = random.nextInt(corpus.size());
+		StringBuilder builder = new StringBuilder(512);
+
+		try {
+			udpChannel = DatagramChannel.open();
+			udpChannel.connect(new InetSocketAddress(collector.getHost(), collector.getUdpPort()));
+		} catch (IOException e) {
+			log.error("Failed to open UDP channel: {}", e.getMessage());
+		}
+
+		for (long n = 0; running; n++) {
+			long intendedNanos = startNanos + n * intervalNanos;
+			if (intendedNanos >= endNanos) {
+				break;
+			}
+			long now = System.nanoTime();
+			if (now < intendedNanos) {
+				flushTcp();
+				LockSupport.parkNanos(intendedNanos - now);
+			} else if (now - intendedNanos > LATE_THRESHOLD_NANOS) {
+				stats.recordLate();
+			}
+
+			builder.setLength(0);
+			builder.append(corpus.get(next)).append(",\"sent.at\":")
+					.append(startMicros + (intendedNanos - startNanos) / 1_000).append('}');
+			next = next + 1 == corpus.size() ? 0 : next + 1;
+
+			send(pickProtocol(random), builder.toString().getBytes(StandardCharsets.UTF_8));
+		}
+
+		flushTcp();
+		close();
+	}
+
+	void stop() {
+		running = false;
+	}
+
+	private Protocol pickProtocol(ThreadLocalRandom random) {
+		int pick = random.nextInt(mix.getTcp() + mix.getUdp() + mix.getHttp());
+		if (pick < mix.getTcp()) {
+			return Protocol.TCP;
+		}
+		return pick < mix.getTcp() + mix.getUdp() ? Protocol.UDP : Protocol.HTTP;
+	}
+
+	private void send(Protocol protocol, byte[] payload) {
+		boolean sent = switch (protocol) {
+		case TCP -> sendTcp(payload);
+		case UDP -> sendUdp(payload);
+		case HTTP -> sendHttp(payload);
+		};
+		if (sent) {
+			stats.recordSent(protocol);
+		} else {
+			stats.recordError();
+		}
+	}
+
+	private boolean sendTcp(byte[] payload) {
+		if (tcpOutput == null && !connectTcp()) {
+			return false;
+		}
+		try {
+			tcpOutput.write(payload);
+			tcpOutput.write('\n');
+			return true;
+		} catch (IOException e) {
+			log.warn("TCP write failed: {}", e.getMessage());
+			closeTcp();
+			return false;
+		}
+	}
+
+	/**
+	 * Connects at most once per {@link #RECONNECT_INTERVAL_NANOS}, sends in between fail fast
+	 */
+	private boolean connectTcp() {
+		long now = System.nanoTime();
+		if (lastConnectAttempt != 0 && now - lastConnectAttempt < RECONNECT_INTERVAL_NANOS) {
+			return false;
+		}
+		lastConnectAttempt = now;
+		try {
+			tcpSocket = new Socket(collector.getHost(), collector.getTcpPort());
+			tcpSocket.setTcpNoDelay(true);
+			tcpOutput = new BufferedOutputStream(tcpSocket.getOutputStream(), 64 * 1024);
+			return true;
+		} catch (IOException e) {
+			log.warn("TCP connect failed: {}", e.getMessage());
+			closeTcp();
+			return false;
+		}
+	}
+
+	private void flushTcp() {
+		if (tcpOutput != null) {
+			try {
+				tcpOutput.flush();
+			} catch (IOException e) {
+				log.warn("TCP flush failed: {}", e.getMessage());
+				closeTcp();
+				stats.recordError();
+			}
+		}
+	}
+
+	private boolean sendUdp(byte[] payload) {
+		if (udpChannel == null) {
+			return false;
+		}
+		try {
+			udpChannel.write(ByteBuffer.wrap(payload));
+			return true;
+		} catch (IOException e) {
+			// Connected UDP channels report ICMP port unreachable of earlier datagrams here
+			return false;
+		}
+	}
+
+	/**
+	 * Asynchronous, at most maxHttpInFlight requests wait for a response, beyond that the send fails
+	 */
+	private boolean sendHttp(byte[] payload) {
+		if (!httpInFlight.tryAcquire()) {
+			return false;
+		}
+		HttpRequest request = HttpRequest.newBuilder(ingestUri).header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(payload)).build();
+		httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+			httpInFlight.release();
+			if (error != null || response.statusCode() >= 300) {
+				stats.recordError();
+			}
+		});
+		return true;
+	}
+
+	private void closeTcp() {
+		try {
+			if (tcpSocket != null) {
+				tcpSocket.close();
+			}
+		} catch (IOException e) {
+			log.debug("Error closing TCP socket: {}", e.getMessage());
+		}
+		tcpSocket = null;
+		tcpOutput = null;
+	}
+
+	private void close() {
+		closeTcp();
+		try {
+			if (udpChannel != null) {
+				udpChannel.close();
+			}
+		} catch (IOException e) {
+			log.debug("Error closing UDP channel: {}", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.logging.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client side counters of a load test, updated by every sender thread
+ */
+public class LoadStats {
+
+	private final Map<Protocol, LongAdder> sent = new EnumMap<>(Protocol.class);
+	private final LongAdder errors = new LongAdder();
+
+	/**
+	 * Sends that started after their intended time, the delay is part of the measured latency
+	 */
+	private final LongAdder late = new LongAdder();
+
+	public LoadStats() {
+		for (Protocol protocol : Protocol.values()) {
+			sent.put(protocol, new LongAdder());
+		}
+	}
+
+	public void recordSent(Protocol protocol) {
+		sent.get(protocol).increment();
+	}
+
+	public void recordError() {
+		errors.increment();
+	}
+
+	public void recordLate() {
+		late.increment();
+	}
+
+	public long getSent(Protocol protocol) {
+		return sent.get(protocol).sum();
+	}
+
+	public long getTotalSent() {
+		return sent.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	public long getLate() {
+		return late.sum();
+	}
+}
@@ -0,0 +1,195 @@
+package com.logging.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logging.config.ClientProperties;
+import com.logging.generator.LogGenerator;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * End to end load test, enabled with <code>client.load-test.enabled=true</code> in place of the demo generator <br/>
+ *
+ * Replays logs pre-generated by every {@link LogGenerator} at a fixed rate over a configurable number of sender
+ * threads and a weighted TCP/UDP/HTTP mix, each log carrying its intended send time in <code>sent.at</code>.
+ * log-server records the delay between that time and storing the log, the runner resets that histogram before the run
+ * and reports it next to the achieved client throughput every report interval and once more at the end. The
+ * application exits when the run is over.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "client.load-test.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class LoadTestRunner implements ApplicationRunner {
+
+	/**
+	 * Time given to the collector's forwarder batches to reach the server before the final report
+	 */
+	private static final Duration DRAIN_TIME = Duration.ofSeconds(2);
+
+	private final ClientProperties clientProperties;
+
+	private final List<LogGenerator> logGenerators;
+
+	private final ConfigurableApplicationContext applicationContext;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(5)).build();
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		ClientProperties.LoadTest loadTest = clientProperties.getLoadTest();
+		ClientProperties.Mix mix = loadTest.getMix();
+		if (loadTest.getRate() <= 0 || loadTest.getConnections() <= 0 || mix.getTcp() < 0 || mix.getUdp() < 0
+				|| mix.getHttp() < 0 || mix.getTcp() + mix.getUdp() + mix.getHttp() == 0) {
+			throw new IllegalStateException("client.load-test needs a positive rate, connections and protocol mix");
+		}
+
+		List<String> corpus = buildCorpus(loadTest.getCorpusSize());
+		log.info("=== Load Test: {} logs/s over {} connections for {}s, mix tcp={} udp={} http={}, corpus {} ===",
+				loadTest.getRate(), loadTest.getConnections(), loadTest.getDurationSeconds(), mix.getTcp(),
+				mix.getUdp(), mix.getHttp(), corpus.size());
+		resetServerLatency();
+
+		LoadStats stats = new LoadStats();
+		long startNanos = System.nanoTime();
+		Instant start = Instant.now();
+		long startMicros = start.getEpochSecond() * 1_000_000 + start.getNano() / 1_000;
+		double ratePerConnection = (double) loadTest.getRate() / loadTest.getConnections();
+
+		List<LoadConnection> connections = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < loadTest.getConnections(); i++) {
+			LoadConnection connection = new LoadConnection(clientProperties, corpus, stats, httpClient,
+					ratePerConnection, startNanos, startMicros);
+			Thread thread = new Thread(connection, "load-sender-" + i);
+			thread.setDaemon(true);
+			connections.add(connection);
+			threads.add(thread);
+			thread.start();
+		}
+
+		long reportIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, loadTest.getReportIntervalSeconds()));
+		long lastReportNanos = startNanos;
+		long lastSent = 0;
+		try {
+			while (isAlive(threads)) {
+				awaitThreads(threads, lastReportNanos + reportIntervalNanos);
+				long now = System.nanoTime();
+				if (now - lastReportNanos >= reportIntervalNanos) {
+					long sent = stats.getTotalSent();
+					report("progress", stats, (sent - lastSent) * 1e9 / (now - lastReportNanos));
+					lastSent = sent;
+					lastReportNanos = now;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			connections.forEach(LoadConnection::stop);
+		}
+
+		double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+		Thread.sleep(DRAIN_TIME);
+		report("final", stats, stats.getTotalSent() / elapsedSeconds);
+
+		SpringApplication.exit(applicationContext);
+	}
+
+	/**
+	 * @param size logs per generator
+	 * @return shuffled JSON wrappers without their closing brace
+	 */
+	private List<String> buildCorpus(int size) {
+		List<String> corpus = new ArrayList<>(size * logGenerators.size());
+		for (LogGenerator generator : logGenerators) {
+			for (int i = 0; i < size; i++) {
+				String json = generator.generateLog().strip();
+				if (json.endsWith("}")) {
+					corpus.add(json.substring(0, json.length() - 1).stripTrailing());
+				}
+			}
+		}
+		if (corpus.isEmpty()) {
+			throw new IllegalStateException("No log generated for the load test corpus");
+		}
+		Collections.shuffle(corpus);
+		return corpus;
+	}
+
+	private boolean isAlive(List<Thread> threads) {
+		return threads.stream().anyMatch(Thread::isAlive);
+	}
+
+	/**
+	 * Waits until every thread has terminated or the deadline has passed
+	 */
+	private void awaitThreads(List<Thread> threads, long deadlineNanos) throws InterruptedException {
+		for (Thread thread : threads) {
+			long remaining = deadlineNanos - System.nanoTime();
+			if (remaining <= 0) {
+				return;
+			}
+			thread.join(Duration.ofNanos(remaining));
+		}
+	}
+
+	private void report(String phase, LoadStats stats, double rate) {
+		log.info("[{}] sent={} (tcp={} udp={} http={}) errors={} late={} rate={}/s e2e={}", phase,
+				stats.getTotalSent(), stats.getSent(Protocol.TCP), stats.getSent(Protocol.UDP),
+				stats.getSent(Protocol.HTTP), stats.getErrors(), stats.getLate(), Math.round(rate),
+				fetchServerLatency());
+	}
+
+	private void resetServerLatency() {
+		try {
+			HttpRequest request = HttpRequest.newBuilder(serverUri("/metrics/latency")).DELETE().build();
+			httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+		} catch (Exception e) {
+			log.warn("Could not reset log-server latency metrics: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * @return end to end latency histogram of the log-server metrics, or a placeholder when the server cannot be reached
+	 */
+	private Object fetchServerLatency() {
+		try {
+			HttpRequest request = HttpRequest.newBuilder(serverUri("/metrics")).GET().build();
+			String body = httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+			Map<String, Object> metrics = mapper.readValue(body, new TypeReference<Map<String, Object>>() {
+			});
+			if (metrics.get("latency") instanceof Map<?, ?> latency && latency.get("endToEnd") != null) {
+				return latency.get("endToEnd");
+			}
+			return "n/a";
+		} catch (Exception e) {
+			return "unavailable (" + e.getMessage() + ")";
+		}
+	}
+
+	private URI serverUri(String path) {
+		return URI.create(clientProperties.getServer().getUrl() + path);
+	}
+}
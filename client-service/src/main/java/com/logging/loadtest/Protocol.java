@@ -0,0 +1,9 @@
+package com.logging.loadtest;
+
+/**
+ * Transports a load test spreads its logs over
+ */
+public enum Protocol {
+
+	TCP, UDP, HTTP
+}
@@ -4,6 +4,7 @@ import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.ScheduledFuture;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Component;
 
@@ -17,6 +18,7 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "client.load-test.enabled", havingValue = "false", matchIfMissing = true)
 @RequiredArgsConstructor
 public class LogGeneratorScheduler {
 
@@ -43,7 +45,7 @@ public class LogGeneratorScheduler {
 	private void generateAndSendLogs() {
 		for (LogGenerator generator : logGenerators) {
 			String logMessage = generator.generateLog();
-			log.info("generated log: {}", logMessage);
+			log.debug("generated log: {}", logMessage);
 			logSender.sendLog(logMessage);
 
 			// Random delay between 1-2 seconds
@@ -8,8 +8,11 @@ import java.net.InetAddress;
 import java.net.Socket;
 import java.util.Random;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import com.logging.config.ClientProperties;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -28,11 +31,12 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "client.load-test.enabled", havingValue = "false", matchIfMissing = true)
 public class LogSender {
 
-	private static final String COLLECTOR_HOST = "localhost";
-	private static final int TCP_PORT = 9090;
-	private static final int UDP_PORT = 9091;
+	private final String collectorHost;
+	private final int tcpPort;
+	private final int udpPort;
 
 	private final Random random = new Random();
 
@@ -52,10 +56,13 @@ public class LogSender {
 	 */
 	private DatagramSocket udpSocket;
 
-	public LogSender() {
+	public LogSender(ClientProperties clientProperties) {
+		this.collectorHost = clientProperties.getCollector().getHost();
+		this.tcpPort = clientProperties.getCollector().getTcpPort();
+		this.udpPort = clientProperties.getCollector().getUdpPort();
 		try {
 			// Initialize TCP connection
-			tcpSocket = new Socket(COLLECTOR_HOST, TCP_PORT);
+			tcpSocket = new Socket(collectorHost, tcpPort);
 			tcpWriter = new PrintWriter(tcpSocket.getOutputStream(), true);
 
 			// Initialize UDP socket
@@ -75,7 +82,7 @@ public class LogSender {
 	public void sendLog(String logMessage) {
 		try {
 			boolean useTcp = random.nextBoolean();
-			log.info("Sending via {}", useTcp ? "TCP" : "UDP");
+			log.debug("Sending via {}", useTcp ? "TCP" : "UDP");
 
 			if (useTcp) {
 				sendTcp(logMessage);
@@ -105,8 +112,8 @@ public class LogSender {
 	private void sendUdp(String logMessage) throws IOException {
 		if (udpSocket != null && !udpSocket.isClosed()) {
 			byte[] data = logMessage.getBytes();
-			InetAddress address = InetAddress.getByName(COLLECTOR_HOST);
-			DatagramPacket packet = new DatagramPacket(data, data.length, address, UDP_PORT);
+			InetAddress address = InetAddress.getByName(collectorHost);
+			DatagramPacket packet = new DatagramPacket(data, data.length, address, udpPort);
 			udpSocket.send(packet);
 		}
 	}
@@ -118,7 +125,7 @@ public class LogSender {
 		close();
 		try {
 			Thread.sleep(1000); // Wait before reconnecting
-			tcpSocket = new Socket(COLLECTOR_HOST, TCP_PORT);
+			tcpSocket = new Socket(collectorHost, tcpPort);
 			tcpWriter = new PrintWriter(tcpSocket.getOutputStream(), true);
 			log.info("TCP reconnected");
 		} catch (Exception e) {
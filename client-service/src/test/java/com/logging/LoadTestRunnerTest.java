@@ -0,0 +1,157 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logging.config.ClientProperties;
+import com.logging.generator.LinuxLoginLogGenerator;
+import com.logging.generator.WindowsLoginLogGenerator;
+import com.logging.loadtest.LoadTestRunner;
+import com.sun.net.httpserver.HttpServer;
+
+class LoadTestRunnerTest {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	void testLoadReachesLocalSocketsOverEveryProtocol() throws Exception {
+		InetAddress loopback = InetAddress.getLoopbackAddress();
+		Queue<String> tcpLogs = new ConcurrentLinkedQueue<>();
+		Queue<String> udpLogs = new ConcurrentLinkedQueue<>();
+		Queue<String> httpLogs = new ConcurrentLinkedQueue<>();
+		AtomicBoolean latencyReset = new AtomicBoolean();
+
+		HttpServer http = HttpServer.create(new InetSocketAddress(loopback, 0), 0);
+		http.createContext("/ingest", exchange -> {
+			httpLogs.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+			exchange.sendResponseHeaders(202, -1);
+			exchange.close();
+		});
+		// Collector and log-server share the stub, only their paths differ
+		http.createContext("/metrics", exchange -> {
+			if ("DELETE".equals(exchange.getRequestMethod())) {
+				latencyReset.set(true);
+				exchange.sendResponseHeaders(204, -1);
+			} else {
+				byte[] body = "{\"latency\":{\"endToEnd\":{\"count\":0}}}".getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(200, body.length);
+				exchange.getResponseBody().write(body);
+			}
+			exchange.close();
+		});
+		http.start();
+
+		ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor();
+		try (ServerSocket tcp = new ServerSocket(0, 50, loopback);
+				DatagramSocket udp = new DatagramSocket(0, loopback)) {
+			readers.submit(() -> acceptLines(tcp, readers, tcpLogs));
+			readers.submit(() -> receive(udp, udpLogs));
+
+			ClientProperties properties = new ClientProperties();
+			properties.getCollector().setHost(loopback.getHostAddress());
+			properties.getCollector().setTcpPort(tcp.getLocalPort());
+			properties.getCollector().setUdpPort(udp.getLocalPort());
+			properties.getCollector().setHttpPort(http.getAddress().getPort());
+			properties.getServer().setUrl("http://" + loopback.getHostAddress() + ":" + http.getAddress().getPort());
+			ClientProperties.LoadTest loadTest = properties.getLoadTest();
+			loadTest.setRate(300);
+			loadTest.setConnections(2);
+			loadTest.setDurationSeconds(1);
+			loadTest.setReportIntervalSeconds(1);
+			loadTest.setCorpusSize(20);
+			loadTest.getMix().setHttp(1);
+
+			ConfigurableApplicationContext context = mock(ConfigurableApplicationContext.class);
+			long startMicros = System.currentTimeMillis() * 1_000;
+			new LoadTestRunner(properties, List.of(new LinuxLoginLogGenerator(), new WindowsLoginLogGenerator()),
+					context).run(null);
+
+			// The runner waits for the sends to drain before its final report
+			assertTrue(latencyReset.get());
+			assertTrue(!tcpLogs.isEmpty() && !udpLogs.isEmpty() && !httpLogs.isEmpty());
+			int received = tcpLogs.size() + udpLogs.size() + httpLogs.size();
+			// Paced open loop: each connection sends its share of one second, whatever the protocol
+			assertTrue(received >= 300 && received <= 302, "received " + received);
+			for (Queue<String> logs : List.of(tcpLogs, udpLogs, httpLogs)) {
+				Map<?, ?> log = mapper.readValue(logs.peek(), Map.class);
+				assertTrue(log.get("message") instanceof String);
+				long sentAt = ((Number) log.get("sent.at")).longValue();
+				assertTrue(sentAt >= startMicros - 1_000_000 && sentAt <= startMicros + 2_000_000);
+			}
+			verify(context).close();
+		} finally {
+			http.stop(0);
+			readers.shutdownNow();
+		}
+	}
+
+	@Test
+	void testEmptyMixIsRejected() {
+		ClientProperties properties = new ClientProperties();
+		properties.getLoadTest().getMix().setTcp(0);
+		properties.getLoadTest().getMix().setUdp(0);
+		LoadTestRunner runner = new LoadTestRunner(properties, List.of(new LinuxLoginLogGenerator()),
+				mock(ConfigurableApplicationContext.class));
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> runner.run(null));
+		assertEquals("client.load-test needs a positive rate, connections and protocol mix", e.getMessage());
+	}
+
+	private void acceptLines(ServerSocket server, ExecutorService readers, Queue<String> logs) {
+		try {
+			while (true) {
+				Socket socket = server.accept();
+				readers.submit(() -> {
+					try (BufferedReader reader = new BufferedReader(
+							new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+						reader.lines().forEach(logs::add);
+					}
+					return null;
+				});
+			}
+		} catch (IOException e) {
+			// Closed at the end of the test
+		}
+	}
+
+	private void receive(DatagramSocket socket, Queue<String> logs) {
+		byte[] buffer = new byte[64 * 1024];
+		try {
+			while (true) {
+				DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+				socket.receive(packet);
+				logs.add(new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8));
+			}
+		} catch (SocketException e) {
+			// Closed at the end of the test
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
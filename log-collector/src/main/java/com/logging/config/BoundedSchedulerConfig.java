@@ -1,18 +1,24 @@
 package com.logging.config;
 
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.logging.concurrent.ExecutionMode;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.metrics.TimedScheduler;
+
 import reactor.core.scheduler.Scheduler;
-import reactor.core.scheduler.Schedulers;
 
 @Configuration
 public class BoundedSchedulerConfig {
 
 	@Bean
-	Scheduler logProcessingScheduler() {
-		return Schedulers.newBoundedElastic(30, // thread cap
-				20000, // queue size
-				"collector-processor", 60, true);
+	Scheduler logProcessingScheduler(MetricsRegistry metricsRegistry, ExecutionMode executionMode) {
+		// One virtual thread per task in virtual mode, the thread cap only applies to platform threads
+		Scheduler scheduler = executionMode.newScheduler("collector-processor", 30, // thread cap
+				20000); // queue size
+		return new TimedScheduler(scheduler, metricsRegistry.histogram("schedulerQueueWait", TimeUnit.NANOSECONDS));
 	}
 }
@@ -0,0 +1,149 @@
+package com.logging.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Binds the <code>collector.*</code> section of application.yml
+ */
+@Data
+@ConfigurationProperties(prefix = "collector")
+public class CollectorProperties {
+
+	private Tcp tcp = new Tcp();
+
+	private Udp udp = new Udp();
+
+	private Forwarder forwarder = new Forwarder();
+
+	@Data
+	public static class Tcp {
+
+		private int port = 9090;
+
+		/**
+		 * <code>nio</code> for the selector based engine, <code>blocking</code> for thread-per-connection
+		 */
+		private String mode = "nio";
+
+		/**
+		 * Number of selector event loops, 0 means one per available core
+		 */
+		private int eventLoops = 0;
+
+		/**
+		 * Size of the direct buffer each event loop reads into
+		 */
+		private int readBufferSize = 64 * 1024;
+
+		/**
+		 * Frames longer than this are discarded up to the next newline
+		 */
+		private int maxFrameLength = 64 * 1024;
+
+		private int backlog = 1024;
+	}
+
+	@Data
+	public static class Udp {
+
+		private int port = 9091;
+
+		/**
+		 * Number of receiver threads, 0 means one per available core
+		 */
+		private int receivers = 0;
+
+		/**
+		 * Bind one socket per receiver with SO_REUSEPORT so the kernel spreads datagrams over them
+		 */
+		private boolean reusePort = true;
+
+		/**
+		 * Requested SO_RCVBUF per socket, absorbs bursts while receivers are busy processing
+		 */
+		private int receiveBufferSize = 4 * 1024 * 1024;
+	}
+
+	@Data
+	public static class Forwarder {
+
+		/**
+		 * Base URLs of the log-server nodes, used when there is no nodes file
+		 */
+		private List<String> nodes = new ArrayList<>(List.of("http://localhost:8080"));
+
+		/**
+		 * File listing one log-server base URL per line instead of nodes, read on start
+		 */
+		private String nodesFile;
+
+		/**
+		 * Field consistently hashed to pick the node of a log: <code>hostname</code>, <code>event.category</code>,
+		 * <code>event.source.type</code>, <code>username</code> or <code>severity</code>
+		 */
+		private String shardKey = "hostname";
+
+		/**
+		 * A batch is sent as soon as it holds this many logs, the largest batch flow control grows to
+		 */
+		private int batchSize = 500;
+
+		/**
+		 * Smallest batch flow control shrinks to when log-server pushes back
+		 */
+		private int minBatchSize = 50;
+
+		/**
+		 * ... or once its oldest log waited this long
+		 */
+		private long lingerMs = 50;
+
+		/**
+		 * Logs waiting to be batched, further logs are dropped when full
+		 */
+		private int queueCapacity = 20_000;
+
+		/**
+		 * Batches sent concurrently without waiting for the previous acknowledgement, the widest window of flow control.
+		 * Only 1 guarantees that the server stores batches in the order they were cut.
+		 */
+		private int maxInFlight = 4;
+
+		/**
+		 * <code>binary</code> for {@link com.logging.codec.LogBatchCodec} frames, <code>json</code> for a JSON array
+		 * accepted by any log-server version
+		 */
+		private String format = "binary";
+
+		/**
+		 * Content coding of batch bodies: <code>lz4</code>, <code>deflate</code> or <code>none</code>. A log-server
+		 * that refuses it is sent one it lists in its <code>Accept-Encoding</code> instead
+		 */
+		private String compression = "lz4";
+
+		private Spill spill = new Spill();
+	}
+
+	@Data
+	public static class Spill {
+
+		/**
+		 * Overflow the full queue to disk instead of dropping logs
+		 */
+		private boolean enabled = true;
+
+		private String directory = "data/spill";
+
+		private int segmentBytes = 64 * 1024 * 1024;
+
+		/**
+		 * Bound on the spilled backlog, logs are dropped beyond it
+		 */
+		private long maxBytes = 10L * 1024 * 1024 * 1024;
+	}
+}
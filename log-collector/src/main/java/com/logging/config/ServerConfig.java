@@ -1,9 +1,10 @@
 package com.logging.config;
 
+import java.util.List;
+
 import org.springframework.stereotype.Component;
 
-import com.logging.server.TcpLogServer;
-import com.logging.server.UdpLogServer;
+import com.logging.server.LogServer;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -15,15 +16,15 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class ServerConfig {
 
-	private final TcpLogServer tcpLogServer;
-
-	private final UdpLogServer udpLogServer;
+	/**
+	 * TCP (nio or blocking engine, depending on collector.tcp.mode) and UDP listeners
+	 */
+	private final List<LogServer> logServers;
 
 	@PostConstruct
 	public void start() {
 		// Start TCP and UDP servers asynchronously
-		tcpLogServer.start();
-		udpLogServer.start();
+		logServers.forEach(LogServer::start);
 
 		log.info("=== Log Collector Started ===");
 		log.info("TCP Server: localhost:9090");
@@ -34,8 +35,7 @@ public class ServerConfig {
 	@PreDestroy
 	public void stop() {
 		log.info("Gracefully shutting down Log Collector...");
-		tcpLogServer.stop();
-		udpLogServer.stop();
+		logServers.forEach(LogServer::stop);
 	}
 
 }
@@ -7,8 +7,13 @@ import org.springframework.web.reactive.function.client.WebClient;
 @Configuration
 public class WebClientConfig {
 
+	/**
+	 * Shared by the log-server nodes, each forwarder adds the base URL of its node
+	 *
+	 * @return
+	 */
 	@Bean
 	WebClient webClient() {
-		return WebClient.builder().baseUrl("http://localhost:8080").build();
+		return WebClient.builder().build();
 	}
 }
@@ -0,0 +1,59 @@
+package com.logging.controller;
+
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.logging.processor.LogProcessor;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * HTTP intake next to the TCP and UDP servers, for clients that can only speak HTTP <br/>
+ *
+ * Accepts the same JSON wrapper the sockets receive, either a single object or newline delimited objects, and hands
+ * them to {@link LogProcessor} on the bounded processing scheduler.
+ */
+@RestController
+@RequiredArgsConstructor
+public class IngestController {
+
+	private final LogProcessor logProcessor;
+
+	private final Scheduler logProcessingScheduler;
+
+	/**
+	 * 
+	 * @param body one JSON wrapper per line
+	 * @return number of lines accepted
+	 */
+	@PostMapping(path = "/ingest", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_NDJSON_VALUE })
+	@ResponseStatus(HttpStatus.ACCEPTED)
+	public Mono<Map<String, Object>> ingest(@RequestBody Mono<String> body) {
+		return body.publishOn(logProcessingScheduler).map(text -> {
+			int accepted = 0;
+			int start = 0;
+			while (start < text.length()) {
+				int end = text.indexOf('\n', start);
+				if (end < 0) {
+					end = text.length();
+				}
+				String line = text.substring(start, end).strip();
+				if (!line.isEmpty()) {
+					logProcessor.processLog(line);
+					accepted++;
+				}
+				start = end + 1;
+			}
+			return Map.<String, Object>of("accepted", accepted);
+		});
+	}
+}
@@ -1,11 +1,16 @@
 package com.logging.controller;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.logging.processor.LogProcessor;
+import com.logging.forwarder.LogForwarder;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.metrics.PinnedThreadMonitor;
+import com.logging.server.LogServer;
 
 import lombok.RequiredArgsConstructor;
 
@@ -13,7 +18,13 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class MetricsController {
 
-	private final LogProcessor logProcessor;
+	private final MetricsRegistry metricsRegistry;
+
+	private final LogForwarder logForwarder;
+
+	private final List<LogServer> logServers;
+
+	private final PinnedThreadMonitor pinnedThreadMonitor;
 
 	/**
 	 * 
@@ -21,7 +32,11 @@ public class MetricsController {
 	 */
 	@GetMapping("/metrics")
 	public Map<String, Object> getMetrics() {
-		return logProcessor.getMetrics();
+		Map<String, Object> metrics = new HashMap<>(metricsRegistry.snapshot());
+		metrics.put("forwarder", logForwarder.getMetrics());
+		logServers.forEach(server -> metrics.put(server.getName(), server.getMetrics()));
+		metrics.put("threads", pinnedThreadMonitor.getMetrics());
+		return metrics;
 	}
 
 	/**
@@ -0,0 +1,213 @@
+package com.logging.forwarder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD pacing of the batches sent to log-server <br/>
+ *
+ * Two windows adapt to what the server sustains: the batches in flight, from 1 to maxInFlight, and the logs per batch,
+ * from minBatchSize to batchSize. Every acknowledged batch widens the batch size by a fixed step and the in-flight
+ * window by 1/window, about one more batch per round trip as in TCP congestion avoidance. A 429 or a failure halves
+ * both and pauses new batches for the delay asked for, jittered so that collectors rejected together do not come back
+ * together. The rejections of the other batches of the same window arrive during that pause and do not halve again.
+ * <br/>
+ *
+ * The server also advertises its credit, the logs it can take right now, with every response: batches are cut to it
+ * so that a nearly full server is sent what fits instead of a batch it has to reject in part.
+ */
+final class FlowControl {
+
+	// Logs per batch added on every acknowledgement, as a fraction of the largest batch
+	private static final int BATCH_STEPS = 16;
+
+	private final int maxInFlight;
+	private final int minBatchSize;
+	private final int maxBatchSize;
+	private final int batchStep;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+
+	private double window;
+	private int batchSize;
+	private int inFlight;
+
+	// Last credit advertised by the server, -1 until one is
+	private long credit = -1;
+
+	// New batches wait until then, System.nanoTime()
+	private long pausedUntil = System.nanoTime();
+
+	private long increases;
+	private long decreases;
+
+	/**
+	 * Starts with both windows fully open
+	 *
+	 * @param maxInFlight
+	 * @param minBatchSize
+	 * @param maxBatchSize
+	 */
+	FlowControl(int maxInFlight, int minBatchSize, int maxBatchSize) {
+		this.maxInFlight = maxInFlight;
+		this.maxBatchSize = maxBatchSize;
+		this.minBatchSize = Math.clamp(minBatchSize, 1, maxBatchSize);
+		this.batchStep = Math.max(1, maxBatchSize / BATCH_STEPS);
+		this.window = maxInFlight;
+		this.batchSize = maxBatchSize;
+	}
+
+	/**
+	 * Waits for a slot of the in-flight window, and for the end of a pause
+	 *
+	 * @throws InterruptedException
+	 */
+	void acquire() throws InterruptedException {
+		lock.lock();
+		try {
+			while (true) {
+				long pause = pausedUntil - System.nanoTime();
+				if (pause > 0) {
+					changed.awaitNanos(pause);
+				} else if (inFlight < (int) window) {
+					inFlight++;
+					return;
+				} else {
+					changed.await();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * A batch acquired is acknowledged or given up
+	 */
+	void release() {
+		lock.lock();
+		try {
+			inFlight--;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param timeoutNanos
+	 * @return true once no batch is in flight, false on timeout
+	 * @throws InterruptedException
+	 */
+	boolean awaitIdle(long timeoutNanos) throws InterruptedException {
+		lock.lock();
+		try {
+			while (inFlight > 0) {
+				if (timeoutNanos <= 0) {
+					return false;
+				}
+				timeoutNanos = changed.awaitNanos(timeoutNanos);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return logs to put in the next batch, the batch window cut to the advertised credit
+	 */
+	int batchSize() {
+		lock.lock();
+		try {
+			return credit < 0 ? batchSize : (int) Math.clamp(credit, minBatchSize, batchSize);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Additive increase
+	 *
+	 * @param credit advertised by the server, -1 when not
+	 */
+	void onAccepted(long credit) {
+		lock.lock();
+		try {
+			if (credit >= 0) {
+				this.credit = credit;
+			}
+			window = Math.min(maxInFlight, window + 1 / window);
+			batchSize = Math.min(maxBatchSize, batchSize + batchStep);
+			increases++;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Multiplicative decrease, once per pause, and a pause of about delayMs for new batches
+	 *
+	 * @param delayMs asked by the server, or the backoff after a failure
+	 * @param credit  advertised by the server, -1 when not
+	 * @return jittered delay before retrying the rejected batch, in milliseconds
+	 */
+	long onRejected(long delayMs, long credit) {
+		long jittered = Math.round(delayMs * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+		lock.lock();
+		try {
+			if (credit >= 0) {
+				this.credit = credit;
+			}
+			long now = System.nanoTime();
+			if (now - pausedUntil >= 0) {
+				window = Math.max(1, window / 2);
+				batchSize = Math.max(minBatchSize, batchSize / 2);
+				decreases++;
+			}
+			long until = now + TimeUnit.MILLISECONDS.toNanos(jittered);
+			if (until - pausedUntil > 0) {
+				pausedUntil = until;
+			}
+			return jittered;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	int inFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return current windows, the last credit advertised and the pause left
+	 */
+	Map<String, Object> getMetrics() {
+		lock.lock();
+		try {
+			Map<String, Object> metrics = new HashMap<>();
+			metrics.put("window", Math.round(window * 100) / 100.0);
+			metrics.put("maxInFlight", maxInFlight);
+			metrics.put("inFlight", inFlight);
+			metrics.put("batchSize", batchSize);
+			metrics.put("credit", credit);
+			metrics.put("pausedMs", Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntil - System.nanoTime())));
+			metrics.put("increases", increases);
+			metrics.put("decreases", decreases);
+			return metrics;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -1,30 +1,108 @@
 package com.logging.forwarder;
 
-import java.time.Duration;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.logging.cluster.ClusterNodes;
+import com.logging.cluster.ConsistentHashRing;
+import com.logging.cluster.ShardKey;
+import com.logging.config.CollectorProperties;
+import com.logging.metrics.MetricsRegistry;
 import com.logging.model.ParsedLog;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import reactor.util.retry.Retry;
 
+/**
+ * Ships parsed logs to the log-server nodes of <code>collector.forwarder.nodes</code>, or of the file named by
+ * <code>nodes-file</code> <br/>
+ *
+ * Every log is routed by consistent hashing of its <code>shard-key</code> field, so all logs of a host (by default)
+ * are stored on the same node and adding a node only moves about 1/N of the hosts. Each node has its own
+ * {@link NodeForwarder}: queue, batching, flow control and spill directory, so a slow or unreachable node only backs
+ * up its own logs, which spill under <code>spill.directory/&lt;host_port&gt;</code> until it recovers.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class LogForwarder {
 
+	// Summed over the nodes in getMetrics()
+	private static final List<String> COUNTERS = List.of("logsForwarded", "logsDropped", "logsFailed", "batchesSent",
+			"logsReplicationPending", "queueDepth", "batchesInFlight");
+
 	private final WebClient webClient;
+	private final CollectorProperties collectorProperties;
+	private final MetricsRegistry metricsRegistry;
+
+	private final List<NodeForwarder> nodes = new ArrayList<>();
+	private ConsistentHashRing<NodeForwarder> ring;
+	private ShardKey shardKey;
+
+	@PostConstruct
+	public void start() {
+		CollectorProperties.Forwarder forwarder = collectorProperties.getForwarder();
+		shardKey = ShardKey.parse(forwarder.getShardKey());
+		Path spillDirectory = Path.of(forwarder.getSpill().getDirectory());
+
+		Map<String, NodeForwarder> byUrl = new LinkedHashMap<>();
+		for (String url : ClusterNodes.resolve(forwarder.getNodes(), forwarder.getNodesFile())) {
+			NodeForwarder node = new NodeForwarder(url, webClient.mutate().baseUrl(url).build(), forwarder,
+					spillDirectory.resolve(ClusterNodes.id(url)), metricsRegistry);
+			byUrl.put(url, node);
+			nodes.add(node);
+		}
+		ring = new ConsistentHashRing<>(byUrl, ConsistentHashRing.DEFAULT_POINTS_PER_NODE);
+		nodes.forEach(NodeForwarder::start);
+		log.info("Forwarding to {} log-server nodes by {}: {}", nodes.size(), shardKey.label(), byUrl.keySet());
+	}
 
 	public void forward(ParsedLog parsedLog) {
-		webClient.post().uri("/ingest").bodyValue(parsedLog).retrieve().bodyToMono(String.class)
-				.retryWhen(Retry.backoff(3, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(5)))
-				.subscribe(response -> {
-					// Success - no action needed
-				}, error -> {
-					log.error("Failed to forward log after retries: " + error.getMessage());
-				});
+		ring.nodeFor(shardKey.valueOf(parsedLog)).forward(parsedLog);
+	}
+
+	/**
+	 * Stops the nodes in parallel, each flushing or spilling what it holds
+	 */
+	@PreDestroy
+	public void stop() {
+		List<Thread> stopping = nodes.stream().map(node -> Thread.ofVirtual().start(node::stop)).toList();
+		for (Thread thread : stopping) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return counters summed over the nodes, and every node's own metrics under nodes
+	 */
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		Map<String, Long> totals = new HashMap<>();
+		List<Map<String, Object>> nodeMetrics = new ArrayList<>();
+		for (NodeForwarder node : nodes) {
+			Map<String, Object> metricsOfNode = node.getMetrics();
+			for (String counter : COUNTERS) {
+				totals.merge(counter, ((Number) metricsOfNode.get(counter)).longValue(), Long::sum);
+			}
+			nodeMetrics.add(metricsOfNode);
+		}
+		COUNTERS.forEach(counter -> metrics.put(counter, totals.getOrDefault(counter, 0L)));
+		metrics.put("shardKey", shardKey != null ? shardKey.label() : null);
+		metrics.put("nodes", nodeMetrics);
+		return metrics;
 	}
-}
\ No newline at end of file
+}
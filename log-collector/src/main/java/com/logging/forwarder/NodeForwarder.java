@@ -0,0 +1,580 @@
+package com.logging.forwarder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.logging.cluster.ClusterNodes;
+import com.logging.codec.IngestHeaders;
+import com.logging.codec.LogBatchCodec;
+import com.logging.compress.BlockCompressor;
+import com.logging.config.CollectorProperties;
+import com.logging.metrics.LatencyHistogram;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.metrics.RateMeter;
+import com.logging.model.ParsedLog;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Forwarding to one log-server node, see {@link LogForwarder} for the routing of logs to nodes <br/>
+ *
+ * Coalesces parsed logs into batches and ships them to the node's <code>POST /ingest/batch</code>, as
+ * {@link LogBatchCodec} frames or, with <code>format: json</code>, as a JSON array. Bodies are compressed with the
+ * configured {@link BlockCompressor} and sent with the matching <code>Content-Encoding</code>. <br/>
+ *
+ * {@link #forward(ParsedLog)} only enqueues into a bounded queue. A single flusher thread drains it into batches that
+ * are sent once they reach the batch size or once the oldest entry waited <code>linger-ms</code>. Batches are pipelined
+ * on the pooled WebClient connections within the window of {@link FlowControl}, the flusher blocks when that window is
+ * exhausted so a slow server fills the queue instead of the heap. The window and the batch size adapt AIMD style, from
+ * 1 to <code>max-in-flight</code> batches of <code>min-batch-size</code> to <code>batch-size</code> logs, and batches
+ * are cut to the credit the server advertises. <br/>
+ *
+ * The server acknowledges a batch with the number of entries it accepted. On 429 the accepted prefix is kept and only
+ * the remainder is retried, after the delay the server asks for, so a partially accepted batch is never stored twice.
+ * Connection failures and 5xx are retried with exponential backoff. Both shrink the window and pause new batches for
+ * as long, and retries go on for as long as it takes, only other errors fail a batch. <br/>
+ *
+ * When the queue is full, logs overflow to a memory-mapped {@link SpillQueue} on disk instead of being dropped, so
+ * during a server outage the heap holds at most the queue and <code>max-in-flight</code> batches while the backlog
+ * grows on disk up to <code>spill.max-bytes</code>. Once anything is spilled, newer logs are spilled behind it and the
+ * flusher replays the spill after the queue, so batches are cut in arrival order. They only reach the server in that
+ * order with <code>max-in-flight: 1</code>, a wider window lets a retried batch land after the ones sent behind it.
+ * On shutdown, batches still waiting for the server and queued logs are spilled too and replayed on the next start.
+ */
+@Slf4j
+final class NodeForwarder {
+
+	private static final String BATCH_INGEST_URI = "/ingest/batch";
+	private static final MediaType BINARY_BATCH = MediaType.parseMediaType(LogBatchCodec.MEDIA_TYPE);
+
+	// Retry delay of a 429 without a hint from the server
+	private static final long DEFAULT_RETRY_AFTER_MS = 1_000;
+
+	// Backoff after failures, doubled from the first to the last
+	private static final long MIN_BACKOFF_MS = 1_000;
+	private static final long MAX_BACKOFF_MS = 5_000;
+
+	private static final int RATE_WINDOW_SECONDS = 10;
+
+	private final String node;
+	private final WebClient webClient;
+	private final CollectorProperties.Forwarder forwarder;
+	private final Path spillDirectory;
+	private final MetricsRegistry metricsRegistry;
+
+	private BlockingQueue<ParsedLog> queue;
+	private FlowControl flowControl;
+	private Thread flusherThread;
+	private volatile boolean running = false;
+	private boolean binary;
+
+	private SpillQueue spillQueue;
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	// Content coding of batch bodies, null when sent uncompressed
+	private volatile BlockCompressor compressor;
+
+	// Batches sent and not yet acknowledged, in send order
+	private final Map<Long, PendingBatch> pendingBatches = new ConcurrentSkipListMap<>();
+	private final AtomicLong batchNumber = new AtomicLong();
+
+	// Batch taken from the queue while the flusher waits for an in-flight slot, or its tail cut off by the batch size
+	private volatile List<ParsedLog> heldBatch;
+
+	// Metrics
+	private final LongAdder logsForwarded = new LongAdder();
+	private final LongAdder logsDropped = new LongAdder();
+	private final LongAdder logsFailed = new LongAdder();
+	private final LongAdder batchesSent = new LongAdder();
+	private final LongAdder logsSpilled = new LongAdder();
+	private final LongAdder bytesSpilled = new LongAdder();
+	private final LongAdder logsReplayed = new LongAdder();
+	private final LongAdder logsReplicationPending = new LongAdder();
+	private final LongAdder bytesBeforeCompression = new LongAdder();
+	private final LongAdder bytesAfterCompression = new LongAdder();
+	private LatencyHistogram roundTripLatency;
+	private LatencyHistogram compressLatency;
+
+	private final RateMeter replayRate = new RateMeter(RATE_WINDOW_SECONDS);
+
+	/**
+	 * @param node           base URL of the log-server node
+	 * @param webClient      sending to the node
+	 * @param forwarder
+	 * @param spillDirectory of this node's spill segments
+	 * @param metricsRegistry
+	 */
+	NodeForwarder(String node, WebClient webClient, CollectorProperties.Forwarder forwarder, Path spillDirectory,
+			MetricsRegistry metricsRegistry) {
+		this.node = node;
+		this.webClient = webClient;
+		this.forwarder = forwarder;
+		this.spillDirectory = spillDirectory;
+		this.metricsRegistry = metricsRegistry;
+	}
+
+	void start() {
+		queue = new ArrayBlockingQueue<>(forwarder.getQueueCapacity());
+		flowControl = new FlowControl(forwarder.getMaxInFlight(), forwarder.getMinBatchSize(), forwarder.getBatchSize());
+		roundTripLatency = metricsRegistry.histogram("forwardRoundTrip", TimeUnit.MICROSECONDS);
+		compressLatency = metricsRegistry.histogram("compress", TimeUnit.NANOSECONDS);
+		binary = !"json".equalsIgnoreCase(forwarder.getFormat());
+		compressor = BlockCompressor.forName(forwarder.getCompression());
+		openSpill(forwarder.getSpill());
+		running = true;
+
+		flusherThread = new Thread(this::flushLoop, "log-forwarder-" + ClusterNodes.id(node));
+		flusherThread.setDaemon(true);
+		flusherThread.start();
+	}
+
+	private void openSpill(CollectorProperties.Spill spill) {
+		if (!spill.isEnabled()) {
+			return;
+		}
+		try {
+			spillQueue = SpillQueue.open(spillDirectory, spill.getSegmentBytes(), spill.getMaxBytes());
+		} catch (IOException e) {
+			log.error("Failed to open spill queue in {}, logs are dropped when the queue is full: {}", spillDirectory,
+					e.getMessage());
+		}
+	}
+
+	void forward(ParsedLog parsedLog) {
+		// Once anything is spilled, newer logs queue up behind it on disk so that the replay stays in order
+		if ((spillQueue == null || spillQueue.isEmpty()) && queue.offer(parsedLog)) {
+			return;
+		}
+		if (!spill(parsedLog)) {
+			// Queue full and no room on disk: server is slower than ingest, drop and count
+			logsDropped.increment();
+		}
+	}
+
+	private boolean spill(ParsedLog parsedLog) {
+		if (spillQueue == null) {
+			return false;
+		}
+		try {
+			byte[] payload = mapper.writeValueAsBytes(parsedLog);
+			if (!spillQueue.offer(payload)) {
+				return false;
+			}
+			logsSpilled.increment();
+			bytesSpilled.add(payload.length);
+			return true;
+		} catch (IOException e) {
+			log.error("Failed to spill log: {}", e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * @return oldest spilled log, null when nothing is spilled
+	 */
+	private ParsedLog replay() {
+		if (spillQueue == null) {
+			return null;
+		}
+		byte[] payload;
+		while ((payload = spillQueue.poll()) != null) {
+			try {
+				ParsedLog parsedLog = mapper.readValue(payload, ParsedLog.class);
+				logsReplayed.increment();
+				replayRate.record(1);
+				return parsedLog;
+			} catch (IOException e) {
+				logsFailed.increment();
+				log.error("Failed to read spilled log: {}", e.getMessage());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Queued logs first: while anything is spilled the queue only holds logs older than the spill
+	 */
+	private ParsedLog poll(long timeoutNanos) throws InterruptedException {
+		ParsedLog next = queue.poll();
+		if (next == null) {
+			next = replay();
+		}
+		if (next == null) {
+			next = queue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+		}
+		return next;
+	}
+
+	/**
+	 * Fills the batch up to batchSize without waiting
+	 */
+	private void drainTo(List<ParsedLog> batch, int batchSize) {
+		queue.drainTo(batch, batchSize - batch.size());
+		ParsedLog replayed;
+		while (batch.size() < batchSize && (replayed = replay()) != null) {
+			batch.add(replayed);
+		}
+	}
+
+	private void flushLoop() {
+		long lingerNanos = TimeUnit.MILLISECONDS.toNanos(forwarder.getLingerMs());
+		List<ParsedLog> carried = null;
+
+		while (running || !queue.isEmpty() || carried != null) {
+			try {
+				int batchSize = flowControl.batchSize();
+				List<ParsedLog> batch;
+				if (carried != null) {
+					// Logs cut off the previous batch go first
+					batch = carried;
+					carried = null;
+				} else {
+					ParsedLog first = poll(TimeUnit.MILLISECONDS.toNanos(100));
+					if (first == null) {
+						continue;
+					}
+					batch = new ArrayList<>(batchSize);
+					batch.add(first);
+				}
+				long deadline = System.nanoTime() + lingerNanos;
+
+				while (batch.size() < batchSize) {
+					drainTo(batch, batchSize);
+					long remaining = deadline - System.nanoTime();
+					if (batch.size() >= batchSize || remaining <= 0) {
+						break;
+					}
+					ParsedLog next = poll(remaining);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+
+				heldBatch = batch;
+				flowControl.acquire();
+				// The window may have shrunk while waiting
+				int limit = flowControl.batchSize();
+				if (batch.size() > limit) {
+					carried = new ArrayList<>(batch.subList(limit, batch.size()));
+					batch = new ArrayList<>(batch.subList(0, limit));
+				}
+				heldBatch = carried;
+				send(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private void send(List<ParsedLog> batch) {
+		long number = batchNumber.incrementAndGet();
+		PendingBatch pending = new PendingBatch(batch);
+		pendingBatches.put(number, pending);
+
+		pending.subscription = Mono.defer(() -> post(pending))
+				.retryWhen(Retry.from(signals -> signals.concatMap(signal -> isRetryable(signal.failure())
+						? Mono.delay(Duration.ofMillis(retryDelay(signal.failure(), signal.totalRetriesInARow())))
+						: Mono.error(signal.failure()))))
+				.doFinally(signal -> {
+					pendingBatches.remove(number);
+					flowControl.release();
+				}).subscribe(response -> {
+					// Success - no action needed
+				}, error -> {
+					int failed = pending.logs.size();
+					logsForwarded.add(batch.size() - failed);
+					logsFailed.add(failed);
+					log.error("Failed to forward {} logs to {} after retries: {}", failed, node, error.getMessage());
+				}, () -> {
+					logsForwarded.add(batch.size());
+					batchesSent.increment();
+				});
+	}
+
+	/**
+	 * Server unreachable, overloaded or failing, or refusing the encoding: the batch is kept until it recovers. A batch
+	 * the leader stored without its replication quorum is answered with a success, so it is not sent again. Any other
+	 * error, one raised by the client itself included, fails the batch rather than retrying it forever.
+	 */
+	private boolean isRetryable(Throwable error) {
+		if (error instanceof WebClientResponseException response) {
+			return response.getStatusCode().is5xxServerError()
+					|| response.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS);
+		}
+		return error instanceof WebClientRequestException || error instanceof Backpressure
+				|| error instanceof EncodingRefused;
+	}
+
+	/**
+	 * Retries a refused encoding at once, backpressure after the delay the server asked for and failures with
+	 * exponential backoff, the last two shrinking the flow control window
+	 */
+	private long retryDelay(Throwable error, long retriesInARow) {
+		if (error instanceof EncodingRefused) {
+			return 0;
+		}
+		if (error instanceof Backpressure backpressure) {
+			return flowControl.onRejected(backpressure.retryAfterMs, backpressure.credit);
+		}
+		return flowControl.onRejected(Math.min(MAX_BACKOFF_MS, MIN_BACKOFF_MS << Math.min(retriesInARow, 8)), -1);
+	}
+
+	/**
+	 * One attempt, its round trip up to the server's response is recorded whatever the outcome
+	 */
+	private Mono<Void> post(PendingBatch pending) {
+		long start = System.nanoTime();
+		BlockCompressor codec = compressor;
+		WebClient.RequestBodySpec request = webClient.post().uri(BATCH_INGEST_URI)
+				.contentType(binary ? BINARY_BATCH : MediaType.APPLICATION_JSON);
+		byte[] body = encode(pending.logs);
+		if (codec != null) {
+			body = compress(codec, body);
+			request.header(HttpHeaders.CONTENT_ENCODING, codec.name());
+		}
+		return request.bodyValue(body).exchangeToMono(response -> {
+			if (response.statusCode().is2xxSuccessful()) {
+				HttpHeaders headers = response.headers().asHttpHeaders();
+				flowControl.onAccepted(headerValue(headers, IngestHeaders.CREDIT, -1));
+				if (IngestHeaders.REPLICATION_PENDING.equals(headers.getFirst(IngestHeaders.REPLICATION))) {
+					// Stored on the leader only, resending would store the batch twice
+					logsReplicationPending.add(pending.logs.size());
+				}
+				return response.releaseBody();
+			}
+			if (codec != null && response.statusCode().isSameCodeAs(HttpStatus.UNSUPPORTED_MEDIA_TYPE)) {
+				negotiateCompression(codec, response.headers().header(HttpHeaders.ACCEPT_ENCODING));
+				return response.releaseBody().then(Mono.error(new EncodingRefused()));
+			}
+			if (response.statusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)) {
+				// Server buffer full part way through: keep the accepted prefix, retry the rest
+				Backpressure backpressure = new Backpressure(response.headers().asHttpHeaders());
+				return response.bodyToMono(Map.class).flatMap(result -> {
+					Object accepted = result.get("accepted");
+					if (accepted instanceof Number number && number.intValue() > 0) {
+						pending.logs = pending.logs.subList(number.intValue(), pending.logs.size());
+					}
+					return Mono.error(backpressure);
+				});
+			}
+			return response.createError();
+		}).then().doFinally(signal -> roundTripLatency.recordSince(start));
+	}
+
+	private byte[] encode(List<ParsedLog> logs) {
+		if (binary) {
+			return LogBatchCodec.encode(logs);
+		}
+		try {
+			return mapper.writeValueAsBytes(logs);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Unserializable batch", e);
+		}
+	}
+
+	private byte[] compress(BlockCompressor codec, byte[] body) {
+		long start = System.nanoTime();
+		byte[] compressed = codec.compress(body);
+		compressLatency.recordSince(start);
+		bytesBeforeCompression.add(body.length);
+		bytesAfterCompression.add(compressed.length);
+		return compressed;
+	}
+
+	/**
+	 * The server refused the content coding: switches to the first codec it lists in Accept-Encoding, or to none
+	 */
+	private void negotiateCompression(BlockCompressor refused, List<String> acceptEncoding) {
+		List<String> accepted = acceptEncoding.stream().flatMap(value -> Arrays.stream(value.split(",")))
+				.map(value -> value.trim().toLowerCase(Locale.ROOT)).toList();
+		String fallback = BlockCompressor.NAMES.stream().filter(accepted::contains).findFirst().orElse("none");
+		if (compressor == refused) {
+			log.warn("Log server {} does not accept {} bodies, switching to {}", node, refused.name(), fallback);
+			compressor = BlockCompressor.forName(fallback);
+		}
+	}
+
+	/**
+	 * @return the numeric header, or defaultValue when missing or malformed
+	 */
+	private static long headerValue(HttpHeaders headers, String name, long defaultValue) {
+		String value = headers.getFirst(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	void stop() {
+		running = false;
+		if (flusherThread == null) {
+			return;
+		}
+		try {
+			// Flush whatever is still queued
+			flusherThread.join(TimeUnit.SECONDS.toMillis(10));
+			if (flusherThread.isAlive()) {
+				// Blocked on an unreachable server
+				flusherThread.interrupt();
+				flusherThread.join(TimeUnit.SECONDS.toMillis(1));
+			}
+			flowControl.awaitIdle(TimeUnit.SECONDS.toNanos(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (spillQueue != null) {
+			spillRemaining();
+			spillQueue.close();
+		}
+	}
+
+	/**
+	 * Spills, oldest first, the batches still waiting for the server, the batch held by the flusher and the queue, so
+	 * that the next start replays them
+	 */
+	private void spillRemaining() {
+		List<ParsedLog> remaining = new ArrayList<>();
+		for (PendingBatch pending : pendingBatches.values()) {
+			if (pending.subscription != null) {
+				pending.subscription.dispose();
+			}
+			remaining.addAll(pending.logs);
+		}
+		pendingBatches.clear();
+		List<ParsedLog> held = heldBatch;
+		if (held != null) {
+			remaining.addAll(held);
+		}
+		queue.drainTo(remaining);
+
+		int spilled = 0;
+		for (ParsedLog parsedLog : remaining) {
+			if (spill(parsedLog)) {
+				spilled++;
+			} else {
+				logsDropped.increment();
+			}
+		}
+		if (spilled > 0) {
+			log.info("Spilled {} unsent logs of {} for replay on the next start", spilled, node);
+		}
+	}
+
+	Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("node", node);
+		metrics.put("logsForwarded", logsForwarded.sum());
+		metrics.put("logsDropped", logsDropped.sum());
+		metrics.put("logsFailed", logsFailed.sum());
+		metrics.put("batchesSent", batchesSent.sum());
+		metrics.put("logsReplicationPending", logsReplicationPending.sum());
+		metrics.put("queueDepth", queue != null ? queue.size() : 0);
+		metrics.put("batchesInFlight", flowControl != null ? flowControl.inFlight() : 0);
+		metrics.put("flowControl", flowControl != null ? flowControl.getMetrics() : Map.of());
+		metrics.put("spill", getSpillMetrics());
+		metrics.put("compression", getCompressionMetrics());
+		return metrics;
+	}
+
+	private Map<String, Object> getSpillMetrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("enabled", spillQueue != null);
+		metrics.put("depth", spillQueue != null ? spillQueue.size() : 0);
+		metrics.put("bytes", spillQueue != null ? spillQueue.bytes() : 0);
+		metrics.put("segments", spillQueue != null ? spillQueue.segmentCount() : 0);
+		metrics.put("logsSpilled", logsSpilled.sum());
+		metrics.put("bytesSpilled", bytesSpilled.sum());
+		metrics.put("logsReplayed", logsReplayed.sum());
+		metrics.put("replayPerSecond", Math.round(replayRate.perSecond() * 10) / 10.0);
+		return metrics;
+	}
+
+	private Map<String, Object> getCompressionMetrics() {
+		BlockCompressor codec = compressor;
+		long before = bytesBeforeCompression.sum();
+		long after = bytesAfterCompression.sum();
+
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("codec", codec != null ? codec.name() : "none");
+		metrics.put("bytesIn", before);
+		metrics.put("bytesOut", after);
+		metrics.put("ratio", after > 0 ? Math.round(before * 100.0 / after) / 100.0 : 0);
+		return metrics;
+	}
+
+	/**
+	 * 429 from the server, with its credit and the delay it asked for
+	 */
+	private static final class Backpressure extends IllegalStateException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long retryAfterMs;
+		private final long credit;
+
+		Backpressure(HttpHeaders headers) {
+			super("Log server backpressure");
+			long retryAfterSeconds = headerValue(headers, HttpHeaders.RETRY_AFTER, -1);
+			this.retryAfterMs = headerValue(headers, IngestHeaders.RETRY_AFTER_MS,
+					retryAfterSeconds >= 0 ? TimeUnit.SECONDS.toMillis(retryAfterSeconds) : DEFAULT_RETRY_AFTER_MS);
+			this.credit = headerValue(headers, IngestHeaders.CREDIT, -1);
+		}
+	}
+
+	/**
+	 * 415 from the server, retried with the encoding it accepts
+	 */
+	private static final class EncodingRefused extends IllegalStateException {
+
+		private static final long serialVersionUID = 1L;
+
+		EncodingRefused() {
+			super("Unsupported encoding");
+		}
+	}
+
+	/**
+	 * Entries of a batch not yet acknowledged by the server
+	 */
+	private static final class PendingBatch {
+
+		private volatile List<ParsedLog> logs;
+		private volatile Disposable subscription;
+
+		PendingBatch(List<ParsedLog> logs) {
+			this.logs = logs;
+		}
+	}
+}
@@ -0,0 +1,380 @@
+package com.logging.forwarder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Overflow of the {@link LogForwarder} queue: a FIFO of byte records in memory-mapped segment files <br/>
+ *
+ * Each segment starts with an 8 byte header <code>[int magic][int read position]</code> followed by records in the
+ * layout of log-server's segments, <code>[int length][int crc32c][length bytes payload]</code>. Only the segment being
+ * written and the one being read are mapped, a segment is deleted as soon as it has been read, so disk usage follows
+ * the backlog and the records live in the page cache instead of the heap. <br/>
+ *
+ * The read position is stored in the header through the mapping after every poll, so a restarted collector replays
+ * the remaining records of the segments it finds. Segments recovered this way are only read, appends go to new
+ * segments. <br/>
+ *
+ * Appends and polls hold one lock, the queue is only used while the in-memory queue is full or draining. It is a
+ * {@link ReentrantLock} rather than a monitor, a virtual thread writing a segment under it does not pin its carrier.
+ */
+@Slf4j
+public class SpillQueue implements Closeable {
+
+	static final String SUFFIX = ".spill";
+	static final int HEADER_BYTES = 8;
+	static final int RECORD_HEADER_BYTES = 8;
+
+	private static final int MAGIC = 0x534C5051;
+
+	private final Path directory;
+	private final int segmentBytes;
+	private final long maxBytes;
+
+	/**
+	 * First is read, last is written
+	 */
+	private final Deque<Segment> segments = new ArrayDeque<>();
+	private final CRC32C crc = new CRC32C();
+	private final ReentrantLock lock = new ReentrantLock();
+	private long nextSegmentId;
+	private boolean closed;
+
+	// Read without the lock by metrics and by the forwarder's fast path
+	private volatile long pendingRecords;
+	private volatile long pendingBytes;
+
+	private SpillQueue(Path directory, int segmentBytes, long maxBytes) {
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Opens the queue, recovering the unread records of the segments left in the directory
+	 *
+	 * @param directory    created on the first append if missing
+	 * @param segmentBytes size of each segment file
+	 * @param maxBytes     bound on the bytes of unread records, appends beyond it are refused
+	 * @return
+	 * @throws IOException when an existing segment cannot be read
+	 */
+	public static SpillQueue open(Path directory, int segmentBytes, long maxBytes) throws IOException {
+		SpillQueue queue = new SpillQueue(directory, segmentBytes, maxBytes);
+		if (!Files.isDirectory(directory)) {
+			return queue;
+		}
+
+		List<Path> files = new ArrayList<>();
+		try (Stream<Path> listing = Files.list(directory)) {
+			listing.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().forEach(files::add);
+		}
+		for (Path file : files) {
+			Segment segment = Segment.recover(file, queue.crc);
+			if (segment == null) {
+				log.warn("Ignoring spill file {} without a valid header", file.getFileName());
+				continue;
+			}
+			queue.nextSegmentId = Math.max(queue.nextSegmentId, segment.id + 1);
+			if (segment.hasUnread()) {
+				queue.segments.addLast(segment);
+				queue.pendingRecords += segment.records;
+				queue.pendingBytes += segment.writePosition - segment.readPosition;
+				segment.release();
+			} else {
+				segment.delete();
+			}
+		}
+		if (queue.pendingRecords > 0) {
+			log.info("Recovered {} spilled logs ({} bytes) in {} segments", queue.pendingRecords, queue.pendingBytes,
+					queue.segments.size());
+		}
+		return queue;
+	}
+
+	/**
+	 * @param payload
+	 * @return false when the record does not fit in a segment, the queue is at maxBytes, closed or cannot be written
+	 */
+	public boolean offer(byte[] payload) {
+		lock.lock();
+		try {
+			int recordBytes = RECORD_HEADER_BYTES + payload.length;
+			if (closed || recordBytes > segmentBytes - HEADER_BYTES || pendingBytes + recordBytes > maxBytes) {
+				return false;
+			}
+
+			Segment tail = segments.peekLast();
+			if (tail == null || !tail.hasRoom(recordBytes)) {
+				try {
+					Files.createDirectories(directory);
+					Segment created = Segment.create(directory, nextSegmentId++, segmentBytes);
+					if (tail != null && tail != segments.peekFirst()) {
+						// Neither read nor written any more until it becomes the head
+						tail.release();
+					}
+					segments.addLast(created);
+					tail = created;
+				} catch (IOException e) {
+					log.error("Failed to create spill segment: {}", e.getMessage());
+					return false;
+				}
+			}
+
+			crc.reset();
+			crc.update(payload);
+			tail.append(payload, (int) crc.getValue());
+			pendingRecords = pendingRecords + 1;
+			pendingBytes = pendingBytes + recordBytes;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return oldest record, null when the queue is empty
+	 */
+	public byte[] poll() {
+		lock.lock();
+		try {
+			while (!closed) {
+				Segment head = segments.peekFirst();
+				if (head == null) {
+					return null;
+				}
+				if (head.hasUnread()) {
+					try {
+						head.map();
+					} catch (IOException e) {
+						log.error("Failed to map spill segment {}, dropping it: {}", head.file.getFileName(),
+								e.getMessage());
+						discard(head);
+						continue;
+					}
+					int position = head.readPosition;
+					byte[] payload = head.read(crc);
+					if (payload == null) {
+						log.error("Corrupt record in spill segment {} at position {}, dropping the rest of it",
+								head.file.getFileName(), position);
+						discard(head);
+						continue;
+					}
+					pendingRecords = pendingRecords - 1;
+					pendingBytes = pendingBytes - (RECORD_HEADER_BYTES + payload.length);
+					return payload;
+				}
+				// Fully read, including the tail: disk usage goes back to zero once the backlog is replayed
+				segments.removeFirst();
+				head.delete();
+			}
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void discard(Segment segment) {
+		segments.remove(segment);
+		pendingRecords = pendingRecords - segment.unreadRecords();
+		pendingBytes = pendingBytes - (segment.writePosition - segment.readPosition);
+		segment.delete();
+	}
+
+	public boolean isEmpty() {
+		return pendingRecords == 0;
+	}
+
+	public long size() {
+		return pendingRecords;
+	}
+
+	public long bytes() {
+		return pendingBytes;
+	}
+
+	public int segmentCount() {
+		lock.lock();
+		try {
+			return segments.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Unmaps every segment, unread records stay on disk for the next start
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			segments.forEach(Segment::release);
+			segments.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static final class Segment {
+
+		private final long id;
+		private final Path file;
+
+		private FileChannel channel;
+		private MappedByteBuffer buffer;
+
+		private int writePosition = HEADER_BYTES;
+		private int readPosition = HEADER_BYTES;
+		private int records;
+		private int readRecords;
+
+		/**
+		 * Recovered segments are never appended to
+		 */
+		private boolean sealed;
+
+		private Segment(Path file, long id) {
+			this.file = file;
+			this.id = id;
+		}
+
+		static Segment create(Path directory, long id, int segmentBytes) throws IOException {
+			Segment segment = new Segment(directory.resolve(String.format("%020d%s", id, SUFFIX)), id);
+			segment.channel = FileChannel.open(segment.file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			segment.buffer = segment.channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+			segment.buffer.putInt(0, MAGIC);
+			segment.buffer.putInt(4, HEADER_BYTES);
+			return segment;
+		}
+
+		/**
+		 * Scans from the stored read position up to the first empty, incomplete or corrupt record
+		 *
+		 * @return null when the file is not a spill segment
+		 */
+		static Segment recover(Path file, CRC32C crc) throws IOException {
+			String name = file.getFileName().toString();
+			Segment segment = new Segment(file, Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+			segment.map();
+			MappedByteBuffer buffer = segment.buffer;
+			int readPosition = buffer.capacity() >= HEADER_BYTES ? buffer.getInt(4) : -1;
+			if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || readPosition < HEADER_BYTES
+					|| readPosition > buffer.capacity()) {
+				segment.release();
+				return null;
+			}
+
+			int position = readPosition;
+			int count = 0;
+			while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+				int length = buffer.getInt(position);
+				if (length <= 0 || length > buffer.capacity() - position - RECORD_HEADER_BYTES
+						|| buffer.getInt(position + 4) != checksum(buffer, crc, position + RECORD_HEADER_BYTES, length)) {
+					break;
+				}
+				position += RECORD_HEADER_BYTES + length;
+				count++;
+			}
+			segment.readPosition = readPosition;
+			segment.writePosition = position;
+			segment.records = count;
+			segment.sealed = true;
+			return segment;
+		}
+
+		private static int checksum(MappedByteBuffer buffer, CRC32C crc, int position, int length) {
+			crc.reset();
+			crc.update(buffer.slice(position, length));
+			return (int) crc.getValue();
+		}
+
+		void map() throws IOException {
+			if (buffer == null) {
+				channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			}
+		}
+
+		boolean hasRoom(int recordBytes) {
+			return !sealed && writePosition + recordBytes <= buffer.capacity();
+		}
+
+		boolean hasUnread() {
+			return readPosition < writePosition;
+		}
+
+		int unreadRecords() {
+			return records - readRecords;
+		}
+
+		void append(byte[] payload, int checksum) {
+			int position = writePosition;
+			buffer.putInt(position + 4, checksum);
+			buffer.put(position + RECORD_HEADER_BYTES, payload, 0, payload.length);
+			// Length last: a record is only valid for recovery once its length is in place
+			buffer.putInt(position, payload.length);
+			writePosition = position + RECORD_HEADER_BYTES + payload.length;
+			records++;
+		}
+
+		/**
+		 * @return next payload, null when it fails its checksum
+		 */
+		byte[] read(CRC32C crc) {
+			int position = readPosition;
+			int length = buffer.getInt(position);
+			byte[] payload = new byte[length];
+			buffer.get(position + RECORD_HEADER_BYTES, payload, 0, length);
+			crc.reset();
+			crc.update(payload);
+			if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+				return null;
+			}
+			readPosition = position + RECORD_HEADER_BYTES + length;
+			readRecords++;
+			buffer.putInt(4, readPosition);
+			return payload;
+		}
+
+		/**
+		 * Drops the mapping, the buffer is unmapped once collected
+		 */
+		void release() {
+			buffer = null;
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					log.debug("Error closing spill segment {}: {}", file.getFileName(), e.getMessage());
+				}
+				channel = null;
+			}
+		}
+
+		void delete() {
+			release();
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				log.warn("Failed to delete spill segment {}: {}", file.getFileName(), e.getMessage());
+			}
+		}
+	}
+}
@@ -1,11 +1,13 @@
 package com.logging.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.logging.codec.LogEvent;
 
 import lombok.Data;
 
 @Data
-public class ParsedLog {
+public class ParsedLog implements LogEvent {
 
 	private String timestamp;
 
@@ -25,4 +27,11 @@ public class ParsedLog {
 	@JsonProperty("is.blacklisted")
 	private Boolean isBlacklisted = false;
 
+	/**
+	 * Epoch microseconds at which a load generator sent the log, absent for regular traffic
+	 */
+	@JsonProperty("sent.at")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Long sentAt;
+
 }
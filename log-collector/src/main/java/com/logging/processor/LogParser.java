@@ -0,0 +1,251 @@
+package com.logging.processor;
+
+import com.logging.model.ParsedLog;
+
+/**
+ * Single pass tokenizer for the syslog messages handled by {@link LogProcessor} <br/>
+ *
+ * Recognizes the <code>&lt;PRI&gt;</code> header, the hostname (second whitespace separated token) and the markers of the
+ * Linux login/logout and Windows security auditing formats by walking the characters once, then extracts the username
+ * right after the marker it belongs to. Nothing is allocated besides the {@link ParsedLog} itself: severities and
+ * categories are constants, and hostnames and usernames, which repeat constantly, are resolved through small
+ * {@link StringCache}s instead of substrings. <br/>
+ *
+ * The results are the same as matching <code>^&lt;(\d+)&gt;</code>, <code>session opened for user (\w+).*by (\w+)</code>,
+ * <code>session closed for user (\w+)</code> and <code>Account Name: (\w+)</code>, which this class replaces.
+ */
+public final class LogParser {
+
+	public static final String LINUX_LOGIN = "linux_login";
+	public static final String LINUX_LOGOUT = "linux_logout";
+	public static final String WINDOWS_LOGIN = "windows_login";
+	public static final String WINDOWS_EVENT = "windows_event";
+	public static final String UNKNOWN = "unknown";
+
+	private static final String SUDO = "sudo";
+	private static final String SESSION_OPENED = "session opened";
+	private static final String SESSION_CLOSED = "session closed";
+	private static final String SECURITY_AUDITING = "Microsoft-Windows-Security-Auditing";
+	private static final String LOGGED_ON = "logged on";
+
+	private static final String OPENED_FOR_USER = "session opened for user ";
+	private static final String CLOSED_FOR_USER = "session closed for user ";
+	private static final String ACCOUNT_NAME = "Account Name: ";
+	private static final String BY = "by ";
+
+	private static final long NOT_FOUND = -1;
+
+	private final StringCache hostnames = new StringCache(1024);
+	private final StringCache usernames = new StringCache(4096);
+
+	/**
+	 * @param message syslog line
+	 * @return parsed fields, timestamp and blacklist flag are left to the caller
+	 */
+	public ParsedLog parse(String message) {
+		ParsedLog log = new ParsedLog();
+		log.setRawMessage(message);
+		log.setSeverity(parseSeverity(message));
+
+		// One pass over the message for every category marker
+		int length = message.length();
+		boolean sudo = false;
+		boolean opened = false;
+		boolean closed = false;
+		boolean auditing = false;
+		boolean loggedOn = false;
+		for (int i = 0; i < length; i++) {
+			switch (message.charAt(i)) {
+			case 's':
+				sudo = sudo || message.startsWith(SUDO, i);
+				opened = opened || message.startsWith(SESSION_OPENED, i);
+				closed = closed || message.startsWith(SESSION_CLOSED, i);
+				break;
+			case 'M':
+				auditing = auditing || message.startsWith(SECURITY_AUDITING, i);
+				break;
+			case 'l':
+				loggedOn = loggedOn || message.startsWith(LOGGED_ON, i);
+				break;
+			default:
+				break;
+			}
+		}
+
+		long username = NOT_FOUND;
+		if (sudo || opened) {
+			log.setEventCategory(LINUX_LOGIN);
+			log.setEventSourceType("linux");
+			username = linuxLoginUser(message);
+		} else if (closed) {
+			log.setEventCategory(LINUX_LOGOUT);
+			log.setEventSourceType("linux");
+			username = wordAfter(message, CLOSED_FOR_USER, 0);
+		} else if (auditing) {
+			log.setEventCategory(loggedOn ? WINDOWS_LOGIN : WINDOWS_EVENT);
+			log.setEventSourceType("windows");
+			username = wordAfter(message, ACCOUNT_NAME, 0);
+		} else {
+			log.setEventCategory(UNKNOWN);
+			log.setEventSourceType(UNKNOWN);
+		}
+		if (username != NOT_FOUND) {
+			log.setUsername(usernames.get(message, start(username), end(username)));
+		}
+
+		long hostname = hostname(message);
+		if (hostname != NOT_FOUND) {
+			log.setHostname(hostnames.get(message, start(hostname), end(hostname)));
+		}
+		return log;
+	}
+
+	/**
+	 * <code>&lt;PRI&gt;</code> at the very start of the message, priority = (facility * 8) + severity
+	 */
+	private String parseSeverity(String message) {
+		if (message.isEmpty() || message.charAt(0) != '<') {
+			return "INFO";
+		}
+		int priority = 0;
+		int i = 1;
+		while (i < message.length() && isDigit(message.charAt(i))) {
+			if (i > 9) {
+				// Larger than any int priority
+				return "INFO";
+			}
+			priority = priority * 10 + (message.charAt(i) - '0');
+			i++;
+		}
+		if (i == 1 || i == message.length() || message.charAt(i) != '>') {
+			return "INFO";
+		}
+		return getSeverityFromPriority(priority);
+	}
+
+	private String getSeverityFromPriority(int priority) {
+		int severity = priority & 0x07;
+		switch (severity) {
+		case 0:
+		case 1:
+		case 2:
+			return "ERROR";
+		case 3:
+			return "WARN";
+		case 4:
+		case 5:
+			return "INFO";
+		default:
+			return "DEBUG";
+		}
+	}
+
+	/**
+	 * Second token of the message split on whitespace, the first one is empty when the message starts with whitespace
+	 */
+	private long hostname(String message) {
+		int length = message.length();
+		int i = 0;
+		while (i < length && !isWhitespace(message.charAt(i))) {
+			i++;
+		}
+		while (i < length && isWhitespace(message.charAt(i))) {
+			i++;
+		}
+		int start = i;
+		while (i < length && !isWhitespace(message.charAt(i))) {
+			i++;
+		}
+		return i > start ? region(start, i) : NOT_FOUND;
+	}
+
+	/**
+	 * The user of "session opened for user X ... by Y". Like the greedy regex it replaces, X is cut short when the only
+	 * "by Y" on the line starts inside it.
+	 */
+	private long linuxLoginUser(String message) {
+		int from = 0;
+		long user;
+		while ((user = wordAfter(message, OPENED_FOR_USER, from)) != NOT_FOUND) {
+			int start = start(user);
+			int lineEnd = lineEnd(message, end(user));
+			int by = lastBy(message, start + 1, lineEnd);
+			if (by >= 0) {
+				return region(start, Math.min(end(user), by));
+			}
+			from = start;
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * @return start of the last "by " followed by a word character within [from, to), -1 if there is none
+	 */
+	private int lastBy(String message, int from, int to) {
+		for (int i = to - BY.length() - 1; i >= from; i--) {
+			if (message.startsWith(BY, i) && isWordChar(message.charAt(i + BY.length()))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the first run of word characters directly following an occurrence of prefix at or after from
+	 */
+	private long wordAfter(String message, String prefix, int from) {
+		int index = message.indexOf(prefix, from);
+		while (index >= 0) {
+			int start = index + prefix.length();
+			int end = start;
+			while (end < message.length() && isWordChar(message.charAt(end))) {
+				end++;
+			}
+			if (end > start) {
+				return region(start, end);
+			}
+			index = message.indexOf(prefix, index + 1);
+		}
+		return NOT_FOUND;
+	}
+
+	private int lineEnd(String message, int from) {
+		for (int i = from; i < message.length(); i++) {
+			char c = message.charAt(i);
+			if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+				return i;
+			}
+		}
+		return message.length();
+	}
+
+	private static long region(int start, int end) {
+		return (long) start << 32 | end;
+	}
+
+	private static int start(long region) {
+		return (int) (region >>> 32);
+	}
+
+	private static int end(long region) {
+		return (int) region;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Same set as the regex <code>\w</code>
+	 */
+	private static boolean isWordChar(char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_';
+	}
+
+	/**
+	 * Same set as the regex <code>\s</code>
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+}
@@ -1,113 +1,134 @@
 package com.logging.processor;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.logging.forwarder.LogForwarder;
+import com.logging.metrics.CounterGroup;
+import com.logging.metrics.LatencyHistogram;
+import com.logging.metrics.MetricsRegistry;
 import com.logging.model.ParsedLog;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class LogProcessor {
 
+	/**
+	 * Optional wrapper field set by load generators, epoch microseconds of the send, passed through to the server for
+	 * end to end latency
+	 */
+	private static final String SENT_AT = "sent.at";
+
 	private final LogForwarder logForwarder;
 
-	private final ObjectMapper objectMapper = new ObjectMapper();;
+	private final JsonFactory jsonFactory = new JsonFactory();
+	private final LogParser logParser = new LogParser();
 
 	// Blacklist for demonstration
 	private final Set<String> blacklistedUsers = Set.of("root", "admin", "hacker");
 	private final Set<String> blacklistedIPs = Set.of("192.168.1.100", "10.0.0.50");
 
 	// Metrics
-	private final AtomicLong totalLogsProcessed = new AtomicLong(0);
-	private final Map<String, AtomicLong> categoryMetrics = new ConcurrentHashMap<>();
-
-	// Regex patterns for parsing
-	private static final Pattern PRIORITY_PATTERN = Pattern.compile("^<(\\d+)>");
-	private static final Pattern LINUX_LOGIN_PATTERN = Pattern.compile("session opened for user (\\w+).*by (\\w+)");
-	private static final Pattern LINUX_LOGOUT_PATTERN = Pattern.compile("session closed for user (\\w+)");
-	private static final Pattern WINDOWS_LOGIN_PATTERN = Pattern.compile("Account Name: (\\w+)");
+	private final LongAdder totalLogsProcessed;
+	private final CounterGroup categoryMetrics;
+	private final LatencyHistogram parseLatency;
+
+	// Receive timestamp, formatted at most once per millisecond
+	private volatile FormattedTime lastTimestamp = new FormattedTime(0, Instant.EPOCH.toString());
+
+	public LogProcessor(LogForwarder logForwarder, MetricsRegistry metricsRegistry) {
+		this.logForwarder = logForwarder;
+		this.totalLogsProcessed = metricsRegistry.counter("totalLogsProcessed");
+		this.categoryMetrics = metricsRegistry.counterGroup("logsByCategory");
+		this.parseLatency = metricsRegistry.histogram("parse", TimeUnit.NANOSECONDS);
+	}
 
 	public void processLog(String rawMessage) {
-		try {
-			// Parse JSON wrapper
-			Map<String, String> wrapper = objectMapper.readValue(rawMessage, Map.class);
-			String message = wrapper.get("message");
-
-			if (message == null || message.isEmpty()) {
-				return;
-			}
-
-			// Parse and enrich
-			ParsedLog parsedLog = parseLog(message);
-
-			// Forward to central server
-			logForwarder.forward(parsedLog);
-
-			// Update metrics
-			totalLogsProcessed.incrementAndGet();
-			categoryMetrics.computeIfAbsent(parsedLog.getEventCategory(), k -> new AtomicLong(0)).incrementAndGet();
-
+		try (JsonParser parser = jsonFactory.createParser(rawMessage)) {
+			process(readWrapper(parser));
 		} catch (Exception e) {
 			log.error("Failed to process log: {}", e.getMessage());
 		}
 	}
 
-	private ParsedLog parseLog(String message) {
-		ParsedLog log = new ParsedLog();
-		log.setTimestamp(Instant.now().toString());
-		log.setRawMessage(message);
-
-		// Extract priority/severity
-		Matcher priorityMatcher = PRIORITY_PATTERN.matcher(message);
-		if (priorityMatcher.find()) {
-			int priority = Integer.parseInt(priorityMatcher.group(1));
-			log.setSeverity(getSeverityFromPriority(priority));
-		} else {
-			log.setSeverity("INFO");
+	/**
+	 * Same as {@link #processLog(String)}, reading the JSON wrapper straight from a received frame so that transports
+	 * do not have to decode every line into a String first
+	 *
+	 * @param frame
+	 * @param offset
+	 * @param length
+	 */
+	public void processLog(byte[] frame, int offset, int length) {
+		try (JsonParser parser = jsonFactory.createParser(frame, offset, length)) {
+			process(readWrapper(parser));
+		} catch (Exception e) {
+			log.error("Failed to process log: {}", e.getMessage());
 		}
+	}
 
-		// Determine category and extract fields
-		if (message.contains("sudo") || message.contains("session opened")) {
-			log.setEventCategory("linux_login");
-			log.setEventSourceType("linux");
-			parseLinuxLogin(message, log);
-		} else if (message.contains("session closed")) {
-			log.setEventCategory("linux_logout");
-			log.setEventSourceType("linux");
-			parseLinuxLogout(message, log);
-		} else if (message.contains("Microsoft-Windows-Security-Auditing")) {
-			if (message.contains("logged on")) {
-				log.setEventCategory("windows_login");
+	/**
+	 * Streams through the JSON wrapper for its "message" and "sent.at" fields, without building a map of every field
+	 *
+	 * @param parser
+	 * @return wrapper fields, the message is null when the wrapper has no string message
+	 */
+	private Wrapper readWrapper(JsonParser parser) throws IOException {
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			throw new IOException("Expected a JSON object");
+		}
+		String message = null;
+		Long sentAt = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.currentName();
+			JsonToken value = parser.nextToken();
+			if ("message".equals(field) && value == JsonToken.VALUE_STRING) {
+				message = parser.getText();
+			} else if (SENT_AT.equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+				sentAt = parser.getLongValue();
 			} else {
-				log.setEventCategory("windows_event");
+				parser.skipChildren();
 			}
-			log.setEventSourceType("windows");
-			parseWindowsLog(message, log);
-		} else {
-			log.setEventCategory("unknown");
-			log.setEventSourceType("unknown");
 		}
+		return new Wrapper(message, sentAt);
+	}
 
-		// Extract hostname
-		String[] parts = message.split("\\s+");
-		if (parts.length > 1) {
-			log.setHostname(parts[1]);
+	private void process(Wrapper wrapper) {
+		String message = wrapper.message();
+		if (message == null || message.isEmpty()) {
+			return;
 		}
 
+		// Parse and enrich
+		long start = System.nanoTime();
+		ParsedLog parsedLog = parseLog(message);
+		parseLatency.recordSince(start);
+		parsedLog.setSentAt(wrapper.sentAt());
+
+		// Forward to central server
+		logForwarder.forward(parsedLog);
+
+		// Update metrics
+		totalLogsProcessed.increment();
+		categoryMetrics.increment(parsedLog.getEventCategory());
+	}
+
+	private ParsedLog parseLog(String message) {
+		ParsedLog log = logParser.parse(message);
+		log.setTimestamp(currentTimestamp());
+
 		// Check blacklist
 		boolean isBlacklisted = false;
 		if (log.getUsername() != null && blacklistedUsers.contains(log.getUsername())) {
@@ -118,53 +139,27 @@ public class LogProcessor {
 		return log;
 	}
 
-	private void parseLinuxLogin(String message, ParsedLog log) {
-		Matcher matcher = LINUX_LOGIN_PATTERN.matcher(message);
-		if (matcher.find()) {
-			log.setUsername(matcher.group(1));
+	private String currentTimestamp() {
+		long now = System.currentTimeMillis();
+		FormattedTime last = lastTimestamp;
+		if (last.millis() != now) {
+			last = new FormattedTime(now, Instant.ofEpochMilli(now).toString());
+			lastTimestamp = last;
 		}
+		return last.formatted();
 	}
 
-	private void parseLinuxLogout(String message, ParsedLog log) {
-		Matcher matcher = LINUX_LOGOUT_PATTERN.matcher(message);
-		if (matcher.find()) {
-			log.setUsername(matcher.group(1));
-		}
-	}
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("totalLogsProcessed", totalLogsProcessed.sum());
+		metrics.put("logsByCategory", categoryMetrics.snapshot());
 
-	private void parseWindowsLog(String message, ParsedLog log) {
-		Matcher matcher = WINDOWS_LOGIN_PATTERN.matcher(message);
-		if (matcher.find()) {
-			log.setUsername(matcher.group(1));
-		}
+		return metrics;
 	}
 
-	// priority = (facility * 8) + severity;
-	private String getSeverityFromPriority(int priority) {
-		int severity = priority & 0x07;
-		switch (severity) {
-		case 0:
-		case 1:
-		case 2:
-			return "ERROR";
-		case 3:
-			return "WARN";
-		case 4:
-		case 5:
-			return "INFO";
-		default:
-			return "DEBUG";
-		}
+	private record Wrapper(String message, Long sentAt) {
 	}
 
-	public Map<String, Object> getMetrics() {
-		Map<String, Object> metrics = new HashMap<>();
-		metrics.put("totalLogsProcessed", totalLogsProcessed.get());
-
-		Map<String, Long> categoryMap = new HashMap<>();
-		categoryMetrics.forEach((k, v) -> categoryMap.put(k, v.get()));
-		metrics.put("logsByCategory", categoryMap);
-
-		return metrics;
+	private record FormattedTime(long millis, String formatted) {
 	}
-}
\ No newline at end of file
+}
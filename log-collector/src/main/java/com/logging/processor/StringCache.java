@@ -0,0 +1,48 @@
+package com.logging.processor;
+
+/**
+ * Direct-mapped cache of small strings looked up by a region of a larger one <br/>
+ *
+ * Field values such as hostnames and usernames come from a small set, so a hit returns the existing instance without
+ * allocating a substring. Slots are overwritten on collision. Threads may race on a slot, which only costs a miss:
+ * strings are immutable and safely published.
+ */
+final class StringCache {
+
+	private static final int MAX_LENGTH = 64;
+
+	private final String[] entries;
+	private final int mask;
+
+	/**
+	 * @param size number of slots, a power of two
+	 */
+	StringCache(int size) {
+		this.entries = new String[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * @return source.substring(start, end), shared with earlier calls for the same value
+	 */
+	String get(String source, int start, int end) {
+		int length = end - start;
+		if (length > MAX_LENGTH) {
+			return source.substring(start, end);
+		}
+
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + source.charAt(i);
+		}
+		int slot = (hash ^ hash >>> 16) & mask;
+
+		String cached = entries[slot];
+		if (cached != null && cached.length() == length && cached.regionMatches(0, source, start, length)) {
+			return cached;
+		}
+		String value = source.substring(start, end);
+		entries[slot] = value;
+		return value;
+	}
+}
@@ -0,0 +1,146 @@
+package com.logging.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a TCP byte stream into newline delimited frames <br/>
+ *
+ * One instance is attached to every connection. It scans the shared read buffer of the event loop in place and only
+ * copies the bytes of a complete frame out of it, so no String or intermediate line buffer is built per line. Bytes of
+ * a frame that spans two reads are kept in a small carry-over array which is released again once the frame completes,
+ * keeping idle connections at a few dozen bytes each. <br/>
+ *
+ * Not thread-safe, a connection is only ever served by a single event loop.
+ */
+public final class LineFrameDecoder {
+
+	private static final int INITIAL_CARRY_OVER_SIZE = 512;
+
+	public interface FrameHandler {
+
+		/**
+		 * Called with a freshly allocated array holding one frame without its line terminator
+		 *
+		 * @param frame
+		 * @param length number of valid bytes in frame
+		 */
+		void onFrame(byte[] frame, int length);
+
+		/**
+		 * Called once for each frame discarded because it exceeded the max frame length
+		 */
+		default void onOversizedFrame() {
+		}
+	}
+
+	private final int maxFrameLength;
+
+	private byte[] carryOver;
+	private int carryOverLength;
+
+	/**
+	 * true while skipping the remainder of an oversized frame up to the next newline
+	 */
+	private boolean discarding;
+
+	public LineFrameDecoder(int maxFrameLength) {
+		this.maxFrameLength = maxFrameLength;
+	}
+
+	/**
+	 * Consumes all remaining bytes of the buffer, emitting every completed frame to the handler
+	 *
+	 * @param buffer  flipped buffer, its position is advanced to the limit
+	 * @param handler
+	 */
+	public void decode(ByteBuffer buffer, FrameHandler handler) {
+		int start = buffer.position();
+		int limit = buffer.limit();
+
+		for (int i = start; i < limit; i++) {
+			if (buffer.get(i) != '\n') {
+				continue;
+			}
+			if (discarding) {
+				discarding = false;
+			} else {
+				emit(buffer, start, i, handler);
+			}
+			start = i + 1;
+		}
+
+		if (start < limit && !discarding) {
+			carry(buffer, start, limit, handler);
+		}
+		buffer.position(limit);
+	}
+
+	/**
+	 * Emits the pending partial frame, if any. Called when the peer closes the connection so that a last line without
+	 * trailing newline is not lost, like {@link java.io.BufferedReader#readLine()} would return it.
+	 *
+	 * @param handler
+	 */
+	public void finish(FrameHandler handler) {
+		if (carryOverLength > 0 && !discarding) {
+			byte[] frame = new byte[carryOverLength];
+			System.arraycopy(carryOver, 0, frame, 0, carryOverLength);
+			deliver(frame, handler);
+		}
+		releaseCarryOver();
+		discarding = false;
+	}
+
+	private void emit(ByteBuffer buffer, int from, int to, FrameHandler handler) {
+		int length = carryOverLength + (to - from);
+		if (length > maxFrameLength) {
+			releaseCarryOver();
+			handler.onOversizedFrame();
+			return;
+		}
+
+		byte[] frame = new byte[length];
+		if (carryOverLength > 0) {
+			System.arraycopy(carryOver, 0, frame, 0, carryOverLength);
+			releaseCarryOver();
+		}
+		buffer.get(from, frame, length - (to - from), to - from);
+		deliver(frame, handler);
+	}
+
+	private void deliver(byte[] frame, FrameHandler handler) {
+		int length = frame.length;
+		if (length > 0 && frame[length - 1] == '\r') {
+			length--;
+		}
+		if (length > 0) {
+			handler.onFrame(frame, length);
+		}
+	}
+
+	private void carry(ByteBuffer buffer, int from, int to, FrameHandler handler) {
+		int length = to - from;
+		int required = carryOverLength + length;
+		if (required > maxFrameLength) {
+			releaseCarryOver();
+			discarding = true;
+			handler.onOversizedFrame();
+			return;
+		}
+
+		if (carryOver == null) {
+			carryOver = new byte[Math.max(INITIAL_CARRY_OVER_SIZE, required)];
+		} else if (carryOver.length < required) {
+			byte[] grown = new byte[Math.min(maxFrameLength, Math.max(required, carryOver.length * 2))];
+			System.arraycopy(carryOver, 0, grown, 0, carryOverLength);
+			carryOver = grown;
+		}
+		buffer.get(from, carryOver, carryOverLength, length);
+		carryOverLength = required;
+	}
+
+	private void releaseCarryOver() {
+		carryOver = null;
+		carryOverLength = 0;
+	}
+}
@@ -0,0 +1,33 @@
+package com.logging.server;
+
+import java.util.Map;
+
+public interface LogServer {
+
+	/**
+	 * Binds the listener and starts receiving logs in background threads
+	 */
+	void start();
+
+	/**
+	 * Stops receiving and releases sockets and threads
+	 */
+	void stop();
+
+	/**
+	 * Key under which {@link #getMetrics()} is published on /metrics
+	 *
+	 * @return
+	 */
+	String getName();
+
+	/**
+	 * Transport level counters of this listener
+	 *
+	 * @return
+	 */
+	default Map<String, Object> getMetrics() {
+		return Map.of();
+	}
+
+}
@@ -0,0 +1,301 @@
+package com.logging.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.logging.config.CollectorProperties;
+import com.logging.processor.LogProcessor;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Non-blocking TCP ingest engine <br/>
+ *
+ * A single acceptor thread hands every accepted connection to one of a small, fixed set of selector event loops (one
+ * per core by default). An event loop multiplexes thousands of connections, reading into one reused direct buffer and
+ * splitting newline delimited frames in place with {@link LineFrameDecoder}. Only complete frames leave the event loop,
+ * as byte arrays handed to {@link LogProcessor#processLog(byte[], int, int)} on the bounded processing scheduler. <br/>
+ *
+ * Idle connections cost a selection key and a decoder, not a thread, so the number of concurrent shippers is bounded
+ * by file descriptors instead of the worker pool size.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "collector.tcp.mode", havingValue = "nio", matchIfMissing = true)
+@RequiredArgsConstructor
+public class NioTcpLogServer implements LogServer {
+
+	private final LogProcessor logProcessor;
+	private final Scheduler logProcessingScheduler;
+	private final CollectorProperties collectorProperties;
+
+	private final FrameDispatcher frameDispatcher = new FrameDispatcher();
+
+	private ServerSocketChannel serverChannel;
+	private EventLoop[] eventLoops;
+	private Thread acceptorThread;
+	private volatile boolean running = false;
+
+	// Metrics
+	private final LongAdder connectionsAccepted = new LongAdder();
+	private final LongAdder activeConnections = new LongAdder();
+	private final LongAdder bytesReceived = new LongAdder();
+	private final LongAdder framesReceived = new LongAdder();
+	private final LongAdder framesOversized = new LongAdder();
+	private final LongAdder framesRejected = new LongAdder();
+
+	@Override
+	public void start() {
+		CollectorProperties.Tcp tcp = collectorProperties.getTcp();
+		int loopCount = tcp.getEventLoops() > 0 ? tcp.getEventLoops() : Runtime.getRuntime().availableProcessors();
+
+		try {
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			serverChannel.bind(new InetSocketAddress(tcp.getPort()), tcp.getBacklog());
+
+			eventLoops = new EventLoop[loopCount];
+			for (int i = 0; i < loopCount; i++) {
+				eventLoops[i] = new EventLoop(tcp.getReadBufferSize(), tcp.getMaxFrameLength());
+			}
+		} catch (IOException e) {
+			log.error("Failed to start TCP server: {}", e.getMessage());
+			return;
+		}
+
+		running = true;
+
+		for (int i = 0; i < loopCount; i++) {
+			Thread thread = new Thread(eventLoops[i], "tcp-event-loop-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		acceptorThread = new Thread(this::acceptConnections, "tcp-acceptor");
+		acceptorThread.start();
+
+		log.info("TCP Server listening on port {} ({} event loops)", tcp.getPort(), loopCount);
+	}
+
+	/**
+	 * Blocking accept loop, connections are switched to non-blocking mode and distributed round robin over the event
+	 * loops
+	 */
+	private void acceptConnections() {
+		int next = 0;
+		while (running) {
+			try {
+				SocketChannel channel = serverChannel.accept();
+				channel.configureBlocking(false);
+				channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+				connectionsAccepted.increment();
+
+				eventLoops[next].register(channel);
+				next = (next + 1) % eventLoops.length;
+			} catch (ClosedChannelException e) {
+				// Server channel closed by stop()
+				break;
+			} catch (IOException e) {
+				if (running) {
+					log.error("Error accepting TCP connection: {}", e.getMessage());
+				}
+			}
+		}
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+
+		try {
+			if (serverChannel != null && serverChannel.isOpen()) {
+				serverChannel.close();
+			}
+		} catch (IOException e) {
+			log.error("Error closing TCP server channel: {}", e.getMessage());
+		}
+
+		if (eventLoops != null) {
+			for (EventLoop eventLoop : eventLoops) {
+				eventLoop.selector.wakeup();
+			}
+		}
+
+		log.info("TCP Server stopped");
+	}
+
+	@Override
+	public String getName() {
+		return "tcp";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("mode", "nio");
+		metrics.put("eventLoops", eventLoops != null ? eventLoops.length : 0);
+		metrics.put("connectionsAccepted", connectionsAccepted.sum());
+		metrics.put("activeConnections", activeConnections.sum());
+		metrics.put("bytesReceived", bytesReceived.sum());
+		metrics.put("framesReceived", framesReceived.sum());
+		metrics.put("framesOversized", framesOversized.sum());
+		metrics.put("framesRejected", framesRejected.sum());
+		return metrics;
+	}
+
+	/**
+	 * Hands complete frames to the processing scheduler. Stateless, shared by all connections.
+	 */
+	private final class FrameDispatcher implements LineFrameDecoder.FrameHandler {
+
+		@Override
+		public void onFrame(byte[] frame, int length) {
+			framesReceived.increment();
+			try {
+				logProcessingScheduler.schedule(() -> logProcessor.processLog(frame, 0, length));
+			} catch (RejectedExecutionException e) {
+				// Processing queue is full: backpressure, the frame is dropped and counted
+				framesRejected.increment();
+			}
+		}
+
+		@Override
+		public void onOversizedFrame() {
+			framesOversized.increment();
+		}
+	}
+
+	private final class EventLoop implements Runnable {
+
+		private final Selector selector;
+
+		/**
+		 * Reused for every read of every connection served by this loop
+		 */
+		private final ByteBuffer readBuffer;
+
+		private final int maxFrameLength;
+
+		/**
+		 * Channels accepted by the acceptor thread, registered by the event loop itself since registration blocks while
+		 * the selector is selecting
+		 */
+		private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+
+		EventLoop(int readBufferSize, int maxFrameLength) throws IOException {
+			this.selector = Selector.open();
+			this.readBuffer = ByteBuffer.allocateDirect(readBufferSize);
+			this.maxFrameLength = maxFrameLength;
+		}
+
+		void register(SocketChannel channel) {
+			pendingChannels.add(channel);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (running) {
+					selector.select(this::onReady);
+					registerPending();
+				}
+			} catch (IOException | ClosedSelectorException e) {
+				if (running) {
+					log.error("TCP event loop failed: {}", e.getMessage());
+				}
+			} finally {
+				closeAll();
+			}
+		}
+
+		private void registerPending() {
+			SocketChannel channel;
+			while ((channel = pendingChannels.poll()) != null) {
+				try {
+					channel.register(selector, SelectionKey.OP_READ, new LineFrameDecoder(maxFrameLength));
+					activeConnections.increment();
+				} catch (ClosedChannelException e) {
+					// Peer went away before registration
+				}
+			}
+		}
+
+		private void onReady(SelectionKey key) {
+			if (!key.isValid() || !key.isReadable()) {
+				return;
+			}
+
+			SocketChannel channel = (SocketChannel) key.channel();
+			LineFrameDecoder decoder = (LineFrameDecoder) key.attachment();
+
+			int read;
+			readBuffer.clear();
+			try {
+				read = channel.read(readBuffer);
+			} catch (IOException e) {
+				log.debug("Error reading TCP client: {}", e.getMessage());
+				read = -1;
+			}
+
+			if (read < 0) {
+				close(key, decoder);
+				return;
+			}
+
+			bytesReceived.add(read);
+			readBuffer.flip();
+			decoder.decode(readBuffer, frameDispatcher);
+		}
+
+		private void close(SelectionKey key, LineFrameDecoder decoder) {
+			key.cancel();
+			try {
+				key.channel().close();
+			} catch (IOException e) {
+				// Ignore
+			}
+			decoder.finish(frameDispatcher);
+			activeConnections.decrement();
+		}
+
+		private void closeAll() {
+			try {
+				for (SelectionKey key : selector.keys()) {
+					close(key, (LineFrameDecoder) key.attachment());
+				}
+				selector.close();
+			} catch (IOException | ClosedSelectorException e) {
+				// Ignore
+			}
+
+			SocketChannel channel;
+			while ((channel = pendingChannels.poll()) != null) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					// Ignore
+				}
+			}
+		}
+	}
+}
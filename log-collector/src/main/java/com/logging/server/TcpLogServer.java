@@ -5,12 +5,18 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import com.logging.concurrent.ExecutionMode;
+import com.logging.config.CollectorProperties;
 import com.logging.processor.LogProcessor;
 
 import lombok.RequiredArgsConstructor;
@@ -18,36 +24,49 @@ import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 
+/**
+ * Blocking thread-per-connection TCP server, enabled with <code>collector.tcp.mode=blocking</code>, see
+ * {@link NioTcpLogServer} for the default engine. <br/>
+ *
+ * With platform threads every connection occupies one worker of a fixed pool for its whole lifetime, connections
+ * beyond the pool wait for one to close, and each line is processed on the processing scheduler. With virtual threads
+ * every connection gets its own thread and processes its lines inline, a slow processor then slows down the reads of
+ * that connection only.
+ */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "collector.tcp.mode", havingValue = "blocking")
 @RequiredArgsConstructor
-public class TcpLogServer {
+public class TcpLogServer implements LogServer {
 
-	private static final int TCP_PORT = 9090;
 	private static final int THREAD_POOL_SIZE = 20;
 
 	private final LogProcessor logProcessor;
 	private final Scheduler logProcessingScheduler;
+	private final CollectorProperties collectorProperties;
+	private final ExecutionMode executionMode;
+
+	private final AtomicInteger connections = new AtomicInteger();
 
 	private ServerSocket serverSocket;
 	private ExecutorService executorService;
 	private volatile boolean running = false;
 
+	@Override
 	public void start() {
-		executorService = Executors.newFixedThreadPool(THREAD_POOL_SIZE, runnable -> {
-			// the factory to use when creating new threads
-			Thread thread = new Thread(runnable);
-			thread.setName("tcp-worker-" + thread.threadId());
-			thread.setDaemon(true);
-			return thread;
-		});
+		// One thread per connection in virtual mode, a fixed pool otherwise
+		executorService = executionMode == ExecutionMode.VIRTUAL
+				? Executors.newThreadPerTaskExecutor(executionMode.threadFactory("tcp-worker-"))
+				: Executors.newFixedThreadPool(THREAD_POOL_SIZE, executionMode.threadFactory("tcp-worker-"));
+		CollectorProperties.Tcp tcp = collectorProperties.getTcp();
+		int port = tcp.getPort();
 
 		running = true;
 
 		new Thread(() -> {
 			try {
-				serverSocket = new ServerSocket(TCP_PORT);
-				log.info("TCP Server listening on port {}", TCP_PORT);
+				serverSocket = new ServerSocket(port, tcp.getBacklog());
+				log.info("TCP Server listening on port {} ({} threads)", port, executionMode.label());
 
 				while (running) {
 					try {
@@ -83,11 +102,18 @@ public class TcpLogServer {
 	 * @param socket
 	 */
 	private void handleClient(Socket socket) {
+		connections.incrementAndGet();
 		try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
 			String line;
 			while ((line = reader.readLine()) != null) {
 				String logMessage = line;
 
+				if (executionMode == ExecutionMode.VIRTUAL) {
+					// Already on a thread of its own
+					logProcessor.processLog(logMessage);
+					continue;
+				}
+
 				// Process asynchronously with backpressure
 				Mono.fromRunnable(() -> logProcessor.processLog(logMessage)).subscribeOn(logProcessingScheduler)
 						.subscribe(null, error -> log.error("Error processing TCP log: {}", error.getMessage()));
@@ -95,6 +121,7 @@ public class TcpLogServer {
 		} catch (IOException e) {
 			log.error("Error handling TCP client: {}", e.getMessage());
 		} finally {
+			connections.decrementAndGet();
 			try {
 				socket.close();
 			} catch (IOException e) {
@@ -103,6 +130,7 @@ public class TcpLogServer {
 		}
 	}
 
+	@Override
 	public void stop() {
 		running = false;
 
@@ -127,4 +155,21 @@ public class TcpLogServer {
 
 		log.info("TCP Server stopped");
 	}
-}
\ No newline at end of file
+
+	@Override
+	public String getName() {
+		return "tcp";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("mode", "blocking");
+		metrics.put("threads", executionMode.label());
+		metrics.put("connections", connections.get());
+		if (executionMode == ExecutionMode.PLATFORM) {
+			metrics.put("workerThreads", THREAD_POOL_SIZE);
+		}
+		return metrics;
+	}
+}
@@ -0,0 +1,96 @@
+package com.logging.server;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the kernel side UDP counters on Linux, which are the only place datagrams dropped because of a full socket
+ * receive buffer become visible <br/>
+ *
+ * - /proc/net/snmp: host wide InErrors and RcvbufErrors <br/>
+ * - /proc/net/udp and /proc/net/udp6: per socket drops and current receive queue bytes, summed over all sockets bound
+ * to the given port (one per receiver with SO_REUSEPORT) <br/>
+ */
+final class UdpKernelStats {
+
+	private static final Path SNMP = Path.of("/proc/net/snmp");
+	private static final List<Path> SOCKET_TABLES = List.of(Path.of("/proc/net/udp"), Path.of("/proc/net/udp6"));
+
+	private UdpKernelStats() {
+	}
+
+	static Map<String, Object> read(int port) {
+		Map<String, Object> stats = new HashMap<>();
+		if (!Files.isReadable(SNMP)) {
+			stats.put("available", false);
+			return stats;
+		}
+
+		try {
+			readSnmp(stats);
+			readSocketTables(port, stats);
+			stats.put("available", true);
+		} catch (IOException | RuntimeException e) {
+			stats.put("available", false);
+		}
+		return stats;
+	}
+
+	/**
+	 * The Udp section consists of a header line and a value line with the same prefix
+	 */
+	private static void readSnmp(Map<String, Object> stats) throws IOException {
+		String[] header = null;
+		for (String line : Files.readAllLines(SNMP)) {
+			if (!line.startsWith("Udp: ")) {
+				continue;
+			}
+			String[] fields = line.split("\\s+");
+			if (header == null) {
+				header = fields;
+				continue;
+			}
+			for (int i = 1; i < header.length && i < fields.length; i++) {
+				if ("InErrors".equals(header[i]) || "RcvbufErrors".equals(header[i])) {
+					stats.put("host" + header[i], Long.parseLong(fields[i]));
+				}
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Columns: sl local_address rem_address st tx_queue:rx_queue tr:tm->when retrnsmt uid timeout inode ref pointer
+	 * drops
+	 */
+	private static void readSocketTables(int port, Map<String, Object> stats) throws IOException {
+		String portSuffix = String.format(":%04X", port);
+		long drops = 0;
+		long receiveQueueBytes = 0;
+		int sockets = 0;
+
+		for (Path table : SOCKET_TABLES) {
+			if (!Files.isReadable(table)) {
+				continue;
+			}
+			List<String> lines = Files.readAllLines(table);
+			for (int i = 1; i < lines.size(); i++) {
+				String[] fields = lines.get(i).trim().split("\\s+");
+				if (fields.length < 13 || !fields[1].endsWith(portSuffix)) {
+					continue;
+				}
+				sockets++;
+				receiveQueueBytes += Long.parseLong(fields[4].substring(fields[4].indexOf(':') + 1), 16);
+				drops += Long.parseLong(fields[12]);
+			}
+		}
+
+		stats.put("sockets", sockets);
+		stats.put("socketDrops", drops);
+		stats.put("receiveQueueBytes", receiveQueueBytes);
+	}
+}
@@ -1,106 +1,215 @@
 package com.logging.server;
 
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
 
 import org.springframework.stereotype.Component;
 
+import com.logging.concurrent.ExecutionMode;
+import com.logging.config.CollectorProperties;
+import com.logging.metrics.RateMeter;
 import com.logging.processor.LogProcessor;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Scheduler;
 
+/**
+ * Multi-receiver UDP server <br/>
+ *
+ * Each receiver thread owns a {@link DatagramChannel} bound to the same port with SO_REUSEPORT, so the kernel
+ * load-balances datagrams over the receivers' sockets and every socket has its own receive buffer (sized with
+ * SO_RCVBUF). A receiver reads into one reused direct buffer, copies the payload into one reused array and processes it
+ * inline, there is no executor hand-off between the socket and {@link LogProcessor}. <br/>
+ *
+ * Where SO_REUSEPORT is not supported all receivers share a single channel, so one of them is always back in receive()
+ * while the others process. <br/>
+ *
+ * Receivers are virtual threads in virtual {@link ExecutionMode}, a receiver blocked in receive() then does not hold a
+ * carrier thread. <br/>
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class UdpLogServer {
+public class UdpLogServer implements LogServer {
 
-	private static final int UDP_PORT = 9091;
 	private static final int BUFFER_SIZE = 65536;
-	private static final int THREAD_POOL_SIZE = 15;
+
+	// Window of packetsPerSecond
+	private static final int RATE_WINDOW_SECONDS = 10;
 
 	private final LogProcessor logProcessor;
-	private final Scheduler logProcessingScheduler;
+	private final CollectorProperties collectorProperties;
+	private final ExecutionMode executionMode;
 
-	private DatagramSocket socket;
-	private ExecutorService executorService;
+	// Read by getMetrics() while starting or stopping
+	private final List<DatagramChannel> channels = new CopyOnWriteArrayList<>();
+	private final List<Receiver> receivers = new CopyOnWriteArrayList<>();
 	private volatile boolean running = false;
 
+	@Override
 	public void start() {
-		executorService = Executors.newFixedThreadPool(THREAD_POOL_SIZE, runnable -> {
-			// the factory to use when creating new threads
-			Thread thread = new Thread(runnable);
-			thread.setName("udp-worker-" + thread.threadId());
-			thread.setDaemon(true);
-			return thread;
-		});
+		CollectorProperties.Udp udp = collectorProperties.getUdp();
+		int receiverCount = udp.getReceivers() > 0 ? udp.getReceivers() : Runtime.getRuntime().availableProcessors();
+
+		try {
+			boolean reusePort = udp.isReusePort() && receiverCount > 1 && supportsReusePort();
+
+			/**
+			 * The server binds to the udp port <br/>
+			 * The OS delivers incoming UDP packets for that port to one of the bound sockets <br/>
+			 */
+			int channelCount = reusePort ? receiverCount : 1;
+			for (int i = 0; i < channelCount; i++) {
+				channels.add(openChannel(udp, reusePort));
+			}
+
+			log.info("UDP Server listening on port {} ({} receivers, {} sockets, SO_RCVBUF={})", udp.getPort(),
+					receiverCount, channelCount, channels.get(0).getOption(StandardSocketOptions.SO_RCVBUF));
+		} catch (IOException e) {
+			log.error("Failed to start UDP server: {}", e.getMessage());
+			closeChannels();
+			channels.clear();
+			return;
+		}
 
 		running = true;
 
-		new Thread(() -> {
-			try {
-				/**
-				 * The server binds to port 9091 <br/>
-				 * The OS delivers incoming UDP packets for that port <br/>
-				 */
-				socket = new DatagramSocket(UDP_PORT);
-				log.info("UDP Server listening on port " + UDP_PORT);
-
-				byte[] buffer = new byte[BUFFER_SIZE];
-
-				while (running) {
-					try {
-						/**
-						 * receive() blocks until a packet arrives <br/>
-						 * When a packet arrives, receive() unblocks
-						 */
-						DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-						socket.receive(packet);
-
-						String message = new String(packet.getData(), 0, packet.getLength()).trim();
-
-						// Process in thread pool with backpressure
-						executorService.submit(() -> {
-							Mono.fromRunnable(() -> logProcessor.processLog(message))
-									.subscribeOn(logProcessingScheduler).subscribe(null,
-											error -> log.error("Error processing UDP log: {}", error.getMessage()));
-						});
-
-					} catch (Exception e) {
-						if (running) {
-							log.error("Error receiving UDP packet: {}", e.getMessage());
-						}
-					}
-				}
-			} catch (Exception e) {
-				log.error("Failed to start UDP server: {}", e.getMessage());
-			}
-		}, "udp-receiver").start();
+		ThreadFactory threadFactory = executionMode.threadFactory("udp-receiver-");
+		for (int i = 0; i < receiverCount; i++) {
+			Receiver receiver = new Receiver(channels.get(i % channels.size()));
+			receivers.add(receiver);
+			threadFactory.newThread(receiver).start();
+		}
+	}
+
+	private static boolean supportsReusePort() throws IOException {
+		try (DatagramChannel probe = DatagramChannel.open()) {
+			return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+		}
+	}
+
+	private DatagramChannel openChannel(CollectorProperties.Udp udp, boolean reusePort) throws IOException {
+		DatagramChannel channel = DatagramChannel.open();
+		if (reusePort) {
+			channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+		}
+		// The kernel caps the value at net.core.rmem_max, the effective size is logged on start
+		channel.setOption(StandardSocketOptions.SO_RCVBUF, udp.getReceiveBufferSize());
+		channel.bind(new InetSocketAddress(udp.getPort()));
+		return channel;
 	}
 
+	@Override
 	public void stop() {
 		running = false;
+		closeChannels();
+		// A later start opens its own, the metrics only count those
+		channels.clear();
+		receivers.clear();
+		log.info("UDP Server stopped");
+	}
+
+	private void closeChannels() {
+		for (DatagramChannel channel : channels) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+		}
+	}
 
-		if (socket != null && !socket.isClosed()) {
-			socket.close();
+	@Override
+	public String getName() {
+		return "udp";
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		long packets = 0;
+		List<Map<String, Object>> receiverMetrics = new ArrayList<>();
+		for (Receiver receiver : receivers) {
+			packets += receiver.packets;
+			receiverMetrics.add(receiver.snapshot());
 		}
 
-		if (executorService != null) {
-			executorService.shutdown();
-			try {
-				if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
-					executorService.shutdownNow();
+		metrics.put("threads", executionMode.label());
+		metrics.put("packetsReceived", packets);
+		metrics.put("sockets", channels.size());
+		metrics.put("receivers", receiverMetrics);
+		metrics.put("kernel", UdpKernelStats.read(collectorProperties.getUdp().getPort()));
+		return metrics;
+	}
+
+	private final class Receiver implements Runnable {
+
+		private final DatagramChannel channel;
+
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+		/**
+		 * Processing is synchronous, so the payload array can be reused for every datagram
+		 */
+		private final byte[] payload = new byte[BUFFER_SIZE];
+
+		// Written by the receiver thread only
+		private volatile long packets;
+		private volatile long bytes;
+
+		private final RateMeter packetRate = new RateMeter(RATE_WINDOW_SECONDS);
+
+		Receiver(DatagramChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public void run() {
+			while (running) {
+				try {
+					buffer.clear();
+					/**
+					 * receive() blocks until a packet arrives <br/>
+					 * When a packet arrives, receive() unblocks
+					 */
+					if (channel.receive(buffer) == null) {
+						continue;
+					}
+
+					int length = buffer.position();
+					buffer.get(0, payload, 0, length);
+					packets++;
+					bytes += length;
+					packetRate.record(1);
+
+					logProcessor.processLog(payload, 0, length);
+				} catch (ClosedChannelException e) {
+					// Channel closed by stop()
+					return;
+				} catch (Exception e) {
+					if (running) {
+						log.error("Error receiving UDP packet: {}", e.getMessage());
+					}
 				}
-			} catch (InterruptedException e) {
-				executorService.shutdownNow();
 			}
 		}
 
-		log.info("UDP Server stopped");
+		Map<String, Object> snapshot() {
+			Map<String, Object> metrics = new HashMap<>();
+			metrics.put("packets", packets);
+			metrics.put("bytes", bytes);
+			metrics.put("packetsPerSecond", Math.round(packetRate.perSecond() * 10) / 10.0);
+			return metrics;
+		}
 	}
 }
@@ -0,0 +1,88 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.logging.server.LineFrameDecoder;
+
+class LineFrameDecoderTest {
+
+	private final List<String> frames = new ArrayList<>();
+	private int oversized;
+
+	private final LineFrameDecoder.FrameHandler handler = new LineFrameDecoder.FrameHandler() {
+
+		@Override
+		public void onFrame(byte[] frame, int length) {
+			frames.add(new String(frame, 0, length, StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public void onOversizedFrame() {
+			oversized++;
+		}
+	};
+
+	private LineFrameDecoder decoder;
+
+	@BeforeEach
+	void setUp() {
+		decoder = new LineFrameDecoder(16);
+	}
+
+	@Test
+	void testSplitsMultipleFramesInOneRead() {
+		decoder.decode(direct("first\nsecond\r\nthird\n"), handler);
+
+		assertEquals(List.of("first", "second", "third"), frames);
+	}
+
+	@Test
+	void testJoinsFrameSpanningReads() {
+		decoder.decode(direct("par"), handler);
+		decoder.decode(direct("tial\nnext"), handler);
+		decoder.decode(direct("\n"), handler);
+
+		assertEquals(List.of("partial", "next"), frames);
+	}
+
+	@Test
+	void testSkipsBlankLines() {
+		decoder.decode(direct("\n\r\none\n\n"), handler);
+
+		assertEquals(List.of("one"), frames);
+	}
+
+	@Test
+	void testDiscardsOversizedFrameUpToNextNewline() {
+		decoder.decode(direct("0123456789"), handler);
+		decoder.decode(direct("0123456789"), handler);
+		decoder.decode(direct("abc\nok\n"), handler);
+		decoder.decode(direct("01234567890123456789\nafter\n"), handler);
+
+		assertEquals(List.of("ok", "after"), frames);
+		assertEquals(2, oversized);
+	}
+
+	@Test
+	void testFinishEmitsTrailingFrameWithoutNewline() {
+		decoder.decode(direct("done\nlast"), handler);
+		decoder.finish(handler);
+
+		assertEquals(List.of("done", "last"), frames);
+	}
+
+	private ByteBuffer direct(String data) {
+		byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+		buffer.put(bytes).flip();
+		return buffer;
+	}
+}
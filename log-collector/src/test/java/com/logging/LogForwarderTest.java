@@ -0,0 +1,402 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logging.codec.IngestHeaders;
+import com.logging.codec.LogBatchCodec;
+import com.logging.compress.BlockCompressor;
+import com.logging.config.CollectorProperties;
+import com.logging.forwarder.LogForwarder;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.model.ParsedLog;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class LogForwarderTest {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private HttpServer server;
+	private LogForwarder logForwarder;
+
+	/**
+	 * Usernames of every batch received by the stub server, in arrival order
+	 */
+	private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+	/**
+	 * When positive, the next request is answered 429 after accepting this many entries
+	 */
+	private final AtomicInteger acceptThenReject = new AtomicInteger(0);
+
+	/**
+	 * While true, every request is answered 503
+	 */
+	private final AtomicBoolean unavailable = new AtomicBoolean(false);
+
+	/**
+	 * While true, accepted requests are answered 202 with replication pending, like a leader short of its quorum
+	 */
+	private final AtomicBoolean replicationPending = new AtomicBoolean(false);
+
+	/**
+	 * Content-Encoding of every accepted request
+	 */
+	private final List<String> encodings = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Content-Encoding answered 415, like a server without that codec
+	 */
+	private volatile String refusedEncoding;
+
+	/**
+	 * System.nanoTime() of every request received
+	 */
+	private final List<Long> arrivals = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Ingest credit and retry delay advertised with every response, when not negative
+	 */
+	private volatile long credit = -1;
+	private volatile long retryAfterMs = -1;
+
+	/**
+	 * Forwarder body format, batches are decoded by content type
+	 */
+	private String format = "binary";
+
+	@TempDir
+	Path spillDirectory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/ingest/batch", this::handleBatch);
+		server.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		logForwarder.stop();
+		server.stop(0);
+	}
+
+	@Test
+	void testCoalescesLogsIntoBatches() {
+		startForwarder(100, 5_000);
+
+		for (int i = 0; i < 250; i++) {
+			logForwarder.forward(createLog("user" + i));
+		}
+
+		waitFor("250 logs forwarded", () -> forwarded() == 250);
+
+		assertEquals(List.of(100, 100, 50), batches.stream().map(List::size).toList());
+		assertEquals(3L, logForwarder.getMetrics().get("batchesSent"));
+	}
+
+	@Test
+	void testFlushesPartialBatchAfterLinger() {
+		startForwarder(100, 20);
+
+		logForwarder.forward(createLog("single"));
+
+		waitFor("1 log forwarded", () -> forwarded() == 1);
+
+		assertEquals(List.of(List.of("single")), batches);
+	}
+
+	@Test
+	void testForwardsJsonWhenConfigured() {
+		format = "json";
+		startForwarder(3, 5_000);
+
+		for (int i = 0; i < 3; i++) {
+			logForwarder.forward(createLog("user" + i));
+		}
+
+		waitFor("3 logs forwarded", () -> forwarded() == 3);
+
+		assertEquals(List.of(List.of("user0", "user1", "user2")), batches);
+	}
+
+	@Test
+	void testFallsBackToAnEncodingTheServerAccepts() {
+		refusedEncoding = "lz4";
+		startForwarder(2, 5_000, 20_000, 1);
+
+		for (int i = 0; i < 4; i++) {
+			logForwarder.forward(createLog("user" + i));
+		}
+
+		waitFor("4 logs forwarded", () -> forwarded() == 4);
+
+		assertEquals(List.of(List.of("user0", "user1"), List.of("user2", "user3")), batches);
+		assertEquals(List.of("deflate", "deflate"), encodings);
+		Map<?, ?> compression = (Map<?, ?>) nodeMetrics().get("compression");
+		assertEquals("deflate", compression.get("codec"));
+	}
+
+	@Test
+	void testRetriesOnlyRejectedSuffix() {
+		acceptThenReject.set(2);
+		startForwarder(5, 5_000);
+
+		for (int i = 0; i < 5; i++) {
+			logForwarder.forward(createLog("user" + i));
+		}
+
+		waitFor("5 logs forwarded", () -> forwarded() == 5);
+
+		List<String> stored = batches.stream().flatMap(List::stream).toList();
+		assertEquals(List.of("user0", "user1", "user2", "user3", "user4"), stored);
+	}
+
+	@Test
+	void testBatchStoredWithoutQuorumIsNotResent() {
+		replicationPending.set(true);
+		startForwarder(100, 20);
+
+		for (int i = 0; i < 250; i++) {
+			logForwarder.forward(createLog("user" + i));
+		}
+
+		waitFor("250 logs forwarded", () -> forwarded() == 250);
+
+		// Batches in flight may land in any order, each one lands once
+		List<String> stored = batches.stream().flatMap(List::stream).sorted().toList();
+		assertEquals(IntStream.range(0, 250).mapToObj(i -> "user" + i).sorted().toList(), stored);
+		assertEquals(250L, nodeMetrics().get("logsReplicationPending"));
+		assertEquals(0L, logForwarder.getMetrics().get("logsFailed"));
+	}
+
+	@Test
+	void testSpillsDuringOutageAndReplaysInOrder() {
+		unavailable.set(true);
+		startForwarder(10, 10, 20, 1);
+
+		for (int i = 0; i < 500; i++) {
+			logForwarder.forward(createLog("user" + i));
+		}
+		Map<?, ?> spill = (Map<?, ?>) nodeMetrics().get("spill");
+		assertTrue((Long) spill.get("depth") > 0);
+		assertEquals(0L, logForwarder.getMetrics().get("logsDropped"));
+
+		unavailable.set(false);
+		waitFor("500 logs forwarded", () -> forwarded() == 500);
+
+		List<String> stored = batches.stream().flatMap(List::stream).toList();
+		assertEquals(IntStream.range(0, 500).mapToObj(i -> "user" + i).toList(), stored);
+		spill = (Map<?, ?>) nodeMetrics().get("spill");
+		assertEquals(0L, spill.get("depth"));
+		assertEquals(spill.get("logsSpilled"), spill.get("logsReplayed"));
+	}
+
+	@Test
+	void testPacesBatchesToTheServerCreditAndRetryHint() {
+		acceptThenReject.set(40);
+		credit = 30;
+		retryAfterMs = 50;
+		startForwarder(100, 20, 20_000, 1);
+
+		for (int i = 0; i < 300; i++) {
+			logForwarder.forward(createLog("user" + i));
+		}
+		waitFor("300 logs forwarded", () -> forwarded() == 300);
+
+		// Retried after the hint of the server instead of the default second of backoff
+		assertTrue(arrivals.get(1) - arrivals.get(0) < TimeUnit.MILLISECONDS.toNanos(500));
+		List<String> stored = batches.stream().flatMap(List::stream).toList();
+		assertEquals(IntStream.range(0, 300).mapToObj(i -> "user" + i).toList(), stored);
+		// The rejected suffix of the first batch, then batches cut to the credit
+		assertEquals(40, batches.get(0).size());
+		assertEquals(60, batches.get(1).size());
+		assertTrue(batches.stream().skip(2).allMatch(batch -> batch.size() <= 30));
+
+		Map<?, ?> flowControl = (Map<?, ?>) nodeMetrics().get("flowControl");
+		assertEquals(1L, flowControl.get("decreases"));
+		assertEquals(30L, flowControl.get("credit"));
+	}
+
+	@Test
+	void testRoutesEveryKeyToOneNode() throws IOException {
+		// Second node, recording the usernames it receives
+		List<String> secondNode = new CopyOnWriteArrayList<>();
+		HttpServer second = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		second.createContext("/ingest/batch", exchange -> {
+			byte[] body = BlockCompressor.forName(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+					.decompress(exchange.getRequestBody().readAllBytes(), 64 * 1024 * 1024);
+			List<ParsedLog> logs = LogBatchCodec.decode(body, ParsedLog::new);
+			logs.forEach(log -> secondNode.add(log.getUsername()));
+			respond(exchange, 201, "{\"status\":\"success\",\"accepted\":" + logs.size() + "}");
+		});
+		second.start();
+		try {
+			CollectorProperties properties = new CollectorProperties();
+			properties.getForwarder().setLingerMs(20);
+			properties.getForwarder().setShardKey("username");
+			properties.getForwarder().getSpill().setDirectory(spillDirectory.toString());
+			properties.getForwarder().setNodes(List.of("http://localhost:" + server.getAddress().getPort(),
+					"http://localhost:" + second.getAddress().getPort()));
+			logForwarder = new LogForwarder(WebClient.builder().build(), properties, new MetricsRegistry());
+			logForwarder.start();
+
+			for (int round = 0; round < 3; round++) {
+				for (int i = 0; i < 200; i++) {
+					logForwarder.forward(createLog("user" + i));
+				}
+			}
+			waitFor("600 logs forwarded", () -> forwarded() == 600);
+
+			List<String> firstNode = batches.stream().flatMap(List::stream).toList();
+			assertEquals(600, firstNode.size() + secondNode.size());
+			// Both nodes get a share, and every user all of its logs on one of them
+			assertTrue(firstNode.size() > 100 && secondNode.size() > 100);
+			for (int i = 0; i < 200; i++) {
+				String username = "user" + i;
+				long onFirst = firstNode.stream().filter(username::equals).count();
+				long onSecond = secondNode.stream().filter(username::equals).count();
+				assertTrue(onFirst == 3 && onSecond == 0 || onFirst == 0 && onSecond == 3, username);
+			}
+			assertEquals(2, ((List<?>) logForwarder.getMetrics().get("nodes")).size());
+			assertEquals("username", logForwarder.getMetrics().get("shardKey"));
+		} finally {
+			second.stop(0);
+		}
+	}
+
+	private void startForwarder(int batchSize, long lingerMs) {
+		startForwarder(batchSize, lingerMs, 20_000, 4);
+	}
+
+	private void startForwarder(int batchSize, long lingerMs, int queueCapacity, int maxInFlight) {
+		CollectorProperties properties = new CollectorProperties();
+		properties.getForwarder().setBatchSize(batchSize);
+		properties.getForwarder().setMinBatchSize(10);
+		properties.getForwarder().setLingerMs(lingerMs);
+		properties.getForwarder().setQueueCapacity(queueCapacity);
+		properties.getForwarder().setMaxInFlight(maxInFlight);
+		properties.getForwarder().getSpill().setDirectory(spillDirectory.toString());
+		properties.getForwarder().setFormat(format);
+
+		properties.getForwarder().setNodes(List.of("http://localhost:" + server.getAddress().getPort()));
+
+		logForwarder = new LogForwarder(WebClient.builder().build(), properties, new MetricsRegistry());
+		logForwarder.start();
+	}
+
+	private void handleBatch(HttpExchange exchange) throws IOException {
+		arrivals.add(System.nanoTime());
+		byte[] body = exchange.getRequestBody().readAllBytes();
+		if (unavailable.get()) {
+			respond(exchange, 503, "{\"status\":\"error\"}");
+			return;
+		}
+		String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+		if (encoding != null) {
+			if (encoding.equals(refusedEncoding)) {
+				exchange.getResponseHeaders().add("Accept-Encoding", "deflate, identity");
+				respond(exchange, 415, "{\"status\":\"error\"}");
+				return;
+			}
+			body = BlockCompressor.forName(encoding).decompress(body, 64 * 1024 * 1024);
+		}
+		encodings.add(String.valueOf(encoding));
+		List<String> usernames;
+		if (LogBatchCodec.MEDIA_TYPE.equals(exchange.getRequestHeaders().getFirst("Content-Type"))) {
+			usernames = LogBatchCodec.decode(body, ParsedLog::new).stream().map(ParsedLog::getUsername).toList();
+		} else {
+			List<Map<String, Object>> logs = mapper.readValue(body, new TypeReference<>() {
+			});
+			usernames = logs.stream().map(log -> (String) log.get("username")).toList();
+		}
+
+		int accepted = acceptThenReject.getAndSet(0);
+		if (accepted > 0) {
+			batches.add(usernames.subList(0, accepted));
+			respond(exchange, 429, "{\"status\":\"error\",\"accepted\":" + accepted + "}");
+		} else if (replicationPending.get()) {
+			batches.add(usernames);
+			exchange.getResponseHeaders().add(IngestHeaders.REPLICATION, IngestHeaders.REPLICATION_PENDING);
+			respond(exchange, 202, "{\"status\":\"success\",\"accepted\":" + usernames.size() + "}");
+		} else {
+			batches.add(usernames);
+			respond(exchange, 201, "{\"status\":\"success\",\"accepted\":" + usernames.size() + "}");
+		}
+	}
+
+	private void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		if (credit >= 0) {
+			exchange.getResponseHeaders().add(IngestHeaders.CREDIT, String.valueOf(credit));
+		}
+		if (status == 429 && retryAfterMs >= 0) {
+			exchange.getResponseHeaders().add(IngestHeaders.RETRY_AFTER_MS, String.valueOf(retryAfterMs));
+		}
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private Map<?, ?> nodeMetrics() {
+		List<?> nodes = (List<?>) logForwarder.getMetrics().get("nodes");
+		assertEquals(1, nodes.size());
+		return (Map<?, ?>) nodes.get(0);
+	}
+
+	private long forwarded() {
+		return (Long) logForwarder.getMetrics().get("logsForwarded");
+	}
+
+	private void waitFor(String what, BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() >= deadline) {
+				fail("timed out waiting for " + what);
+			}
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private ParsedLog createLog(String username) {
+		ParsedLog log = new ParsedLog();
+		log.setTimestamp("2025-01-16T12:00:00Z");
+		log.setEventCategory("linux_login");
+		log.setEventSourceType("linux");
+		log.setSeverity("INFO");
+		log.setUsername(username);
+		log.setHostname("testhost");
+		log.setRawMessage("test message");
+		return log;
+	}
+}
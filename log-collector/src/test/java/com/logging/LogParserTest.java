@@ -0,0 +1,116 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.model.ParsedLog;
+import com.logging.processor.LogParser;
+
+class LogParserTest {
+
+	private final LogParser logParser = new LogParser();
+
+	@Test
+	void testKnownFormats() {
+		ParsedLog login = logParser.parse(
+				"<86> aiops9242 sudo: pam_unix(sudo:session): session opened for user root(uid=0) by motadata(uid=1000)");
+		assertEquals("DEBUG", login.getSeverity());
+		assertEquals("linux_login", login.getEventCategory());
+		assertEquals("linux", login.getEventSourceType());
+		assertEquals("root", login.getUsername());
+		assertEquals("aiops9242", login.getHostname());
+
+		ParsedLog logout = logParser.parse("<86> web-01 systemd-logind: session closed for user deploy");
+		assertEquals("linux_logout", logout.getEventCategory());
+		assertEquals("deploy", logout.getUsername());
+
+		ParsedLog windows = logParser.parse(
+				"<134> WIN-EQ5V3RA5F7H Microsoft-Windows-Security-Auditing: A user account was successfully logged on. Account Name: Motadata");
+		assertEquals("windows_login", windows.getEventCategory());
+		assertEquals("windows", windows.getEventSourceType());
+		assertEquals("Motadata", windows.getUsername());
+		assertEquals("WIN-EQ5V3RA5F7H", windows.getHostname());
+
+		ParsedLog error = logParser.parse("<2> server01 kernel: critical error occurred");
+		assertEquals("ERROR", error.getSeverity());
+		assertEquals("unknown", error.getEventCategory());
+		assertNull(error.getUsername());
+	}
+
+	@Test
+	void testRepeatedValuesAreShared() {
+		ParsedLog first = logParser.parse("<86> web-01 systemd-logind: session closed for user deploy");
+		ParsedLog second = logParser.parse("<86> web-01 systemd-logind: session closed for user deploy");
+
+		assertSame(first.getHostname(), second.getHostname());
+		assertSame(first.getUsername(), second.getUsername());
+	}
+
+	@Test
+	void testMatchesRegexParsing() {
+		List<String> messages = List.of("", "<", "<>", "<12", "<7>", "<191> h", "no priority here",
+				"  <86> leading whitespace sudo", "<86>\thost\tsudo: nothing else",
+				"<86> h sudo: session opened for user abcby x", "<86> h session opened for user alice by",
+				"<86> h session opened for user (uid=0) by x session opened for user bob(uid=1) by carol",
+				"<86> h session opened for user dave\nby eve", "<86> h session closed for user ",
+				"<86> h session closed for user  x session closed for user y_1",
+				"<134> h Microsoft-Windows-Security-Auditing: An account was logged off. Account Name: svc_backup",
+				"<134> h Microsoft-Windows-EventLog: Account Name: ignored", "<99999999999> h sudo");
+
+		for (String message : messages) {
+			ParsedLog parsed = logParser.parse(message);
+			ParsedLog expected = parseWithRegex(message);
+			assertEquals(expected.getSeverity(), parsed.getSeverity(), message);
+			assertEquals(expected.getEventCategory(), parsed.getEventCategory(), message);
+			assertEquals(expected.getUsername(), parsed.getUsername(), message);
+			assertEquals(expected.getHostname(), parsed.getHostname(), message);
+		}
+	}
+
+	/**
+	 * Reference implementation, the regex based parsing the processor used before
+	 */
+	private ParsedLog parseWithRegex(String message) {
+		ParsedLog log = new ParsedLog();
+		Matcher priority = Pattern.compile("^<(\\d+)>").matcher(message);
+		String severity = "INFO";
+		if (priority.find() && priority.group(1).length() < 10) {
+			int value = Integer.parseInt(priority.group(1)) & 0x07;
+			severity = value <= 2 ? "ERROR" : value == 3 ? "WARN" : value <= 5 ? "INFO" : "DEBUG";
+		}
+		log.setSeverity(severity);
+
+		Pattern username = null;
+		if (message.contains("sudo") || message.contains("session opened")) {
+			log.setEventCategory("linux_login");
+			username = Pattern.compile("session opened for user (\\w+).*by (\\w+)");
+		} else if (message.contains("session closed")) {
+			log.setEventCategory("linux_logout");
+			username = Pattern.compile("session closed for user (\\w+)");
+		} else if (message.contains("Microsoft-Windows-Security-Auditing")) {
+			log.setEventCategory(message.contains("logged on") ? "windows_login" : "windows_event");
+			username = Pattern.compile("Account Name: (\\w+)");
+		} else {
+			log.setEventCategory("unknown");
+		}
+		if (username != null) {
+			Matcher matcher = username.matcher(message);
+			if (matcher.find()) {
+				log.setUsername(matcher.group(1));
+			}
+		}
+
+		String[] parts = message.split("\\s+");
+		if (parts.length > 1) {
+			log.setHostname(parts[1]);
+		}
+		return log;
+	}
+}
@@ -16,6 +16,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import com.logging.forwarder.LogForwarder;
+import com.logging.metrics.MetricsRegistry;
 import com.logging.processor.LogProcessor;
 
 class LogProcessorTest {
@@ -28,7 +29,7 @@ class LogProcessorTest {
 	@BeforeEach
 	void setUp() {
 		MockitoAnnotations.openMocks(this);
-		logProcessor = new LogProcessor(logForwarder);
+		logProcessor = new LogProcessor(logForwarder, new MetricsRegistry());
 	}
 
 	@Test
@@ -50,6 +51,17 @@ class LogProcessorTest {
 		assertEquals(1L, metrics.get("totalLogsProcessed"));
 	}
 
+	@Test
+	void testPassesSentAtThrough() {
+		logProcessor.processLog(
+				"{\"sent.at\":1700000000123456,\"message\":\"<86> aiops9242 sudo: session opened for user root(uid=0) by motadata(uid=1000)\"}");
+		logProcessor.processLog("{\"message\":\"<86> aiops9242 sudo: session closed for user root\"}");
+
+		verify(logForwarder).forward(argThat(log -> Long.valueOf(1700000000123456L).equals(log.getSentAt())
+				&& "linux_login".equals(log.getEventCategory())));
+		verify(logForwarder).forward(argThat(log -> log.getSentAt() == null));
+	}
+
 	@Test
 	void testProcessWindowsLoginLog() {
 		String rawLog = "{\"message\":\"<134> WIN-EQ5V3RA5F7H Microsoft-Windows-Security-Auditing: A user account was successfully logged on. Account Name: Motadata\"}";
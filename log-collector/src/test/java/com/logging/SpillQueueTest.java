@@ -0,0 +1,87 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.logging.forwarder.SpillQueue;
+
+class SpillQueueTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void testFifoAcrossSegmentsAndDeletesReadSegments() throws IOException {
+		SpillQueue queue = SpillQueue.open(directory, 1024, Long.MAX_VALUE);
+		for (int i = 0; i < 200; i++) {
+			assertTrue(queue.offer(record(i)));
+		}
+		assertEquals(200, queue.size());
+		assertTrue(queue.segmentCount() > 1);
+
+		for (int i = 0; i < 200; i++) {
+			assertArrayEquals(record(i), queue.poll());
+		}
+		assertNull(queue.poll());
+		assertTrue(queue.isEmpty());
+		assertEquals(0, queue.bytes());
+		assertEquals(0, fileCount());
+		queue.close();
+	}
+
+	@Test
+	void testReopenResumesAfterLastRead() throws IOException {
+		SpillQueue queue = SpillQueue.open(directory, 1024, Long.MAX_VALUE);
+		for (int i = 0; i < 100; i++) {
+			queue.offer(record(i));
+		}
+		for (int i = 0; i < 30; i++) {
+			queue.poll();
+		}
+		queue.close();
+
+		SpillQueue reopened = SpillQueue.open(directory, 1024, Long.MAX_VALUE);
+		assertEquals(70, reopened.size());
+		reopened.offer(record(100));
+		for (int i = 30; i <= 100; i++) {
+			assertArrayEquals(record(i), reopened.poll());
+		}
+		assertTrue(reopened.isEmpty());
+		reopened.close();
+	}
+
+	@Test
+	void testRefusesBeyondMaxBytes() throws IOException {
+		SpillQueue queue = SpillQueue.open(directory, 1024, 100);
+		assertTrue(queue.offer(new byte[40]));
+		assertTrue(queue.offer(new byte[40]));
+		assertFalse(queue.offer(new byte[40]));
+		assertFalse(queue.offer(new byte[2048]));
+
+		queue.poll();
+		assertTrue(queue.offer(new byte[40]));
+		queue.close();
+	}
+
+	private long fileCount() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
+	private byte[] record(int i) {
+		return ("{\"username\":\"user" + i + "\"}").getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,105 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.concurrent.ExecutionMode;
+import com.logging.config.CollectorProperties;
+import com.logging.processor.LogProcessor;
+import com.logging.server.UdpLogServer;
+
+class UdpLogServerTest {
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testDatagramsReachTheProcessorOverLoopback() throws IOException {
+		LogProcessor logProcessor = mock(LogProcessor.class);
+		Set<String> received = ConcurrentHashMap.newKeySet();
+		// The payload array is reused by the receiver, so it is copied as it is processed
+		doAnswer(invocation -> received.add(new String((byte[]) invocation.getArgument(0), 0,
+				(int) invocation.getArgument(2), StandardCharsets.UTF_8))).when(logProcessor)
+				.processLog(any(byte[].class), eq(0), anyInt());
+
+		CollectorProperties collectorProperties = new CollectorProperties();
+		collectorProperties.getUdp().setPort(freePort());
+		collectorProperties.getUdp().setReceivers(2);
+		UdpLogServer server = new UdpLogServer(logProcessor, collectorProperties, ExecutionMode.of(false));
+		server.start();
+		try (DatagramSocket client = new DatagramSocket()) {
+			for (int i = 0; i < 100; i++) {
+				byte[] payload = ("{\"message\":\"log " + i + "\"}").getBytes(StandardCharsets.UTF_8);
+				client.send(new DatagramPacket(payload, payload.length, InetAddress.getLoopbackAddress(),
+						collectorProperties.getUdp().getPort()));
+			}
+			verify(logProcessor, timeout(5_000).times(100)).processLog(any(byte[].class), eq(0), anyInt());
+
+			assertEquals(100, received.size());
+			assertTrue(received.contains("{\"message\":\"log 42\"}"));
+			Map<String, Object> metrics = server.getMetrics();
+			assertEquals(100L, metrics.get("packetsReceived"));
+			List<Map<String, Object>> receivers = (List<Map<String, Object>>) metrics.get("receivers");
+			assertEquals(2, receivers.size());
+			double rate = receivers.stream().mapToDouble(receiver -> (Double) receiver.get("packetsPerSecond")).sum();
+			assertTrue(rate > 0);
+			// A second reader sees the same window
+			double again = ((List<Map<String, Object>>) server.getMetrics().get("receivers")).stream()
+					.mapToDouble(receiver -> (Double) receiver.get("packetsPerSecond")).sum();
+			assertTrue(again > 0);
+
+			Map<String, Object> kernel = (Map<String, Object>) metrics.get("kernel");
+			if (Boolean.TRUE.equals(kernel.get("available"))) {
+				assertEquals(metrics.get("sockets"), kernel.get("sockets"));
+				assertEquals(0L, kernel.get("socketDrops"));
+			}
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testRestartCountsOnlyTheNewSockets() throws IOException {
+		CollectorProperties collectorProperties = new CollectorProperties();
+		collectorProperties.getUdp().setPort(freePort());
+		collectorProperties.getUdp().setReceivers(2);
+		UdpLogServer server = new UdpLogServer(mock(LogProcessor.class), collectorProperties, ExecutionMode.of(false));
+		server.start();
+		int sockets = (int) server.getMetrics().get("sockets");
+		server.stop();
+		assertEquals(0, server.getMetrics().get("sockets"));
+
+		server.start();
+		try {
+			Map<String, Object> metrics = server.getMetrics();
+			assertEquals(sockets, metrics.get("sockets"));
+			assertEquals(2, ((List<Map<String, Object>>) metrics.get("receivers")).size());
+		} finally {
+			server.stop();
+		}
+	}
+
+	private static int freePort() throws IOException {
+		try (DatagramSocket socket = new DatagramSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.logging.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Static membership of a log-server cluster: the base URLs of its nodes, listed in the configuration or in a file of
+ * one URL per line where blank lines and lines starting with # are ignored. The file is read once, on start. <br/>
+ *
+ * The order of the nodes is the order of the list, shard numbers in responses follow it. The placement of logs does
+ * not depend on it, see {@link ConsistentHashRing}.
+ */
+public final class ClusterNodes {
+
+	private ClusterNodes() {
+	}
+
+	/**
+	 * @param nodes     base URLs, used when there is no file
+	 * @param nodesFile path of the file listing the base URLs, null or blank for none
+	 * @return the base URLs without trailing slashes
+	 * @throws IllegalArgumentException when no node is listed, a URL is not http(s) or listed twice
+	 * @throws UncheckedIOException     when the file cannot be read
+	 */
+	public static List<String> resolve(List<String> nodes, String nodesFile) {
+		List<String> listed = nodes != null ? nodes : List.of();
+		if (nodesFile != null && !nodesFile.isBlank()) {
+			try {
+				listed = Files.readAllLines(Path.of(nodesFile)).stream().map(String::trim)
+						.filter(line -> !line.isEmpty() && !line.startsWith("#")).toList();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot read cluster nodes from " + nodesFile, e);
+			}
+		}
+
+		Set<String> urls = new LinkedHashSet<>();
+		for (String node : listed) {
+			String url = normalize(node);
+			if (!urls.add(url)) {
+				throw new IllegalArgumentException("Cluster node listed twice: " + url);
+			}
+		}
+		if (urls.isEmpty()) {
+			throw new IllegalArgumentException("No cluster node configured");
+		}
+		return new ArrayList<>(urls);
+	}
+
+	private static String normalize(String node) {
+		String url = node.trim();
+		while (url.endsWith("/")) {
+			url = url.substring(0, url.length() - 1);
+		}
+		URI uri = URI.create(url);
+		if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme()) || uri.getHost() == null) {
+			throw new IllegalArgumentException("Cluster node must be an http(s) base URL, got " + node);
+		}
+		return url;
+	}
+
+	/**
+	 * @param url base URL of a node
+	 * @return host and port, usable as a file name
+	 */
+	public static String id(String url) {
+		URI uri = URI.create(url);
+		String id = uri.getPort() >= 0 ? uri.getHost() + "_" + uri.getPort() : uri.getHost();
+		return id.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+}
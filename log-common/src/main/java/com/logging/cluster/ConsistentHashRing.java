@@ -0,0 +1,121 @@
+package com.logging.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps keys to nodes by consistent hashing <br/>
+ *
+ * Every node is placed on a 64 bit ring at pointsPerNode pseudo-random points derived from its id, and a key belongs to
+ * the node of the first point at or after the key's hash, wrapping around. Adding or removing a node only moves the
+ * keys of the arcs it gains or loses, about 1/N of them, and the many points per node even out the arcs so that each
+ * node gets close to 1/N of the keys. <br/>
+ *
+ * Immutable, membership changes build a new ring.
+ *
+ * @param <N>
+ */
+public final class ConsistentHashRing<N> {
+
+	/**
+	 * Points per node, the load of a node deviates from 1/N by roughly 1/sqrt(points)
+	 */
+	public static final int DEFAULT_POINTS_PER_NODE = 256;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long[] points;
+	private final Object[] owners;
+	private final int nodeCount;
+
+	/**
+	 * @param nodes          by id, the ids alone decide the placement
+	 * @param pointsPerNode
+	 * @throws IllegalArgumentException without nodes
+	 */
+	public ConsistentHashRing(Map<String, N> nodes, int pointsPerNode) {
+		if (nodes.isEmpty()) {
+			throw new IllegalArgumentException("A hash ring needs at least one node");
+		}
+		if (pointsPerNode < 1) {
+			throw new IllegalArgumentException("Points per node must be positive, got " + pointsPerNode);
+		}
+		int size = nodes.size() * pointsPerNode;
+		long[] hashes = new long[size];
+		Object[] nodeAt = new Object[size];
+		int i = 0;
+		for (Map.Entry<String, N> node : nodes.entrySet()) {
+			for (int point = 0; point < pointsPerNode; point++) {
+				hashes[i] = hash(node.getKey() + "#" + point);
+				nodeAt[i] = node.getValue();
+				i++;
+			}
+		}
+
+		// Sorts the points, owners following, ties broken by node id so that the order of the map does not matter
+		Integer[] order = new Integer[size];
+		for (int j = 0; j < size; j++) {
+			order[j] = j;
+		}
+		List<String> ids = List.copyOf(nodes.keySet());
+		Arrays.sort(order, (a, b) -> {
+			int compare = Long.compareUnsigned(hashes[a], hashes[b]);
+			return compare != 0 ? compare : ids.get(a / pointsPerNode).compareTo(ids.get(b / pointsPerNode));
+		});
+		this.points = new long[size];
+		this.owners = new Object[size];
+		for (int j = 0; j < size; j++) {
+			points[j] = hashes[order[j]];
+			owners[j] = nodeAt[order[j]];
+		}
+		this.nodeCount = nodes.size();
+	}
+
+	/**
+	 * @param key null is hashed like the empty string
+	 * @return node owning the key
+	 */
+	@SuppressWarnings("unchecked")
+	public N nodeFor(String key) {
+		if (nodeCount == 1) {
+			return (N) owners[0];
+		}
+		long hash = hash(key != null ? key : "");
+		// First point at or after the hash, in unsigned order
+		int low = 0;
+		int high = points.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (Long.compareUnsigned(points[mid], hash) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return (N) owners[low == points.length ? 0 : low];
+	}
+
+	public int size() {
+		return nodeCount;
+	}
+
+	/**
+	 * FNV-1a over the UTF-8 bytes, then the MurmurHash3 finalizer so that close keys land far apart
+	 */
+	static long hash(String value) {
+		long hash = FNV_OFFSET;
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
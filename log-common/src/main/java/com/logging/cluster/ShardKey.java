@@ -0,0 +1,54 @@
+package com.logging.cluster;
+
+import com.logging.codec.LogEvent;
+
+/**
+ * Field of a log that decides its shard, named as in the JSON entries. Logs with the same value are stored on the same
+ * log-server node, so queries filtering on it could be answered by that node alone.
+ */
+public enum ShardKey {
+
+	HOSTNAME("hostname", null), EVENT_CATEGORY("event.category", "category"),
+	EVENT_SOURCE_TYPE("event.source.type", "source"), USERNAME("username", null), SEVERITY("severity", "level");
+
+	private final String label;
+	private final String alias;
+
+	ShardKey(String label, String alias) {
+		this.label = label;
+		this.alias = alias;
+	}
+
+	public String label() {
+		return label;
+	}
+
+	/**
+	 * @param event
+	 * @return value of the field, null when absent
+	 */
+	public String valueOf(LogEvent event) {
+		return switch (this) {
+		case HOSTNAME -> event.getHostname();
+		case EVENT_CATEGORY -> event.getEventCategory();
+		case EVENT_SOURCE_TYPE -> event.getEventSourceType();
+		case USERNAME -> event.getUsername();
+		case SEVERITY -> event.getSeverity();
+		};
+	}
+
+	/**
+	 * @param name label or alias
+	 * @return
+	 * @throws IllegalArgumentException for any other name
+	 */
+	public static ShardKey parse(String name) {
+		for (ShardKey key : values()) {
+			if (key.label.equals(name) || name != null && name.equals(key.alias)) {
+				return key;
+			}
+		}
+		throw new IllegalArgumentException("Unknown shard key: " + name
+				+ ", expected hostname, event.category, event.source.type, username or severity");
+	}
+}
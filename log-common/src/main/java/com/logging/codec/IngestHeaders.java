@@ -0,0 +1,43 @@
+package com.logging.codec;
+
+/**
+ * Flow control headers of log-server's ingest responses, read by log-collector to pace its batches <br/>
+ *
+ * Every response to <code>POST /ingest</code> and <code>POST /ingest/batch</code>, accepted or not, advertises the
+ * logs the server can take right now. A <code>429</code> also carries how long the server expects to need before
+ * retrying is worth it, in milliseconds next to the standard <code>Retry-After</code> in whole seconds. <br/>
+ *
+ * A replication leader whose quorum did not store the logs in time answers <code>202</code>, or the <code>429</code>
+ * of a partial batch, with {@link #REPLICATION} set to {@link #REPLICATION_PENDING}: the logs are stored on the leader
+ * and replicated later, so resending them would store them twice.
+ */
+public final class IngestHeaders {
+
+	/**
+	 * Logs the server accepts before answering 429, the free space of its ingest buffer
+	 */
+	public static final String CREDIT = "X-Ingest-Credit";
+
+	/**
+	 * Size of the ingest buffer, the credit of an idle server
+	 */
+	public static final String CAPACITY = "X-Ingest-Capacity";
+
+	/**
+	 * Delay before retrying a rejected request, in milliseconds
+	 */
+	public static final String RETRY_AFTER_MS = "X-Retry-After-Ms";
+
+	/**
+	 * Replication state of the accepted logs, only sent when they are not stored by the quorum yet
+	 */
+	public static final String REPLICATION = "X-Replication";
+
+	/**
+	 * {@link #REPLICATION} of logs stored on the leader only, not to be resent
+	 */
+	public static final String REPLICATION_PENDING = "pending";
+
+	private IngestHeaders() {
+	}
+}
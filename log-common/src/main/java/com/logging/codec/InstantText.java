@@ -0,0 +1,224 @@
+package com.logging.codec;
+
+import java.time.Instant;
+
+/**
+ * Epoch millis and nanos to and from the text {@link Instant#toString()} prints for them, for years 0000 to 9999 <br/>
+ *
+ * <code>2026-01-15T10:00:00Z</code> on whole seconds, <code>2026-01-15T10:00:00.120Z</code> otherwise, with 6 or 9
+ * fraction digits when the nanos need them. Converting by hand avoids the formatter machinery, which costs more than
+ * the rest of encoding a log.
+ */
+public final class InstantText {
+
+	public static final long NOT_CANONICAL = Long.MIN_VALUE;
+
+	private static final long MILLIS_PER_DAY = 86_400_000L;
+	private static final long SECONDS_PER_DAY = 86_400L;
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	/**
+	 * Days from 0000-03-01 to 1970-01-01
+	 */
+	private static final long EPOCH_OFFSET_DAYS = 719_468;
+
+	/**
+	 * Epoch day of 9999-12-31
+	 */
+	private static final long MAX_EPOCH_DAY = 2_932_896;
+
+	/**
+	 * Whole seconds representable in epoch nanos, 1677-09-21 to 2262-04-11
+	 */
+	private static final long MIN_NANOS_SECOND = Long.MIN_VALUE / NANOS_PER_SECOND + 1;
+	private static final long MAX_NANOS_SECOND = Long.MAX_VALUE / NANOS_PER_SECOND - 1;
+
+	private InstantText() {
+	}
+
+	/**
+	 * @param text
+	 * @return epoch millis, or {@link #NOT_CANONICAL} when text is not exactly what Instant.toString() prints
+	 */
+	public static long parse(String text) {
+		int length = text.length();
+		if (length != 20 && length != 24) {
+			return NOT_CANONICAL;
+		}
+		long epochSecond = epochSecond(text);
+		int millis = fraction(text, length == 24 ? 3 : 0);
+		if (epochSecond == NOT_CANONICAL || millis < 0) {
+			return NOT_CANONICAL;
+		}
+		return epochSecond * 1000 + millis;
+	}
+
+	/**
+	 * @param text
+	 * @return epoch nanos, or {@link #NOT_CANONICAL} when text is not exactly what Instant.toString() prints or does not
+	 *         fit in epoch nanos
+	 */
+	public static long parseNanos(String text) {
+		int length = text.length();
+		int digits = length == 20 ? 0 : length - 21;
+		if (digits != 0 && digits != 3 && digits != 6 && digits != 9) {
+			return NOT_CANONICAL;
+		}
+		long epochSecond = epochSecond(text);
+		int fraction = fraction(text, digits);
+		if (epochSecond == NOT_CANONICAL || fraction < 0 || epochSecond < MIN_NANOS_SECOND
+				|| epochSecond > MAX_NANOS_SECOND) {
+			return NOT_CANONICAL;
+		}
+		// Instant.toString() prints the shortest of 3, 6 or 9 digits
+		if (digits > 3 && fraction % 1000 == 0) {
+			return NOT_CANONICAL;
+		}
+		return epochSecond * NANOS_PER_SECOND + fraction * pow10(9 - digits);
+	}
+
+	/**
+	 * @param epochMillis
+	 * @return same as <code>Instant.ofEpochMilli(epochMillis).toString()</code>
+	 */
+	public static String format(long epochMillis) {
+		int millis = (int) Math.floorMod(epochMillis, 1000L);
+		return format(Math.floorDiv(epochMillis, 1000L), millis, millis == 0 ? 0 : 3);
+	}
+
+	/**
+	 * @param epochNanos
+	 * @return same as <code>Instant.ofEpochSecond(0, epochNanos).toString()</code>
+	 */
+	public static String formatNanos(long epochNanos) {
+		long epochSecond = Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+		int nanos = (int) Math.floorMod(epochNanos, NANOS_PER_SECOND);
+		if (nanos == 0) {
+			return format(epochSecond, 0, 0);
+		} else if (nanos % 1_000_000 == 0) {
+			return format(epochSecond, nanos / 1_000_000, 3);
+		} else if (nanos % 1000 == 0) {
+			return format(epochSecond, nanos / 1000, 6);
+		}
+		return format(epochSecond, nanos, 9);
+	}
+
+	/**
+	 * @return epoch second of the <code>yyyy-MM-ddTHH:mm:ss</code> prefix with a closing Z, or {@link #NOT_CANONICAL}
+	 */
+	private static long epochSecond(String text) {
+		int length = text.length();
+		if (text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T' || text.charAt(13) != ':'
+				|| text.charAt(16) != ':' || text.charAt(length - 1) != 'Z') {
+			return NOT_CANONICAL;
+		}
+		int year = digits(text, 0, 4);
+		int month = digits(text, 5, 2);
+		int day = digits(text, 8, 2);
+		int hour = digits(text, 11, 2);
+		int minute = digits(text, 14, 2);
+		int second = digits(text, 17, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month) || hour < 0
+				|| hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+			return NOT_CANONICAL;
+		}
+		return epochDay(year, month, day) * SECONDS_PER_DAY + (hour * 60L + minute) * 60 + second;
+	}
+
+	/**
+	 * @return value of the fraction of count digits after the seconds, 0 without fraction, -1 when malformed or printed
+	 *         although zero
+	 */
+	private static int fraction(String text, int count) {
+		if (count == 0) {
+			return 0;
+		}
+		int value = text.charAt(19) == '.' ? digits(text, 20, count) : -1;
+		return value == 0 ? -1 : value;
+	}
+
+	private static String format(long epochSecond, int fraction, int fractionDigits) {
+		long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+		int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+		if (epochDay < -EPOCH_OFFSET_DAYS || epochDay > MAX_EPOCH_DAY) {
+			return Instant.ofEpochSecond(epochSecond, fraction * pow10(9 - fractionDigits)).toString();
+		}
+
+		// Civil date from days, with years starting in March so the leap day is last
+		long days = epochDay + EPOCH_OFFSET_DAYS;
+		long era = days / 146_097;
+		int dayOfEra = (int) (days - era * 146_097);
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int shiftedMonth = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+		int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+		int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+		char[] text = new char[fractionDigits == 0 ? 20 : 21 + fractionDigits];
+		put(text, 0, year, 4);
+		text[4] = '-';
+		put(text, 5, month, 2);
+		text[7] = '-';
+		put(text, 8, day, 2);
+		text[10] = 'T';
+		put(text, 11, secondOfDay / 3600, 2);
+		text[13] = ':';
+		put(text, 14, secondOfDay / 60 % 60, 2);
+		text[16] = ':';
+		put(text, 17, secondOfDay % 60, 2);
+		if (fractionDigits != 0) {
+			text[19] = '.';
+			put(text, 20, fraction, fractionDigits);
+		}
+		text[text.length - 1] = 'Z';
+		return new String(text);
+	}
+
+	private static long pow10(int exponent) {
+		long value = 1;
+		for (int i = 0; i < exponent; i++) {
+			value *= 10;
+		}
+		return value;
+	}
+
+	private static long epochDay(int year, int month, int day) {
+		int y = month <= 2 ? year - 1 : year;
+		long era = Math.floorDiv(y, 400);
+		int yearOfEra = (int) (y - era * 400);
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146_097 + dayOfEra - EPOCH_OFFSET_DAYS;
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		return switch (month) {
+		case 2 -> year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+		case 4, 6, 9, 11 -> 30;
+		default -> 31;
+		};
+	}
+
+	/**
+	 * @return value of count decimal digits, -1 if any is not a digit
+	 */
+	private static int digits(String text, int from, int count) {
+		int value = 0;
+		for (int i = from; i < from + count; i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	private static void put(char[] text, int from, int value, int count) {
+		for (int i = from + count - 1; i >= from; i--) {
+			text[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+}
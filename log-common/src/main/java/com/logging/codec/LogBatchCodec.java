@@ -0,0 +1,364 @@
+package com.logging.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Compact binary encoding of log batches, the alternative to JSON between log-collector and log-server <br/>
+ *
+ * A body is a sequence of length-prefixed frames, one per batch:
+ * <code>[byte 'L'][byte 'B'][byte version][varint length][length bytes payload]</code>. The payload holds the number
+ * of logs, a dictionary of the distinct categories, source types, usernames, hostnames and severities of the batch,
+ * then one record per log: <br/>
+ *
+ * <code>[byte flags][timestamp][5 varint dictionary references][raw message][sent.at]</code> <br/>
+ *
+ * Dictionary references are index + 1, 0 stands for null. Timestamps in the canonical millisecond form of
+ * <code>Instant.toString()</code>, which is what the collector produces, are zigzag varint deltas to the previous
+ * timestamp of the batch, usually a single byte. Other timestamps are sent as text. sent.at is a delta to the previous
+ * sent.at as well. Strings are UTF-8 prefixed with their length + 1, so a log costs its raw message plus about ten
+ * bytes, and decoding needs no tokenizer nor reflection. Decoded logs of a batch share the dictionary strings.
+ */
+public final class LogBatchCodec {
+
+	public static final String MEDIA_TYPE = "application/x-log-batch";
+
+	static final byte VERSION = 1;
+
+	private static final byte MAGIC_0 = 'L';
+	private static final byte MAGIC_1 = 'B';
+	private static final int FRAME_HEADER_BYTES = 3;
+
+	private static final int TIMESTAMP_MILLIS = 1;
+	private static final int TIMESTAMP_TEXT = 2;
+	private static final int BLACKLIST_SET = 4;
+	private static final int BLACKLISTED = 8;
+	private static final int SENT_AT = 16;
+
+	/**
+	 * Smallest record: flags, five references and a null raw message
+	 */
+	private static final int MIN_RECORD_BYTES = 7;
+
+	private static final long NOT_CANONICAL = InstantText.NOT_CANONICAL;
+
+	private LogBatchCodec() {
+	}
+
+	/**
+	 * @param logs
+	 * @return one frame holding every log
+	 */
+	public static byte[] encode(List<? extends LogEvent> logs) {
+		Map<String, Integer> references = new HashMap<>();
+		List<String> dictionary = new ArrayList<>();
+		Output records = new Output(logs.size() * 128 + 16);
+
+		String lastText = null;
+		long lastMillis = NOT_CANONICAL;
+		long previousMillis = 0;
+		long previousSentAt = 0;
+		for (LogEvent log : logs) {
+			String timestamp = log.getTimestamp();
+			if (timestamp != null && !timestamp.equals(lastText)) {
+				// Timestamps repeat within a batch, each distinct one is parsed once
+				lastText = timestamp;
+				lastMillis = InstantText.parse(timestamp);
+			}
+			int flags = 0;
+			if (timestamp != null) {
+				flags |= lastMillis != NOT_CANONICAL ? TIMESTAMP_MILLIS : TIMESTAMP_TEXT;
+			}
+			if (log.getIsBlacklisted() != null) {
+				flags |= BLACKLIST_SET | (log.getIsBlacklisted() ? BLACKLISTED : 0);
+			}
+			if (log.getSentAt() != null) {
+				flags |= SENT_AT;
+			}
+
+			records.putByte(flags);
+			if ((flags & TIMESTAMP_MILLIS) != 0) {
+				records.putSignedVarint(lastMillis - previousMillis);
+				previousMillis = lastMillis;
+			} else if ((flags & TIMESTAMP_TEXT) != 0) {
+				records.putString(timestamp);
+			}
+			records.putVarint(reference(log.getEventCategory(), references, dictionary));
+			records.putVarint(reference(log.getEventSourceType(), references, dictionary));
+			records.putVarint(reference(log.getUsername(), references, dictionary));
+			records.putVarint(reference(log.getHostname(), references, dictionary));
+			records.putVarint(reference(log.getSeverity(), references, dictionary));
+			records.putString(log.getRawMessage());
+			if ((flags & SENT_AT) != 0) {
+				records.putSignedVarint(log.getSentAt() - previousSentAt);
+				previousSentAt = log.getSentAt();
+			}
+		}
+
+		Output head = new Output(dictionary.size() * 16 + 16);
+		head.putVarint(logs.size());
+		head.putVarint(dictionary.size());
+		for (String value : dictionary) {
+			head.putString(value);
+		}
+
+		int payloadLength = head.size + records.size;
+		Output frame = new Output(FRAME_HEADER_BYTES + 5 + payloadLength);
+		frame.putByte(MAGIC_0);
+		frame.putByte(MAGIC_1);
+		frame.putByte(VERSION);
+		frame.putVarint(payloadLength);
+		frame.put(head.bytes, 0, head.size);
+		frame.put(records.bytes, 0, records.size);
+		return frame.toByteArray();
+	}
+
+	/**
+	 * Decodes every frame of a body
+	 *
+	 * @param <T>
+	 * @param bytes
+	 * @param factory creates the instances the logs are decoded into
+	 * @return logs of all frames in order
+	 * @throws IllegalArgumentException when the body is not a sequence of valid frames
+	 */
+	public static <T extends LogEvent> List<T> decode(byte[] bytes, Supplier<T> factory) {
+		return decode(bytes, 0, bytes.length, factory);
+	}
+
+	/**
+	 * Decodes every frame of bytes[offset, offset + length)
+	 *
+	 * @param <T>
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @param factory creates the instances the logs are decoded into
+	 * @return logs of all frames in order
+	 * @throws IllegalArgumentException when the range is not a sequence of valid frames
+	 */
+	public static <T extends LogEvent> List<T> decode(byte[] bytes, int offset, int length, Supplier<T> factory) {
+		Input input = new Input(bytes, offset, offset + length);
+		List<T> logs = null;
+		while (input.position < input.limit) {
+			if (input.readByte() != MAGIC_0 || input.readByte() != MAGIC_1) {
+				throw new IllegalArgumentException("Not a log batch frame at offset " + (input.position - 2));
+			}
+			int version = input.readByte();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported log batch version " + version);
+			}
+			int frameLength = input.readLength();
+			if (frameLength > input.limit - input.position) {
+				throw new IllegalArgumentException("Truncated log batch frame");
+			}
+			Input payload = new Input(bytes, input.position, input.position + frameLength);
+			input.position += frameLength;
+			if (logs == null) {
+				logs = decodePayload(payload, factory);
+			} else {
+				logs.addAll(decodePayload(payload, factory));
+			}
+		}
+		return logs != null ? logs : new ArrayList<>();
+	}
+
+	private static <T extends LogEvent> List<T> decodePayload(Input input, Supplier<T> factory) {
+		int count = input.readLength();
+		if (count > (input.limit - input.position) / MIN_RECORD_BYTES) {
+			throw new IllegalArgumentException("Log batch too short for " + count + " logs");
+		}
+		String[] dictionary = new String[input.readLength()];
+		for (int i = 0; i < dictionary.length; i++) {
+			dictionary[i] = input.readString();
+		}
+
+		List<T> logs = new ArrayList<>(count);
+		String lastText = null;
+		long lastMillis = NOT_CANONICAL;
+		long previousMillis = 0;
+		long previousSentAt = 0;
+		for (int i = 0; i < count; i++) {
+			T log = factory.get();
+			int flags = input.readByte();
+			if ((flags & TIMESTAMP_MILLIS) != 0) {
+				long millis = previousMillis + input.readSignedVarint();
+				previousMillis = millis;
+				if (millis != lastMillis) {
+					lastMillis = millis;
+					lastText = InstantText.format(millis);
+				}
+				log.setTimestamp(lastText);
+			} else if ((flags & TIMESTAMP_TEXT) != 0) {
+				log.setTimestamp(input.readString());
+			} else {
+				log.setTimestamp(null);
+			}
+			log.setEventCategory(lookup(dictionary, input.readVarint()));
+			log.setEventSourceType(lookup(dictionary, input.readVarint()));
+			log.setUsername(lookup(dictionary, input.readVarint()));
+			log.setHostname(lookup(dictionary, input.readVarint()));
+			log.setSeverity(lookup(dictionary, input.readVarint()));
+			log.setRawMessage(input.readString());
+			log.setIsBlacklisted((flags & BLACKLIST_SET) != 0 ? (flags & BLACKLISTED) != 0 : null);
+			if ((flags & SENT_AT) != 0) {
+				previousSentAt += input.readSignedVarint();
+				log.setSentAt(previousSentAt);
+			} else {
+				log.setSentAt(null);
+			}
+			logs.add(log);
+		}
+		if (input.position != input.limit) {
+			throw new IllegalArgumentException("Trailing bytes in log batch frame");
+		}
+		return logs;
+	}
+
+	private static int reference(String value, Map<String, Integer> references, List<String> dictionary) {
+		if (value == null) {
+			return 0;
+		}
+		Integer reference = references.get(value);
+		if (reference == null) {
+			dictionary.add(value);
+			reference = dictionary.size();
+			references.put(value, reference);
+		}
+		return reference;
+	}
+
+	private static String lookup(String[] dictionary, long reference) {
+		if (reference < 0 || reference > dictionary.length) {
+			throw new IllegalArgumentException("Unknown dictionary reference " + reference);
+		}
+		return reference == 0 ? null : dictionary[(int) reference - 1];
+	}
+
+	private static final class Output {
+
+		private byte[] bytes;
+		private int size;
+
+		Output(int capacity) {
+			this.bytes = new byte[capacity];
+		}
+
+		void putByte(int value) {
+			ensure(1);
+			bytes[size++] = (byte) value;
+		}
+
+		void put(byte[] source, int offset, int length) {
+			ensure(length);
+			System.arraycopy(source, offset, bytes, size, length);
+			size += length;
+		}
+
+		void putVarint(long value) {
+			ensure(10);
+			while ((value & ~0x7FL) != 0) {
+				bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[size++] = (byte) value;
+		}
+
+		/**
+		 * Zigzag: small negative deltas stay small
+		 */
+		void putSignedVarint(long value) {
+			putVarint((value << 1) ^ (value >> 63));
+		}
+
+		void putString(String value) {
+			if (value == null) {
+				putVarint(0);
+				return;
+			}
+			byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+			putVarint(utf8.length + 1L);
+			put(utf8, 0, utf8.length);
+		}
+
+		private void ensure(int length) {
+			if (size + length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+			}
+		}
+
+		byte[] toByteArray() {
+			return size == bytes.length ? bytes : Arrays.copyOf(bytes, size);
+		}
+	}
+
+	private static final class Input {
+
+		private final byte[] bytes;
+		private final int limit;
+		private int position;
+
+		Input(byte[] bytes, int position, int limit) {
+			if (limit > bytes.length) {
+				throw new IllegalArgumentException("Truncated log batch frame");
+			}
+			this.bytes = bytes;
+			this.position = position;
+			this.limit = limit;
+		}
+
+		int readByte() {
+			if (position >= limit) {
+				throw new IllegalArgumentException("Truncated log batch frame");
+			}
+			return bytes[position++];
+		}
+
+		long readVarint() {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				int b = readByte();
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Malformed varint in log batch frame");
+		}
+
+		long readSignedVarint() {
+			long value = readVarint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		/**
+		 * Varint that must fit in the rest of the frame: lengths and counts
+		 */
+		int readLength() {
+			long value = readVarint();
+			if (value < 0 || value > limit - position + 1) {
+				throw new IllegalArgumentException("Length " + value + " beyond the end of the log batch frame");
+			}
+			return (int) value;
+		}
+
+		String readString() {
+			int length = readLength();
+			if (length == 0) {
+				return null;
+			}
+			length--;
+			if (length > limit - position) {
+				throw new IllegalArgumentException("Truncated log batch frame");
+			}
+			String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return value;
+		}
+	}
+}
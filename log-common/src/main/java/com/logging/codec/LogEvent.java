@@ -0,0 +1,43 @@
+package com.logging.codec;
+
+/**
+ * Fields of a log shared by the collector's parsed logs and the server's entries, what {@link LogBatchCodec} encodes
+ */
+public interface LogEvent {
+
+	String getTimestamp();
+
+	void setTimestamp(String timestamp);
+
+	String getEventCategory();
+
+	void setEventCategory(String eventCategory);
+
+	String getEventSourceType();
+
+	void setEventSourceType(String eventSourceType);
+
+	String getUsername();
+
+	void setUsername(String username);
+
+	String getHostname();
+
+	void setHostname(String hostname);
+
+	String getSeverity();
+
+	void setSeverity(String severity);
+
+	String getRawMessage();
+
+	void setRawMessage(String rawMessage);
+
+	Boolean getIsBlacklisted();
+
+	void setIsBlacklisted(Boolean isBlacklisted);
+
+	Long getSentAt();
+
+	void setSentAt(Long sentAt);
+}
@@ -0,0 +1,61 @@
+package com.logging.compress;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compression of self-contained blocks: forwarded batch bodies and sealed blocks of stored entries <br/>
+ *
+ * Implementations are stateless and thread-safe. Their name doubles as the HTTP <code>Content-Encoding</code> of a
+ * compressed request body.
+ */
+public interface BlockCompressor {
+
+	/**
+	 * Codec names accepted by {@link #forName(String)} besides <code>none</code>, preferred first
+	 */
+	List<String> NAMES = List.of(Lz4BlockCompressor.NAME, DeflateBlockCompressor.NAME);
+
+	String name();
+
+	/**
+	 * @param input
+	 * @param offset
+	 * @param length
+	 * @return compressed block
+	 */
+	byte[] compress(byte[] input, int offset, int length);
+
+	/**
+	 * @param input
+	 * @param offset
+	 * @param length
+	 * @param maxLength bound on the decompressed size, protects against decompression bombs
+	 * @return decompressed block
+	 * @throws IllegalArgumentException when the block is corrupt or decompresses beyond maxLength
+	 */
+	byte[] decompress(byte[] input, int offset, int length, int maxLength);
+
+	default byte[] compress(byte[] input) {
+		return compress(input, 0, input.length);
+	}
+
+	default byte[] decompress(byte[] input, int maxLength) {
+		return decompress(input, 0, input.length, maxLength);
+	}
+
+	/**
+	 * @param name <code>lz4</code>, <code>deflate</code>, or <code>none</code> / <code>identity</code>
+	 * @return the codec, null for none
+	 * @throws IllegalArgumentException for an unknown name
+	 */
+	static BlockCompressor forName(String name) {
+		String normalized = name != null ? name.trim().toLowerCase(Locale.ROOT) : "none";
+		return switch (normalized) {
+		case "", "none", "identity" -> null;
+		case Lz4BlockCompressor.NAME -> new Lz4BlockCompressor();
+		case DeflateBlockCompressor.NAME -> new DeflateBlockCompressor();
+		default -> throw new IllegalArgumentException("Unknown compression codec: " + name);
+		};
+	}
+}
@@ -0,0 +1,227 @@
+package com.logging.compress;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * LZ4 block format in plain Java, no native library involved <br/>
+ *
+ * A block is <code>[varint decompressed length][LZ4 sequences]</code>. Each sequence is a token (literal length and
+ * match length nibbles), the literals, a little endian 2 byte offset back into the output and the match length minus 4,
+ * with 255 valued bytes extending lengths of 15 and more. The last sequence only holds literals. <br/>
+ *
+ * The compressor is the greedy single probe variant: a 4096 slot hash table of 4 byte prefixes, no chain. It finds the
+ * repeated hostnames, program names and message templates of a log block at a fraction of the cost of deflate.
+ */
+public class Lz4BlockCompressor implements BlockCompressor {
+
+	public static final String NAME = "lz4";
+
+	private static final int MIN_MATCH = 4;
+	private static final int MAX_OFFSET = 65_535;
+
+	/**
+	 * The last match must start this far from the end, and the last bytes are always literals
+	 */
+	private static final int MF_LIMIT = 12;
+	private static final int LAST_LITERALS = 5;
+
+	private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN);
+
+	private static final int HASH_LOG = 12;
+	private static final int SKIP_TRIGGER = 6;
+
+	@Override
+	public String name() {
+		return NAME;
+	}
+
+	@Override
+	public byte[] compress(byte[] input, int offset, int length) {
+		byte[] output = new byte[5 + length + length / 255 + 16];
+		int op = putVarint(output, 0, length);
+
+		int end = offset + length;
+		int anchor = offset;
+		if (length > MF_LIMIT) {
+			int[] table = new int[1 << HASH_LOG];
+			int matchLimit = end - LAST_LITERALS;
+			int mfLimit = end - MF_LIMIT;
+			int ip = offset;
+			while (ip < mfLimit) {
+				int sequence = readInt(input, ip);
+				int hash = (sequence * -1640531535) >>> (32 - HASH_LOG);
+				// Table holds position + 1, 0 is empty
+				int candidate = table[hash] - 1 + offset;
+				table[hash] = ip - offset + 1;
+				if (candidate < offset || ip - candidate > MAX_OFFSET || readInt(input, candidate) != sequence) {
+					// Incompressible stretches are crossed faster and faster
+					ip += 1 + ((ip - anchor) >>> SKIP_TRIGGER);
+					continue;
+				}
+
+				while (ip > anchor && candidate > offset && input[ip - 1] == input[candidate - 1]) {
+					ip--;
+					candidate--;
+				}
+				int matchLength = MIN_MATCH + commonLength(input, ip + MIN_MATCH, candidate + MIN_MATCH, matchLimit);
+
+				op = putSequence(output, op, input, anchor, ip - anchor, ip - candidate, matchLength);
+				ip += matchLength;
+				anchor = ip;
+			}
+		}
+
+		op = putLiterals(output, op, input, anchor, end - anchor);
+		return Arrays.copyOf(output, op);
+	}
+
+	@Override
+	public byte[] decompress(byte[] input, int offset, int length, int maxLength) {
+		try {
+			int end = offset + length;
+			int ip = offset;
+			long rawLength = 0;
+			for (int shift = 0;; shift += 7) {
+				if (shift > 28) {
+					throw new IllegalArgumentException("Malformed LZ4 block length");
+				}
+				int b = input[ip++];
+				rawLength |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					break;
+				}
+			}
+			if (rawLength > maxLength) {
+				throw new IllegalArgumentException("LZ4 block of " + rawLength + " bytes exceeds " + maxLength);
+			}
+
+			byte[] output = new byte[(int) rawLength];
+			int op = 0;
+			while (true) {
+				int token = input[ip++] & 0xFF;
+				int literals = token >>> 4;
+				if (literals == 15) {
+					int b;
+					do {
+						b = input[ip++] & 0xFF;
+						literals += b;
+					} while (b == 255);
+				}
+				if (literals > end - ip || literals > output.length - op) {
+					throw new IllegalArgumentException("Corrupt LZ4 block: literals overflow");
+				}
+				System.arraycopy(input, ip, output, op, literals);
+				ip += literals;
+				op += literals;
+				if (ip >= end) {
+					break;
+				}
+
+				int matchOffset = (input[ip] & 0xFF) | (input[ip + 1] & 0xFF) << 8;
+				ip += 2;
+				int matchLength = token & 0x0F;
+				if (matchLength == 15) {
+					int b;
+					do {
+						b = input[ip++] & 0xFF;
+						matchLength += b;
+					} while (b == 255);
+				}
+				matchLength += MIN_MATCH;
+				if (matchOffset == 0 || matchOffset > op || matchLength > output.length - op) {
+					throw new IllegalArgumentException("Corrupt LZ4 block: match out of range");
+				}
+				int from = op - matchOffset;
+				if (matchOffset >= matchLength) {
+					System.arraycopy(output, from, output, op, matchLength);
+				} else {
+					// Overlapping match repeats the last matchOffset bytes
+					for (int i = 0; i < matchLength; i++) {
+						output[op + i] = output[from + i];
+					}
+				}
+				op += matchLength;
+			}
+			if (op != output.length) {
+				throw new IllegalArgumentException("Corrupt LZ4 block: " + op + " of " + output.length + " bytes");
+			}
+			return output;
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Truncated LZ4 block", e);
+		}
+	}
+
+	private static int putSequence(byte[] output, int op, byte[] input, int literalStart, int literals, int matchOffset,
+			int matchLength) {
+		int tokenPosition = op++;
+		op = putLength(output, op, literals);
+		System.arraycopy(input, literalStart, output, op, literals);
+		op += literals;
+		output[op++] = (byte) matchOffset;
+		output[op++] = (byte) (matchOffset >>> 8);
+		int extra = matchLength - MIN_MATCH;
+		op = putLength(output, op, extra);
+		output[tokenPosition] = (byte) (Math.min(literals, 15) << 4 | Math.min(extra, 15));
+		return op;
+	}
+
+	private static int putLiterals(byte[] output, int op, byte[] input, int literalStart, int literals) {
+		output[op++] = (byte) (Math.min(literals, 15) << 4);
+		op = putLength(output, op, literals);
+		System.arraycopy(input, literalStart, output, op, literals);
+		return op + literals;
+	}
+
+	/**
+	 * Bytes extending a length nibble of 15
+	 */
+	private static int putLength(byte[] output, int op, int length) {
+		if (length >= 15) {
+			int remaining = length - 15;
+			while (remaining >= 255) {
+				output[op++] = (byte) 255;
+				remaining -= 255;
+			}
+			output[op++] = (byte) remaining;
+		}
+		return op;
+	}
+
+	private static int putVarint(byte[] output, int op, int value) {
+		while ((value & ~0x7F) != 0) {
+			output[op++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output[op++] = (byte) value;
+		return op;
+	}
+
+	/**
+	 * Length of the common run at position and candidate, stopping at limit, compared 8 bytes at a time
+	 */
+	private static int commonLength(byte[] input, int position, int candidate, int limit) {
+		int start = position;
+		while (position + Long.BYTES <= limit) {
+			long difference = (long) LONG_LE.get(input, position) ^ (long) LONG_LE.get(input, candidate);
+			if (difference != 0) {
+				return position - start + (Long.numberOfTrailingZeros(difference) >>> 3);
+			}
+			position += Long.BYTES;
+			candidate += Long.BYTES;
+		}
+		while (position < limit && input[position] == input[candidate]) {
+			position++;
+			candidate++;
+		}
+		return position - start;
+	}
+
+	private static int readInt(byte[] input, int position) {
+		return (int) INT_LE.get(input, position);
+	}
+}
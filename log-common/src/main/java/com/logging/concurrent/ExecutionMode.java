@@ -0,0 +1,72 @@
+package com.logging.concurrent;
+
+import java.util.concurrent.ThreadFactory;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Kind of threads running connections and processing tasks, selected with Spring Boot's
+ * <code>spring.threads.virtual.enabled</code> <br/>
+ *
+ * With platform threads every pool is sized up front and a blocked task holds its thread. With virtual threads a
+ * blocked task only holds its stack, so connections get one thread each and the processing scheduler starts one thread
+ * per task, bounded by {@link #VIRTUAL_TASK_CAP} instead of the number of cores.
+ */
+public enum ExecutionMode {
+
+	PLATFORM, VIRTUAL;
+
+	/**
+	 * Tasks a virtual thread scheduler runs at once, the others wait in its queue
+	 */
+	public static final int VIRTUAL_TASK_CAP = 100_000;
+
+	private static final int PLATFORM_THREAD_TTL_SECONDS = 60;
+
+	// Reactor only exposes its thread-per-task bounded elastic scheduler through the factory
+	private static final Schedulers.Factory SCHEDULERS = new Schedulers.Factory() {
+	};
+
+	/**
+	 * @param virtual
+	 * @return
+	 */
+	public static ExecutionMode of(boolean virtual) {
+		return virtual ? VIRTUAL : PLATFORM;
+	}
+
+	/**
+	 * @param prefix of the thread names, followed by a counter
+	 * @return factory of virtual threads, or of platform daemon threads
+	 */
+	public ThreadFactory threadFactory(String prefix) {
+		return switch (this) {
+		case PLATFORM -> Thread.ofPlatform().name(prefix, 0).daemon(true).factory();
+		case VIRTUAL -> Thread.ofVirtual().name(prefix, 0).factory();
+		};
+	}
+
+	/**
+	 * @param name            of the scheduler and prefix of its thread names
+	 * @param platformThreads thread cap in platform mode
+	 * @param queueSize       tasks queued beyond the cap before further ones are rejected
+	 * @return bounded elastic scheduler, with one virtual thread per task in virtual mode
+	 */
+	public Scheduler newScheduler(String name, int platformThreads, int queueSize) {
+		if (this == PLATFORM) {
+			return Schedulers.newBoundedElastic(platformThreads, queueSize, name, PLATFORM_THREAD_TTL_SECONDS, true);
+		}
+		Scheduler scheduler = SCHEDULERS.newThreadPerTaskBoundedElastic(VIRTUAL_TASK_CAP, queueSize,
+				threadFactory(name + "-"));
+		scheduler.init();
+		return scheduler;
+	}
+
+	/**
+	 * @return name as reported in metrics
+	 */
+	public String label() {
+		return name().toLowerCase();
+	}
+}
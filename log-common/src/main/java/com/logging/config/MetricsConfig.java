@@ -0,0 +1,20 @@
+package com.logging.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.logging.metrics.MetricsRegistry;
+
+@Configuration
+public class MetricsConfig {
+
+	/**
+	 * Counters and latency histograms shared by every component, exposed on <code>GET /metrics</code>
+	 *
+	 * @return
+	 */
+	@Bean
+	MetricsRegistry metricsRegistry() {
+		return new MetricsRegistry();
+	}
+}
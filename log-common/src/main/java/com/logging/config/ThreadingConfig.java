@@ -0,0 +1,35 @@
+package com.logging.config;
+
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.logging.concurrent.ExecutionMode;
+import com.logging.metrics.PinnedThreadMonitor;
+
+@Configuration
+public class ThreadingConfig {
+
+	/**
+	 * Virtual threads with <code>spring.threads.virtual.enabled=true</code>, platform threads otherwise
+	 *
+	 * @param environment
+	 * @return
+	 */
+	@Bean
+	ExecutionMode executionMode(Environment environment) {
+		return ExecutionMode.of(Threading.VIRTUAL.isActive(environment));
+	}
+
+	/**
+	 * Virtual threads pinned to their carrier, exposed on <code>GET /metrics</code>
+	 *
+	 * @param executionMode
+	 * @return
+	 */
+	@Bean(destroyMethod = "close")
+	PinnedThreadMonitor pinnedThreadMonitor(ExecutionMode executionMode) {
+		return PinnedThreadMonitor.start(executionMode, PinnedThreadMonitor.DEFAULT_THRESHOLD);
+	}
+}
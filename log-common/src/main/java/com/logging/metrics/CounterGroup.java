@@ -0,0 +1,51 @@
+package com.logging.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters keyed by a label, such as logs per category <br/>
+ *
+ * Counters are {@link LongAdder}s in a {@link ConcurrentHashMap}: counting a known label is a lock-free lookup and a
+ * striped increment, only the first occurrence of a label creates its counter.
+ */
+public class CounterGroup {
+
+	private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * @param label ignored when null
+	 */
+	public void increment(String label) {
+		if (label == null) {
+			return;
+		}
+		LongAdder counter = counters.get(label);
+		if (counter == null) {
+			counter = counters.computeIfAbsent(label, k -> new LongAdder());
+		}
+		counter.increment();
+	}
+
+	/**
+	 * @param label ignored when null
+	 * @param delta added to the label's count, negative to take counted events back
+	 */
+	public void add(String label, long delta) {
+		if (label == null) {
+			return;
+		}
+		counters.computeIfAbsent(label, k -> new LongAdder()).add(delta);
+	}
+
+	/**
+	 * @return current count per label
+	 */
+	public Map<String, Long> snapshot() {
+		Map<String, Long> snapshot = new HashMap<>();
+		counters.forEach((label, counter) -> snapshot.put(label, counter.sum()));
+		return snapshot;
+	}
+}
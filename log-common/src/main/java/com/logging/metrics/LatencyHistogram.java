@@ -0,0 +1,158 @@
+package com.logging.metrics;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent log-linear histogram of latencies <br/>
+ *
+ * Values below 128 get one bucket each, larger values share 64 buckets per power of two, so every recorded value is
+ * reported within about 1.5% and the whole range up to 2^42 units fits in a few thousand counters. <br/>
+ *
+ * Like a {@link LongAdder}, the counters are striped: each thread records into the stripe picked by its id, so
+ * threads on different cores do not contend on the same cache lines. Recording is one atomic increment without any
+ * lock, snapshots sum the stripes and are weakly consistent with concurrent records.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final int MAX_VALUE_BITS = 42;
+	private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+	private static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+	private static final int MAX_STRIPES = 8;
+
+	private final TimeUnit unit;
+	private final AtomicLongArray[] stripes;
+	private final int stripeMask;
+	private final LongAdder totalValue = new LongAdder();
+
+	/**
+	 * @param unit unit of the recorded values
+	 */
+	public LatencyHistogram(TimeUnit unit) {
+		this.unit = unit;
+		int stripeCount = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES));
+		this.stripes = new AtomicLongArray[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			stripes[i] = new AtomicLongArray(BUCKET_COUNT);
+		}
+		this.stripeMask = stripeCount - 1;
+	}
+
+	/**
+	 * @param value latency in the unit of this histogram, negative values (clock skew between hosts) are recorded as 0
+	 */
+	public void record(long value) {
+		long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+		stripes[(int) Thread.currentThread().threadId() & stripeMask].incrementAndGet(indexOf(clamped));
+		totalValue.add(clamped);
+	}
+
+	/**
+	 * Records the time elapsed since startNanos, converted to the unit of this histogram
+	 *
+	 * @param startNanos {@link System#nanoTime()} at the start of the measured operation
+	 */
+	public void recordSince(long startNanos) {
+		record(unit.convert(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS));
+	}
+
+	/**
+	 * @return wall clock time in epoch microseconds, the unit load generators embed in their logs
+	 */
+	public static long currentTimeMicros() {
+		Instant now = Instant.now();
+		return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) ((value >>> shift) - HALF_SUB_BUCKETS);
+	}
+
+	/**
+	 * @return highest value that falls into the bucket
+	 */
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+		long top = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return ((top + 1) << shift) - 1;
+	}
+
+	public TimeUnit getUnit() {
+		return unit;
+	}
+
+	public void reset() {
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				stripe.set(i, 0);
+			}
+		}
+		totalValue.reset();
+	}
+
+	/**
+	 * @return count, then mean, p50, p90, p99, p99.9 and max in {@link #getUnit()} when anything was recorded
+	 */
+	public Map<String, Object> snapshot() {
+		long[] counts = new long[BUCKET_COUNT];
+		long count = 0;
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				long bucket = stripe.get(i);
+				counts[i] += bucket;
+				count += bucket;
+			}
+		}
+
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("count", count);
+		if (count == 0) {
+			return metrics;
+		}
+		metrics.put("unit", unitName());
+		metrics.put("mean", totalValue.sum() / count);
+		metrics.put("p50", percentile(counts, count, 0.50));
+		metrics.put("p90", percentile(counts, count, 0.90));
+		metrics.put("p99", percentile(counts, count, 0.99));
+		metrics.put("p999", percentile(counts, count, 0.999));
+		metrics.put("max", percentile(counts, count, 1.0));
+		return metrics;
+	}
+
+	private long percentile(long[] counts, long count, double quantile) {
+		long rank = Math.max(1, (long) Math.ceil(quantile * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return highestValueOf(i);
+			}
+		}
+		return MAX_VALUE;
+	}
+
+	private String unitName() {
+		return switch (unit) {
+		case NANOSECONDS -> "ns";
+		case MICROSECONDS -> "us";
+		case MILLISECONDS -> "ms";
+		case SECONDS -> "s";
+		default -> unit.name().toLowerCase(Locale.ROOT);
+		};
+	}
+}
@@ -0,0 +1,60 @@
+package com.logging.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counters, counter groups and latency histograms of one service <br/>
+ *
+ * Components look their metrics up once, when they are created, and keep the returned instances: the hot path only
+ * ever touches a {@link LongAdder}, a {@link CounterGroup} or a {@link LatencyHistogram}, never the registry maps.
+ * Looking up an existing name returns the same instance.
+ */
+public class MetricsRegistry {
+
+	private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+	private final Map<String, CounterGroup> counterGroups = new ConcurrentHashMap<>();
+	private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+	public LongAdder counter(String name) {
+		return counters.computeIfAbsent(name, k -> new LongAdder());
+	}
+
+	public CounterGroup counterGroup(String name) {
+		return counterGroups.computeIfAbsent(name, k -> new CounterGroup());
+	}
+
+	/**
+	 * @param name
+	 * @param unit unit of the recorded values, only used when the histogram is created
+	 * @return
+	 */
+	public LatencyHistogram histogram(String name, TimeUnit unit) {
+		return histograms.computeIfAbsent(name, k -> new LatencyHistogram(unit));
+	}
+
+	/**
+	 * Clears every histogram, counters keep counting
+	 */
+	public void resetHistograms() {
+		histograms.values().forEach(LatencyHistogram::reset);
+	}
+
+	/**
+	 * @return every counter and counter group under its name, and the histograms under "latency"
+	 */
+	public Map<String, Object> snapshot() {
+		Map<String, Object> snapshot = new HashMap<>();
+		counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+		counterGroups.forEach((name, group) -> snapshot.put(name, group.snapshot()));
+
+		Map<String, Object> latency = new TreeMap<>();
+		histograms.forEach((name, histogram) -> latency.put(name, histogram.snapshot()));
+		snapshot.put("latency", latency);
+		return snapshot;
+	}
+}
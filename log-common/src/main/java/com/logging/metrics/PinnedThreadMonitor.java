@@ -0,0 +1,159 @@
+package com.logging.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.logging.concurrent.ExecutionMode;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reports virtual threads pinned to their carrier, from the JFR <code>jdk.VirtualThreadPinned</code> events streamed
+ * in process <br/>
+ *
+ * A virtual thread that blocks inside a <code>synchronized</code> block or a native frame keeps its carrier thread,
+ * and enough of them stall every virtual thread of the process. Each event longer than the threshold is counted under
+ * the first frame outside the JDK, the code to change, and the most frequent frames are reported by
+ * {@link #getMetrics()}. <br/>
+ *
+ * In platform mode no recording is started and only the mode is reported.
+ */
+@Slf4j
+public class PinnedThreadMonitor implements AutoCloseable {
+
+	/**
+	 * JFR's own default threshold for the event
+	 */
+	public static final Duration DEFAULT_THRESHOLD = Duration.ofMillis(20);
+
+	private static final String EVENT = "jdk.VirtualThreadPinned";
+
+	// Distinct frames tracked, later ones are counted under OTHER_FRAMES
+	private static final int MAX_FRAMES = 1024;
+	private static final String OTHER_FRAMES = "other";
+	private static final int TOP_FRAMES = 10;
+
+	private final ExecutionMode mode;
+	private final Duration threshold;
+	private final RecordingStream stream;
+
+	private final LongAdder events = new LongAdder();
+	private final LongAdder pinnedNanos = new LongAdder();
+	private final LongAccumulator maxPinnedNanos = new LongAccumulator(Math::max, 0);
+	private final Map<String, LongAdder> frames = new ConcurrentHashMap<>();
+
+	private PinnedThreadMonitor(ExecutionMode mode, Duration threshold, RecordingStream stream) {
+		this.mode = mode;
+		this.threshold = threshold;
+		this.stream = stream;
+	}
+
+	/**
+	 * @param mode
+	 * @param threshold shortest pinning reported
+	 * @return monitor streaming pinning events in virtual mode, an idle one otherwise or when JFR is not available
+	 */
+	public static PinnedThreadMonitor start(ExecutionMode mode, Duration threshold) {
+		if (mode != ExecutionMode.VIRTUAL) {
+			return new PinnedThreadMonitor(mode, threshold, null);
+		}
+		RecordingStream stream;
+		try {
+			stream = new RecordingStream();
+			stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+		} catch (RuntimeException e) {
+			log.warn("Virtual thread pinning is not monitored, JFR is not available: {}", e.getMessage());
+			return new PinnedThreadMonitor(mode, threshold, null);
+		}
+		PinnedThreadMonitor monitor = new PinnedThreadMonitor(mode, threshold, stream);
+		stream.onEvent(EVENT, monitor::onPinned);
+		stream.startAsync();
+		return monitor;
+	}
+
+	void onPinned(RecordedEvent event) {
+		String frame = applicationFrame(event.getStackTrace());
+		LongAdder count = frames.get(frame);
+		if (count == null) {
+			count = frames.size() < MAX_FRAMES ? frames.computeIfAbsent(frame, k -> new LongAdder())
+					: frames.computeIfAbsent(OTHER_FRAMES, k -> new LongAdder());
+		}
+		count.increment();
+
+		// Counted last, so that a reader seeing the event also sees its frame
+		long nanos = event.getDuration().toNanos();
+		pinnedNanos.add(nanos);
+		maxPinnedNanos.accumulate(nanos);
+		events.increment();
+	}
+
+	private static String applicationFrame(RecordedStackTrace stackTrace) {
+		if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+			return "unknown";
+		}
+		RecordedFrame first = null;
+		for (RecordedFrame frame : stackTrace.getFrames()) {
+			if (!frame.isJavaFrame()) {
+				continue;
+			}
+			if (first == null) {
+				first = frame;
+			}
+			String type = frame.getMethod().getType().getName();
+			if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+				return format(frame);
+			}
+		}
+		return first != null ? format(first) : "native";
+	}
+
+	private static String format(RecordedFrame frame) {
+		return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":"
+				+ frame.getLineNumber();
+	}
+
+	/**
+	 * @return the execution mode, and in virtual mode the pinning events, their total and longest duration and the
+	 *         frames pinning most often
+	 */
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("mode", mode.label());
+		if (mode != ExecutionMode.VIRTUAL) {
+			return metrics;
+		}
+		metrics.put("pinningMonitored", stream != null);
+		metrics.put("pinnedThresholdMs", threshold.toMillis());
+		metrics.put("pinnedEvents", events.sum());
+		metrics.put("pinnedMs", TimeUnit.NANOSECONDS.toMillis(pinnedNanos.sum()));
+		metrics.put("maxPinnedMs", TimeUnit.NANOSECONDS.toMillis(maxPinnedNanos.get()));
+
+		List<Map<String, Object>> top = new ArrayList<>();
+		frames.entrySet().stream()
+				.map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+				.sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+				.limit(TOP_FRAMES)
+				.forEach(entry -> top.add(Map.of("frame", entry.getKey(), "events", entry.getValue())));
+		metrics.put("topPinnedFrames", top);
+		return metrics;
+	}
+
+	@Override
+	public void close() {
+		if (stream != null) {
+			stream.close();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.logging.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Events per second over a sliding window of whole seconds <br/>
+ *
+ * Counts go to one slot per second of a ring, stamped with the second they belong to, and the rate sums the slots of
+ * the window, the current partial second included. Reading resets nothing, so any number of <code>/metrics</code>
+ * callers see the same rate. <br/>
+ *
+ * A count racing with the first count of a new second may be lost, which a rate can afford.
+ */
+public class RateMeter {
+
+	private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final int windowSeconds;
+	private final long origin;
+
+	// Window plus the current second
+	private final AtomicLongArray counts;
+	private final AtomicLongArray seconds;
+
+	/**
+	 * @param windowSeconds
+	 */
+	public RateMeter(int windowSeconds) {
+		this(windowSeconds, System.nanoTime());
+	}
+
+	/**
+	 * @param windowSeconds
+	 * @param originNanos   {@link System#nanoTime()} the meter starts at
+	 */
+	public RateMeter(int windowSeconds, long originNanos) {
+		if (windowSeconds < 1) {
+			throw new IllegalArgumentException("Rate window must be at least one second: " + windowSeconds);
+		}
+		this.windowSeconds = windowSeconds;
+		this.origin = originNanos;
+		this.counts = new AtomicLongArray(windowSeconds + 1);
+		this.seconds = new AtomicLongArray(windowSeconds + 1);
+	}
+
+	public void record(long count) {
+		record(count, System.nanoTime());
+	}
+
+	/**
+	 * @param count
+	 * @param nanoTime {@link System#nanoTime()} of the events
+	 */
+	public void record(long count, long nanoTime) {
+		long second = (nanoTime - origin) / SECOND_NANOS;
+		int slot = (int) (second % counts.length());
+		long stamp = seconds.get(slot);
+		if (stamp != second && seconds.compareAndSet(slot, stamp, second)) {
+			counts.set(slot, 0);
+		}
+		counts.addAndGet(slot, count);
+	}
+
+	public double perSecond() {
+		return perSecond(System.nanoTime());
+	}
+
+	/**
+	 * @param nanoTime {@link System#nanoTime()} to read the rate at
+	 * @return events per second over the window ending at nanoTime, or since the origin for a younger meter
+	 */
+	public double perSecond(long nanoTime) {
+		long elapsed = nanoTime - origin;
+		if (elapsed <= 0) {
+			return 0;
+		}
+		long second = elapsed / SECOND_NANOS;
+		long total = 0;
+		for (int slot = 0; slot < counts.length(); slot++) {
+			long stamp = seconds.get(slot);
+			if (stamp <= second && stamp >= second - windowSeconds) {
+				total += counts.get(slot);
+			}
+		}
+		long span = Math.min(elapsed, windowSeconds * SECOND_NANOS + elapsed % SECOND_NANOS);
+		return total * (double) SECOND_NANOS / span;
+	}
+}
@@ -0,0 +1,117 @@
+package com.logging.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Wraps a {@link Scheduler} to record how long immediately scheduled tasks wait in its queue before a thread runs
+ * them <br/>
+ *
+ * For a bounded scheduler that wait is the first sign of saturation, well before tasks are rejected. Operators such
+ * as publishOn schedule one drain task for a run of elements, the wait is then the delay before the run starts.
+ * Delayed and periodic tasks are delegated untimed.
+ */
+public class TimedScheduler implements Scheduler {
+
+	private final Scheduler delegate;
+	private final LatencyHistogram queueWait;
+
+	/**
+	 * @param delegate
+	 * @param queueWait receives the wait of every immediately scheduled task
+	 */
+	public TimedScheduler(Scheduler delegate, LatencyHistogram queueWait) {
+		this.delegate = delegate;
+		this.queueWait = queueWait;
+	}
+
+	private Runnable timed(Runnable task) {
+		long scheduledAt = System.nanoTime();
+		return () -> {
+			queueWait.recordSince(scheduledAt);
+			task.run();
+		};
+	}
+
+	@Override
+	public Disposable schedule(Runnable task) {
+		return delegate.schedule(timed(task));
+	}
+
+	@Override
+	public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+		return delegate.schedule(task, delay, unit);
+	}
+
+	@Override
+	public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+		return delegate.schedulePeriodically(task, initialDelay, period, unit);
+	}
+
+	@Override
+	public long now(TimeUnit unit) {
+		return delegate.now(unit);
+	}
+
+	@Override
+	public Worker createWorker() {
+		return new TimedWorker(delegate.createWorker());
+	}
+
+	@Override
+	public void init() {
+		delegate.init();
+	}
+
+	@Override
+	public void dispose() {
+		delegate.dispose();
+	}
+
+	@Override
+	public Mono<Void> disposeGracefully() {
+		return delegate.disposeGracefully();
+	}
+
+	@Override
+	public boolean isDisposed() {
+		return delegate.isDisposed();
+	}
+
+	private final class TimedWorker implements Worker {
+
+		private final Worker worker;
+
+		TimedWorker(Worker worker) {
+			this.worker = worker;
+		}
+
+		@Override
+		public Disposable schedule(Runnable task) {
+			return worker.schedule(timed(task));
+		}
+
+		@Override
+		public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+			return worker.schedule(task, delay, unit);
+		}
+
+		@Override
+		public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+			return worker.schedulePeriodically(task, initialDelay, period, unit);
+		}
+
+		@Override
+		public void dispose() {
+			worker.dispose();
+		}
+
+		@Override
+		public boolean isDisposed() {
+			return worker.isDisposed();
+		}
+	}
+}
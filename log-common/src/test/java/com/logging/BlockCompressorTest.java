@@ -0,0 +1,80 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.compress.BlockCompressor;
+
+class BlockCompressorTest {
+
+	@Test
+	void testRoundTripsAndShrinksLogText() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 2_000; i++) {
+			text.append("<86>Jan 15 10:00:").append(i % 60).append(" web-0").append(i % 4)
+					.append(" sudo: pam_unix(sudo:session): session opened for user user").append(i % 37)
+					.append(" by (uid=0)\n");
+		}
+		byte[] input = text.toString().getBytes(StandardCharsets.UTF_8);
+
+		for (String name : BlockCompressor.NAMES) {
+			BlockCompressor compressor = BlockCompressor.forName(name);
+			byte[] compressed = compressor.compress(input);
+			assertArrayEquals(input, compressor.decompress(compressed, input.length), name);
+			assertTrue(compressed.length * 4 < input.length, name + " ratio " + input.length / compressed.length);
+		}
+	}
+
+	@Test
+	void testRoundTripsEdgeCases() {
+		Random random = new Random(7);
+		byte[] noise = new byte[100_000];
+		random.nextBytes(noise);
+		byte[] run = new byte[70_000];
+		Arrays.fill(run, (byte) 'a');
+		byte[] mixed = new byte[200_000];
+		for (int i = 0; i < mixed.length; i++) {
+			// Long literal runs, long and overlapping matches, offsets near the 64 KB window
+			mixed[i] = i % 90_000 < 30_000 ? noise[i % 30_000] : (byte) (i % 7);
+		}
+
+		for (String name : BlockCompressor.NAMES) {
+			BlockCompressor compressor = BlockCompressor.forName(name);
+			for (byte[] input : new byte[][] { new byte[0], "abc".getBytes(), "abcdabcdabcdabcdabcd".getBytes(), noise,
+					run, mixed }) {
+				byte[] compressed = compressor.compress(input);
+				assertArrayEquals(input, compressor.decompress(compressed, input.length), name + " " + input.length);
+			}
+			// A slice of a larger array
+			byte[] compressed = compressor.compress(mixed, 1_000, 50_000);
+			assertArrayEquals(Arrays.copyOfRange(mixed, 1_000, 51_000), compressor.decompress(compressed, 50_000));
+		}
+	}
+
+	@Test
+	void testRejectsCorruptBlocksAndBombs() {
+		byte[] input = "session opened for user alice, session opened for user bob".repeat(100)
+				.getBytes(StandardCharsets.UTF_8);
+
+		for (String name : BlockCompressor.NAMES) {
+			BlockCompressor compressor = BlockCompressor.forName(name);
+			byte[] compressed = compressor.compress(input);
+			assertThrows(IllegalArgumentException.class,
+					() -> compressor.decompress(compressed, input.length - 1), name);
+			assertThrows(IllegalArgumentException.class,
+					() -> compressor.decompress(Arrays.copyOf(compressed, compressed.length / 2), input.length), name);
+		}
+		assertNull(BlockCompressor.forName("none"));
+		assertEquals("deflate", BlockCompressor.forName(" Deflate ").name());
+		assertThrows(IllegalArgumentException.class, () -> BlockCompressor.forName("brotli"));
+	}
+}
@@ -0,0 +1,78 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.logging.cluster.ClusterNodes;
+import com.logging.cluster.ConsistentHashRing;
+
+class ConsistentHashRingTest {
+
+	private static final int KEYS = 100_000;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void testKeysAreSpreadEvenlyAndMostStayWhenANodeIsAdded() {
+		ConsistentHashRing<String> four = ring("a", "b", "c", "d");
+		Map<String, Integer> load = new HashMap<>();
+		for (int i = 0; i < KEYS; i++) {
+			load.merge(four.nodeFor("host-" + i), 1, Integer::sum);
+		}
+		for (int count : load.values()) {
+			// 1/4 of the keys within 15%
+			assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 0.15, load.toString());
+		}
+
+		// Listed in another order, with a fifth node
+		ConsistentHashRing<String> five = ring("e", "d", "c", "b", "a");
+		int moved = 0;
+		for (int i = 0; i < KEYS; i++) {
+			String before = four.nodeFor("host-" + i);
+			String after = five.nodeFor("host-" + i);
+			if (!before.equals(after)) {
+				// Only to the new node
+				assertEquals("e", after);
+				moved++;
+			}
+		}
+		assertTrue(moved > KEYS / 5 * 0.8 && moved < KEYS / 5 * 1.2, "moved " + moved);
+		assertEquals(five.nodeFor(null), five.nodeFor(""));
+	}
+
+	@Test
+	void testNodesAreReadFromTheFileWhenGiven() throws IOException {
+		Path file = directory.resolve("nodes");
+		Files.writeString(file, "# shards\nhttp://10.0.0.1:8080/\n\n  http://10.0.0.2:8080\n");
+
+		assertEquals(List.of("http://10.0.0.1:8080", "http://10.0.0.2:8080"),
+				ClusterNodes.resolve(List.of("http://localhost:8080"), file.toString()));
+		assertEquals(List.of("http://localhost:8080"), ClusterNodes.resolve(List.of("http://localhost:8080"), null));
+		assertEquals("10.0.0.1_8080", ClusterNodes.id("http://10.0.0.1:8080"));
+		assertThrows(IllegalArgumentException.class,
+				() -> ClusterNodes.resolve(List.of("http://a:1", "http://a:1/"), null));
+		assertThrows(IllegalArgumentException.class, () -> ClusterNodes.resolve(List.of("localhost:8080"), null));
+		assertThrows(IllegalArgumentException.class, () -> ClusterNodes.resolve(List.of(), null));
+	}
+
+	private static ConsistentHashRing<String> ring(String... nodes) {
+		Map<String, String> byId = new LinkedHashMap<>();
+		for (String node : nodes) {
+			byId.put(node, node);
+		}
+		return new ConsistentHashRing<>(byId, ConsistentHashRing.DEFAULT_POINTS_PER_NODE);
+	}
+}
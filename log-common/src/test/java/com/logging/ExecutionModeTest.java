@@ -0,0 +1,91 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.concurrent.ExecutionMode;
+import com.logging.metrics.PinnedThreadMonitor;
+
+import reactor.core.scheduler.Scheduler;
+
+class ExecutionModeTest {
+
+	@Test
+	void testVirtualSchedulerRunsBlockingTasksBeyondThePlatformCap() throws InterruptedException {
+		Scheduler scheduler = ExecutionMode.VIRTUAL.newScheduler("test-processor", 2, 1000);
+		int tasks = 200;
+		CountDownLatch started = new CountDownLatch(tasks);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger platformThreads = new AtomicInteger();
+		try {
+			for (int i = 0; i < tasks; i++) {
+				scheduler.schedule(() -> {
+					if (!Thread.currentThread().isVirtual()) {
+						platformThreads.incrementAndGet();
+					}
+					started.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+			// Every task blocks at the same time, far more than the 2 platform threads
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			assertEquals(0, platformThreads.get());
+		} finally {
+			release.countDown();
+			scheduler.dispose();
+		}
+	}
+
+	@Test
+	void testPinnedVirtualThreadsAreReportedWithTheirFrame() throws InterruptedException {
+		Object monitor = new Object();
+		try (PinnedThreadMonitor pinnedThreadMonitor = PinnedThreadMonitor.start(ExecutionMode.VIRTUAL,
+				Duration.ofMillis(10))) {
+			// Blocking while holding a monitor keeps the carrier
+			Thread.ofVirtual().start(() -> {
+				synchronized (monitor) {
+					try {
+						Thread.sleep(50);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}).join();
+
+			Map<String, Object> metrics = pinnedThreadMonitor.getMetrics();
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while ((Long) metrics.get("pinnedEvents") == 0 && System.nanoTime() < deadline) {
+				Thread.sleep(50);
+				metrics = pinnedThreadMonitor.getMetrics();
+			}
+
+			assertEquals("virtual", metrics.get("mode"));
+			assertEquals(1L, metrics.get("pinnedEvents"));
+			assertTrue((Long) metrics.get("maxPinnedMs") >= 40);
+			@SuppressWarnings("unchecked")
+			List<Map<String, Object>> frames = (List<Map<String, Object>>) metrics.get("topPinnedFrames");
+			assertTrue(((String) frames.get(0).get("frame")).startsWith(ExecutionModeTest.class.getName()));
+		}
+	}
+
+	@Test
+	void testPlatformModeOnlyReportsTheMode() {
+		try (PinnedThreadMonitor pinnedThreadMonitor = PinnedThreadMonitor.start(ExecutionMode.PLATFORM,
+				PinnedThreadMonitor.DEFAULT_THRESHOLD)) {
+			assertEquals(Map.of("mode", "platform"), pinnedThreadMonitor.getMetrics());
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.codec.InstantText;
+
+class InstantTextTest {
+
+	@Test
+	void testNanosRoundTripAsInstantPrintsThem() {
+		Random random = new Random(11);
+		long min = Instant.parse("1678-01-01T00:00:00Z").getEpochSecond();
+		long max = Instant.parse("2262-01-01T00:00:00Z").getEpochSecond();
+		for (int i = 0; i < 10_000; i++) {
+			// Whole seconds, millis, micros and nanos
+			int nanos = switch (i % 4) {
+			case 0 -> 0;
+			case 1 -> random.nextInt(1, 1000) * 1_000_000;
+			case 2 -> random.nextInt(1, 1_000_000) * 1000;
+			default -> random.nextInt(1, 1_000_000_000);
+			};
+			Instant instant = Instant.ofEpochSecond(random.nextLong(min, max), nanos);
+			long epochNanos = instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+
+			assertEquals(epochNanos, InstantText.parseNanos(instant.toString()), instant.toString());
+			assertEquals(instant.toString(), InstantText.formatNanos(epochNanos));
+		}
+	}
+
+	@Test
+	void testRejectsTextInstantWouldNotPrint() {
+		for (String text : List.of("2026-01-15T10:00:00.000Z", "2026-01-15T10:00:00.120000Z",
+				"2026-01-15T10:00:00.123456000Z", "2026-01-15T10:00:00.1Z", "2026-01-15 10:00:00Z",
+				"2026-02-30T10:00:00Z", "2026-01-15T10:00:00+01:00", "3000-01-01T00:00:00Z")) {
+			assertEquals(InstantText.NOT_CANONICAL, InstantText.parseNanos(text), text);
+		}
+		assertEquals(InstantText.NOT_CANONICAL, InstantText.parse("2026-01-15T10:00:00.123456Z"));
+		assertEquals(1_768_471_200_000L, InstantText.parse("2026-01-15T10:00:00Z"));
+		assertEquals(1_768_471_200_120L, InstantText.parse("2026-01-15T10:00:00.120Z"));
+	}
+}
@@ -0,0 +1,135 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.codec.LogBatchCodec;
+import com.logging.codec.LogEvent;
+
+import lombok.Data;
+
+class LogBatchCodecTest {
+
+	@Test
+	void testRoundTripPreservesEveryField() {
+		List<Event> logs = new ArrayList<>();
+		long millis = Instant.parse("2026-01-15T10:00:00Z").toEpochMilli();
+		for (int i = 0; i < 100; i++) {
+			Event log = event(Instant.ofEpochMilli(millis + i / 3).toString(), "user" + (i % 5));
+			log.setIsBlacklisted(i % 7 == 0);
+			log.setSentAt(i % 2 == 0 ? 1_768_471_200_000_000L + i * 10 : null);
+			logs.add(log);
+		}
+		// Non canonical, missing and unusual values travel as they are
+		logs.get(10).setTimestamp("2026-01-15T10:00:00.000Z");
+		logs.get(11).setTimestamp("not a timestamp");
+		logs.get(12).setTimestamp(null);
+		logs.get(13).setUsername(null);
+		logs.get(13).setIsBlacklisted(null);
+		logs.get(14).setRawMessage("<38>host-ü sshd: Account Name: jörg ✓");
+		logs.get(15).setRawMessage("");
+		logs.get(16).setRawMessage(null);
+		logs.get(17).setTimestamp(Instant.ofEpochMilli(millis - 5_000).toString());
+
+		List<Event> decoded = LogBatchCodec.decode(LogBatchCodec.encode(logs), Event::new);
+
+		assertEquals(logs, decoded);
+		// Dictionary values are shared by the decoded logs
+		assertSame(decoded.get(0).getEventCategory(), decoded.get(1).getEventCategory());
+	}
+
+	@Test
+	void testTimestampsRoundTripAcrossTheCalendar() {
+		Random random = new Random(42);
+		long min = Instant.parse("0000-03-01T00:00:00Z").toEpochMilli();
+		long max = Instant.parse("9999-12-31T23:59:59.999Z").toEpochMilli();
+		List<Event> logs = new ArrayList<>();
+		for (String edge : List.of("1970-01-01T00:00:00Z", "2024-02-29T23:59:59.999Z", "2000-03-01T00:00:00.001Z",
+				"1969-12-31T23:59:59.990Z", "1900-02-28T12:00:00Z")) {
+			logs.add(event(edge, "edge"));
+		}
+		for (int i = 0; i < 10_000; i++) {
+			logs.add(event(Instant.ofEpochMilli(random.nextLong(min, max)).toString(), "random"));
+		}
+
+		byte[] encoded = LogBatchCodec.encode(logs);
+
+		assertEquals(logs, LogBatchCodec.decode(encoded, Event::new));
+		// Sent as millis, not as text
+		int messageBytes = logs.stream().mapToInt(log -> log.getRawMessage().length() + 1).sum();
+		assertTrue(encoded.length - messageBytes < logs.size() * 16);
+	}
+
+	@Test
+	void testEncodingIsSeveralTimesSmallerThanFieldsAsText() {
+		List<Event> logs = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			logs.add(event(Instant.ofEpochMilli(1_768_471_200_000L + i).toString(), "user" + (i % 50)));
+		}
+		int fieldBytes = 0;
+		int messageBytes = 0;
+		for (Event log : logs) {
+			messageBytes += log.getRawMessage().length();
+			fieldBytes += log.getTimestamp().length() + log.getEventCategory().length()
+					+ log.getEventSourceType().length() + log.getUsername().length() + log.getHostname().length()
+					+ log.getSeverity().length();
+		}
+
+		byte[] encoded = LogBatchCodec.encode(logs);
+
+		int overhead = encoded.length - messageBytes;
+		assertTrue(overhead * 5 < fieldBytes, "overhead " + overhead + " for " + fieldBytes + " bytes of fields");
+	}
+
+	@Test
+	void testDecodesConsecutiveFramesAndRejectsTruncatedOnes() {
+		byte[] first = LogBatchCodec.encode(List.of(event("2026-01-15T10:00:00Z", "alice")));
+		byte[] second = LogBatchCodec.encode(List.of(event("2026-01-15T10:00:01Z", "bob")));
+		byte[] body = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, body, first.length, second.length);
+
+		List<Event> decoded = LogBatchCodec.decode(body, Event::new);
+		assertEquals(List.of("alice", "bob"), decoded.stream().map(Event::getUsername).toList());
+		assertEquals(0, LogBatchCodec.decode(LogBatchCodec.encode(List.of()), Event::new).size());
+
+		assertThrows(IllegalArgumentException.class,
+				() -> LogBatchCodec.decode(Arrays.copyOf(body, body.length - 1), Event::new));
+		assertThrows(IllegalArgumentException.class, () -> LogBatchCodec.decode("[{}]".getBytes(), Event::new));
+	}
+
+	private Event event(String timestamp, String username) {
+		Event log = new Event();
+		log.setTimestamp(timestamp);
+		log.setEventCategory("linux_login");
+		log.setEventSourceType("linux");
+		log.setUsername(username);
+		log.setHostname("web-01");
+		log.setSeverity("INFO");
+		log.setRawMessage("<38>Jan 15 10:00:00 web-01 sshd[1234]: session opened for user " + username + " by (uid=0)");
+		log.setIsBlacklisted(false);
+		return log;
+	}
+
+	@Data
+	static class Event implements LogEvent {
+		private String timestamp;
+		private String eventCategory;
+		private String eventSourceType;
+		private String username;
+		private String hostname;
+		private String severity;
+		private String rawMessage;
+		private Boolean isBlacklisted;
+		private Long sentAt;
+	}
+}
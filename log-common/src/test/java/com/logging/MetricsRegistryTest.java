@@ -0,0 +1,108 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.metrics.CounterGroup;
+import com.logging.metrics.LatencyHistogram;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.metrics.RateMeter;
+
+class MetricsRegistryTest {
+
+	@Test
+	void testPercentilesWithinBucketError() {
+		LatencyHistogram histogram = new LatencyHistogram(TimeUnit.MICROSECONDS);
+		for (long micros = 1; micros <= 100_000; micros++) {
+			histogram.record(micros);
+		}
+
+		Map<String, Object> snapshot = histogram.snapshot();
+		assertEquals(100_000L, snapshot.get("count"));
+		assertEquals("us", snapshot.get("unit"));
+		assertWithin(50_000, (long) snapshot.get("p50"));
+		assertWithin(99_000, (long) snapshot.get("p99"));
+		assertWithin(99_900, (long) snapshot.get("p999"));
+		assertWithin(100_000, (long) snapshot.get("max"));
+	}
+
+	@Test
+	void testSmallAndNegativeValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram(TimeUnit.NANOSECONDS);
+		histogram.record(-5);
+		histogram.record(42);
+
+		Map<String, Object> snapshot = histogram.snapshot();
+		assertEquals(0L, snapshot.get("p50"));
+		assertEquals(42L, snapshot.get("max"));
+
+		histogram.reset();
+		assertEquals(Map.of("count", 0L), histogram.snapshot());
+	}
+
+	@Test
+	void testConcurrentUpdatesAreNotLost() throws InterruptedException {
+		MetricsRegistry registry = new MetricsRegistry();
+		CounterGroup categories = registry.counterGroup("logsByCategory");
+		assertSame(categories, registry.counterGroup("logsByCategory"));
+
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			Thread thread = new Thread(() -> {
+				LatencyHistogram histogram = registry.histogram("parse", TimeUnit.NANOSECONDS);
+				for (int i = 0; i < 10_000; i++) {
+					registry.counter("total").increment();
+					categories.increment("category" + (i % 50));
+					histogram.record(i);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Map<String, Object> snapshot = registry.snapshot();
+		assertEquals(80_000L, snapshot.get("total"));
+		Map<?, ?> byCategory = (Map<?, ?>) snapshot.get("logsByCategory");
+		assertEquals(50, byCategory.size());
+		assertTrue(byCategory.values().stream().allMatch(count -> count.equals(1_600L)));
+		Map<?, ?> parse = (Map<?, ?>) ((Map<?, ?>) snapshot.get("latency")).get("parse");
+		assertEquals(80_000L, parse.get("count"));
+	}
+
+	@Test
+	void testRateCoversTheWindowWhateverTheReaders() {
+		long second = TimeUnit.SECONDS.toNanos(1);
+		RateMeter young = new RateMeter(5, 0);
+		young.record(100, 0);
+		assertEquals(200.0, young.perSecond(second / 2), 0.001);
+
+		RateMeter rate = new RateMeter(5, 0);
+		for (int s = 0; s < 20; s++) {
+			rate.record(100, s * second);
+			// Readers in between change nothing
+			rate.perSecond(s * second + 1);
+		}
+
+		// Seconds 14 to 19, the last one half elapsed
+		assertEquals(600 / 5.5, rate.perSecond(19 * second + second / 2), 0.001);
+		assertEquals(600 / 5.5, rate.perSecond(19 * second + second / 2), 0.001);
+		// Seconds 15 to 19 after 20 went by without events
+		assertEquals(500 / 5.5, rate.perSecond(20 * second + second / 2), 0.001);
+		assertEquals(0.0, rate.perSecond(40 * second), 0.001);
+	}
+
+	private void assertWithin(long expected, long actual) {
+		assertTrue(Math.abs(actual - expected) <= expected * 0.016, () -> "expected ~" + expected + " but was " + actual);
+	}
+}
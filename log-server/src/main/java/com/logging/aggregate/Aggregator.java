@@ -0,0 +1,200 @@
+package com.logging.aggregate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.logging.entity.LogEntry;
+import com.logging.model.AggregateQuery;
+import com.logging.model.AggregateResult;
+
+/**
+ * Validated plan of an {@link AggregateQuery} <br/>
+ *
+ * Every partition of the store is aggregated into its own {@link Partial}, with no shared state, and the partials are
+ * merged pairwise into the result. The sketches of approximate aggregations merge without loss: a merged HyperLogLog or
+ * count-min sketch is the one a single scan would have built.
+ */
+public class Aggregator {
+
+	public static final int DEFAULT_LIMIT = 100;
+	public static final int DEFAULT_TOP_SIZE = 10;
+	public static final int MAX_TOP_SIZE = 1000;
+
+	private final List<LogField> groupBy;
+	private final List<Spec> specs;
+	private final int limit;
+
+	/**
+	 * @param name        key of the result in every group
+	 * @param type        count, distinct or top
+	 * @param field       null for count
+	 * @param size        values returned by top
+	 * @param approximate
+	 */
+	private record Spec(String name, String type, LogField field, int size, boolean approximate) {
+	}
+
+	/**
+	 * @param query
+	 * @throws IllegalArgumentException on an unknown field or aggregation type, or a missing field
+	 */
+	public Aggregator(AggregateQuery query) {
+		List<LogField> fields = new ArrayList<>();
+		if (query.getGroupBy() != null) {
+			for (String name : query.getGroupBy()) {
+				fields.add(LogField.parse(name));
+			}
+		}
+		List<Spec> parsed = new ArrayList<>();
+		if (query.getAggregations() != null) {
+			for (AggregateQuery.Aggregation aggregation : query.getAggregations()) {
+				parsed.add(parse(aggregation));
+			}
+		}
+		if (query.getLimit() != null && query.getLimit() < 1) {
+			throw new IllegalArgumentException("Limit must be positive");
+		}
+		this.groupBy = List.copyOf(fields);
+		this.specs = List.copyOf(parsed);
+		this.limit = query.getLimit() != null ? query.getLimit() : DEFAULT_LIMIT;
+	}
+
+	private Spec parse(AggregateQuery.Aggregation aggregation) {
+		String type = aggregation.getType();
+		if ("count".equals(type)) {
+			return new Spec(aggregation.getName() != null ? aggregation.getName() : "count", type, null, 0, false);
+		}
+		if (!"distinct".equals(type) && !"top".equals(type)) {
+			throw new IllegalArgumentException("Unknown aggregation: " + type + ", expected count, distinct or top");
+		}
+		if (aggregation.getField() == null) {
+			throw new IllegalArgumentException("Aggregation " + type + " needs a field");
+		}
+		LogField field = LogField.parse(aggregation.getField());
+		int size = aggregation.getSize() != null ? aggregation.getSize() : DEFAULT_TOP_SIZE;
+		if (size < 1 || size > MAX_TOP_SIZE) {
+			throw new IllegalArgumentException("Top size must be from 1 to " + MAX_TOP_SIZE);
+		}
+		String name = aggregation.getName() != null ? aggregation.getName() : type + "(" + field.label() + ")";
+		return new Spec(name, type, field, size, aggregation.isApproximate());
+	}
+
+	public Partial newPartial() {
+		return new Partial();
+	}
+
+	/**
+	 * @param partial    merge of the partials of every partition
+	 * @param partitions
+	 * @return groups sorted by count, the largest first, up to the limit
+	 */
+	public AggregateResult result(Partial partial, int partitions) {
+		List<Map.Entry<List<Object>, Group>> groups = new ArrayList<>(partial.groups.entrySet());
+		groups.sort((a, b) -> Long.compare(b.getValue().count, a.getValue().count));
+
+		List<AggregateResult.Group> results = new ArrayList<>(Math.min(limit, groups.size()));
+		for (Map.Entry<List<Object>, Group> group : groups.subList(0, Math.min(limit, groups.size()))) {
+			Map<String, Object> key = new LinkedHashMap<>();
+			for (int i = 0; i < groupBy.size(); i++) {
+				key.put(groupBy.get(i).label(), group.getKey().get(i));
+			}
+			Map<String, Object> aggregations = new LinkedHashMap<>();
+			Object[] counters = group.getValue().counters;
+			for (int i = 0; i < specs.size(); i++) {
+				Spec spec = specs.get(i);
+				aggregations.put(spec.name(), switch (spec.type()) {
+				case "distinct" -> ((DistinctCounter) counters[i]).count();
+				case "top" -> ((TopCounter) counters[i]).top().stream()
+						.map(entry -> new AggregateResult.TopValue(entry.getKey(), entry.getValue())).toList();
+				default -> group.getValue().count;
+				});
+			}
+			results.add(new AggregateResult.Group(key, group.getValue().count, aggregations));
+		}
+		return new AggregateResult(partial.matched, groups.size(), partitions, results);
+	}
+
+	/**
+	 * Count and counters of one group
+	 */
+	private final class Group {
+
+		private long count;
+		private final Object[] counters = new Object[specs.size()];
+
+		Group() {
+			for (int i = 0; i < specs.size(); i++) {
+				Spec spec = specs.get(i);
+				counters[i] = switch (spec.type()) {
+				case "distinct" -> new DistinctCounter(spec.approximate());
+				case "top" -> new TopCounter(spec.size(), spec.approximate());
+				default -> null;
+				};
+			}
+		}
+
+		void add(LogEntry logEntry) {
+			count++;
+			for (int i = 0; i < counters.length; i++) {
+				if (counters[i] instanceof DistinctCounter distinct) {
+					distinct.add(specs.get(i).field().valueOf(logEntry));
+				} else if (counters[i] instanceof TopCounter top) {
+					top.add(specs.get(i).field().valueOf(logEntry));
+				}
+			}
+		}
+
+		void merge(Group other) {
+			count += other.count;
+			for (int i = 0; i < counters.length; i++) {
+				if (counters[i] instanceof DistinctCounter distinct) {
+					distinct.merge((DistinctCounter) other.counters[i]);
+				} else if (counters[i] instanceof TopCounter top) {
+					top.merge((TopCounter) other.counters[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Aggregates of one partition, confined to the thread scanning it until merged
+	 */
+	public final class Partial {
+
+		private final Map<List<Object>, Group> groups = new HashMap<>();
+		private long matched;
+
+		public void add(LogEntry logEntry) {
+			Object[] key = new Object[groupBy.size()];
+			for (int i = 0; i < key.length; i++) {
+				key[i] = groupBy.get(i).valueOf(logEntry);
+			}
+			// Arrays.asList: group values may be null
+			groups.computeIfAbsent(Arrays.asList(key), k -> new Group()).add(logEntry);
+			matched++;
+		}
+
+		/**
+		 * @param other partial of another partition, not used afterwards
+		 * @return this
+		 */
+		public Partial merge(Partial other) {
+			for (Map.Entry<List<Object>, Group> group : other.groups.entrySet()) {
+				Group existing = groups.putIfAbsent(group.getKey(), group.getValue());
+				if (existing != null) {
+					existing.merge(group.getValue());
+				}
+			}
+			matched += other.matched;
+			return this;
+		}
+
+		public long matched() {
+			return matched;
+		}
+	}
+}
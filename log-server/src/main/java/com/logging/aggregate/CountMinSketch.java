@@ -0,0 +1,51 @@
+package com.logging.aggregate;
+
+/**
+ * Approximate counts per value in a fixed 32 KB: 4 rows of 1024 counters, each value adds to one counter per row and is
+ * estimated by the smallest of them. Estimates never undercount and overcount by at most 0.27% of the total with 98%
+ * probability. Two sketches merge by adding their counters.
+ */
+final class CountMinSketch {
+
+	private static final int DEPTH = 4;
+	private static final int WIDTH = 1024;
+	private static final int MASK = WIDTH - 1;
+
+	private final long[] counters = new long[DEPTH * WIDTH];
+
+	/**
+	 * @param hash  64 bit hash of the value, see {@link HyperLogLog#hash(Object)}
+	 * @param count occurrences to add
+	 * @return estimated count of the value afterwards
+	 */
+	long add(long hash, long count) {
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < DEPTH; row++) {
+			int index = row * WIDTH + index(hash, row);
+			counters[index] += count;
+			estimate = Math.min(estimate, counters[index]);
+		}
+		return estimate;
+	}
+
+	long estimate(long hash) {
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < DEPTH; row++) {
+			estimate = Math.min(estimate, counters[row * WIDTH + index(hash, row)]);
+		}
+		return estimate;
+	}
+
+	void merge(CountMinSketch other) {
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] += other.counters[i];
+		}
+	}
+
+	/**
+	 * Row hashes derived from the two halves of the value hash (Kirsch-Mitzenmacher)
+	 */
+	private static int index(long hash, int row) {
+		return ((int) hash + row * (int) (hash >>> 32)) & MASK;
+	}
+}
@@ -0,0 +1,58 @@
+package com.logging.aggregate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Distinct values of a field, null ignored. Counted exactly with a set, or when approximate, exactly up to
+ * {@link #EXACT_VALUES} values and with a {@link HyperLogLog} beyond, so that small groups stay small and large ones
+ * stop growing.
+ */
+final class DistinctCounter {
+
+	static final int EXACT_VALUES = 1024;
+
+	private final boolean approximate;
+	private Set<Object> values = new HashSet<>();
+	private HyperLogLog sketch;
+
+	DistinctCounter(boolean approximate) {
+		this.approximate = approximate;
+	}
+
+	void add(Object value) {
+		if (value == null) {
+			return;
+		}
+		if (sketch != null) {
+			sketch.add(HyperLogLog.hash(value));
+		} else if (values.add(value) && approximate && values.size() > EXACT_VALUES) {
+			toSketch();
+		}
+	}
+
+	void merge(DistinctCounter other) {
+		if (other.sketch != null) {
+			if (sketch == null) {
+				toSketch();
+			}
+			sketch.merge(other.sketch);
+		} else {
+			for (Object value : other.values) {
+				add(value);
+			}
+		}
+	}
+
+	private void toSketch() {
+		sketch = new HyperLogLog();
+		for (Object value : values) {
+			sketch.add(HyperLogLog.hash(value));
+		}
+		values = null;
+	}
+
+	long count() {
+		return sketch != null ? sketch.estimate() : values.size();
+	}
+}
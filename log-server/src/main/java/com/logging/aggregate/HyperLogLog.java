@@ -0,0 +1,72 @@
+package com.logging.aggregate;
+
+/**
+ * Approximate distinct count in a fixed 16 KB: 2^14 registers holding the longest run of leading zeros seen among the
+ * hashes routed to them, about 0.8% standard error. Two sketches merge by keeping the larger register, so partitions
+ * can be counted apart and combined.
+ */
+final class HyperLogLog {
+
+	private static final int PRECISION = 14;
+	private static final int REGISTERS = 1 << PRECISION;
+	private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+	private final byte[] registers = new byte[REGISTERS];
+
+	/**
+	 * @param hash 64 bit hash of the value, see {@link #hash(Object)}
+	 */
+	void add(long hash) {
+		int index = (int) (hash >>> (64 - PRECISION));
+		// The low bit set bounds the rank when the remaining bits are all zero
+		byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+		if (rank > registers[index]) {
+			registers[index] = rank;
+		}
+	}
+
+	void merge(HyperLogLog other) {
+		for (int i = 0; i < REGISTERS; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+
+	long estimate() {
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+		if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+			// Small range correction: linear counting of the empty registers
+			estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * 64 bit FNV-1a of the text of the value, finalized with the murmur3 mix so that every bit depends on every char
+	 *
+	 * @param value not null
+	 * @return
+	 */
+	static long hash(Object value) {
+		String text = value.toString();
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < text.length(); i++) {
+			hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
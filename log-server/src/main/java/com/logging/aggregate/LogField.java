@@ -0,0 +1,58 @@
+package com.logging.aggregate;
+
+import java.util.Locale;
+
+import com.logging.entity.LogEntry;
+
+/**
+ * Fields of a stored log that aggregations can group by, count distinct values of or rank, named as in the JSON
+ * entries. event.category and severity are also accepted as service and level, like the <code>GET /logs</code> filters.
+ */
+public enum LogField {
+
+	EVENT_CATEGORY("event.category", "service"), EVENT_SOURCE_TYPE("event.source.type", null),
+	SEVERITY("severity", "level"), USERNAME("username", null), HOSTNAME("hostname", null),
+	BLACKLISTED("is.blacklisted", null);
+
+	private final String label;
+	private final String alias;
+
+	LogField(String label, String alias) {
+		this.label = label;
+		this.alias = alias;
+	}
+
+	public String label() {
+		return label;
+	}
+
+	/**
+	 * @param logEntry
+	 * @return value of the field, severity in lower case like its filter, null when absent
+	 */
+	public Object valueOf(LogEntry logEntry) {
+		return switch (this) {
+		case EVENT_CATEGORY -> logEntry.getEventCategory();
+		case EVENT_SOURCE_TYPE -> logEntry.getEventSourceType();
+		case SEVERITY -> logEntry.getSeverity() != null ? logEntry.getSeverity().toLowerCase(Locale.ROOT) : null;
+		case USERNAME -> logEntry.getUsername();
+		case HOSTNAME -> logEntry.getHostname();
+		case BLACKLISTED -> logEntry.getIsBlacklisted();
+		};
+	}
+
+	/**
+	 * @param name label or alias
+	 * @return
+	 * @throws IllegalArgumentException for any other name
+	 */
+	public static LogField parse(String name) {
+		for (LogField field : values()) {
+			if (field.label.equals(name) || name != null && name.equals(field.alias)) {
+				return field;
+			}
+		}
+		throw new IllegalArgumentException("Unknown field: " + name
+				+ ", expected event.category, event.source.type, severity, username, hostname or is.blacklisted");
+	}
+}
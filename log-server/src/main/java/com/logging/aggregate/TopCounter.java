@@ -0,0 +1,126 @@
+package com.logging.aggregate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Most frequent values of a field, null ignored <br/>
+ *
+ * Counted exactly with a map, or when approximate, exactly up to {@link #EXACT_VALUES} distinct values and with a
+ * {@link CountMinSketch} beyond. The sketch only estimates counts, so the values worth reporting are tracked aside: the
+ * {@link #candidates} with the highest estimates, a few times the requested size. Memory is then fixed whatever the
+ * number of distinct values, and counts are upper bounds.
+ */
+final class TopCounter {
+
+	static final int EXACT_VALUES = 4096;
+
+	private final int size;
+	private final boolean approximate;
+	private final int capacity;
+
+	// Exact counts, or estimates of the candidates once sketched
+	private Map<Object, Long> counts = new HashMap<>();
+	private CountMinSketch sketch;
+	private long floor;
+
+	/**
+	 * @param size        values reported
+	 * @param approximate
+	 */
+	TopCounter(int size, boolean approximate) {
+		this.size = size;
+		this.approximate = approximate;
+		this.capacity = Math.max(4 * size, 64);
+	}
+
+	void add(Object value) {
+		add(value, 1);
+	}
+
+	private void add(Object value, long count) {
+		if (value == null) {
+			return;
+		}
+		if (sketch == null) {
+			counts.merge(value, count, Long::sum);
+			if (approximate && counts.size() > EXACT_VALUES) {
+				toSketch();
+			}
+			return;
+		}
+		long estimate = sketch.add(HyperLogLog.hash(value), count);
+		offer(value, estimate);
+	}
+
+	/**
+	 * Tracks the value when it is a candidate already, there is room, or it overtakes the smallest candidate
+	 */
+	private void offer(Object value, long estimate) {
+		if (counts.containsKey(value) || counts.size() < capacity) {
+			counts.put(value, estimate);
+			floor = Math.min(floor, estimate);
+			return;
+		}
+		// floor is a lower bound of the candidate estimates, refreshed when a value gets past it
+		if (estimate <= floor) {
+			return;
+		}
+		Map.Entry<Object, Long> smallest = null;
+		for (Map.Entry<Object, Long> entry : counts.entrySet()) {
+			if (smallest == null || entry.getValue() < smallest.getValue()) {
+				smallest = entry;
+			}
+		}
+		floor = smallest.getValue();
+		if (estimate > floor) {
+			counts.remove(smallest.getKey());
+			counts.put(value, estimate);
+		}
+	}
+
+	void merge(TopCounter other) {
+		if (sketch == null && other.sketch == null) {
+			other.counts.forEach(this::add);
+			return;
+		}
+		if (sketch == null) {
+			toSketch();
+		}
+		if (other.sketch == null) {
+			other.counts.forEach(this::add);
+			return;
+		}
+		sketch.merge(other.sketch);
+		// Candidates of either side, re-estimated on the merged counters
+		Map<Object, Long> merged = new HashMap<>(counts);
+		merged.putAll(other.counts);
+		counts = new HashMap<>();
+		floor = 0;
+		merged.keySet().stream()
+				.sorted(Comparator.comparingLong((Object value) -> sketch.estimate(HyperLogLog.hash(value))).reversed())
+				.limit(capacity).forEach(value -> offer(value, sketch.estimate(HyperLogLog.hash(value))));
+	}
+
+	private void toSketch() {
+		Map<Object, Long> exact = counts;
+		sketch = new CountMinSketch();
+		counts = new HashMap<>();
+		floor = 0;
+		exact.forEach((value, count) -> sketch.add(HyperLogLog.hash(value), count));
+		exact.entrySet().stream().sorted(Map.Entry.<Object, Long>comparingByValue().reversed()).limit(capacity)
+				.forEach(entry -> offer(entry.getKey(), sketch.estimate(HyperLogLog.hash(entry.getKey()))));
+	}
+
+	/**
+	 * @return up to size values with their counts, the most frequent first
+	 */
+	List<Map.Entry<Object, Long>> top() {
+		List<Map.Entry<Object, Long>> top = new ArrayList<>(counts.entrySet());
+		top.sort(Map.Entry.<Object, Long>comparingByValue().reversed());
+		return top.subList(0, Math.min(size, top.size()));
+	}
+}
@@ -1,20 +1,24 @@
 package com.logging.config;
 
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.logging.concurrent.ExecutionMode;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.metrics.TimedScheduler;
+
 import reactor.core.scheduler.Scheduler;
-import reactor.core.scheduler.Schedulers;
 
 @Configuration
 public class BoundedSchedulerConfig {
 	@Bean
-	Scheduler logProcessingScheduler() {
-		// Bounded thread pool for event-driven processing
-		return Schedulers.newBoundedElastic(20, // thread cap
-				10_000, // queue size for backpressure
-				"log-processor", 60, // TTL seconds
-				true // daemon threads
+	Scheduler logProcessingScheduler(MetricsRegistry metricsRegistry, ExecutionMode executionMode) {
+		// Bounded thread pool for event-driven processing, one virtual thread per task in virtual mode
+		Scheduler scheduler = executionMode.newScheduler("log-processor", 20, // thread cap
+				10_000 // queue size for backpressure
 		);
+		return new TimedScheduler(scheduler, metricsRegistry.histogram("schedulerQueueWait", TimeUnit.NANOSECONDS));
 	}
 }
@@ -0,0 +1,28 @@
+package com.logging.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.logging.cluster.ClusterNodes;
+import com.logging.coordinator.QueryCoordinator;
+
+@Configuration
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterConfig {
+
+	/**
+	 * Scatter-gather over the nodes of cluster.nodes or cluster.nodes-file
+	 * 
+	 * @param clusterProperties
+	 * @return
+	 */
+	@Bean
+	QueryCoordinator queryCoordinator(ClusterProperties clusterProperties) {
+		return new QueryCoordinator(ClusterNodes.resolve(clusterProperties.getNodes(), clusterProperties.getNodesFile()),
+				WebClient.builder().build(), Duration.ofMillis(clusterProperties.getTimeoutMs()));
+	}
+}
@@ -0,0 +1,36 @@
+package com.logging.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Binds the <code>cluster.*</code> section of application.yml
+ */
+@Data
+@ConfigurationProperties(prefix = "cluster")
+public class ClusterProperties {
+
+	/**
+	 * Serve <code>/cluster/logs</code> and <code>/cluster/metrics</code> over the nodes below
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Base URLs of the log-server nodes, this one included when it stores logs too, used when there is no nodes file
+	 */
+	private List<String> nodes = new ArrayList<>();
+
+	/**
+	 * File listing one log-server base URL per line instead of nodes, read on start
+	 */
+	private String nodesFile;
+
+	/**
+	 * A node that does not answer for this long is left out of the results
+	 */
+	private long timeoutMs = 5_000;
+}
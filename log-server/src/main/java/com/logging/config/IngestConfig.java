@@ -0,0 +1,22 @@
+package com.logging.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.logging.ingest.IngestSettings;
+
+@Configuration
+public class IngestConfig {
+
+	/**
+	 * Ring buffer between the ingest endpoints and the storage writer, sized by ingest.*
+	 * 
+	 * @param ingestProperties
+	 * @return
+	 */
+	@Bean
+	IngestSettings ingestSettings(IngestProperties ingestProperties) {
+		return new IngestSettings(ingestProperties.getRingSize(), ingestProperties.getMaxBatch(),
+				ingestProperties.getWaitStrategy());
+	}
+}
@@ -0,0 +1,30 @@
+package com.logging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.logging.ingest.IngestSettings;
+
+import lombok.Data;
+
+/**
+ * Binds the <code>ingest.*</code> section of application.yml
+ */
+@Data
+@ConfigurationProperties(prefix = "ingest")
+public class IngestProperties {
+
+	/**
+	 * Logs accepted and not yet stored before ingestion answers 429, a power of 2
+	 */
+	private int ringSize = IngestSettings.DEFAULT.ringSize();
+
+	/**
+	 * Logs stored per batch by the storage writer
+	 */
+	private int maxBatch = IngestSettings.DEFAULT.maxBatch();
+
+	/**
+	 * blocking, sleeping, yielding or busy-spin
+	 */
+	private String waitStrategy = IngestSettings.DEFAULT.waitStrategy();
+}
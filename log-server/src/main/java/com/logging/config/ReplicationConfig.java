@@ -0,0 +1,26 @@
+package com.logging.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.logging.replication.ReplicationSettings;
+
+@Configuration
+public class ReplicationConfig {
+
+	/**
+	 * Role of this node and how it replicates, from replication.*
+	 * 
+	 * @param replicationProperties
+	 * @return
+	 */
+	@Bean
+	ReplicationSettings replicationSettings(ReplicationProperties replicationProperties) {
+		ReplicationSettings.Role role = ReplicationSettings.Role.forName(replicationProperties.getRole());
+		// A standalone node or a follower has no quorum of its own
+		int quorum = role == ReplicationSettings.Role.LEADER ? replicationProperties.getQuorum() : 1;
+		return new ReplicationSettings(role, replicationProperties.getPort(), replicationProperties.getFollowers(),
+				quorum, replicationProperties.getBatchEntries(), replicationProperties.getMaxInFlight(),
+				replicationProperties.getAckTimeoutMs(), replicationProperties.getCompression());
+	}
+}
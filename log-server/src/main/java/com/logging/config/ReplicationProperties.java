@@ -0,0 +1,58 @@
+package com.logging.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.logging.replication.ReplicationSettings;
+
+import lombok.Data;
+
+/**
+ * Binds the <code>replication.*</code> section of application.yml
+ */
+@Data
+@ConfigurationProperties(prefix = "replication")
+public class ReplicationProperties {
+
+	/**
+	 * standalone, leader or follower
+	 */
+	private String role = "standalone";
+
+	/**
+	 * Port a follower listens on for its leader
+	 */
+	private int port = ReplicationSettings.STANDALONE.port();
+
+	/**
+	 * host:port of the followers of a leader
+	 */
+	private List<String> followers = new ArrayList<>();
+
+	/**
+	 * Copies, the leader's included, stored before ingest is acknowledged, 1 to replicate in the background
+	 */
+	private int quorum = 2;
+
+	/**
+	 * Logs shipped per frame at most
+	 */
+	private int batchEntries = ReplicationSettings.STANDALONE.batchEntries();
+
+	/**
+	 * Frames sent to a follower and not acknowledged yet at most
+	 */
+	private int maxInFlight = ReplicationSettings.STANDALONE.maxInFlight();
+
+	/**
+	 * Longest wait for the quorum before ingest answers 503
+	 */
+	private long ackTimeoutMs = ReplicationSettings.STANDALONE.ackTimeoutMs();
+
+	/**
+	 * lz4, deflate or none
+	 */
+	private String compression = ReplicationSettings.STANDALONE.compression();
+}
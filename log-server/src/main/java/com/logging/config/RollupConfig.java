@@ -0,0 +1,22 @@
+package com.logging.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.logging.rollup.TimeSeriesRollups;
+
+@Configuration
+public class RollupConfig {
+
+	/**
+	 * Time series counters behind <code>GET /stats/timeseries</code>, sized by rollup.*
+	 * 
+	 * @param rollupProperties
+	 * @return
+	 */
+	@Bean
+	TimeSeriesRollups timeSeriesRollups(RollupProperties rollupProperties) {
+		return new TimeSeriesRollups(rollupProperties.getMaxSeries(), rollupProperties.getSecondSlots(),
+				rollupProperties.getMinuteSlots(), rollupProperties.getHourSlots());
+	}
+}
@@ -0,0 +1,30 @@
+package com.logging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.logging.rollup.TimeSeriesRollups;
+
+import lombok.Data;
+
+/**
+ * Binds the <code>rollup.*</code> section of application.yml
+ */
+@Data
+@ConfigurationProperties(prefix = "rollup")
+public class RollupProperties {
+
+	/**
+	 * Distinct category, severity, hostname and is.blacklisted combinations counted separately, the rest share one
+	 * overflow series
+	 */
+	private int maxSeries = TimeSeriesRollups.DEFAULT_MAX_SERIES;
+
+	/**
+	 * Buckets kept per resolution
+	 */
+	private int secondSlots = TimeSeriesRollups.DEFAULT_SECOND_SLOTS;
+
+	private int minuteSlots = TimeSeriesRollups.DEFAULT_MINUTE_SLOTS;
+
+	private int hourSlots = TimeSeriesRollups.DEFAULT_HOUR_SLOTS;
+}
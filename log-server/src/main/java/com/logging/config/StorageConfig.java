@@ -0,0 +1,58 @@
+package com.logging.config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.logging.compress.BlockCompressor;
+import com.logging.storage.ColumnarLogStore;
+import com.logging.storage.InMemoryLogStore;
+import com.logging.storage.LogStore;
+import com.logging.storage.RetentionPolicy;
+import com.logging.storage.SegmentLogStore;
+
+@Configuration
+public class StorageConfig {
+
+	/**
+	 * Storage engine selected by storage.engine, closed by Spring on shutdown
+	 * 
+	 * @param storageProperties
+	 * @return
+	 * @throws IOException
+	 */
+	@Bean
+	LogStore logStore(StorageProperties storageProperties) throws IOException {
+		return switch (storageProperties.getEngine()) {
+		case "memory" -> {
+			StorageProperties.Memory memory = storageProperties.getMemory();
+			yield new InMemoryLogStore(BlockCompressor.forName(memory.getCompression()), memory.getBlockEntries());
+		}
+		case "columnar" -> {
+			StorageProperties.Columnar columnar = storageProperties.getColumnar();
+			yield new ColumnarLogStore(columnar.getChunkRows(), columnar.getPageBytes());
+		}
+		case "segment" -> {
+			StorageProperties.Segment segment = storageProperties.getSegment();
+			yield new SegmentLogStore(Path.of(segment.getDirectory()), segment.getSegmentBytes(),
+					segment.getIndexIntervalBytes(), segment.getFsyncIntervalMs());
+		}
+		default -> throw new IllegalArgumentException("Unknown storage engine: " + storageProperties.getEngine());
+		};
+	}
+
+	/**
+	 * Retention limits of storage.retention, enforced by the storage service
+	 * 
+	 * @param storageProperties
+	 * @return
+	 */
+	@Bean
+	RetentionPolicy retentionPolicy(StorageProperties storageProperties) {
+		StorageProperties.Retention retention = storageProperties.getRetention();
+		return new RetentionPolicy(retention.getMaxAgeMs(), retention.getMaxEntries(), retention.getMaxBytes(),
+				retention.getCheckIntervalMs());
+	}
+}
@@ -0,0 +1,103 @@
+package com.logging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.logging.storage.ColumnarLogStore;
+
+import lombok.Data;
+
+/**
+ * Binds the <code>storage.*</code> section of application.yml
+ */
+@Data
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+
+	/**
+	 * <code>memory</code> keeps entries on the heap, <code>columnar</code> in off-heap columns, <code>segment</code> in
+	 * durable segment files
+	 */
+	private String engine = "memory";
+
+	private Memory memory = new Memory();
+
+	private Columnar columnar = new Columnar();
+
+	private Segment segment = new Segment();
+
+	private Retention retention = new Retention();
+
+	@Data
+	public static class Memory {
+
+		/**
+		 * Codec of sealed blocks: <code>lz4</code>, <code>deflate</code> or <code>none</code> to keep every entry on the
+		 * heap
+		 */
+		private String compression = "lz4";
+
+		/**
+		 * Entries per sealed block, a power of two up to 8192
+		 */
+		private int blockEntries = 512;
+	}
+
+	@Data
+	public static class Columnar {
+
+		/**
+		 * Rows per off-heap chunk, a power of two
+		 */
+		private int chunkRows = ColumnarLogStore.DEFAULT_CHUNK_ROWS;
+
+		/**
+		 * Size of the off-heap pages holding raw messages
+		 */
+		private int pageBytes = ColumnarLogStore.DEFAULT_PAGE_BYTES;
+	}
+
+	@Data
+	public static class Segment {
+
+		private String directory = "data/segments";
+
+		/**
+		 * A segment file rolls once the next record would exceed this size
+		 */
+		private int segmentBytes = 64 * 1024 * 1024;
+
+		/**
+		 * One sparse index entry per this many bytes of records
+		 */
+		private int indexIntervalBytes = 4096;
+
+		/**
+		 * Group commit interval, all records appended in between share one fsync
+		 */
+		private long fsyncIntervalMs = 50;
+	}
+
+	/**
+	 * Limits applied by evicting the oldest chunks, 0 for unlimited
+	 */
+	@Data
+	public static class Retention {
+
+		/**
+		 * Age of the last entry of a chunk after which it is evicted
+		 */
+		private long maxAgeMs = 0;
+
+		private long maxEntries = 0;
+
+		/**
+		 * Bytes held by the engine: estimated heap for memory, off-heap for columnar, files for segment
+		 */
+		private long maxBytes = 0;
+
+		/**
+		 * Delay between two runs of the background eviction
+		 */
+		private long checkIntervalMs = 1000;
+	}
+}
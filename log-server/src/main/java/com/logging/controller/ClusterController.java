@@ -0,0 +1,108 @@
+package com.logging.controller;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.logging.coordinator.QueryCoordinator;
+import com.logging.model.LogQuery;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Queries over all the nodes of a sharded cluster, served by any log-server started with
+ * <code>cluster.enabled=true</code>
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterController {
+
+	/**
+	 * Response header carrying the merged cursor of the next page
+	 */
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	/**
+	 * Response header listing the nodes missing from a partial result
+	 */
+	private static final String FAILED_SHARDS_HEADER = "X-Failed-Shards";
+
+	private final QueryCoordinator queryCoordinator;
+
+	/**
+	 * Same query as <code>GET /logs</code> on every node, merged in timestamp order. With a limit, the merged cursor
+	 * of the next page is returned in the {@value #NEXT_CURSOR_HEADER} header when the page is full. Nodes that failed
+	 * are listed in the {@value #FAILED_SHARDS_HEADER} header, the entries of the others are still returned.
+	 * 
+	 * @param service
+	 * @param level
+	 * @param username
+	 * @param isBlacklisted
+	 * @param q             full-text query on raw.message
+	 * @param from          ISO-8601 instant, inclusive
+	 * @param to            ISO-8601 instant, exclusive
+	 * @param limit
+	 * @param order         asc or desc
+	 * @param cursor        merged cursor returned with the previous page
+	 * @return
+	 */
+	@GetMapping("/cluster/logs")
+	public Mono<ResponseEntity<List<Map<String, Object>>>> queryLogs(@RequestParam(required = false) String service,
+			@RequestParam(required = false) String level, @RequestParam(required = false) String username,
+			@RequestParam(name = "is.blacklisted", required = false) Boolean isBlacklisted,
+			@RequestParam(required = false) String q, @RequestParam(required = false) Instant from,
+			@RequestParam(required = false) Instant to, @RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) String order, @RequestParam(required = false) String cursor) {
+
+		LogQuery query = new LogQuery();
+		query.setService(service);
+		query.setLevel(level);
+		query.setUsername(username);
+		query.setIsBlacklisted(isBlacklisted);
+		query.setQ(q);
+		query.setFrom(from);
+		query.setTo(to);
+		query.setLimit(limit);
+		query.setOrder(order);
+		return queryCoordinator.queryLogs(query, cursor).map(page -> {
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+			if (page.nextCursor() != null) {
+				response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+			}
+			if (!page.failedNodes().isEmpty()) {
+				response.header(FAILED_SHARDS_HEADER, String.join(",", page.failedNodes()));
+			}
+			return response.body(page.entries());
+		});
+	}
+
+	/**
+	 * Metrics of every node, and their counters summed
+	 * 
+	 * @return
+	 */
+	@GetMapping("/cluster/metrics")
+	public Mono<Map<String, Object>> getMetrics() {
+		return queryCoordinator.getMetrics();
+	}
+
+	/**
+	 * Malformed merged cursor
+	 * 
+	 * @param e
+	 * @return
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<Map<String, Object>> handleBadRequest(IllegalArgumentException e) {
+		return ResponseEntity.badRequest().body(Map.of("status", "error", "message", String.valueOf(e.getMessage())));
+	}
+}
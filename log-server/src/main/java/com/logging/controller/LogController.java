@@ -1,16 +1,41 @@
 package com.logging.controller;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.logging.codec.IngestHeaders;
+import com.logging.codec.LogBatchCodec;
 import com.logging.entity.LogEntry;
+import com.logging.ingest.IngestCredit;
+import com.logging.ingest.IngestRejectedException;
+import com.logging.metrics.PinnedThreadMonitor;
+import com.logging.model.AggregateQuery;
+import com.logging.model.AggregateResult;
+import com.logging.model.LogQuery;
+import com.logging.model.LogRecord;
+import com.logging.model.TimeSeries;
+import com.logging.model.TimeSeriesQuery;
+import com.logging.replication.NotLeaderException;
+import com.logging.replication.QuorumTimeoutException;
 import com.logging.service.LogStorageService;
 
 import lombok.RequiredArgsConstructor;
@@ -21,56 +46,310 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class LogController {
 
+	/**
+	 * Entries handed to the storage service per scheduler hop while a batch body is being decoded
+	 */
+	private static final int INGEST_CHUNK_SIZE = 256;
+
+	/**
+	 * Binary batches are decoded as a whole, bodies beyond this size are rejected
+	 */
+	private static final int MAX_BINARY_BATCH_BYTES = 64 * 1024 * 1024;
+
+	/**
+	 * Response header carrying the cursor of the next page
+	 */
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
 	private final LogStorageService logStorageService;
 
+	private final PinnedThreadMonitor pinnedThreadMonitor;
+
 	/**
-	 * Ingest logs
+	 * Ingest logs. Responds 201, or 429 when the ingest buffer is full, both advertising the {@link IngestHeaders}
+	 * credit. A replication leader responds 201 once the quorum stored the log, and 202 with
+	 * {@link IngestHeaders#REPLICATION} pending when it did not in time: the log is stored and must not be resent. A
+	 * follower responds 503.
 	 * 
 	 * @param logEntry
 	 * @return
 	 */
 	@PostMapping("/ingest")
 	public Mono<ResponseEntity<Map<String, String>>> ingestLog(@RequestBody LogEntry logEntry) {
-		return logStorageService.ingestLog(logEntry).then(Mono.just(
-				ResponseEntity.status(HttpStatus.CREATED).body(Map.of("status", "success", "message", "Log ingested"))))
-				.onErrorResume(e -> {
-					if (e.getMessage().contains("overflow")) {
-						return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-								.body(Map.of("status", "error", "message", "Backpressure: buffer full")));
-					}
-					return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-							.body(Map.of("status", "error", "message", e.getMessage())));
-				});
+		return logStorageService.ingestLog(logEntry).flatMap(this::replicated)
+				.map(replicated -> replicated
+						? withCredit(HttpStatus.CREATED).body(Map.of("status", "success", "message", "Log ingested"))
+						: replicationPending(withCredit(HttpStatus.ACCEPTED))
+								.body(Map.of("status", "success", "message", "Log stored, replication pending")))
+				.onErrorResume(IngestRejectedException.class, e -> Mono.just(withCredit(HttpStatus.TOO_MANY_REQUESTS)
+						.body(Map.of("status", "error", "message", "Backpressure: buffer full"))))
+				.onErrorResume(e -> Mono.just(ResponseEntity.status(errorStatus(e))
+						.body(Map.of("status", "error", "message", String.valueOf(e.getMessage())))));
+	}
+
+	/**
+	 * Ingest a batch of logs in one request, either as a JSON array (application/json) or as newline delimited JSON
+	 * (application/x-ndjson). The body is decoded as a stream and stored in chunks, so the size of a batch is not
+	 * bounded by memory.
+	 * 
+	 * Responds 201 with the accepted count, or 429 with the count of the prefix accepted before the buffer filled up.
+	 * The caller resubmits only the entries after that prefix, paced by the {@link IngestHeaders} of the response. A
+	 * replication leader responds once the quorum stored the accepted entries, the whole batch with a single wait on
+	 * the position of its last entry. When the quorum does not store them in time it responds 202, or 429 for a
+	 * partial batch, with {@link IngestHeaders#REPLICATION} pending: the accepted entries are stored and must not be
+	 * resent.
+	 * 
+	 * @param logEntries
+	 * @return
+	 */
+	@PostMapping(path = "/ingest/batch", consumes = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_NDJSON_VALUE })
+	public Mono<ResponseEntity<Map<String, Object>>> ingestBatch(@RequestBody Flux<LogEntry> logEntries) {
+		return ingest(logEntries);
+	}
+
+	/**
+	 * Same as {@link #ingestBatch(Flux)} for a body of {@link LogBatchCodec} frames (application/x-log-batch), what
+	 * log-collector sends. The entries are decoded straight from the body bytes without going through JSON, and share
+	 * the receive time of the request.
+	 * 
+	 * @param body
+	 * @return
+	 */
+	@PostMapping(path = "/ingest/batch", consumes = LogBatchCodec.MEDIA_TYPE)
+	public Mono<ResponseEntity<Map<String, Object>>> ingestBinaryBatch(@RequestBody Flux<DataBuffer> body) {
+		Flux<LogEntry> logEntries = DataBufferUtils.join(body, MAX_BINARY_BATCH_BYTES).flatMapIterable(buffer -> {
+			byte[] bytes = new byte[buffer.readableByteCount()];
+			try {
+				buffer.read(bytes);
+			} finally {
+				DataBufferUtils.release(buffer);
+			}
+			String receivedAt = Instant.now().toString();
+			return LogBatchCodec.decode(bytes, () -> new LogEntry(receivedAt));
+		});
+		return ingest(logEntries);
+	}
+
+	private Mono<ResponseEntity<Map<String, Object>>> ingest(Flux<LogEntry> logEntries) {
+		return logEntries.buffer(INGEST_CHUNK_SIZE)
+				.concatMap(chunk -> logStorageService.ingestBatch(chunk)
+						.map(offer -> new ChunkResult(chunk.size(), offer.accepted(), offer.position())))
+				.takeUntil(ChunkResult::isPartial).reduce(new ChunkResult(0, 0, -1), ChunkResult::plus)
+				.flatMap(result -> (result.accepted() > 0 ? replicated(result.position()) : Mono.just(true))
+						.map(replicated -> batchResponse(result, replicated)))
+				.onErrorResume(e -> Mono.just(ResponseEntity.status(errorStatus(e))
+						.body(Map.of("status", "error", "message", String.valueOf(e.getMessage())))));
+	}
+
+	private ResponseEntity<Map<String, Object>> batchResponse(ChunkResult result, boolean replicated) {
+		if (result.isPartial()) {
+			ResponseEntity.BodyBuilder response = withCredit(HttpStatus.TOO_MANY_REQUESTS);
+			return (replicated ? response : replicationPending(response)).body(Map.<String, Object>of("status",
+					"error", "message", "Backpressure: buffer full", "accepted", result.accepted()));
+		}
+		ResponseEntity.BodyBuilder response = replicated ? withCredit(HttpStatus.CREATED)
+				: replicationPending(withCredit(HttpStatus.ACCEPTED));
+		return response.body(Map.<String, Object>of("status", "success", "accepted", result.accepted()));
+	}
+
+	private static HttpStatus errorStatus(Throwable e) {
+		if (e instanceof IllegalArgumentException || e instanceof DataBufferLimitException) {
+			// Malformed or oversized body: retrying it would not help
+			return HttpStatus.BAD_REQUEST;
+		}
+		if (e instanceof NotLeaderException) {
+			return HttpStatus.SERVICE_UNAVAILABLE;
+		}
+		return HttpStatus.INTERNAL_SERVER_ERROR;
+	}
+
+	/**
+	 * @param ingestPosition right after the request's own logs
+	 * @return false when the quorum did not store them in time, they are stored on this node nonetheless
+	 */
+	private Mono<Boolean> replicated(long ingestPosition) {
+		return logStorageService.awaitQuorum(ingestPosition).thenReturn(true)
+				.onErrorResume(QuorumTimeoutException.class, e -> Mono.just(false));
+	}
+
+	/**
+	 * Tells the client that the logs are stored but not replicated yet, so that it does not resend them
+	 */
+	private static ResponseEntity.BodyBuilder replicationPending(ResponseEntity.BodyBuilder response) {
+		return response.header(IngestHeaders.REPLICATION, IngestHeaders.REPLICATION_PENDING);
+	}
+
+	/**
+	 * Advertises the logs the server can take now, and on 429 when retrying is worth it
+	 */
+	private ResponseEntity.BodyBuilder withCredit(HttpStatus status) {
+		IngestCredit credit = logStorageService.ingestCredit();
+		ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
+				.header(IngestHeaders.CREDIT, String.valueOf(credit.credit()))
+				.header(IngestHeaders.CAPACITY, String.valueOf(credit.capacity()));
+		if (status == HttpStatus.TOO_MANY_REQUESTS) {
+			response.header(HttpHeaders.RETRY_AFTER, String.valueOf((credit.retryAfterMs() + 999) / 1000))
+					.header(IngestHeaders.RETRY_AFTER_MS, String.valueOf(credit.retryAfterMs()));
+		}
+		return response;
 	}
 
 	/**
-	 * Query logs with filters
+	 * Query logs with filters <br/>
+	 *
+	 * - application/json (default): a JSON array. With a limit the page is collected and, when full, the cursor of its
+	 * last row is returned in the {@value #NEXT_CURSOR_HEADER} header. <br/>
+	 * - application/x-ndjson: rows are streamed one per line as the client consumes them, each row carrying its own
+	 * <code>cursor</code>, so memory stays bounded whatever the result size. <br/>
+	 *
+	 * Passing a cursor back resumes the same query right after that row.
 	 * 
 	 * @param service
 	 * @param level
 	 * @param username
 	 * @param isBlacklisted
+	 * @param q             full-text query on raw.message: terms, "phrases" and prefix* terms, all required
+	 * @param from          ISO-8601 instant, inclusive
+	 * @param to            ISO-8601 instant, exclusive
 	 * @param limit
 	 * @param sort
+	 * @param order         asc or desc, for sort=timestamp
+	 * @param cursor        cursor of the last row of the previous page
+	 * @param request
 	 * @return
 	 */
-	@GetMapping("/logs")
-	public Flux<LogEntry> queryLogs(@RequestParam(required = false) String service,
+	@GetMapping(value = "/logs", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	public Mono<ResponseEntity<Flux<?>>> queryLogs(@RequestParam(required = false) String service,
 			@RequestParam(required = false) String level, @RequestParam(required = false) String username,
 			@RequestParam(name = "is.blacklisted", required = false) Boolean isBlacklisted,
-			@RequestParam(required = false) Integer limit, @RequestParam(required = false) String sort) {
+			@RequestParam(required = false) String q, @RequestParam(required = false) Instant from,
+			@RequestParam(required = false) Instant to, @RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) String sort, @RequestParam(required = false) String order,
+			@RequestParam(required = false) Long cursor, ServerHttpRequest request) {
 
-		return logStorageService.queryLogs(service, level, username, isBlacklisted, limit, sort);
+		LogQuery query = new LogQuery();
+		query.setService(service);
+		query.setLevel(level);
+		query.setUsername(username);
+		query.setIsBlacklisted(isBlacklisted);
+		query.setQ(q);
+		query.setFrom(from);
+		query.setTo(to);
+		query.setLimit(limit);
+		query.setSort(sort);
+		query.setOrder(order);
+		query.setCursor(cursor);
+		Flux<LogRecord> records = logStorageService.queryRecords(query);
+
+		if (prefersNdjson(request.getHeaders().getAccept())) {
+			return Mono.just(ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(records));
+		}
+		if (limit == null) {
+			return Mono.just(
+					ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(records.map(LogRecord::getEntry)));
+		}
+		return records.collectList().map(page -> {
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+			if (!page.isEmpty() && page.size() == limit) {
+				response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getCursor()));
+			}
+			return response.body(Flux.fromIterable(page).map(LogRecord::getEntry));
+		});
+	}
+
+	/**
+	 * @param accept media types of the Accept header
+	 * @return true when the most preferred acceptable type is NDJSON rather than JSON, wildcards meaning JSON
+	 */
+	private static boolean prefersNdjson(List<MediaType> accept) {
+		List<MediaType> accepted = new ArrayList<>(accept);
+		// Higher quality first, then more specific
+		MimeTypeUtils.sortBySpecificity(accepted);
+		for (MediaType mediaType : accepted) {
+			if (mediaType.getQualityValue() == 0) {
+				continue;
+			}
+			if (MediaType.APPLICATION_JSON.isCompatibleWith(mediaType)) {
+				return false;
+			}
+			if (MediaType.APPLICATION_NDJSON.isCompatibleWith(mediaType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Log counts per time bucket from the rollups, for dashboards. Without from the last 60 buckets are returned.
+	 * 
+	 * @param resolution    1s, 1m (default) or 1h
+	 * @param from          ISO-8601 instant, inclusive
+	 * @param to            ISO-8601 instant, exclusive
+	 * @param service
+	 * @param level
+	 * @param hostname
+	 * @param isBlacklisted
+	 * @param groupBy       comma separated dimensions among service, level, hostname and is.blacklisted
+	 * @return
+	 */
+	@GetMapping("/stats/timeseries")
+	public Mono<TimeSeries> queryTimeSeries(@RequestParam(defaultValue = "1m") String resolution,
+			@RequestParam(required = false) Instant from, @RequestParam(required = false) Instant to,
+			@RequestParam(required = false) String service, @RequestParam(required = false) String level,
+			@RequestParam(required = false) String hostname,
+			@RequestParam(name = "is.blacklisted", required = false) Boolean isBlacklisted,
+			@RequestParam(required = false) List<String> groupBy) {
+
+		TimeSeriesQuery query = new TimeSeriesQuery();
+		query.setResolution(resolution);
+		query.setFrom(from);
+		query.setTo(to);
+		query.setService(service);
+		query.setLevel(level);
+		query.setHostname(hostname);
+		query.setIsBlacklisted(isBlacklisted);
+		if (groupBy != null) {
+			query.setGroupBy(groupBy);
+		}
+		return logStorageService.queryTimeSeries(query);
+	}
+
+	/**
+	 * Counts per group of the grouped fields, with distinct counts and most frequent values of other fields, over the
+	 * logs matching the filters. The matching logs are scanned in parallel partitions whose partial results are merged.
+	 * 
+	 * @param query filters, groupBy fields and aggregations
+	 * @return
+	 */
+	@PostMapping(path = "/query/aggregate", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public Mono<AggregateResult> aggregate(@RequestBody AggregateQuery query) {
+		return logStorageService.aggregate(query);
 	}
 
 	/**
-	 * Get system metrics
+	 * Get system metrics, with the execution mode and virtual thread pinning under threads, and the replication role,
+	 * lag and throughput under replication
 	 * 
 	 * @return
 	 */
 	@GetMapping("/metrics")
 	public Mono<Map<String, Object>> getMetrics() {
-		return logStorageService.getMetrics();
+		return logStorageService.getMetrics().map(metrics -> {
+			metrics.put("threads", pinnedThreadMonitor.getMetrics());
+			return metrics;
+		});
+	}
+
+	/**
+	 * Reset the latency histograms reported under latency in {@link #getMetrics()}
+	 * 
+	 * @return
+	 */
+	@DeleteMapping("/metrics/latency")
+	public Mono<ResponseEntity<Void>> resetLatencyMetrics() {
+		return Mono.fromRunnable(logStorageService::resetLatencyMetrics)
+				.then(Mono.just(ResponseEntity.noContent().build()));
 	}
 
 	/**
@@ -83,4 +362,31 @@ public class LogController {
 		return Mono.just(ResponseEntity
 				.ok(Map.of("status", "UP", "service", "log-server", "totalLogs", logStorageService.getTotalLogs())));
 	}
+
+	/**
+	 * Invalid query parameters, such as an unknown cursor
+	 * 
+	 * @param e
+	 * @return
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<Map<String, Object>> handleBadRequest(IllegalArgumentException e) {
+		return ResponseEntity.badRequest().body(Map.of("status", "error", "message", String.valueOf(e.getMessage())));
+	}
+
+	/**
+	 * Running total of a batch ingest, partial once a chunk was not fully accepted, with the ingest position right
+	 * after its last accepted entry
+	 */
+	private record ChunkResult(int received, int accepted, long position) {
+
+		boolean isPartial() {
+			return accepted < received;
+		}
+
+		ChunkResult plus(ChunkResult other) {
+			return new ChunkResult(received + other.received, accepted + other.accepted,
+					Math.max(position, other.position));
+		}
+	}
 }
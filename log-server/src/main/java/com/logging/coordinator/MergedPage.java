@@ -0,0 +1,14 @@
+package com.logging.coordinator;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of entries merged from the nodes of a cluster
+ *
+ * @param entries     in timestamp order
+ * @param nextCursor  merged cursor of the next page, null when the page is not full
+ * @param failedNodes nodes that failed or timed out and are missing from the page
+ */
+public record MergedPage(List<Map<String, Object>> entries, String nextCursor, List<String> failedNodes) {
+}
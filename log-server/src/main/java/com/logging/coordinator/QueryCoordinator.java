@@ -0,0 +1,236 @@
+package com.logging.coordinator;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriBuilder;
+
+import com.logging.model.LogQuery;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Scatter-gather over the log-server nodes of a sharded cluster <br/>
+ *
+ * A query is sent to every node as a <code>GET /logs</code> sorted by timestamp and streamed back as NDJSON. The
+ * streams are merged in timestamp order as they arrive, and once limit rows are merged the node streams are cancelled,
+ * so no node sends more than limit rows and the coordinator holds no more than the page. Rows without a timestamp come
+ * last in both orders, like on the nodes, and ties keep node order. <br/>
+ *
+ * The cursor of a merged page is the list of the node cursors, one per node in cluster order and empty for a node that
+ * has not contributed yet: every node resumes right after the last of its rows that made it into the page, which is
+ * exact because each node's rows are a prefix of its sorted stream. <br/>
+ *
+ * A node that fails or times out is left out and reported, the others still answer.
+ */
+@Slf4j
+public class QueryCoordinator {
+
+	private static final ParameterizedTypeReference<Map<String, Object>> ROW = new ParameterizedTypeReference<>() {
+	};
+
+	private static final String CURSOR = "cursor";
+	private static final String TIMESTAMP = "timestamp";
+
+	private final List<String> nodes;
+	private final List<WebClient> clients;
+	private final Duration timeout;
+
+	/**
+	 * @param nodes     base URLs, in cluster order
+	 * @param webClient shared by the nodes, each adds its base URL
+	 * @param timeout   longest wait for the next row, or the metrics, of a node
+	 */
+	public QueryCoordinator(List<String> nodes, WebClient webClient, Duration timeout) {
+		this.nodes = List.copyOf(nodes);
+		this.clients = nodes.stream().map(node -> webClient.mutate().baseUrl(node).build()).toList();
+		this.timeout = timeout;
+	}
+
+	public List<String> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @param query  filters, time range, limit and order, its own cursor is ignored
+	 * @param cursor merged cursor of the previous page, null for the first page
+	 * @return the merged page, the cursor of the next one when full, and the nodes left out
+	 * @throws IllegalArgumentException on a malformed cursor
+	 */
+	public Mono<MergedPage> queryLogs(LogQuery query, String cursor) {
+		Long[] cursors = parseCursor(cursor);
+		List<String> failed = Collections.synchronizedList(new ArrayList<>());
+
+		List<Flux<ShardRow>> shards = new ArrayList<>(nodes.size());
+		for (int shard = 0; shard < nodes.size(); shard++) {
+			shards.add(queryShard(shard, query, cursors[shard], failed));
+		}
+		// Rows without a timestamp come last in both orders, like on the nodes
+		Comparator<Instant> timestamps = query.isDescending() ? Comparator.reverseOrder() : Comparator.naturalOrder();
+		Comparator<ShardRow> byTimestamp = Comparator.comparing(ShardRow::timestamp, Comparator.nullsLast(timestamps));
+		@SuppressWarnings("unchecked")
+		Flux<ShardRow> merged = Flux.mergeComparing(byTimestamp.thenComparingInt(ShardRow::shard),
+				shards.toArray(Flux[]::new));
+		if (query.getLimit() != null) {
+			merged = merged.take(query.getLimit());
+		}
+
+		return merged.collectList().map(rows -> {
+			List<Map<String, Object>> entries = new ArrayList<>(rows.size());
+			for (ShardRow row : rows) {
+				cursors[row.shard()] = row.cursor();
+				entries.add(row.entry());
+			}
+			String next = query.getLimit() != null && !rows.isEmpty() && rows.size() == query.getLimit()
+					? formatCursor(cursors)
+					: null;
+			return new MergedPage(entries, next, List.copyOf(failed));
+		});
+	}
+
+	private Flux<ShardRow> queryShard(int shard, LogQuery query, Long cursor, List<String> failed) {
+		return clients.get(shard).get().uri(uri -> shardUri(uri, query, cursor))
+				.accept(MediaType.APPLICATION_NDJSON).retrieve().bodyToFlux(ROW)
+				.map(row -> toShardRow(shard, row))
+				.timeout(timeout)
+				.onErrorResume(e -> {
+					log.warn("Shard {} left out of the query: {}", nodes.get(shard), e.getMessage());
+					failed.add(nodes.get(shard));
+					return Flux.empty();
+				});
+	}
+
+	private static URI shardUri(UriBuilder uri, LogQuery query, Long cursor) {
+		Map<String, Object> values = new LinkedHashMap<>();
+		values.put("sort", TIMESTAMP);
+		values.put("order", query.isDescending() ? "desc" : "asc");
+		values.put("service", query.getService());
+		values.put("level", query.getLevel());
+		values.put("username", query.getUsername());
+		values.put("is.blacklisted", query.getIsBlacklisted());
+		values.put("q", query.getQ());
+		values.put("from", query.getFrom());
+		values.put("to", query.getTo());
+		values.put("limit", query.getLimit());
+		values.put(CURSOR, cursor);
+
+		// Values go through URI variables so that they are fully encoded, quotes and & of a full-text query included
+		uri.path("/logs");
+		List<Object> variables = new ArrayList<>();
+		values.forEach((name, value) -> {
+			if (value != null) {
+				uri.queryParam(name, "{" + variables.size() + "}");
+				variables.add(value);
+			}
+		});
+		return uri.build(variables.toArray());
+	}
+
+	private static ShardRow toShardRow(int shard, Map<String, Object> row) {
+		Object cursor = row.remove(CURSOR);
+		return new ShardRow(shard, parseTimestamp(row.get(TIMESTAMP)),
+				cursor instanceof Number number ? number.longValue() : -1, row);
+	}
+
+	/**
+	 * @return the timestamp of the row, null when it has no readable one
+	 */
+	private static Instant parseTimestamp(Object timestamp) {
+		if (timestamp instanceof String text) {
+			try {
+				return Instant.parse(text);
+			} catch (DateTimeParseException e) {
+				// Falls through
+			}
+		}
+		return null;
+	}
+
+	private Long[] parseCursor(String cursor) {
+		Long[] cursors = new Long[nodes.size()];
+		if (cursor == null || cursor.isEmpty()) {
+			return cursors;
+		}
+		String[] parts = cursor.split(",", -1);
+		if (parts.length != nodes.size()) {
+			throw new IllegalArgumentException(
+					"Cursor has " + parts.length + " positions for " + nodes.size() + " nodes: " + cursor);
+		}
+		for (int i = 0; i < parts.length; i++) {
+			try {
+				cursors[i] = parts[i].isEmpty() ? null : Long.parseLong(parts[i]);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Malformed cursor: " + cursor);
+			}
+		}
+		return cursors;
+	}
+
+	private static String formatCursor(Long[] cursors) {
+		return Arrays.stream(cursors).map(cursor -> cursor != null ? cursor.toString() : "")
+				.collect(Collectors.joining(","));
+	}
+
+	/**
+	 * @return every node's <code>GET /metrics</code>, or its error, and the top level counters summed over the nodes
+	 *         that answered
+	 */
+	public Mono<Map<String, Object>> getMetrics() {
+		return Flux.range(0, nodes.size()).flatMapSequential(shard -> clients.get(shard).get().uri("/metrics")
+				.retrieve().bodyToMono(ROW).timeout(timeout)
+				.map(metrics -> Map.<String, Object>of("node", nodes.get(shard), "metrics", metrics))
+				.onErrorResume(e -> Mono.just(Map.of("node", nodes.get(shard), "error", String.valueOf(e.getMessage())))))
+				.collectList().map(results -> {
+					Map<String, Object> totals = new HashMap<>();
+					int up = 0;
+					for (Map<String, Object> result : results) {
+						if (result.get("metrics") instanceof Map<?, ?> metrics) {
+							up++;
+							metrics.forEach((name, value) -> {
+								if (isCounter(value)) {
+									totals.merge((String) name, ((Number) value).longValue(),
+											(a, b) -> ((Long) a) + ((Long) b));
+								}
+							});
+						}
+					}
+					Map<String, Object> metrics = new HashMap<>();
+					metrics.put("shards", nodes.size());
+					metrics.put("shardsUp", up);
+					metrics.put("totals", totals);
+					metrics.put("nodes", results);
+					return metrics;
+				});
+	}
+
+	/**
+	 * The top level integers of a node's metrics are its counters, the gauges sit in its sections and a decimal such
+	 * as a rate does not add up across nodes
+	 */
+	private static boolean isCounter(Object value) {
+		return value instanceof Long || value instanceof Integer || value instanceof BigInteger;
+	}
+
+	/**
+	 * A row of a node's stream, with what the merge orders it by and the node cursor that resumes after it
+	 */
+	private record ShardRow(int shard, Instant timestamp, long cursor, Map<String, Object> entry) {
+	}
+}
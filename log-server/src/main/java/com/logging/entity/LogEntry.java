@@ -2,12 +2,15 @@ package com.logging.entity;
 
 import java.time.Instant;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.logging.codec.LogEvent;
 
 import lombok.Data;
 
 @Data
-public class LogEntry {
+public class LogEntry implements LogEvent {
 
 	private String timestamp;
 
@@ -27,10 +30,27 @@ public class LogEntry {
 	@JsonProperty("is.blacklisted")
 	private Boolean isBlacklisted;
 
+	/**
+	 * Epoch microseconds at which a load generator sent the log, absent for regular traffic
+	 */
+	@JsonProperty("sent.at")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Long sentAt;
+
 	private String receivedAt;
 
 	public LogEntry() {
 		this.receivedAt = Instant.now().toString();
 	}
 
+	/**
+	 * Not a JSON creator, JSON bodies go through the default constructor and get the current time
+	 *
+	 * @param receivedAt shared by the entries of a batch instead of reading the clock for each
+	 */
+	@JsonCreator(mode = JsonCreator.Mode.DISABLED)
+	public LogEntry(String receivedAt) {
+		this.receivedAt = receivedAt;
+	}
+
 }
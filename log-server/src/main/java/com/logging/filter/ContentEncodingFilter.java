@@ -0,0 +1,92 @@
+package com.logging.filter;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.logging.compress.BlockCompressor;
+import com.logging.metrics.LatencyHistogram;
+import com.logging.metrics.MetricsRegistry;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decompresses request bodies sent with a <code>Content-Encoding</code> of one of the {@link BlockCompressor}s, so
+ * controllers always see the plain body <br/>
+ *
+ * The body is decompressed as one block, bounded by {@link #MAX_BODY_BYTES} on both sides. Any other coding is refused
+ * with 415 and an <code>Accept-Encoding</code> header listing the supported ones, which is how the forwarder falls
+ * back to a codec this server understands.
+ */
+@Component
+public class ContentEncodingFilter implements WebFilter {
+
+	private static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+	private static final String IDENTITY = "identity";
+
+	private final Map<String, BlockCompressor> compressors = new HashMap<>();
+	private final String acceptEncoding;
+	private final LatencyHistogram decompressLatency;
+
+	public ContentEncodingFilter(MetricsRegistry metricsRegistry) {
+		for (String name : BlockCompressor.NAMES) {
+			compressors.put(name, BlockCompressor.forName(name));
+		}
+		this.acceptEncoding = String.join(", ", BlockCompressor.NAMES) + ", " + IDENTITY;
+		this.decompressLatency = metricsRegistry.histogram("decompress", TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		String encoding = request.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+		if (encoding == null || encoding.isBlank() || encoding.trim().equalsIgnoreCase(IDENTITY)) {
+			return chain.filter(exchange);
+		}
+
+		BlockCompressor compressor = compressors.get(encoding.trim().toLowerCase(Locale.ROOT));
+		if (compressor == null) {
+			exchange.getResponse().setStatusCode(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+			exchange.getResponse().getHeaders().set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+			return exchange.getResponse().setComplete();
+		}
+
+		Flux<DataBuffer> body = DataBufferUtils.join(request.getBody(), MAX_BODY_BYTES).map(buffer -> {
+			byte[] compressed = new byte[buffer.readableByteCount()];
+			try {
+				buffer.read(compressed);
+			} finally {
+				DataBufferUtils.release(buffer);
+			}
+			long start = System.nanoTime();
+			byte[] decompressed = compressor.decompress(compressed, MAX_BODY_BYTES);
+			decompressLatency.recordSince(start);
+			return exchange.getResponse().bufferFactory().wrap(decompressed);
+		}).flux();
+
+		ServerHttpRequest plain = new ServerHttpRequestDecorator(request.mutate().headers(headers -> {
+			headers.remove(HttpHeaders.CONTENT_ENCODING);
+			headers.remove(HttpHeaders.CONTENT_LENGTH);
+		}).build()) {
+
+			@Override
+			public Flux<DataBuffer> getBody() {
+				return body;
+			}
+		};
+		return chain.filter(exchange.mutate().request(plain).build());
+	}
+}
@@ -0,0 +1,55 @@
+package com.logging.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sequences on every cursor: the cheapest leads, the others are advanced to its candidates
+ */
+final class ConjunctionCursor implements SequenceCursor {
+
+	private final SequenceCursor lead;
+	private final SequenceCursor[] others;
+
+	ConjunctionCursor(List<SequenceCursor> cursors) {
+		SequenceCursor[] sorted = cursors.toArray(SequenceCursor[]::new);
+		Arrays.sort(sorted, Comparator.comparingLong(SequenceCursor::cost));
+		this.lead = sorted[0];
+		this.others = Arrays.copyOfRange(sorted, 1, sorted.length);
+	}
+
+	@Override
+	public long sequence() {
+		return lead.sequence();
+	}
+
+	@Override
+	public long next() {
+		return align(lead.next());
+	}
+
+	@Override
+	public long advance(long target) {
+		return align(lead.advance(target));
+	}
+
+	private long align(long candidate) {
+		candidates: while (candidate != END) {
+			for (SequenceCursor other : others) {
+				long sequence = other.sequence() < candidate ? other.advance(candidate) : other.sequence();
+				if (sequence != candidate) {
+					candidate = sequence == END ? END : lead.advance(sequence);
+					continue candidates;
+				}
+			}
+			return candidate;
+		}
+		return END;
+	}
+
+	@Override
+	public long cost() {
+		return lead.cost();
+	}
+}
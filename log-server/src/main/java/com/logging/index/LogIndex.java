@@ -0,0 +1,332 @@
+package com.logging.index;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+import com.logging.entity.LogEntry;
+import com.logging.model.LogQuery;
+import com.logging.storage.FilterScan;
+
+/**
+ * Indexes for the filters and time ordering supported by <code>GET /logs</code> <br/>
+ *
+ * One {@link PostingList} of sequence numbers per distinct value of event.category, severity (lower case, the filter is
+ * case-insensitive), username and is.blacklisted, a {@link TimeIndex} on the entry timestamp and a {@link TextIndex}
+ * on the terms of raw.message. Maintained by the single storage writer at ingest time, queried concurrently. <br/>
+ *
+ * With a {@link FilterScan} storage engine the posting lists are not kept, filters are answered by the engine's column
+ * scan and only the time and text indexes are maintained. <br/>
+ *
+ * Retention trims every index to the sequences still stored, posting lists left without one are dropped.
+ */
+public class LogIndex {
+
+	private final FilterScan filterScan;
+
+	private final Map<String, PostingList> byCategory = new ConcurrentHashMap<>();
+	private final Map<String, PostingList> bySeverity = new ConcurrentHashMap<>();
+	private final Map<String, PostingList> byUsername = new ConcurrentHashMap<>();
+	private final PostingList blacklisted = new PostingList();
+	private final PostingList notBlacklisted = new PostingList();
+	private final TimeIndex timeIndex = new TimeIndex();
+	private final TextIndex textIndex = new TextIndex();
+
+	public LogIndex() {
+		this(null);
+	}
+
+	/**
+	 * @param filterScan storage engine answering the filters, null to maintain posting lists
+	 */
+	public LogIndex(FilterScan filterScan) {
+		this.filterScan = filterScan;
+	}
+
+	/**
+	 * Indexes a stored entry, single writer only
+	 *
+	 * @param sequence sequence the entry was stored under
+	 * @param logEntry
+	 */
+	public void add(long sequence, LogEntry logEntry) {
+		// Time index first: a sequence visible in a posting list always has its timestamp indexed
+		timeIndex.add(sequence, logEntry.getTimestamp());
+		textIndex.add(sequence, logEntry.getRawMessage());
+		if (filterScan != null) {
+			return;
+		}
+		addPosting(byCategory, logEntry.getEventCategory(), sequence);
+		addPosting(bySeverity, normalizeSeverity(logEntry.getSeverity()), sequence);
+		addPosting(byUsername, logEntry.getUsername(), sequence);
+
+		if (logEntry.getIsBlacklisted() != null) {
+			(logEntry.getIsBlacklisted() ? blacklisted : notBlacklisted).add(sequence);
+		}
+	}
+
+	private void addPosting(Map<String, PostingList> index, String value, long sequence) {
+		if (value != null) {
+			index.computeIfAbsent(value, k -> new PostingList()).add(sequence);
+		}
+	}
+
+	/**
+	 * Forgets the sequences the store evicted, single writer only
+	 *
+	 * @param firstSequence first sequence still stored
+	 */
+	public void trim(long firstSequence) {
+		timeIndex.trim(firstSequence);
+		textIndex.trim(firstSequence);
+		if (filterScan != null) {
+			return;
+		}
+		trimPostings(byCategory, firstSequence);
+		trimPostings(bySeverity, firstSequence);
+		trimPostings(byUsername, firstSequence);
+		blacklisted.trim(firstSequence);
+		notBlacklisted.trim(firstSequence);
+	}
+
+	private void trimPostings(Map<String, PostingList> index, long firstSequence) {
+		Iterator<PostingList> postingLists = index.values().iterator();
+		while (postingLists.hasNext()) {
+			PostingList postingList = postingLists.next();
+			if (postingList.last() < firstSequence) {
+				// A value seen again later starts a new list
+				postingLists.remove();
+			} else {
+				postingList.trim(firstSequence);
+			}
+		}
+	}
+
+	/**
+	 * Plans a query: filters are intersected first, the time index then restricts the candidates to the time range.
+	 * Without filters a time ordered or time bounded query walks the time index directly. <br/>
+	 *
+	 * A time ordered query with filters either ranks every candidate with a bounded heap, or walks the time buckets in
+	 * order, probes the filters for the entries of each bucket and stops at the limit. Ranking costs the candidates,
+	 * the walk visits about limit * buckets / candidates buckets when the matches are spread over time, so the heap is
+	 * only used for a first page with few candidates. Later pages resume the walk at the cursor's bucket, and without
+	 * a limit the walk keeps memory to one bucket. <br/>
+	 *
+	 * A cursor is the sequence of the last result of a previous page. Since every plan emits in a total order on
+	 * (timestamp, sequence) or on sequence alone, resuming only needs the results ordered after it.
+	 *
+	 * @param query
+	 * @return sequences of the results in result order, or null when the query has no filter, no time range and no
+	 *         ordering, i.e. every entry matches in storage order
+	 * @throws IllegalArgumentException when the cursor is not an indexed sequence, or was evicted and the results are
+	 *                                  ordered or bounded by time, or when q is not a valid text query
+	 */
+	public PrimitiveIterator.OfLong find(LogQuery query) {
+		Long from = query.getFrom() != null ? query.getFrom().toEpochMilli() : null;
+		Long to = query.getTo() != null ? query.getTo().toEpochMilli() : null;
+		Long cursor = query.getCursor();
+		TextQuery text = query.getQ() != null ? TextQuery.parse(query.getQ()) : null;
+		if (cursor != null && !timeIndex.contains(cursor)) {
+			throw new IllegalArgumentException("Unknown cursor: " + cursor);
+		}
+
+		boolean sorted = query.isSortedByTimestamp();
+		if (cursor != null && cursor < timeIndex.firstSequence() && (sorted || query.hasTimeRange())) {
+			// Its timestamp is gone, the position in time order cannot be found again
+			throw new IllegalArgumentException("Expired cursor: " + cursor);
+		}
+		// In sequence order the filters resume right after the cursor, in time order every match is a candidate
+		long fromSequence = Math.max(cursor != null && !sorted ? cursor + 1 : 0, timeIndex.firstSequence());
+		if (sorted) {
+			LongFunction<SequenceCursor> filters = filters(query.getService(), query.getLevel(), query.getUsername(),
+					query.getIsBlacklisted(), text);
+			if (filters == null) {
+				return timeIndex.scan(from, to, query.isDescending(), cursor);
+			}
+			SequenceCursor candidates = filters.apply(fromSequence);
+			if (candidates == null) {
+				return LongStream.empty().iterator();
+			}
+			if (cursor == null && ranksCandidates(candidates.cost(), query.getLimit())) {
+				return timeIndex.select(SequenceCursor.iterator(candidates, fromSequence), from, to, true,
+						query.isDescending(), query.getLimit(), null);
+			}
+			return timeIndex.scan(from, to, query.isDescending(), cursor, filters);
+		}
+		PrimitiveIterator.OfLong matches = find(query.getService(), query.getLevel(), query.getUsername(),
+				query.getIsBlacklisted(), text, fromSequence);
+		if (matches == null) {
+			return query.hasTimeRange() ? timeIndex.scan(from, to, query.isDescending(), cursor) : null;
+		}
+		return timeIndex.select(matches, from, to, false, query.isDescending(), query.getLimit(), null);
+	}
+
+	/**
+	 * @param candidates upper bound of the entries matching the filters
+	 * @param limit
+	 * @return true when ranking every candidate is cheaper than walking the time buckets up to the limit
+	 */
+	private boolean ranksCandidates(long candidates, Integer limit) {
+		if (limit == null) {
+			// The heap would hold every match
+			return false;
+		}
+		return (double) candidates * candidates <= (double) limit * timeIndex.bucketCount();
+	}
+
+	/**
+	 * Sequences of a range matching the filters, text query and time range of a query, for partitioned scans. Ordering,
+	 * limit and cursor are ignored.
+	 *
+	 * @param query
+	 * @param fromSequence first sequence of the range
+	 * @param toSequence   end of the range, exclusive, at most the number of indexed entries
+	 * @return ascending sequences, or null when the query has no filter and no time range and the whole range matches
+	 * @throws IllegalArgumentException when q is not a valid text query
+	 */
+	public PrimitiveIterator.OfLong match(LogQuery query, long fromSequence, long toSequence) {
+		TextQuery text = query.getQ() != null ? TextQuery.parse(query.getQ()) : null;
+		long start = Math.max(fromSequence, timeIndex.firstSequence());
+		PrimitiveIterator.OfLong matches = find(query.getService(), query.getLevel(), query.getUsername(),
+				query.getIsBlacklisted(), text, start);
+		if (matches == null) {
+			if (!query.hasTimeRange()) {
+				return null;
+			}
+			matches = LongStream.range(start, toSequence).iterator();
+		}
+		PrimitiveIterator.OfLong candidates = matches;
+		// Lazy filters and scans stop at the end of the range
+		PrimitiveIterator.OfLong inRange = LongStream.iterate(candidates.hasNext() ? candidates.nextLong() : toSequence,
+				sequence -> sequence < toSequence, sequence -> candidates.hasNext() ? candidates.nextLong() : toSequence)
+				.iterator();
+		return timeIndex.select(inRange, query.getFrom() != null ? query.getFrom().toEpochMilli() : null,
+				query.getTo() != null ? query.getTo().toEpochMilli() : null, false, false, null, null);
+	}
+
+	/**
+	 * Sequences of the entries matching every given filter, null filters are ignored
+	 *
+	 * @param service
+	 * @param level
+	 * @param username
+	 * @param isBlacklisted
+	 * @return ascending sequences, or null when no filter is given and every entry matches
+	 */
+	public PrimitiveIterator.OfLong find(String service, String level, String username, Boolean isBlacklisted) {
+		return find(service, level, username, isBlacklisted, null, 0);
+	}
+
+	/**
+	 * Sequences of the entries matching every given filter, null filters are ignored
+	 *
+	 * @param service
+	 * @param level
+	 * @param username
+	 * @param isBlacklisted
+	 * @param text          full-text query on raw.message
+	 * @param fromSequence  smallest sequence to return
+	 * @return ascending sequences, or null when no filter is given and every entry matches
+	 */
+	private PrimitiveIterator.OfLong find(String service, String level, String username, Boolean isBlacklisted,
+			TextQuery text, long fromSequence) {
+		if (filterScan != null) {
+			if (service == null && level == null && username == null && isBlacklisted == null) {
+				return text != null ? textIndex.find(text, List.of(), fromSequence) : null;
+			}
+			PrimitiveIterator.OfLong matches = filterScan.scan(service, level, username, isBlacklisted, fromSequence);
+			// The scan cannot skip ahead, the text index leads
+			return text != null ? textIndex.find(text, List.of(SequenceCursor.of(matches)), fromSequence) : matches;
+		}
+		List<PostingList> lists = postingLists(service, level, username, isBlacklisted);
+		if (lists.isEmpty() && text == null) {
+			return null;
+		}
+		if (lists.contains(null)) {
+			// A filter value that was never seen matches nothing
+			return LongStream.empty().iterator();
+		}
+		if (text != null) {
+			return textIndex.find(text, lists.stream().map(SequenceCursor::of).toList(), fromSequence);
+		}
+		return new PostingIntersection(fromSequence, lists.toArray(PostingList[]::new));
+	}
+
+	/**
+	 * Opens cursors over the entries matching every given filter, null filters are ignored. A time ordered walk reopens
+	 * them when it moves back in sequence order.
+	 *
+	 * @param service
+	 * @param level
+	 * @param username
+	 * @param isBlacklisted
+	 * @param text          full-text query on raw.message
+	 * @return opener of cursors from a sequence on, the cursor being null when nothing matches, or null when no filter
+	 *         is given and every entry matches
+	 */
+	private LongFunction<SequenceCursor> filters(String service, String level, String username, Boolean isBlacklisted,
+			TextQuery text) {
+		if (filterScan != null) {
+			if (service == null && level == null && username == null && isBlacklisted == null) {
+				return text != null ? fromSequence -> textIndex.cursor(text, List.of()) : null;
+			}
+			return fromSequence -> {
+				SequenceCursor matches = SequenceCursor
+						.of(filterScan.scan(service, level, username, isBlacklisted, fromSequence));
+				return text != null ? textIndex.cursor(text, List.of(matches)) : matches;
+			};
+		}
+		List<PostingList> lists = postingLists(service, level, username, isBlacklisted);
+		if (lists.isEmpty() && text == null) {
+			return null;
+		}
+		if (lists.contains(null)) {
+			// A filter value that was never seen matches nothing
+			return fromSequence -> null;
+		}
+		return fromSequence -> {
+			List<SequenceCursor> cursors = lists.stream().map(SequenceCursor::of).toList();
+			if (text != null) {
+				return textIndex.cursor(text, cursors);
+			}
+			return cursors.size() == 1 ? cursors.get(0) : new ConjunctionCursor(cursors);
+		};
+	}
+
+	private List<PostingList> postingLists(String service, String level, String username, Boolean isBlacklisted) {
+		List<PostingList> lists = new ArrayList<>(4);
+		if (service != null) {
+			lists.add(byCategory.get(service));
+		}
+		if (level != null) {
+			lists.add(bySeverity.get(normalizeSeverity(level)));
+		}
+		if (username != null) {
+			lists.add(byUsername.get(username));
+		}
+		if (isBlacklisted != null) {
+			lists.add(isBlacklisted ? blacklisted : notBlacklisted);
+		}
+		return lists;
+	}
+
+	private String normalizeSeverity(String severity) {
+		return severity != null ? severity.toLowerCase(Locale.ROOT) : null;
+	}
+
+	public Map<String, Object> getMetrics() {
+		if (filterScan != null) {
+			return Map.of("filters", "scan", "timeBuckets", timeIndex.bucketCount(), "untimed",
+					timeIndex.untimedCount(), "text", textIndex.getMetrics());
+		}
+		return Map.of("categories", byCategory.size(), "severities", bySeverity.size(), "usernames",
+				byUsername.size(), "timeBuckets", timeIndex.bucketCount(), "untimed", timeIndex.untimedCount(), "text",
+				textIndex.getMetrics());
+	}
+}
@@ -0,0 +1,62 @@
+package com.logging.index;
+
+import java.util.Arrays;
+
+/**
+ * Append-only column of long values addressed by position, single writer, concurrent readers <br/>
+ *
+ * Same publication scheme as {@link PostingList}: fixed size blocks, a value is visible once the volatile size covers
+ * it. Trimmed blocks read as {@link #EVICTED}.
+ */
+final class LongColumn {
+
+	private static final int BLOCK_SHIFT = 12;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	static final long EVICTED = Long.MIN_VALUE;
+
+	private volatile long[][] blocks = new long[16][];
+	private volatile long size;
+	private int firstBlock;
+
+	void add(long value) {
+		long index = size;
+		int blockIndex = (int) (index >>> BLOCK_SHIFT);
+
+		long[][] current = blocks;
+		if (blockIndex == current.length) {
+			current = Arrays.copyOf(current, current.length * 2);
+			blocks = current;
+		}
+		if (current[blockIndex] == null) {
+			current[blockIndex] = new long[BLOCK_SIZE];
+		}
+
+		current[blockIndex][(int) (index & BLOCK_MASK)] = value;
+		size = index + 1;
+	}
+
+	long size() {
+		return size;
+	}
+
+	/**
+	 * @param index below a previously read {@link #size()}
+	 */
+	long get(long index) {
+		long[] block = blocks[(int) (index >>> BLOCK_SHIFT)];
+		return block != null ? block[(int) (index & BLOCK_MASK)] : EVICTED;
+	}
+
+	/**
+	 * Releases the full blocks below index, single writer only
+	 */
+	void trim(long index) {
+		long[][] current = blocks;
+		long limit = Math.min(index, size);
+		while ((long) (firstBlock + 1) << BLOCK_SHIFT <= limit) {
+			current[firstBlock++] = null;
+		}
+	}
+}
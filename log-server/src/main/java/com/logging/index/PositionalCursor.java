@@ -0,0 +1,14 @@
+package com.logging.index;
+
+/**
+ * Cursor over the postings of text terms, which also knows where the terms sit in the current entry <br/>
+ *
+ * Only the text index keeps positions, phrases are built from these cursors alone.
+ */
+interface PositionalCursor extends SequenceCursor {
+
+	/**
+	 * @return ascending token positions of the search terms in the current entry, for phrase matching
+	 */
+	int[] positions();
+}
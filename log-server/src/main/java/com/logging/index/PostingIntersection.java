@@ -0,0 +1,89 @@
+package com.logging.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Lazily intersects posting lists, emitting matching sequences in ascending order <br/>
+ *
+ * The shortest list drives the iteration, every other list is only probed with {@link PostingList#advance} for the
+ * current candidate. The work is therefore bounded by the length of the most selective list, not by the store size,
+ * and a consumer that stops early (limit) stops the intersection too.
+ */
+public final class PostingIntersection implements PrimitiveIterator.OfLong {
+
+	private final PostingList[] lists;
+	private final int[] limits;
+	private final int[] cursors;
+
+	private long next;
+	private boolean hasNext;
+
+	public PostingIntersection(PostingList... postingLists) {
+		this(0, postingLists);
+	}
+
+	/**
+	 * @param fromSequence smallest sequence to emit, resumes an intersection after a previous result
+	 * @param postingLists
+	 */
+	public PostingIntersection(long fromSequence, PostingList... postingLists) {
+		this.lists = postingLists.clone();
+		Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+
+		// Snapshot the sizes so that the iteration is not chasing concurrent appends
+		this.limits = new int[lists.length];
+		for (int i = 0; i < lists.length; i++) {
+			limits[i] = lists[i].size();
+		}
+		this.cursors = new int[lists.length];
+		for (int i = 0; i < lists.length; i++) {
+			cursors[i] = lists[i].advance(fromSequence, Math.min(lists[i].firstIndex(), limits[i]), limits[i]);
+		}
+		findNext();
+	}
+
+	private void findNext() {
+		hasNext = false;
+		PostingList driver = lists[0];
+
+		candidates: while (cursors[0] < limits[0]) {
+			long candidate = driver.get(cursors[0]++);
+			if (candidate == PostingList.EVICTED) {
+				continue;
+			}
+			for (int i = 1; i < lists.length; i++) {
+				int position = lists[i].advance(candidate, cursors[i], limits[i]);
+				cursors[i] = position;
+				if (position == limits[i]) {
+					// One list is exhausted, nothing further can match
+					cursors[0] = limits[0];
+					return;
+				}
+				if (lists[i].get(position) != candidate) {
+					continue candidates;
+				}
+			}
+			next = candidate;
+			hasNext = true;
+			return;
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return hasNext;
+	}
+
+	@Override
+	public long nextLong() {
+		if (!hasNext) {
+			throw new NoSuchElementException();
+		}
+		long current = next;
+		findNext();
+		return current;
+	}
+}
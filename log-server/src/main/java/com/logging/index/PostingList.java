@@ -0,0 +1,134 @@
+package com.logging.index;
+
+import java.util.Arrays;
+
+/**
+ * Append-only, ascending list of sequence numbers, one per indexed value <br/>
+ *
+ * Values are kept in blocks of {@link #BLOCK_SIZE}, the first block starts small and doubles so that rare values
+ * (a username seen twice) stay cheap. A single writer appends, any number of readers may search concurrently: every
+ * read starts from the volatile {@link #size}, which the writer publishes after the value is in place. <br/>
+ *
+ * Retention trims whole blocks from the start, a reader then gets {@link #EVICTED} for their indexes. The list stays
+ * ascending, so searches are unaffected.
+ */
+public final class PostingList {
+
+	static final int BLOCK_SHIFT = 10;
+	static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+	private static final int INITIAL_BLOCK_SIZE = 8;
+
+	/**
+	 * Value read at the index of a trimmed block, lower than every sequence
+	 */
+	public static final long EVICTED = -1;
+
+	private volatile long[][] blocks = new long[4][];
+	private volatile int size;
+	private volatile int firstIndex;
+
+	/**
+	 * Appends a sequence, which must be greater than every sequence added before. Single writer only.
+	 *
+	 * @param sequence
+	 */
+	public void add(long sequence) {
+		int index = size;
+		int blockIndex = index >>> BLOCK_SHIFT;
+		int offset = index & BLOCK_MASK;
+
+		long[][] current = blocks;
+		if (blockIndex == current.length) {
+			current = Arrays.copyOf(current, current.length * 2);
+			blocks = current;
+		}
+
+		long[] block = current[blockIndex];
+		if (block == null) {
+			block = new long[blockIndex == 0 ? INITIAL_BLOCK_SIZE : BLOCK_SIZE];
+			current[blockIndex] = block;
+		} else if (offset == block.length) {
+			block = Arrays.copyOf(block, Math.min(block.length * 2, BLOCK_SIZE));
+			current[blockIndex] = block;
+		}
+
+		block[offset] = sequence;
+		size = index + 1;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return index of the first value not trimmed
+	 */
+	public int firstIndex() {
+		return firstIndex;
+	}
+
+	/**
+	 * @param index below a previously read {@link #size()}
+	 * @return sequence at index, {@link #EVICTED} once its block is trimmed
+	 */
+	public long get(int index) {
+		long[] block = blocks[index >>> BLOCK_SHIFT];
+		return block != null ? block[index & BLOCK_MASK] : EVICTED;
+	}
+
+	/**
+	 * @return greatest sequence, {@link #EVICTED} when the list is empty or trimmed entirely
+	 */
+	public long last() {
+		int index = size;
+		return index > 0 ? get(index - 1) : EVICTED;
+	}
+
+	/**
+	 * Releases the full blocks holding sequences below the given one only. Single writer only.
+	 *
+	 * @param sequence first sequence still stored
+	 */
+	public void trim(long sequence) {
+		long[][] current = blocks;
+		int index = firstIndex;
+		while (index + BLOCK_SIZE <= size && current[index >>> BLOCK_SHIFT][BLOCK_MASK] < sequence) {
+			current[index >>> BLOCK_SHIFT] = null;
+			index += BLOCK_SIZE;
+		}
+		firstIndex = index;
+	}
+
+	/**
+	 * Galloping search: probes fromIndex, fromIndex + 1, + 3, + 7 ... until it overshoots, then binary searches the
+	 * last gap. Costs O(log distance) instead of O(log size), which is what makes intersections with a much shorter
+	 * list cheap.
+	 *
+	 * @param sequence
+	 * @param fromIndex first index to consider
+	 * @param limit     exclusive upper bound, at most {@link #size()}
+	 * @return first index in [fromIndex, limit) holding a value >= sequence, limit if there is none
+	 */
+	public int advance(long sequence, int fromIndex, int limit) {
+		int low = fromIndex;
+		int step = 1;
+		int high = fromIndex;
+		while (high < limit && get(high) < sequence) {
+			low = high + 1;
+			high = fromIndex + step;
+			step <<= 1;
+		}
+		high = Math.min(high, limit);
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (get(mid) < sequence) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
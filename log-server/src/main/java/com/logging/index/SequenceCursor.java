@@ -0,0 +1,143 @@
+package com.logging.index;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Forward-only iterator over ascending sequences that can skip ahead, the building block of the full-text query
+ * plans <br/>
+ *
+ * A cursor starts before its first sequence, {@link #next()} and {@link #advance(long)} move it and return where it
+ * stands, {@link #END} once it is exhausted.
+ */
+interface SequenceCursor {
+
+	long END = Long.MAX_VALUE;
+
+	/**
+	 * @return current sequence, -1 before the first move, {@link #END} once exhausted
+	 */
+	long sequence();
+
+	/**
+	 * @return next sequence, or {@link #END}
+	 */
+	long next();
+
+	/**
+	 * @param target greater than the current sequence
+	 * @return first sequence >= target, or {@link #END}
+	 */
+	long advance(long target);
+
+	/**
+	 * @return upper bound of the sequences left, conjunctions are led by their cheapest cursor
+	 */
+	long cost();
+
+	/**
+	 * Cursor over the not trimmed sequences of a posting list, as of now
+	 *
+	 * @param postingList
+	 * @return
+	 */
+	static SequenceCursor of(PostingList postingList) {
+		int limit = postingList.size();
+		int start = Math.min(postingList.firstIndex(), limit);
+		return new SequenceCursor() {
+
+			private int index = start;
+			private long sequence = -1;
+
+			@Override
+			public long sequence() {
+				return sequence;
+			}
+
+			@Override
+			public long next() {
+				return sequence != END ? advance(sequence + 1) : END;
+			}
+
+			@Override
+			public long advance(long target) {
+				// Trimmed blocks read as EVICTED, below any target
+				do {
+					index = postingList.advance(target, index, limit);
+					sequence = index < limit ? postingList.get(index++) : END;
+				} while (sequence == PostingList.EVICTED);
+				return sequence;
+			}
+
+			@Override
+			public long cost() {
+				return limit - start;
+			}
+		};
+	}
+
+	/**
+	 * Cursor over sequences that can only be stepped through, such as a column scan. Never cheaper than an indexed
+	 * cursor, so it is only advanced to the candidates of the others.
+	 *
+	 * @param sequences ascending
+	 * @return
+	 */
+	static SequenceCursor of(PrimitiveIterator.OfLong sequences) {
+		return new SequenceCursor() {
+
+			private long sequence = -1;
+
+			@Override
+			public long sequence() {
+				return sequence;
+			}
+
+			@Override
+			public long next() {
+				sequence = sequence != END && sequences.hasNext() ? sequences.nextLong() : END;
+				return sequence;
+			}
+
+			@Override
+			public long advance(long target) {
+				while (sequence < target) {
+					next();
+				}
+				return sequence;
+			}
+
+			@Override
+			public long cost() {
+				return END;
+			}
+		};
+	}
+
+	/**
+	 * @param cursor       not moved yet
+	 * @param fromSequence smallest sequence to emit
+	 * @return the sequences of the cursor from fromSequence on
+	 */
+	static PrimitiveIterator.OfLong iterator(SequenceCursor cursor, long fromSequence) {
+		return new PrimitiveIterator.OfLong() {
+
+			private long next = cursor.advance(Math.max(fromSequence, 0));
+
+			@Override
+			public boolean hasNext() {
+				return next != END;
+			}
+
+			@Override
+			public long nextLong() {
+				if (next == END) {
+					throw new NoSuchElementException();
+				}
+				long current = next;
+				next = cursor.next();
+				return current;
+			}
+		};
+	}
+}
@@ -0,0 +1,253 @@
+package com.logging.index;
+
+import java.util.Arrays;
+
+/**
+ * Compressed posting list of a text term: the sequences of the entries holding it, each with the token positions of
+ * the term in the entry <br/>
+ *
+ * Postings are encoded in blocks of {@link #BLOCK_SIZE}, as variable length integers: the sequence as a delta from the
+ * previous one, the number of positions, then the positions as deltas. A term of consecutive entries costs a few
+ * bytes per entry. The first sequence of every block is kept aside as a skip list, so {@link Cursor#advance(long)}
+ * only decodes the block holding its target. <br/>
+ *
+ * Single writer, concurrent readers: as in {@link PostingList} every read starts from the volatile {@link #size},
+ * published after the posting is written. Retention trims whole blocks from the start.
+ */
+final class TermPostings {
+
+	static final int BLOCK_SHIFT = 7;
+	static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+	private static final int INITIAL_BLOCK_BYTES = 8;
+
+	private volatile byte[][] blocks = new byte[1][];
+	private volatile long[] firstSequences = new long[1];
+	private volatile int size;
+	private volatile int firstBlock;
+	private volatile long lastSequence = -1;
+
+	// Writer state
+	private int blockBytes;
+	private volatile long bytes;
+
+	/**
+	 * Appends the postings of an entry, whose sequence must be greater than every sequence added before. Single writer
+	 * only.
+	 *
+	 * @param sequence
+	 * @param positions ascending token positions of the term in the entry
+	 * @param count     positions used
+	 */
+	void add(long sequence, int[] positions, int count) {
+		int index = size;
+		int blockIndex = index >>> BLOCK_SHIFT;
+
+		byte[][] currentBlocks = blocks;
+		long[] currentFirsts = firstSequences;
+		if ((index & BLOCK_MASK) == 0) {
+			if (blockIndex == currentBlocks.length) {
+				currentBlocks = Arrays.copyOf(currentBlocks, currentBlocks.length * 2);
+				currentFirsts = Arrays.copyOf(currentFirsts, currentFirsts.length * 2);
+				blocks = currentBlocks;
+				firstSequences = currentFirsts;
+			}
+			currentBlocks[blockIndex] = new byte[INITIAL_BLOCK_BYTES];
+			currentFirsts[blockIndex] = sequence;
+			bytes = bytes + INITIAL_BLOCK_BYTES;
+			blockBytes = 0;
+		}
+
+		// At most 5 bytes per value
+		byte[] block = currentBlocks[blockIndex];
+		int needed = blockBytes + 5 * (count + 2);
+		if (needed > block.length) {
+			int length = Math.max(block.length * 2, needed);
+			bytes = bytes + length - block.length;
+			block = Arrays.copyOf(block, length);
+			currentBlocks[blockIndex] = block;
+		}
+
+		int offset = blockBytes;
+		offset = writeVarInt(block, offset, (int) (sequence - ((index & BLOCK_MASK) == 0 ? sequence : lastSequence)));
+		offset = writeVarInt(block, offset, count);
+		int previous = 0;
+		for (int i = 0; i < count; i++) {
+			offset = writeVarInt(block, offset, positions[i] - previous);
+			previous = positions[i];
+		}
+		blockBytes = offset;
+
+		lastSequence = sequence;
+		size = index + 1;
+	}
+
+	private static int writeVarInt(byte[] buffer, int offset, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[offset++] = (byte) value;
+		return offset;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return greatest sequence, -1 when empty
+	 */
+	long last() {
+		return lastSequence;
+	}
+
+	/**
+	 * @return bytes allocated for the encoded postings
+	 */
+	long bytes() {
+		return bytes;
+	}
+
+	/**
+	 * Releases the full blocks holding sequences below the given one only. Single writer only.
+	 *
+	 * @param sequence first sequence still stored
+	 */
+	void trim(long sequence) {
+		byte[][] currentBlocks = blocks;
+		long[] currentFirsts = firstSequences;
+		int block = firstBlock;
+		int lastBlock = ((size + BLOCK_MASK) >>> BLOCK_SHIFT) - 1;
+		// A block is entirely below the next block's first sequence
+		while (block < lastBlock && currentFirsts[block + 1] <= sequence) {
+			bytes = bytes - currentBlocks[block].length;
+			currentBlocks[block] = null;
+			block++;
+		}
+		firstBlock = block;
+	}
+
+	/**
+	 * @return cursor over the postings added so far
+	 */
+	Cursor cursor() {
+		return new Cursor();
+	}
+
+	final class Cursor implements PositionalCursor {
+
+		private final int limit = size;
+		private final int lastBlock = ((limit + BLOCK_MASK) >>> BLOCK_SHIFT) - 1;
+
+		private int block = firstBlock - 1;
+		private byte[] data;
+		private int remaining;
+		private int offset;
+		private long sequence = -1;
+
+		// Positions of the current posting, decoded on demand
+		private int positionCount;
+		private int positionsOffset;
+		private boolean positionsRead = true;
+		private int[] positions;
+
+		@Override
+		public long sequence() {
+			return sequence;
+		}
+
+		@Override
+		public long next() {
+			if (sequence == END) {
+				return END;
+			}
+			if (!positionsRead) {
+				for (int i = 0; i < positionCount; i++) {
+					readVarInt();
+				}
+			}
+			while (remaining == 0) {
+				if (++block > lastBlock) {
+					sequence = END;
+					return END;
+				}
+				data = blocks[block];
+				if (data != null) {
+					remaining = Math.min(BLOCK_SIZE, limit - (block << BLOCK_SHIFT));
+					offset = 0;
+					sequence = firstSequences[block];
+				}
+			}
+			remaining--;
+			sequence += readVarInt();
+			positionCount = readVarInt();
+			positionsOffset = offset;
+			positionsRead = false;
+			return sequence;
+		}
+
+		@Override
+		public long advance(long target) {
+			if (sequence == END) {
+				return END;
+			}
+			// Skip to the last block starting at or before the target, when past the current one
+			long[] firsts = firstSequences;
+			int low = block + 1;
+			int high = lastBlock;
+			int skipTo = -1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (firsts[mid] <= target) {
+					skipTo = mid;
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			if (skipTo >= 0) {
+				block = skipTo - 1;
+				remaining = 0;
+				positionsRead = true;
+			}
+			while (sequence < target) {
+				next();
+			}
+			return sequence;
+		}
+
+		@Override
+		public long cost() {
+			return limit;
+		}
+
+		@Override
+		public int[] positions() {
+			if (!positionsRead) {
+				offset = positionsOffset;
+				positions = new int[positionCount];
+				int position = 0;
+				for (int i = 0; i < positionCount; i++) {
+					position += readVarInt();
+					positions[i] = position;
+				}
+				positionsRead = true;
+			}
+			return positions;
+		}
+
+		private int readVarInt() {
+			byte[] buffer = data;
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buffer[offset++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package com.logging.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.LongStream;
+
+/**
+ * Inverted index of the terms of raw.message, answering {@link TextQuery} <br/>
+ *
+ * One {@link TermPostings} per distinct term, with the positions needed by phrases. Exact terms are looked up by hash,
+ * prefixes walk a sorted set of the terms. A query is a conjunction of cursors led by the rarest one: the other terms,
+ * phrases and the structured filters are only advanced to its candidates, so the cost follows the rarest term and not
+ * the store size. <br/>
+ *
+ * Single writer, concurrent readers, like the other indexes.
+ */
+final class TextIndex {
+
+	/**
+	 * Terms a prefix may expand to, a shorter prefix is required beyond
+	 */
+	static final int MAX_PREFIX_TERMS = 1024;
+
+	private final Map<String, TermPostings> terms = new ConcurrentHashMap<>();
+	private final NavigableSet<String> sortedTerms = new ConcurrentSkipListSet<>();
+
+	// Writer scratch: positions of every term of the entry being indexed
+	private final Map<String, Positions> entryTerms = new HashMap<>();
+	private volatile long postings;
+	private volatile long bytes;
+
+	/**
+	 * Indexes the terms of an entry, single writer only
+	 *
+	 * @param sequence
+	 * @param text     raw message, may be null
+	 */
+	void add(long sequence, String text) {
+		if (text == null) {
+			return;
+		}
+		entryTerms.clear();
+		TextQuery.tokenize(text,
+				(term, position) -> entryTerms.computeIfAbsent(term, k -> new Positions()).add(position));
+		long added = 0;
+		for (Map.Entry<String, Positions> entry : entryTerms.entrySet()) {
+			Positions positions = entry.getValue();
+			TermPostings termPostings = terms.get(entry.getKey());
+			if (termPostings == null) {
+				// Published once it holds its first posting
+				termPostings = new TermPostings();
+				termPostings.add(sequence, positions.values, positions.count);
+				terms.put(entry.getKey(), termPostings);
+				sortedTerms.add(entry.getKey());
+				added += termPostings.bytes();
+			} else {
+				long before = termPostings.bytes();
+				termPostings.add(sequence, positions.values, positions.count);
+				added += termPostings.bytes() - before;
+			}
+		}
+		postings = postings + entryTerms.size();
+		bytes = bytes + added;
+	}
+
+	/**
+	 * Forgets the sequences the store evicted, terms left without one are dropped. Single writer only.
+	 *
+	 * @param firstSequence first sequence still stored
+	 */
+	void trim(long firstSequence) {
+		long released = 0;
+		Iterator<Map.Entry<String, TermPostings>> entries = terms.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<String, TermPostings> entry = entries.next();
+			TermPostings termPostings = entry.getValue();
+			long before = termPostings.bytes();
+			if (termPostings.last() < firstSequence) {
+				// A term seen again later starts a new list
+				sortedTerms.remove(entry.getKey());
+				entries.remove();
+				released += before;
+			} else {
+				termPostings.trim(firstSequence);
+				released += before - termPostings.bytes();
+			}
+		}
+		bytes = bytes - released;
+	}
+
+	/**
+	 * Sequences matching the text query and the filters
+	 *
+	 * @param query
+	 * @param filters      cursors of the structured filters, not moved yet
+	 * @param fromSequence smallest sequence to return
+	 * @return ascending sequences
+	 * @throws IllegalArgumentException when a prefix matches more than {@link #MAX_PREFIX_TERMS} terms
+	 */
+	PrimitiveIterator.OfLong find(TextQuery query, List<SequenceCursor> filters, long fromSequence) {
+		SequenceCursor matches = cursor(query, filters);
+		return matches != null ? SequenceCursor.iterator(matches, fromSequence) : LongStream.empty().iterator();
+	}
+
+	/**
+	 * @param query
+	 * @param filters cursors of the structured filters, not moved yet
+	 * @return cursor over the sequences matching the text query and the filters, null when one of its terms was never
+	 *         seen and nothing matches
+	 * @throws IllegalArgumentException when a prefix matches more than {@link #MAX_PREFIX_TERMS} terms
+	 */
+	SequenceCursor cursor(TextQuery query, List<SequenceCursor> filters) {
+		List<SequenceCursor> cursors = new ArrayList<>(filters);
+		for (TextQuery.Clause clause : query.clauses()) {
+			List<PositionalCursor> elements = new ArrayList<>(clause.terms().size());
+			for (int i = 0; i < clause.terms().size(); i++) {
+				boolean prefix = clause.prefix() && i == clause.terms().size() - 1;
+				PositionalCursor element = prefix ? prefixCursor(clause.terms().get(i))
+						: termCursor(clause.terms().get(i));
+				if (element == null) {
+					// A term that was never seen matches nothing
+					return null;
+				}
+				elements.add(element);
+			}
+			cursors.add(elements.size() == 1 ? elements.get(0) : new PhraseCursor(elements));
+		}
+		return cursors.size() == 1 ? cursors.get(0) : new ConjunctionCursor(cursors);
+	}
+
+	private PositionalCursor termCursor(String term) {
+		TermPostings termPostings = terms.get(term);
+		return termPostings != null ? termPostings.cursor() : null;
+	}
+
+	private PositionalCursor prefixCursor(String prefix) {
+		List<PositionalCursor> cursors = new ArrayList<>();
+		for (String term : sortedTerms.tailSet(prefix)) {
+			if (!term.startsWith(prefix)) {
+				break;
+			}
+			if (cursors.size() == MAX_PREFIX_TERMS) {
+				throw new IllegalArgumentException(
+						"Prefix " + prefix + "* matches more than " + MAX_PREFIX_TERMS + " terms, use a longer one");
+			}
+			PositionalCursor cursor = termCursor(term);
+			if (cursor != null) {
+				cursors.add(cursor);
+			}
+		}
+		if (cursors.isEmpty()) {
+			return null;
+		}
+		return cursors.size() == 1 ? cursors.get(0) : new UnionCursor(cursors);
+	}
+
+	public Map<String, Object> getMetrics() {
+		return Map.of("terms", terms.size(), "postings", postings, "bytes", bytes);
+	}
+
+	/**
+	 * Growable positions of a term in one entry
+	 */
+	private static final class Positions {
+
+		private int[] values = new int[4];
+		private int count;
+
+		void add(int position) {
+			if (count == values.length) {
+				values = Arrays.copyOf(values, count * 2);
+			}
+			values[count++] = position;
+		}
+	}
+
+	/**
+	 * Sequences on any cursor, the terms of a prefix. Positions are merged from the cursors on the current sequence.
+	 */
+	private static final class UnionCursor implements PositionalCursor {
+
+		private final PriorityQueue<PositionalCursor> queue = new PriorityQueue<>(
+				Comparator.comparingLong(SequenceCursor::sequence));
+		private final List<PositionalCursor> cursors;
+		private final long cost;
+		private long sequence = -1;
+
+		UnionCursor(List<PositionalCursor> cursors) {
+			this.cursors = cursors;
+			this.cost = cursors.stream().mapToLong(SequenceCursor::cost).sum();
+			queue.addAll(cursors);
+		}
+
+		@Override
+		public long sequence() {
+			return sequence;
+		}
+
+		@Override
+		public long next() {
+			return sequence != END ? advance(sequence + 1) : END;
+		}
+
+		@Override
+		public long advance(long target) {
+			while (queue.peek().sequence() < target) {
+				PositionalCursor cursor = queue.poll();
+				cursor.advance(target);
+				queue.add(cursor);
+			}
+			sequence = queue.peek().sequence();
+			return sequence;
+		}
+
+		@Override
+		public long cost() {
+			return cost;
+		}
+
+		@Override
+		public int[] positions() {
+			int[] positions = new int[0];
+			for (PositionalCursor cursor : cursors) {
+				if (cursor.sequence() == sequence) {
+					int[] more = cursor.positions();
+					int length = positions.length;
+					positions = Arrays.copyOf(positions, length + more.length);
+					System.arraycopy(more, 0, positions, length, more.length);
+				}
+			}
+			// Every term holds distinct positions
+			Arrays.sort(positions);
+			return positions;
+		}
+	}
+
+	/**
+	 * Sequences where the terms are consecutive
+	 */
+	private static final class PhraseCursor implements SequenceCursor {
+
+		private final PositionalCursor[] elements;
+		private final ConjunctionCursor conjunction;
+
+		PhraseCursor(List<PositionalCursor> elements) {
+			this.elements = elements.toArray(PositionalCursor[]::new);
+			this.conjunction = new ConjunctionCursor(List.copyOf(elements));
+		}
+
+		@Override
+		public long sequence() {
+			return conjunction.sequence();
+		}
+
+		@Override
+		public long next() {
+			return verify(conjunction.next());
+		}
+
+		@Override
+		public long advance(long target) {
+			return verify(conjunction.advance(target));
+		}
+
+		private long verify(long candidate) {
+			while (candidate != END && !consecutive()) {
+				candidate = conjunction.next();
+			}
+			return candidate;
+		}
+
+		private boolean consecutive() {
+			int[][] positions = new int[elements.length][];
+			for (int i = 0; i < elements.length; i++) {
+				positions[i] = elements[i].positions();
+			}
+			starts: for (int start : positions[0]) {
+				for (int i = 1; i < elements.length; i++) {
+					if (Arrays.binarySearch(positions[i], start + i) < 0) {
+						continue starts;
+					}
+				}
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public long cost() {
+			return conjunction.cost();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.logging.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Full-text query on raw.message, the <code>q</code> parameter of <code>GET /logs</code> <br/>
+ *
+ * Whitespace separated clauses, all of which must match: <br/>
+ * - <code>word</code>: entries holding the term <br/>
+ * - <code>"some words"</code>: entries holding the terms next to each other, in that order <br/>
+ * - <code>word*</code>: entries holding a term starting with word <br/>
+ *
+ * Text is split into terms the same way at ingest and in queries: lower case runs of letters and digits, everything
+ * else separates terms. A clause of several terms is a phrase, so <code>uid=0</code> finds "uid=0" and "uid 0" but not
+ * "uid=01", and <code>web-0*</code> finds web-01 and web-02.
+ */
+public final class TextQuery {
+
+	/**
+	 * Longer terms are cut, at ingest and in queries alike
+	 */
+	static final int MAX_TERM_LENGTH = 64;
+
+	/**
+	 * Terms that must appear consecutively, the last one as a prefix when prefix is set
+	 *
+	 * @param terms
+	 * @param prefix
+	 */
+	record Clause(List<String> terms, boolean prefix) {
+	}
+
+	private final String text;
+	private final List<Clause> clauses;
+
+	private TextQuery(String text, List<Clause> clauses) {
+		this.text = text;
+		this.clauses = clauses;
+	}
+
+	/**
+	 * @param text value of the q parameter
+	 * @return
+	 * @throws IllegalArgumentException when no clause holds a term
+	 */
+	public static TextQuery parse(String text) {
+		List<Clause> clauses = new ArrayList<>();
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			char c = text.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+				continue;
+			}
+			int end;
+			boolean prefix = false;
+			String clause;
+			if (c == '"') {
+				end = text.indexOf('"', i + 1);
+				if (end < 0) {
+					end = length;
+				}
+				clause = text.substring(i + 1, end);
+				end++;
+			} else {
+				end = i;
+				while (end < length && !Character.isWhitespace(text.charAt(end))) {
+					end++;
+				}
+				clause = text.substring(i, end);
+				prefix = clause.endsWith("*");
+			}
+			List<String> terms = new ArrayList<>();
+			tokenize(clause, (term, position) -> terms.add(term));
+			if (!terms.isEmpty()) {
+				clauses.add(new Clause(List.copyOf(terms), prefix));
+			}
+			i = end;
+		}
+		if (clauses.isEmpty()) {
+			throw new IllegalArgumentException("No searchable term in q: " + text);
+		}
+		return new TextQuery(text, List.copyOf(clauses));
+	}
+
+	/**
+	 * Splits text into terms
+	 *
+	 * @param text
+	 * @param consumer called with every term and its position, 0 for the first term
+	 */
+	static void tokenize(String text, ObjIntConsumer<String> consumer) {
+		int length = text.length();
+		int position = 0;
+		int i = 0;
+		while (i < length) {
+			int start = i;
+			while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+				i++;
+			}
+			if (i > start) {
+				String term = text.substring(start, Math.min(i, start + MAX_TERM_LENGTH));
+				consumer.accept(term.toLowerCase(Locale.ROOT), position++);
+			} else {
+				i++;
+			}
+		}
+	}
+
+	List<Clause> clauses() {
+		return clauses;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+}
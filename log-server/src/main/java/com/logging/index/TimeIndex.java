@@ -0,0 +1,566 @@
+package com.logging.index;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongFunction;
+
+import com.logging.codec.InstantText;
+
+/**
+ * Timestamp index, entry timestamps are parsed once at ingest into epoch millis <br/>
+ *
+ * - A column holds the millis of every sequence, so candidates coming from the filter indexes are range checked and
+ * ranked without reading the entries. <br/>
+ * - Sequences are also bucketed by second in a sorted map. A time ordered scan walks the buckets in either direction and
+ * only sorts the bucket it is currently in, so the cost of "latest 100" depends on the limit and not on the store size.
+ * With filters, each bucket is intersected with the filter cursors before it is sorted, and the walk still stops at
+ * the limit. <br/>
+ * - Entries without a parseable timestamp are kept apart, they never match a time range and sort last. <br/>
+ * - Evicted sequences are trimmed from the column and the buckets, scans skip the ones a concurrent trim leaves
+ * behind. <br/>
+ */
+public final class TimeIndex {
+
+	static final long BUCKET_MILLIS = 1000;
+	public static final long UNKNOWN = LongColumn.EVICTED;
+
+	// Within a bucket an entry is sorted on (offset in the bucket << POSITION_BITS | position in the bucket)
+	private static final int POSITION_BITS = 40;
+	private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+
+	private final LongColumn millis = new LongColumn();
+	private volatile long baseSequence = -1;
+	private volatile long firstSequence = 0;
+
+	private final ConcurrentSkipListMap<Long, PostingList> buckets = new ConcurrentSkipListMap<>();
+	private final PostingList untimed = new PostingList();
+
+	/**
+	 * Indexes the timestamp of a stored entry. Single writer only, sequences must be dense and ascending.
+	 *
+	 * @param sequence
+	 * @param timestamp ISO-8601 timestamp of the entry, may be null
+	 */
+	public void add(long sequence, String timestamp) {
+		if (baseSequence < 0) {
+			baseSequence = sequence;
+		}
+		long value = parseMillis(timestamp);
+		millis.add(value);
+
+		if (value == UNKNOWN) {
+			untimed.add(sequence);
+		} else {
+			buckets.computeIfAbsent(Math.floorDiv(value, BUCKET_MILLIS), k -> new PostingList()).add(sequence);
+		}
+	}
+
+	/**
+	 * @param timestamp ISO-8601 timestamp, may be null
+	 * @return epoch millis, {@link #UNKNOWN} when missing or not parseable
+	 */
+	public static long parseMillis(String timestamp) {
+		if (timestamp == null) {
+			return UNKNOWN;
+		}
+		long canonical = InstantText.parse(timestamp);
+		if (canonical != InstantText.NOT_CANONICAL) {
+			return canonical;
+		}
+		try {
+			return Instant.parse(timestamp).toEpochMilli();
+		} catch (DateTimeParseException | ArithmeticException e) {
+			return UNKNOWN;
+		}
+	}
+
+	/**
+	 * Drops the sequences below the given one, single writer only. Buckets are walked from the oldest and the walk stops
+	 * at the first one still holding a stored entry: arrival order follows time closely enough that the buckets left
+	 * behind it are reached by a later trim.
+	 *
+	 * @param sequence first sequence still stored
+	 */
+	public void trim(long sequence) {
+		long base = baseSequence;
+		if (base < 0 || sequence <= firstSequence) {
+			return;
+		}
+		firstSequence = sequence;
+		millis.trim(sequence - base);
+		untimed.trim(sequence);
+
+		Iterator<PostingList> oldest = buckets.values().iterator();
+		while (oldest.hasNext()) {
+			PostingList bucket = oldest.next();
+			if (bucket.last() < sequence) {
+				oldest.remove();
+			} else {
+				bucket.trim(sequence);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return first sequence not trimmed
+	 */
+	public long firstSequence() {
+		return firstSequence;
+	}
+
+	/**
+	 * @param sequence a sequence already returned by one of the indexes
+	 * @return epoch millis of the entry, {@link #UNKNOWN} when it has no timestamp or was trimmed
+	 */
+	long millisOf(long sequence) {
+		return millis.get(sequence - baseSequence);
+	}
+
+	/**
+	 * @param sequence
+	 * @return true when the sequence has been indexed, trimmed since or not
+	 */
+	public boolean contains(long sequence) {
+		long base = baseSequence;
+		return base >= 0 && sequence >= base && sequence - base < millis.size();
+	}
+
+	/**
+	 * Every entry within the range, in timestamp order
+	 *
+	 * @param from       inclusive lower bound in epoch millis, null for none
+	 * @param to         exclusive upper bound in epoch millis, null for none
+	 * @param descending newest first
+	 * @param cursor     indexed sequence to resume after, null to start at the beginning
+	 * @return lazily produced sequences, entries without a timestamp last when no range is given
+	 */
+	public PrimitiveIterator.OfLong scan(Long from, Long to, boolean descending, Long cursor) {
+		return scan(from, to, descending, cursor, null);
+	}
+
+	/**
+	 * Every entry within the range matching the filters, in timestamp order. A bucket's sequences are ascending, so
+	 * they are intersected with the filter cursors by advancing whichever is behind, and the cursors are only reopened
+	 * when a bucket starts below the last sequence probed.
+	 *
+	 * @param from       inclusive lower bound in epoch millis, null for none
+	 * @param to         exclusive upper bound in epoch millis, null for none
+	 * @param descending newest first
+	 * @param cursor     indexed sequence to resume after, null to start at the beginning
+	 * @param filters    opens a cursor over the matching sequences from the given one on, null when every entry matches
+	 * @return lazily produced sequences, entries without a timestamp last when no range is given
+	 */
+	PrimitiveIterator.OfLong scan(Long from, Long to, boolean descending, Long cursor,
+			LongFunction<SequenceCursor> filters) {
+		long lower = from != null ? from : Long.MIN_VALUE;
+		long upper = to != null ? to : Long.MAX_VALUE;
+		int untimedEnd = from == null && to == null ? untimed.size() : 0;
+		int untimedStart = untimed.advance(firstSequence, Math.min(untimed.firstIndex(), untimedEnd), untimedEnd);
+
+		if (cursor != null) {
+			long cursorMillis = millisOf(cursor);
+			if (cursorMillis == UNKNOWN) {
+				// Every timed entry came before the cursor
+				lower = Long.MAX_VALUE;
+				untimedStart = untimed.advance(cursor + 1, 0, untimedEnd);
+			} else if (descending) {
+				upper = Math.min(upper, cursorMillis + 1);
+			} else {
+				lower = Math.max(lower, cursorMillis);
+			}
+		}
+
+		NavigableMap<Long, PostingList> range = buckets;
+		if (lower != Long.MIN_VALUE) {
+			range = range.tailMap(Math.floorDiv(lower, BUCKET_MILLIS), true);
+		}
+		if (upper != Long.MAX_VALUE) {
+			range = range.headMap(Math.floorDiv(upper - 1, BUCKET_MILLIS), true);
+		}
+		if (descending) {
+			range = range.descendingMap();
+		}
+		return new BucketScan(range.entrySet().iterator(), lower, upper, descending, cursor, untimedStart,
+				untimedEnd, filters != null ? new FilterProbe(filters) : null);
+	}
+
+	/**
+	 * Restricts candidate sequences to a time range and, when sorted, orders them by timestamp. Only the millis column
+	 * is consulted. With a limit the order is computed with a bounded heap, so memory stays at the limit and the cost
+	 * is O(candidates * log limit) instead of a full sort.
+	 *
+	 * @param candidates ascending sequences
+	 * @param from       inclusive lower bound in epoch millis, null for none
+	 * @param to         exclusive upper bound in epoch millis, null for none
+	 * @param sorted     order by timestamp, otherwise candidates keep their order
+	 * @param descending newest first
+	 * @param limit      maximum number of results needed, null for all
+	 * @param cursor     when sorted, indexed sequence to resume after
+	 * @return selected sequences
+	 */
+	public PrimitiveIterator.OfLong select(PrimitiveIterator.OfLong candidates, Long from, Long to, boolean sorted,
+			boolean descending, Integer limit, Long cursor) {
+		PrimitiveIterator.OfLong inRange = from == null && to == null ? candidates
+				: new RangeFilter(candidates, from != null ? from : Long.MIN_VALUE, to != null ? to : Long.MAX_VALUE);
+		if (!sorted) {
+			return inRange;
+		}
+
+		TopK topK = new TopK(limit != null ? limit : Integer.MAX_VALUE);
+		long cursorMillis = cursor != null ? millisOf(cursor) : UNKNOWN;
+		long cursorRank = cursor != null ? rank(cursorMillis, descending) : Long.MIN_VALUE;
+		long cursorTie = cursor != null ? tie(cursor, cursorMillis, descending) : Long.MIN_VALUE;
+		while (inRange.hasNext()) {
+			long sequence = inRange.nextLong();
+			long millis = millisOf(sequence);
+			long rank = rank(millis, descending);
+			long tie = tie(sequence, millis, descending);
+			if (cursor == null || TopK.compare(rank, tie, cursorRank, cursorTie) > 0) {
+				topK.offer(rank, tie, sequence);
+			}
+		}
+		return Arrays.stream(topK.drain()).iterator();
+	}
+
+	/**
+	 * Smaller ranks come first, entries without a timestamp always last
+	 */
+	private static long rank(long value, boolean descending) {
+		if (value == UNKNOWN) {
+			return Long.MAX_VALUE;
+		}
+		return descending ? -value : value;
+	}
+
+	/**
+	 * Equal timestamps keep sequence order, reversed when descending. Entries without a timestamp keep arrival order,
+	 * as the bucket walk emits them.
+	 */
+	private static long tie(long sequence, long value, boolean descending) {
+		return descending && value != UNKNOWN ? -sequence : sequence;
+	}
+
+	public int bucketCount() {
+		return buckets.size();
+	}
+
+	public int untimedCount() {
+		return untimed.size();
+	}
+
+	/**
+	 * Walks buckets in order, sorting each one when it is entered
+	 */
+	private final class BucketScan implements PrimitiveIterator.OfLong {
+
+		private final Iterator<Map.Entry<Long, PostingList>> bucketIterator;
+		private final long from;
+		private final long to;
+		private final boolean descending;
+		private final Long cursor;
+		private final long cursorMillis;
+		private final int untimedLimit;
+		private final FilterProbe filters;
+
+		private PostingList bucket;
+		private long bucketStart;
+		private long[] order = new long[0];
+		private int position;
+		private int untimedPosition;
+
+		private long next;
+		private boolean hasNext;
+
+		BucketScan(Iterator<Map.Entry<Long, PostingList>> bucketIterator, long from, long to, boolean descending,
+				Long cursor, int untimedStart, int untimedLimit, FilterProbe filters) {
+			this.bucketIterator = bucketIterator;
+			this.from = from;
+			this.to = to;
+			this.descending = descending;
+			this.cursor = cursor;
+			this.cursorMillis = cursor != null ? millisOf(cursor) : UNKNOWN;
+			this.untimedPosition = untimedStart;
+			this.untimedLimit = untimedLimit;
+			this.filters = filters;
+			findNext();
+		}
+
+		/**
+		 * @return true when (value, sequence) comes after the cursor in scan order
+		 */
+		private boolean isPastCursor(long value, long sequence) {
+			if (cursor == null || value != cursorMillis) {
+				// The bucket range already excludes timestamps on the wrong side of the cursor
+				return true;
+			}
+			return descending ? sequence < cursor : sequence > cursor;
+		}
+
+		private void findNext() {
+			while (true) {
+				while (position < order.length) {
+					long key = order[descending ? order.length - 1 - position : position];
+					position++;
+					long value = bucketStart + (key >>> POSITION_BITS);
+					long sequence = bucket.get((int) (key & POSITION_MASK));
+					if (value >= from && value < to && sequence != PostingList.EVICTED
+							&& isPastCursor(value, sequence)) {
+						next = sequence;
+						hasNext = true;
+						return;
+					}
+				}
+				if (bucketIterator.hasNext()) {
+					enter(bucketIterator.next());
+				} else if (untimedPosition < untimedLimit) {
+					long sequence = untimed.get(untimedPosition);
+					long match = sequence != PostingList.EVICTED && filters != null ? filters.seek(sequence) : sequence;
+					if (match == sequence && sequence != PostingList.EVICTED) {
+						untimedPosition++;
+						next = sequence;
+						hasNext = true;
+						return;
+					}
+					untimedPosition = match == SequenceCursor.END ? untimedLimit
+							: untimed.advance(match, untimedPosition + 1, untimedLimit);
+				} else {
+					hasNext = false;
+					return;
+				}
+			}
+		}
+
+		private void enter(Map.Entry<Long, PostingList> entry) {
+			bucket = entry.getValue();
+			bucketStart = entry.getKey() * BUCKET_MILLIS;
+			int size = bucket.size();
+			// Trimmed sequences are a prefix of the bucket
+			int first = bucket.advance(firstSequence, Math.min(bucket.firstIndex(), size), size);
+			order = new long[size - first];
+			int count = 0;
+			int i = first;
+			while (i < size) {
+				long sequence = bucket.get(i);
+				if (sequence != PostingList.EVICTED && filters != null) {
+					long match = filters.seek(sequence);
+					if (match != sequence) {
+						// Skip to the next match, or past the bucket when there is none
+						i = match == SequenceCursor.END ? size : bucket.advance(match, i + 1, size);
+						continue;
+					}
+				}
+				long value = sequence != PostingList.EVICTED ? millisOf(sequence) : UNKNOWN;
+				if (value != UNKNOWN) {
+					order[count++] = (value - bucketStart) << POSITION_BITS | i;
+				}
+				i++;
+			}
+			if (count < order.length) {
+				order = Arrays.copyOf(order, count);
+			}
+			Arrays.sort(order);
+			position = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return hasNext;
+		}
+
+		@Override
+		public long nextLong() {
+			if (!hasNext) {
+				throw new NoSuchElementException();
+			}
+			long current = next;
+			findNext();
+			return current;
+		}
+	}
+
+	/**
+	 * Probes filter cursors in ascending sequence order, reopening them for a sequence below the last one probed
+	 */
+	private static final class FilterProbe {
+
+		private final LongFunction<SequenceCursor> filters;
+		private SequenceCursor cursor;
+		private long probed;
+
+		FilterProbe(LongFunction<SequenceCursor> filters) {
+			this.filters = filters;
+		}
+
+		/**
+		 * @param sequence
+		 * @return first matching sequence >= sequence, {@link SequenceCursor#END} when there is none
+		 */
+		long seek(long sequence) {
+			if (cursor == null || sequence < probed) {
+				cursor = filters.apply(sequence);
+			}
+			probed = sequence;
+			if (cursor == null) {
+				// Nothing matched when it was opened
+				return SequenceCursor.END;
+			}
+			long current = cursor.sequence();
+			return current < sequence ? cursor.advance(sequence) : current;
+		}
+	}
+
+	private final class RangeFilter implements PrimitiveIterator.OfLong {
+
+		private final PrimitiveIterator.OfLong candidates;
+		private final long from;
+		private final long to;
+
+		private long next;
+		private boolean hasNext;
+
+		RangeFilter(PrimitiveIterator.OfLong candidates, long from, long to) {
+			this.candidates = candidates;
+			this.from = from;
+			this.to = to;
+			findNext();
+		}
+
+		private void findNext() {
+			while (candidates.hasNext()) {
+				long sequence = candidates.nextLong();
+				long value = millisOf(sequence);
+				if (value != UNKNOWN && value >= from && value < to) {
+					next = sequence;
+					hasNext = true;
+					return;
+				}
+			}
+			hasNext = false;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return hasNext;
+		}
+
+		@Override
+		public long nextLong() {
+			if (!hasNext) {
+				throw new NoSuchElementException();
+			}
+			long current = next;
+			findNext();
+			return current;
+		}
+	}
+
+	/**
+	 * Keeps the k smallest (rank, tie) pairs in a max-heap, the root is the first one to evict
+	 */
+	private static final class TopK {
+
+		private final int capacity;
+		private long[] ranks = new long[16];
+		private long[] ties = new long[16];
+		private long[] sequences = new long[16];
+		private int size;
+
+		TopK(int capacity) {
+			this.capacity = capacity;
+		}
+
+		void offer(long rank, long tie, long sequence) {
+			if (capacity == 0) {
+				return;
+			}
+			if (size < capacity) {
+				if (size == ranks.length) {
+					int grown = (int) Math.min((long) size * 2, capacity);
+					ranks = Arrays.copyOf(ranks, grown);
+					ties = Arrays.copyOf(ties, grown);
+					sequences = Arrays.copyOf(sequences, grown);
+				}
+				set(size, rank, tie, sequence);
+				siftUp(size++);
+			} else if (compare(rank, tie, ranks[0], ties[0]) < 0) {
+				set(0, rank, tie, sequence);
+				siftDown(0);
+			}
+		}
+
+		/**
+		 * @return kept sequences, first ranked first
+		 */
+		long[] drain() {
+			long[] result = new long[size];
+			while (size > 0) {
+				result[size - 1] = sequences[0];
+				size--;
+				set(0, ranks[size], ties[size], sequences[size]);
+				siftDown(0);
+			}
+			return result;
+		}
+
+		private static int compare(long rank1, long tie1, long rank2, long tie2) {
+			int result = Long.compare(rank1, rank2);
+			return result != 0 ? result : Long.compare(tie1, tie2);
+		}
+
+		private int compare(int i, int j) {
+			return compare(ranks[i], ties[i], ranks[j], ties[j]);
+		}
+
+		private void set(int i, long rank, long tie, long sequence) {
+			ranks[i] = rank;
+			ties[i] = tie;
+			sequences[i] = sequence;
+		}
+
+		private void swap(int i, int j) {
+			long rank = ranks[i];
+			long tie = ties[i];
+			long sequence = sequences[i];
+			set(i, ranks[j], ties[j], sequences[j]);
+			set(j, rank, tie, sequence);
+		}
+
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (compare(i, parent) <= 0) {
+					return;
+				}
+				swap(i, parent);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int i) {
+			while (true) {
+				int largest = i;
+				int left = 2 * i + 1;
+				int right = left + 1;
+				if (left < size && compare(left, largest) > 0) {
+					largest = left;
+				}
+				if (right < size && compare(right, largest) > 0) {
+					largest = right;
+				}
+				if (largest == i) {
+					return;
+				}
+				swap(i, largest);
+				i = largest;
+			}
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.logging.ingest;
+
+/**
+ * Room left in an {@link IngestPipeline}, advertised to clients so that they pace themselves
+ *
+ * @param credit       entries accepted before offers are rejected
+ * @param capacity     entries of the ring, the credit when idle
+ * @param retryAfterMs time the writer needs to free a quarter of the ring at its recent rate
+ */
+public record IngestCredit(long credit, int capacity, long retryAfterMs) {
+}
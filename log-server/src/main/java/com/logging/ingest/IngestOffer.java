@@ -0,0 +1,11 @@
+package com.logging.ingest;
+
+/**
+ * Outcome of offering a batch to an {@link IngestPipeline}
+ *
+ * @param accepted entries accepted, a prefix of the batch
+ * @param position ingest position right after the last of them, what a replication leader waits on, -1 when none was
+ *                 accepted
+ */
+public record IngestOffer(int accepted, long position) {
+}
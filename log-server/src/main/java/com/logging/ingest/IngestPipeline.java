@@ -0,0 +1,236 @@
+package com.logging.ingest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hands entries from any number of request threads to a single writer thread through a {@link RingBuffer} <br/>
+ *
+ * Publishing never blocks and never switches threads: an entry is accepted when it gets a slot, and rejected when the
+ * ring is full. The writer drains up to maxBatch entries at a time and hands them to the handler in publication order,
+ * so the cost of waking it and of the handler's own per batch work is shared by everything published meanwhile.
+ * Every entry offered is counted exactly once: rejected, or accepted and then either processed or dropped by the
+ * handler. <br/>
+ *
+ * The free slots are the {@link IngestCredit} advertised to clients, with a retry delay derived from the drain rate the
+ * writer sustained over its last busy period.
+ *
+ * @param <E>
+ */
+@Slf4j
+public class IngestPipeline<E> implements AutoCloseable {
+
+	// Drain rate is measured over windows of this long while the writer stays busy
+	private static final long RATE_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private static final long MIN_RETRY_AFTER_MS = 10;
+	private static final long MAX_RETRY_AFTER_MS = 5_000;
+
+	// Before the writer was ever busy for a whole window
+	private static final long UNKNOWN_RATE_RETRY_AFTER_MS = 1_000;
+
+	/**
+	 * Processes a batch on the writer thread
+	 *
+	 * @param <E>
+	 */
+	@FunctionalInterface
+	public interface BatchHandler<E> {
+
+		/**
+		 * @param batch entries in publication order, only valid during the call
+		 * @return number of entries processed, the others are counted as dropped
+		 */
+		int onBatch(List<E> batch);
+	}
+
+	private final RingBuffer<E> ring;
+	private final int maxBatch;
+	private final String waitStrategyName;
+	private final WaitStrategy waitStrategy;
+	private final BatchHandler<E> handler;
+	private final Thread writer;
+
+	private volatile boolean running = true;
+
+	private final LongAdder rejected = new LongAdder();
+
+	// Written by the writer thread only
+	private volatile long dropped;
+	private volatile long batches;
+	private volatile double drainPerSecond;
+
+	/**
+	 * @param name     of the writer thread
+	 * @param settings
+	 * @param handler
+	 * @throws IllegalArgumentException on invalid settings
+	 */
+	public IngestPipeline(String name, IngestSettings settings, BatchHandler<E> handler) {
+		this.ring = new RingBuffer<>(settings.ringSize());
+		this.maxBatch = settings.maxBatch();
+		this.waitStrategyName = settings.waitStrategy();
+		this.waitStrategy = WaitStrategy.forName(settings.waitStrategy());
+		this.handler = handler;
+		this.writer = new Thread(this::run, name);
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * @param entry
+	 * @return false when the ring is full or the pipeline closed, the entry is then counted as rejected
+	 */
+	public boolean offer(E entry) {
+		if (ring.offer(entry)) {
+			waitStrategy.signal();
+			return true;
+		}
+		rejected.increment();
+		return false;
+	}
+
+	/**
+	 * @param batch
+	 * @return entries accepted, a prefix of batch, and the position right after them. The rest are counted as
+	 *         rejected.
+	 */
+	public IngestOffer offer(List<E> batch) {
+		IngestOffer offer = ring.offer(batch);
+		if (offer.accepted() > 0) {
+			waitStrategy.signal();
+		}
+		if (offer.accepted() < batch.size()) {
+			rejected.add(batch.size() - offer.accepted());
+		}
+		return offer;
+	}
+
+	/**
+	 * @return entries accepted so far, the position right after the last one
+	 */
+	public long accepted() {
+		return ring.claimed();
+	}
+
+	/**
+	 * @return entries handed to the handler and done with so far. During {@link BatchHandler#onBatch(List)}, the
+	 *         position of the first entry of the batch.
+	 */
+	public long drained() {
+		return ring.consumed();
+	}
+
+	private void run() {
+		List<E> batch = new ArrayList<>(maxBatch);
+		long windowStart = 0;
+		long windowConsumed = 0;
+		// After close, what was accepted is still processed
+		while (running || ring.consumed() < ring.claimed()) {
+			waitStrategy.await(() -> ring.hasPublished() || !running);
+			int count = ring.drainTo(batch, maxBatch);
+			if (count == 0) {
+				// Closing with a claimed slot not written yet
+				Thread.onSpinWait();
+				continue;
+			}
+			long batchStart = System.nanoTime();
+			if (windowStart == 0) {
+				windowStart = batchStart;
+				windowConsumed = ring.consumed();
+			}
+			int processed;
+			try {
+				processed = handler.onBatch(batch);
+			} catch (RuntimeException e) {
+				log.error("Failed to process a batch of {} entries: {}", count, e.getMessage());
+				processed = 0;
+			}
+			batch.clear();
+			if (processed < count) {
+				dropped = dropped + (count - processed);
+			}
+			batches = batches + 1;
+			ring.release(count);
+
+			long now = System.nanoTime();
+			if (now - windowStart >= RATE_WINDOW_NANOS) {
+				drainPerSecond = (ring.consumed() - windowConsumed) * 1e9 / (now - windowStart);
+				windowStart = now;
+				windowConsumed = ring.consumed();
+			}
+			if (!ring.hasPublished()) {
+				// Idle time is not drain time, the next busy period starts a new window
+				windowStart = 0;
+			}
+		}
+	}
+
+	/**
+	 * @return free slots of the ring and how long to wait when there are none
+	 */
+	public IngestCredit credit() {
+		long pending = ring.claimed() - ring.consumed();
+		long credit = Math.max(0, ring.capacity() - pending);
+		double rate = drainPerSecond;
+		long retryAfterMs = rate > 0 ? (long) Math.ceil(ring.capacity() / 4 * 1000.0 / rate)
+				: UNKNOWN_RATE_RETRY_AFTER_MS;
+		return new IngestCredit(credit, ring.capacity(),
+				Math.clamp(retryAfterMs, MIN_RETRY_AFTER_MS, MAX_RETRY_AFTER_MS));
+	}
+
+	/**
+	 * Waits until every entry accepted before the call is processed or dropped. Must not be called from the handler.
+	 */
+	public void flush() {
+		long target = ring.claimed();
+		while (ring.consumed() < target && writer.isAlive()) {
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+		}
+	}
+
+	/**
+	 * @return accepted, rejected, dropped and processed entries, the entries waiting, the batches drained, the credit
+	 *         and the drain rate
+	 */
+	public Map<String, Object> getMetrics() {
+		long consumed = ring.consumed();
+		long accepted = ring.claimed();
+		long droppedEntries = dropped;
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("ringSize", ring.capacity());
+		metrics.put("maxBatch", maxBatch);
+		metrics.put("waitStrategy", waitStrategyName);
+		metrics.put("accepted", accepted);
+		metrics.put("rejected", rejected.sum());
+		metrics.put("dropped", droppedEntries);
+		metrics.put("processed", consumed - droppedEntries);
+		metrics.put("pending", accepted - consumed);
+		metrics.put("batches", batches);
+		metrics.put("credit", Math.max(0, ring.capacity() - (accepted - consumed)));
+		metrics.put("drainPerSecond", Math.round(drainPerSecond));
+		return metrics;
+	}
+
+	/**
+	 * Rejects new entries, waits for the writer to process the accepted ones and stops it
+	 */
+	@Override
+	public void close() {
+		ring.close();
+		running = false;
+		waitStrategy.signal();
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(30));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
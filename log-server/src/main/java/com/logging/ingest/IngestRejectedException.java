@@ -0,0 +1,13 @@
+package com.logging.ingest;
+
+/**
+ * An entry offered to a full or closed {@link IngestPipeline}, answered 429 with the credit of the pipeline
+ */
+public class IngestRejectedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public IngestRejectedException() {
+		super("Ingest buffer full - backpressure activated");
+	}
+}
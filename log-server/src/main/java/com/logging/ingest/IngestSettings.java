@@ -0,0 +1,22 @@
+package com.logging.ingest;
+
+/**
+ * Sizing of an {@link IngestPipeline}
+ *
+ * @param ringSize     entries accepted and not yet processed before offers are rejected, a power of 2
+ * @param maxBatch     entries handed to the handler at most per batch
+ * @param waitStrategy how the writer waits for entries, see {@link WaitStrategy#forName(String)}
+ */
+public record IngestSettings(int ringSize, int maxBatch, String waitStrategy) {
+
+	public static final IngestSettings DEFAULT = new IngestSettings(65536, 1024, "blocking");
+
+	public IngestSettings {
+		if (ringSize < 2 || Integer.bitCount(ringSize) != 1) {
+			throw new IllegalArgumentException("Ring size must be a power of 2, got " + ringSize);
+		}
+		if (maxBatch < 1) {
+			throw new IllegalArgumentException("Max batch must be positive, got " + maxBatch);
+		}
+	}
+}
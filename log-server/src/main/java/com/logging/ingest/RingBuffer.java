@@ -0,0 +1,185 @@
+package com.logging.ingest;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded multi-producer, single-consumer queue over preallocated slots <br/>
+ *
+ * Producers claim a run of sequences with a single CAS on the claim cursor, fill the slots and mark each one published
+ * by storing its sequence, so a batch costs one atomic operation however large. The consumer takes the published
+ * entries following its own cursor in sequence order, as many as are contiguous, and moves the cursor once per drain.
+ * A claim never waits: when the slots up to the consumer cursor are taken the entries are rejected. Closing seals the
+ * claim cursor in the same atomic step, so no entry gets in after the consumer saw the last one.
+ *
+ * @param <E>
+ */
+final class RingBuffer<E> {
+
+	private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(long[].class);
+
+	// Set on the claim cursor once closed, claims then fail
+	private static final long CLOSED = 1L << 62;
+
+	private final int mask;
+	private final Object[] entries;
+
+	// Sequence stored in each slot once its entry is written, one lap behind until then
+	private final long[] published;
+
+	// Next sequence to claim
+	private final AtomicLong claimed = new AtomicLong();
+
+	// Next sequence to consume, only written by the consumer
+	private volatile long consumed;
+
+	// Stale copy of consumed kept by producers, so that a claim reads the consumer cursor only when the ring looks full
+	private volatile long consumedCache;
+
+	/**
+	 * @param capacity power of 2
+	 */
+	RingBuffer(int capacity) {
+		if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Ring size must be a power of 2, got " + capacity);
+		}
+		this.mask = capacity - 1;
+		this.entries = new Object[capacity];
+		this.published = new long[capacity];
+		for (int i = 0; i < capacity; i++) {
+			published[i] = i - (long) capacity;
+		}
+	}
+
+	int capacity() {
+		return entries.length;
+	}
+
+	/**
+	 * @param entry
+	 * @return false when the ring is full or closed
+	 */
+	boolean offer(E entry) {
+		long sequence = claim(1);
+		if (sequence < 0) {
+			return false;
+		}
+		publish(sequence, entry);
+		return true;
+	}
+
+	/**
+	 * @param batch
+	 * @return entries published, the prefix of batch that fit in the ring, and the sequence right after them
+	 */
+	IngestOffer offer(List<E> batch) {
+		int count = batch.size();
+		long first = -1;
+		while (count > 0 && (first = claim(count)) < 0) {
+			count = (int) Math.min(count - 1, free());
+		}
+		for (int i = 0; i < count; i++) {
+			publish(first + i, batch.get(i));
+		}
+		return new IngestOffer(count, count > 0 ? first + count : -1);
+	}
+
+	/**
+	 * @param count
+	 * @return first sequence of the run claimed, -1 when fewer slots are free or the ring is closed
+	 */
+	private long claim(int count) {
+		while (true) {
+			long current = claimed.get();
+			if ((current & CLOSED) != 0) {
+				return -1;
+			}
+			long end = current + count;
+			if (end - consumedCache > entries.length) {
+				long cursor = consumed;
+				consumedCache = cursor;
+				if (end - cursor > entries.length) {
+					return -1;
+				}
+			}
+			if (claimed.compareAndSet(current, end)) {
+				return current;
+			}
+		}
+	}
+
+	private long free() {
+		long current = claimed.get();
+		return (current & CLOSED) != 0 ? 0 : Math.max(0, entries.length - (current - consumed));
+	}
+
+	private void publish(long sequence, E entry) {
+		int slot = (int) sequence & mask;
+		entries[slot] = entry;
+		PUBLISHED.setRelease(published, slot, sequence);
+	}
+
+	/**
+	 * Moves the published entries following the consumer cursor to sink, their slots stay taken until
+	 * {@link #release(int)}. Consumer only.
+	 *
+	 * @param sink  cleared by the caller
+	 * @param limit
+	 * @return number of entries drained
+	 */
+	@SuppressWarnings("unchecked")
+	int drainTo(List<E> sink, int limit) {
+		long next = consumed;
+		int count = 0;
+		for (; count < limit; count++) {
+			long sequence = next + count;
+			int slot = (int) sequence & mask;
+			if ((long) PUBLISHED.getAcquire(published, slot) != sequence) {
+				break;
+			}
+			sink.add((E) entries[slot]);
+			entries[slot] = null;
+		}
+		return count;
+	}
+
+	/**
+	 * Releases the slots of the entries last drained, once they are processed. Consumer only.
+	 *
+	 * @param count
+	 */
+	void release(int count) {
+		consumed = consumed + count;
+	}
+
+	/**
+	 * @return true when an entry waits for the consumer
+	 */
+	boolean hasPublished() {
+		long next = consumed;
+		return (long) PUBLISHED.getAcquire(published, (int) next & mask) == next;
+	}
+
+	/**
+	 * Rejects every claim from now on, the entries claimed before are still drained
+	 */
+	void close() {
+		claimed.getAndUpdate(current -> current | CLOSED);
+	}
+
+	/**
+	 * @return sequences claimed so far, the entries accepted
+	 */
+	long claimed() {
+		return claimed.get() & ~CLOSED;
+	}
+
+	/**
+	 * @return sequences released by the consumer so far, the entries processed
+	 */
+	long consumed() {
+		return consumed;
+	}
+}
@@ -0,0 +1,127 @@
+package com.logging.ingest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * How the writer of an {@link IngestPipeline} waits for entries to be published <br/>
+ *
+ * The choice trades the latency of the first entry after an idle period for the CPU burnt while idle:
+ * <ul>
+ * <li>blocking: parks on a condition the producers signal, no CPU while idle, a wake-up per idle period</li>
+ * <li>sleeping: spins, then yields, then parks for 100 µs at a time, no signal needed from the producers</li>
+ * <li>yielding: spins, then yields, a core stays busy</li>
+ * <li>busy-spin: spins, a core stays busy, the lowest latency</li>
+ * </ul>
+ */
+public interface WaitStrategy {
+
+	/**
+	 * Called on the writer thread, returns once ready is true. May return early, the caller checks again.
+	 *
+	 * @param ready entries published, or the pipeline closing
+	 */
+	void await(BooleanSupplier ready);
+
+	/**
+	 * Called by producers after publishing
+	 */
+	void signal();
+
+	/**
+	 * @param name blocking, sleeping, yielding or busy-spin
+	 * @return a new strategy, owned by one pipeline
+	 * @throws IllegalArgumentException on an unknown name
+	 */
+	static WaitStrategy forName(String name) {
+		return switch (name) {
+		case "blocking" -> new Blocking();
+		case "sleeping" -> new Spinning(100, 100, true);
+		case "yielding" -> new Spinning(100, Long.MAX_VALUE, false);
+		case "busy-spin" -> new Spinning(Long.MAX_VALUE, 0, false);
+		default -> throw new IllegalArgumentException(
+				"Unknown wait strategy: " + name + ", expected blocking, sleeping, yielding or busy-spin");
+		};
+	}
+
+	/**
+	 * Spins, then yields, then parks when allowed to
+	 */
+	final class Spinning implements WaitStrategy {
+
+		private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+		private final long spins;
+		private final long yields;
+		private final boolean parks;
+
+		Spinning(long spins, long yields, boolean parks) {
+			this.spins = spins;
+			this.yields = yields;
+			this.parks = parks;
+		}
+
+		@Override
+		public void await(BooleanSupplier ready) {
+			for (long attempt = 0; !ready.getAsBoolean(); attempt++) {
+				if (attempt < spins) {
+					Thread.onSpinWait();
+				} else if (attempt - spins < yields || !parks) {
+					Thread.yield();
+				} else {
+					LockSupport.parkNanos(PARK_NANOS);
+				}
+			}
+		}
+
+		@Override
+		public void signal() {
+			// Polled, nothing to wake up
+		}
+	}
+
+	/**
+	 * Parks on a condition. Producers only take the lock while the writer is parked: the writer sets waiting before
+	 * checking for entries, and producers check waiting after publishing, so a publish is never missed.
+	 */
+	final class Blocking implements WaitStrategy {
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition published = lock.newCondition();
+		private volatile boolean waiting;
+
+		@Override
+		public void await(BooleanSupplier ready) {
+			if (ready.getAsBoolean()) {
+				return;
+			}
+			lock.lock();
+			try {
+				waiting = true;
+				while (!ready.getAsBoolean()) {
+					published.await(10, TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				waiting = false;
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void signal() {
+			if (waiting) {
+				lock.lock();
+				try {
+					published.signalAll();
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.logging.model;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+
+/**
+ * Body of a <code>POST /query/aggregate</code>: the <code>GET /logs</code> filters, the fields to group by and the
+ * aggregations computed per group
+ */
+@Data
+public class AggregateQuery {
+
+	// Filters, null when not given
+	private String service;
+	private String level;
+	private String username;
+
+	@JsonProperty("is.blacklisted")
+	private Boolean isBlacklisted;
+
+	// Full-text query on raw.message
+	private String q;
+
+	// Time range on the entry timestamp, from inclusive, to exclusive
+	private Instant from;
+	private Instant to;
+
+	// Fields of com.logging.aggregate.LogField, none for a single group
+	private List<String> groupBy = List.of();
+
+	private List<Aggregation> aggregations = List.of();
+
+	// Groups returned, the largest first
+	private Integer limit;
+
+	/**
+	 * One aggregation, computed for every group next to its count
+	 */
+	@Data
+	public static class Aggregation {
+
+		// count, distinct or top
+		private String type;
+
+		private String field;
+
+		// Values returned by top
+		private Integer size;
+
+		// Constant memory sketches instead of exact sets and maps: HyperLogLog for distinct, count-min for top
+		private boolean approximate;
+
+		// Key of the result in the group, type(field) by default
+		private String name;
+	}
+
+	/**
+	 * @return the filters as a log query
+	 */
+	public LogQuery toLogQuery() {
+		LogQuery query = new LogQuery();
+		query.setService(service);
+		query.setLevel(level);
+		query.setUsername(username);
+		query.setIsBlacklisted(isBlacklisted);
+		query.setQ(q);
+		query.setFrom(from);
+		query.setTo(to);
+		return query;
+	}
+}
@@ -0,0 +1,45 @@
+package com.logging.model;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Result of a <code>POST /query/aggregate</code>
+ */
+@Data
+public class AggregateResult {
+
+	// Logs matching the filters
+	private final long matched;
+
+	// Groups before the limit
+	private final int totalGroups;
+
+	// Ranges of the store scanned in parallel
+	private final int partitions;
+
+	// Largest count first
+	private final List<Group> groups;
+
+	@Data
+	public static class Group {
+
+		// Value of each grouped field
+		private final Map<String, Object> key;
+
+		private final long count;
+
+		// Result of each aggregation by name: a number for distinct, a list of TopValue for top
+		private final Map<String, Object> aggregations;
+	}
+
+	@Data
+	public static class TopValue {
+
+		private final Object value;
+
+		private final long count;
+	}
+}
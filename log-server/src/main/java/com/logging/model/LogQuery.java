@@ -0,0 +1,53 @@
+package com.logging.model;
+
+import java.time.Instant;
+
+import lombok.Data;
+
+/**
+ * Parameters of a <code>GET /logs</code> query
+ */
+@Data
+public class LogQuery {
+
+	// Filters, null when not given
+	private String service;
+	private String level;
+	private String username;
+	private Boolean isBlacklisted;
+
+	// Full-text query on raw.message, see com.logging.index.TextQuery
+	private String q;
+
+	// Time range on the entry timestamp, from inclusive, to exclusive
+	private Instant from;
+	private Instant to;
+
+	private Integer limit;
+
+	// Cursor of the last result of the previous page, null for the first page
+	private Long cursor;
+
+	// Sort field (timestamp) and direction (asc, desc)
+	private String sort;
+	private String order;
+
+	public boolean hasFilters() {
+		return service != null || level != null || username != null || isBlacklisted != null || q != null;
+	}
+
+	public boolean hasTimeRange() {
+		return from != null || to != null;
+	}
+
+	public boolean isDescending() {
+		return "desc".equalsIgnoreCase(order);
+	}
+
+	/**
+	 * @return true when results must come in timestamp order, requested by sort=timestamp or by an explicit order
+	 */
+	public boolean isSortedByTimestamp() {
+		return "timestamp".equals(sort) || order != null;
+	}
+}
@@ -0,0 +1,18 @@
+package com.logging.model;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.logging.entity.LogEntry;
+
+import lombok.Data;
+
+/**
+ * Query result: a stored entry together with the cursor that resumes the query right after it
+ */
+@Data
+public class LogRecord {
+
+	@JsonUnwrapped
+	private final LogEntry entry;
+
+	private final long cursor;
+}
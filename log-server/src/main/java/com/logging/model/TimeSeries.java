@@ -0,0 +1,33 @@
+package com.logging.model;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Log counts per bucket answered from the rollups, one series per combination of the grouped dimensions
+ */
+@Data
+public class TimeSeries {
+
+	private final String resolution;
+
+	// Start of every bucket, ISO-8601
+	private final List<String> buckets;
+
+	// Largest total first
+	private final List<Series> series;
+
+	@Data
+	public static class Series {
+
+		// Value of each grouped dimension
+		private final Map<String, Object> key;
+
+		// Count per bucket, aligned with buckets
+		private final long[] counts;
+
+		private final long total;
+	}
+}
@@ -0,0 +1,29 @@
+package com.logging.model;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Parameters of a <code>GET /stats/timeseries</code> query
+ */
+@Data
+public class TimeSeriesQuery {
+
+	// 1s, 1m or 1h
+	private String resolution = "1m";
+
+	// Bucket range, from inclusive, to exclusive, both rounded down to the resolution
+	private Instant from;
+	private Instant to;
+
+	// Filters, null when not given
+	private String service;
+	private String level;
+	private String hostname;
+	private Boolean isBlacklisted;
+
+	// Dimensions to split the counts by: service, level, hostname, is.blacklisted
+	private List<String> groupBy = List.of();
+}
@@ -0,0 +1,362 @@
+package com.logging.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.logging.compress.BlockCompressor;
+import com.logging.entity.LogEntry;
+import com.logging.metrics.LatencyHistogram;
+import com.logging.storage.LogStore;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Connection of a leader to one follower, see {@link ReplicationProtocol} <br/>
+ *
+ * The sender thread reads the entries to ship straight from the store, from the offset the follower asked for, and
+ * keeps up to maxInFlight frames on the wire, flushing the socket once it has nothing more to send right away. A
+ * second thread reads the acknowledgements. A broken connection is reopened with backoff, and the follower then asks
+ * again from what it has stored, so nothing it acknowledged is shipped twice.
+ */
+@Slf4j
+final class FollowerLink {
+
+	private static final int CONNECT_TIMEOUT_MS = 2_000;
+	private static final long MIN_BACKOFF_MS = 100;
+	private static final long MAX_BACKOFF_MS = 2_000;
+
+	// Longest wait for new entries or a free window slot before checking the connection again
+	private static final long POLL_MS = 100;
+
+	private static final int BUFFER_BYTES = 64 * 1024;
+
+	private final String address;
+	private final InetSocketAddress socketAddress;
+	private final LogStore logStore;
+	private final ReplicationSettings settings;
+	private final BlockCompressor compressor;
+	private final LatencyHistogram ackLatency;
+	private final Runnable onAck;
+	private final Thread sender;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition appended = lock.newCondition();
+
+	private volatile boolean running = true;
+	private volatile Socket socket;
+	private volatile boolean connected;
+
+	// Frames of the current connection not acknowledged yet
+	private volatile Semaphore window;
+
+	// Leader sequence the follower has stored up to
+	private volatile long acked;
+
+	private final LongAdder batchesSent = new LongAdder();
+	private final LongAdder entriesSent = new LongAdder();
+	private final LongAdder bytesSent = new LongAdder();
+	private final LongAdder skippedEntries = new LongAdder();
+	private final LongAdder reconnects = new LongAdder();
+
+	// Previous snapshot, to turn the acknowledged sequence into a rate
+	private long snapshotNanos = System.nanoTime();
+	private long snapshotAcked;
+
+	/**
+	 * @param address    host:port of the follower
+	 * @param logStore   read from, concurrently with the storage writer
+	 * @param settings
+	 * @param ackLatency send to acknowledgement time of the frames
+	 * @param onAck      called on the ack thread whenever the follower acknowledges
+	 */
+	FollowerLink(String address, LogStore logStore, ReplicationSettings settings, LatencyHistogram ackLatency,
+			Runnable onAck) {
+		this.address = address;
+		this.socketAddress = ReplicationProtocol.parseAddress(address);
+		this.logStore = logStore;
+		this.settings = settings;
+		this.compressor = BlockCompressor.forName(settings.compression());
+		this.ackLatency = ackLatency;
+		this.onAck = onAck;
+		this.sender = new Thread(this::run, "log-replication-" + address);
+		sender.setDaemon(true);
+	}
+
+	void start() {
+		sender.start();
+	}
+
+	long acked() {
+		return acked;
+	}
+
+	/**
+	 * Wakes the sender up, called by the storage writer after every batch
+	 */
+	void onAppended() {
+		lock.lock();
+		try {
+			appended.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void run() {
+		long backoffMs = MIN_BACKOFF_MS;
+		boolean reported = false;
+		while (running) {
+			try (Socket current = new Socket()) {
+				current.setTcpNoDelay(true);
+				current.connect(new InetSocketAddress(socketAddress.getHostString(), socketAddress.getPort()),
+						CONNECT_TIMEOUT_MS);
+				socket = current;
+				stream(current);
+			} catch (IOException e) {
+				// Once per outage
+				if (running && !connected && !reported) {
+					log.warn("Cannot replicate to {}, retrying: {}", address, e.getMessage());
+					reported = true;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (connected) {
+				connected = false;
+				reported = false;
+				reconnects.increment();
+				backoffMs = MIN_BACKOFF_MS;
+				if (running) {
+					log.warn("Lost the replication connection to {}, reconnecting", address);
+				}
+			}
+			if (running) {
+				try {
+					Thread.sleep(backoffMs);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+			}
+		}
+	}
+
+	private void stream(Socket current) throws IOException, InterruptedException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(current.getOutputStream(), BUFFER_BYTES));
+		DataInputStream in = new DataInputStream(new BufferedInputStream(current.getInputStream(), BUFFER_BYTES));
+		current.setSoTimeout(CONNECT_TIMEOUT_MS);
+		out.writeInt(ReplicationProtocol.MAGIC);
+		out.writeInt(ReplicationProtocol.VERSION);
+		out.writeUTF(compressor != null ? compressor.name() : "none");
+		out.flush();
+		if (in.readInt() != ReplicationProtocol.MAGIC) {
+			throw new IOException("Not a log-server replication port");
+		}
+		long offset = in.readLong();
+
+		// The follower has everything up to its offset the leader still stores
+		long next = Math.clamp(offset, logStore.firstSequence(), logStore.nextSequence());
+		if (next != offset) {
+			log.warn("Follower {} asked for sequence {}, shipping from {}", address, offset, next);
+		}
+		out.writeLong(next);
+		out.flush();
+		current.setSoTimeout(0);
+		acked = next;
+		connected = true;
+		onAck.run();
+		log.info("Replicating to {} from sequence {}", address, next);
+
+		Semaphore frames = new Semaphore(settings.maxInFlight());
+		window = frames;
+		Queue<long[]> inFlight = new ConcurrentLinkedQueue<>();
+		Thread acks = new Thread(() -> readAcks(current, in, frames, inFlight), "log-replication-acks-" + address);
+		acks.setDaemon(true);
+		acks.start();
+
+		Iterator<LogEntry> entries = null;
+		long iteratorSequence = -1;
+		List<LogEntry> batch = new ArrayList<>(settings.batchEntries());
+		while (running && acks.isAlive()) {
+			if (!awaitAppended(next) || !frames.tryAcquire(POLL_MS, TimeUnit.MILLISECONDS)) {
+				continue;
+			}
+			long first = Math.max(next, logStore.firstSequence());
+			if (first > next) {
+				// Evicted by retention before they could be shipped
+				skippedEntries.add(first - next);
+				log.warn("Follower {} misses {} logs evicted before replication", address, first - next);
+				next = first;
+			}
+			if (entries == null || iteratorSequence != first || !entries.hasNext()) {
+				entries = logStore.iterator(first);
+				iteratorSequence = first;
+				if (logStore.firstSequence() > first) {
+					// Evicted meanwhile, the iterator started further
+					entries = null;
+					frames.release();
+					continue;
+				}
+			}
+
+			long end = first;
+			while (batch.size() < settings.batchEntries() && entries.hasNext()) {
+				LogEntry logEntry = entries.next();
+				end++;
+				if (logEntry != null) {
+					batch.add(logEntry);
+				}
+			}
+			iteratorSequence = end;
+			if (end == first) {
+				entries = null;
+				frames.release();
+				continue;
+			}
+			long leaderNext = logStore.nextSequence();
+			inFlight.add(new long[] { end, System.nanoTime() });
+			int bytes = ReplicationProtocol.writeFrame(out, compressor, first, end, leaderNext, batch);
+			if (leaderNext <= end || frames.availablePermits() == 0) {
+				out.flush();
+			}
+			batchesSent.increment();
+			entriesSent.add(batch.size());
+			bytesSent.add(bytes);
+			batch.clear();
+			next = end;
+		}
+	}
+
+	/**
+	 * @return true when the store holds entries from next on, false after waiting {@value #POLL_MS} ms for them
+	 */
+	private boolean awaitAppended(long next) throws InterruptedException {
+		if (logStore.nextSequence() > next) {
+			return true;
+		}
+		lock.lock();
+		try {
+			if (logStore.nextSequence() <= next && running) {
+				appended.await(POLL_MS, TimeUnit.MILLISECONDS);
+			}
+		} finally {
+			lock.unlock();
+		}
+		return logStore.nextSequence() > next;
+	}
+
+	private void readAcks(Socket current, DataInputStream in, Semaphore frames, Queue<long[]> inFlight) {
+		try {
+			while (true) {
+				long end = in.readLong();
+				long now = System.nanoTime();
+				long[] frame;
+				while ((frame = inFlight.peek()) != null && frame[0] <= end) {
+					inFlight.poll();
+					ackLatency.record(TimeUnit.NANOSECONDS.toMicros(now - frame[1]));
+					frames.release();
+				}
+				acked = end;
+				onAck.run();
+			}
+		} catch (IOException e) {
+			if (running) {
+				log.debug("Replication acks from {} stopped: {}", address, e.getMessage());
+			}
+		} finally {
+			// Unblocks the sender
+			try {
+				current.close();
+			} catch (IOException e) {
+				// Already closed
+			}
+			onAppended();
+		}
+	}
+
+	/**
+	 * @return position, lag, throughput and connection state of the follower
+	 */
+	synchronized Map<String, Object> getMetrics() {
+		long now = System.nanoTime();
+		long ackedNow = acked;
+		double elapsedSeconds = (now - snapshotNanos) / 1_000_000_000.0;
+		double rate = elapsedSeconds > 0 ? Math.max(0, ackedNow - snapshotAcked) / elapsedSeconds : 0;
+		snapshotAcked = ackedNow;
+		snapshotNanos = now;
+
+		long leaderNext = logStore.nextSequence();
+		Semaphore frames = window;
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("follower", address);
+		metrics.put("connected", connected);
+		metrics.put("ackedSequence", ackedNow);
+		metrics.put("lagEntries", Math.max(0, leaderNext - ackedNow));
+		metrics.put("lagMs", lagMillis(ackedNow, leaderNext));
+		metrics.put("inFlight", connected && frames != null ? settings.maxInFlight() - frames.availablePermits() : 0);
+		metrics.put("batchesSent", batchesSent.sum());
+		metrics.put("entriesSent", entriesSent.sum());
+		metrics.put("bytesSent", bytesSent.sum());
+		metrics.put("skippedEntries", skippedEntries.sum());
+		metrics.put("reconnects", reconnects.sum());
+		metrics.put("ackedPerSecond", Math.round(rate * 10) / 10.0);
+		return metrics;
+	}
+
+	/**
+	 * @return how long ago the oldest log the follower misses was received, 0 when it misses none
+	 */
+	private long lagMillis(long ackedNow, long leaderNext) {
+		if (ackedNow >= leaderNext) {
+			return 0;
+		}
+		LogEntry oldest = logStore.read(Math.max(ackedNow, logStore.firstSequence()));
+		if (oldest == null || oldest.getReceivedAt() == null) {
+			return 0;
+		}
+		try {
+			return Math.max(0, System.currentTimeMillis() - Instant.parse(oldest.getReceivedAt()).toEpochMilli());
+		} catch (DateTimeParseException e) {
+			return 0;
+		}
+	}
+
+	void close() {
+		running = false;
+		Socket current = socket;
+		if (current != null) {
+			try {
+				current.close();
+			} catch (IOException e) {
+				// Already closed
+			}
+		}
+		onAppended();
+		try {
+			sender.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
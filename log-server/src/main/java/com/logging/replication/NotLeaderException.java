@@ -0,0 +1,13 @@
+package com.logging.replication;
+
+/**
+ * Ingest sent to a follower, answered 503: followers only store what their leader ships
+ */
+public class NotLeaderException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public NotLeaderException() {
+		super("Read-only follower, ingest on the replication leader");
+	}
+}
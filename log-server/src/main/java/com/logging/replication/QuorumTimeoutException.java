@@ -0,0 +1,14 @@
+package com.logging.replication;
+
+/**
+ * Logs stored by the leader without the replication quorum acknowledging them in time, answered 503. They stay
+ * stored and keep being replicated, a retry stores them again.
+ */
+public class QuorumTimeoutException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public QuorumTimeoutException(int quorum, long timeoutMs) {
+		super("Not stored by " + quorum + " copies within " + timeoutMs + " ms");
+	}
+}
@@ -0,0 +1,39 @@
+package com.logging.replication;
+
+import java.util.Map;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Replication side of a log-server node, driven by the storage service
+ */
+public interface Replication extends AutoCloseable {
+
+	/**
+	 * Called by the storage writer after every batch, failed appends included
+	 *
+	 * @param ingestEnd    ingest position right after the batch
+	 * @param nextSequence store sequence right after the batch
+	 */
+	void onStored(long ingestEnd, long nextSequence);
+
+	/**
+	 * @param ingestPosition ingest position right after the logs to wait for
+	 * @return completes once those logs are stored by the quorum, a {@link QuorumTimeoutException} after the ack
+	 *         timeout
+	 */
+	Mono<Void> awaitQuorum(long ingestPosition);
+
+	/**
+	 * @return false on a follower, which only stores what its leader ships
+	 */
+	boolean acceptsIngest();
+
+	/**
+	 * @return role, positions, lag and throughput for /metrics
+	 */
+	Map<String, Object> getMetrics();
+
+	@Override
+	void close();
+}
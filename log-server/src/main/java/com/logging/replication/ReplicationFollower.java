@@ -0,0 +1,363 @@
+package com.logging.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.logging.compress.BlockCompressor;
+import com.logging.entity.LogEntry;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Follower side of replication: listens for its leader, stores the frames it ships and acknowledges them once stored
+ * <br/>
+ *
+ * Shipped entries go through the ingest pipeline like any other, so the storage writer stays the only one appending
+ * and indexes, counters and rollups are maintained as on the leader, and the follower answers every read. Ingest
+ * requests are refused. <br/>
+ *
+ * The offset sent to the leader on every connection is the leader sequence stored up to, starting from what the store
+ * recovered, so a follower that was disconnected or restarted with a durable store catches up from where it stopped.
+ * A newer connection replaces the current one.
+ */
+@Slf4j
+public class ReplicationFollower implements Replication {
+
+	private static final int BUFFER_BYTES = 64 * 1024;
+
+	// Longest wait for a stored frame before checking the connection again
+	private static final long POLL_MS = 100;
+
+	/**
+	 * Hands shipped entries to the storage writer
+	 */
+	@FunctionalInterface
+	public interface Applier {
+
+		/**
+		 * Blocks while the ingest pipeline is full
+		 *
+		 * @param entries
+		 * @return ingest position right after the entries
+		 * @throws InterruptedException
+		 */
+		long apply(List<LogEntry> entries) throws InterruptedException;
+	}
+
+	private final ServerSocket serverSocket;
+	private final Applier applier;
+	private final Thread acceptor;
+
+	private volatile boolean running = true;
+	private volatile Socket current;
+	private volatile String leader;
+
+	// Held by the connection being served
+	private final ReentrantLock serving = new ReentrantLock();
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition stored = lock.newCondition();
+
+	// Ingest end and leader sequence end of the frames handed to the pipeline and not stored yet, oldest first
+	private final ArrayDeque<long[]> pending = new ArrayDeque<>();
+	private long storedPosition;
+
+	// Leader sequence stored up to, the offset and what is acknowledged
+	private volatile long storedSequence;
+
+	// Leader sequence handed to the pipeline up to
+	private volatile long appliedSequence;
+
+	// Leader's next sequence as of its last frame
+	private volatile long leaderSequence;
+
+	private final LongAdder batchesReceived = new LongAdder();
+	private final LongAdder entriesReceived = new LongAdder();
+	private final LongAdder bytesReceived = new LongAdder();
+	private final LongAdder skippedEntries = new LongAdder();
+	private final LongAdder resyncs = new LongAdder();
+
+	// Previous snapshot, to turn the stored sequence into a rate
+	private long snapshotNanos = System.nanoTime();
+	private long snapshotStored;
+
+	/**
+	 * @param settings
+	 * @param offset   leader sequence the store already holds entries up to
+	 * @param applier
+	 * @throws UncheckedIOException when the port cannot be bound
+	 */
+	public ReplicationFollower(ReplicationSettings settings, long offset, Applier applier) {
+		this.applier = applier;
+		this.storedSequence = offset;
+		this.appliedSequence = offset;
+		this.leaderSequence = offset;
+		try {
+			serverSocket = new ServerSocket();
+			serverSocket.setReuseAddress(true);
+			serverSocket.bind(new InetSocketAddress(settings.port()));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot listen for the replication leader on port " + settings.port(), e);
+		}
+		this.acceptor = new Thread(this::accept, "log-replication-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		log.info("Replication follower listening on port {} from sequence {}", getPort(), offset);
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	private void accept() {
+		while (running) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				Socket previous = current;
+				current = socket;
+				if (previous != null) {
+					previous.close();
+				}
+				Thread connection = new Thread(() -> serve(socket), "log-replication-leader");
+				connection.setDaemon(true);
+				connection.start();
+			} catch (IOException e) {
+				if (running) {
+					log.warn("Replication accept failed: {}", e.getMessage());
+				}
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		// The connection replaced must be done applying before the offset is read
+		serving.lock();
+		try {
+			serve(socket, String.valueOf(socket.getRemoteSocketAddress()));
+		} finally {
+			serving.unlock();
+		}
+	}
+
+	private void serve(Socket socket, String address) {
+		Thread acks = null;
+		try (socket) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64));
+			if (in.readInt() != ReplicationProtocol.MAGIC || in.readInt() != ReplicationProtocol.VERSION) {
+				throw new IOException("Not a log-server replication leader, or another protocol version");
+			}
+			BlockCompressor compressor = BlockCompressor.forName(in.readUTF());
+
+			long start = awaitStored();
+			out.writeInt(ReplicationProtocol.MAGIC);
+			out.writeLong(start);
+			out.flush();
+			long from = in.readLong();
+			if (from != start) {
+				// The leader no longer stores the offset, or lost what it had shipped
+				resyncs.increment();
+				log.warn("Leader {} ships from sequence {} instead of {}", address, from, start);
+				lock.lock();
+				try {
+					storedSequence = from;
+				} finally {
+					lock.unlock();
+				}
+			}
+			appliedSequence = from;
+			leader = address;
+			log.info("Replicating from leader {} from sequence {}", address, from);
+
+			acks = new Thread(() -> writeAcks(socket, out, from), "log-replication-acks");
+			acks.setDaemon(true);
+			acks.start();
+			while (running && current == socket) {
+				apply(ReplicationProtocol.readFrame(in, compressor));
+			}
+		} catch (IOException e) {
+			if (running && current == socket) {
+				log.warn("Replication connection from {} lost: {}", address, e.getMessage());
+			}
+		} catch (IllegalStateException e) {
+			log.warn("Replication from {} stopped: {}", address, e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (current == socket) {
+				leader = null;
+			}
+			if (acks != null) {
+				acks.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * @return the leader sequence stored up to, once every frame of a previous connection is stored
+	 */
+	private long awaitStored() throws InterruptedException {
+		lock.lock();
+		try {
+			while (!pending.isEmpty() && running) {
+				stored.await(POLL_MS, TimeUnit.MILLISECONDS);
+			}
+			return storedSequence;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void apply(ReplicationProtocol.Frame frame) throws IOException, InterruptedException {
+		if (frame.first() < appliedSequence) {
+			throw new IOException("Frame " + frame.first() + ".." + frame.end() + " overlaps the stored sequences up to "
+					+ appliedSequence);
+		}
+		if (frame.first() > appliedSequence) {
+			skippedEntries.add(frame.first() - appliedSequence);
+		}
+		long position = applier.apply(frame.entries());
+		lock.lock();
+		try {
+			if (pending.isEmpty() && position <= storedPosition) {
+				storedSequence = frame.end();
+				stored.signalAll();
+			} else {
+				pending.add(new long[] { position, frame.end() });
+			}
+		} finally {
+			lock.unlock();
+		}
+		appliedSequence = frame.end();
+		leaderSequence = frame.leaderNext();
+		batchesReceived.increment();
+		entriesReceived.add(frame.entries().size());
+		bytesReceived.add(frame.bytes());
+	}
+
+	/**
+	 * Acknowledges the stored sequence whenever it moves, until the connection closes
+	 */
+	private void writeAcks(Socket socket, DataOutputStream out, long from) {
+		long acknowledged = from;
+		try {
+			while (running && !socket.isClosed()) {
+				long sequence;
+				lock.lock();
+				try {
+					if (storedSequence == acknowledged) {
+						stored.await(POLL_MS, TimeUnit.MILLISECONDS);
+					}
+					sequence = storedSequence;
+				} finally {
+					lock.unlock();
+				}
+				if (sequence != acknowledged) {
+					out.writeLong(sequence);
+					out.flush();
+					acknowledged = sequence;
+				}
+			}
+		} catch (IOException e) {
+			log.debug("Replication acks stopped: {}", e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void onStored(long ingestEnd, long nextSequence) {
+		lock.lock();
+		try {
+			storedPosition = ingestEnd;
+			long[] frame;
+			boolean moved = false;
+			while ((frame = pending.peek()) != null && frame[0] <= ingestEnd) {
+				pending.poll();
+				storedSequence = frame[1];
+				moved = true;
+			}
+			if (moved) {
+				stored.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Mono<Void> awaitQuorum(long ingestPosition) {
+		return Mono.error(new NotLeaderException());
+	}
+
+	@Override
+	public boolean acceptsIngest() {
+		return false;
+	}
+
+	/**
+	 * @return leader, stored and leader sequences, lag and throughput
+	 */
+	@Override
+	public synchronized Map<String, Object> getMetrics() {
+		long now = System.nanoTime();
+		long storedNow = storedSequence;
+		double elapsedSeconds = (now - snapshotNanos) / 1_000_000_000.0;
+		double rate = elapsedSeconds > 0 ? Math.max(0, storedNow - snapshotStored) / elapsedSeconds : 0;
+		snapshotStored = storedNow;
+		snapshotNanos = now;
+
+		String leaderNow = leader;
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("role", ReplicationSettings.Role.FOLLOWER.label());
+		metrics.put("port", getPort());
+		metrics.put("connected", leaderNow != null);
+		metrics.put("leader", leaderNow);
+		metrics.put("storedSequence", storedNow);
+		metrics.put("leaderSequence", leaderSequence);
+		metrics.put("lagEntries", Math.max(0, leaderSequence - storedNow));
+		metrics.put("batchesReceived", batchesReceived.sum());
+		metrics.put("entriesReceived", entriesReceived.sum());
+		metrics.put("bytesReceived", bytesReceived.sum());
+		metrics.put("skippedEntries", skippedEntries.sum());
+		metrics.put("resyncs", resyncs.sum());
+		metrics.put("storedPerSecond", Math.round(rate * 10) / 10.0);
+		return metrics;
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		try {
+			serverSocket.close();
+			Socket socket = current;
+			if (socket != null) {
+				socket.close();
+			}
+		} catch (IOException e) {
+			// Already closed
+		}
+		try {
+			acceptor.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
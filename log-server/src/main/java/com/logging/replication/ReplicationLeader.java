@@ -0,0 +1,215 @@
+package com.logging.replication;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.logging.metrics.LatencyHistogram;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.storage.LogStore;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Leader side of replication: ships the append stream of the store to every follower over its own
+ * {@link FollowerLink}, and acknowledges ingest once the quorum stored it <br/>
+ *
+ * The store is the replication log: a follower is shipped the entries from its offset on, so a lagging or restarted
+ * follower catches up from where it stopped without the leader buffering anything for it. <br/>
+ *
+ * An ingest request waits on its ingest position. Every batch the storage writer stores maps an ingest position to
+ * a store sequence, and a batch is committed once quorum - 1 followers acknowledged its sequence, which releases the
+ * requests waiting on positions up to its own.
+ */
+@Slf4j
+public class ReplicationLeader implements Replication {
+
+	// Stored batches waiting for the quorum at most, beyond that new ones are merged into the last one
+	private static final int MAX_UNCOMMITTED_BATCHES = 65_536;
+
+	private final LogStore logStore;
+	private final int quorum;
+	private final Duration ackTimeout;
+	private final List<FollowerLink> followers;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	// Ingest end and sequence end of the stored batches not committed yet, oldest first
+	private final ArrayDeque<long[]> uncommitted = new ArrayDeque<>();
+
+	// Ingest requests waiting for their position to be committed
+	private final NavigableMap<Long, List<MonoSink<Void>>> waiters = new TreeMap<>();
+	private long waiting;
+
+	private volatile long committedSequence;
+	private volatile long committedPosition;
+
+	private final LongAdder quorumTimeouts = new LongAdder();
+
+	/**
+	 * @param settings
+	 * @param logStore        read by the followers' senders, concurrently with the storage writer
+	 * @param metricsRegistry where the <code>replicationAck</code> latency is reported
+	 */
+	public ReplicationLeader(ReplicationSettings settings, LogStore logStore, MetricsRegistry metricsRegistry) {
+		this.logStore = logStore;
+		this.quorum = settings.quorum();
+		this.ackTimeout = Duration.ofMillis(settings.ackTimeoutMs());
+		this.committedSequence = logStore.nextSequence();
+		LatencyHistogram ackLatency = metricsRegistry.histogram("replicationAck", TimeUnit.MICROSECONDS);
+		this.followers = settings.followers().stream()
+				.map(address -> new FollowerLink(address, logStore, settings, ackLatency, this::onAck)).toList();
+		followers.forEach(FollowerLink::start);
+		log.info("Replication leader of {} with a quorum of {}", settings.followers(), quorum);
+	}
+
+	@Override
+	public void onStored(long ingestEnd, long nextSequence) {
+		List<MonoSink<Void>> released;
+		lock.lock();
+		try {
+			long[] last = uncommitted.peekLast();
+			if (last != null && uncommitted.size() >= MAX_UNCOMMITTED_BATCHES) {
+				// Coarser, a request may wait for a few more logs than its own
+				last[0] = ingestEnd;
+				last[1] = nextSequence;
+			} else {
+				uncommitted.add(new long[] { ingestEnd, nextSequence });
+			}
+			released = commit();
+		} finally {
+			lock.unlock();
+		}
+		released.forEach(MonoSink::success);
+		followers.forEach(FollowerLink::onAppended);
+	}
+
+	/**
+	 * Moves the committed sequence to the highest acknowledged by quorum - 1 followers
+	 */
+	private void onAck() {
+		List<MonoSink<Void>> released;
+		lock.lock();
+		try {
+			released = commit();
+		} finally {
+			lock.unlock();
+		}
+		released.forEach(MonoSink::success);
+	}
+
+	/**
+	 * Commits the batches the quorum stored, under the lock
+	 *
+	 * @return the requests waiting on them, to complete once the lock is released
+	 */
+	private List<MonoSink<Void>> commit() {
+		long[] acked = followers.stream().mapToLong(FollowerLink::acked).sorted().toArray();
+		// The leader stores everything it ships, quorum - 1 followers are needed on top
+		long quorumSequence = quorum <= 1 ? Long.MAX_VALUE : acked[acked.length - (quorum - 1)];
+		committedSequence = Math.max(committedSequence, Math.min(quorumSequence, logStore.nextSequence()));
+		long position = committedPosition;
+		while (!uncommitted.isEmpty() && uncommitted.peek()[1] <= quorumSequence) {
+			position = uncommitted.poll()[0];
+		}
+		if (position == committedPosition) {
+			return List.of();
+		}
+		committedPosition = position;
+		List<MonoSink<Void>> released = new ArrayList<>();
+		NavigableMap<Long, List<MonoSink<Void>>> committed = waiters.headMap(position, true);
+		committed.values().forEach(released::addAll);
+		committed.clear();
+		waiting -= released.size();
+		return released;
+	}
+
+	@Override
+	public Mono<Void> awaitQuorum(long ingestPosition) {
+		if (quorum <= 1) {
+			return Mono.empty();
+		}
+		return Mono.<Void>create(sink -> {
+			sink.onCancel(() -> forget(ingestPosition, sink));
+			boolean committed;
+			lock.lock();
+			try {
+				committed = ingestPosition <= committedPosition;
+				if (!committed) {
+					waiters.computeIfAbsent(ingestPosition, position -> new ArrayList<>(1)).add(sink);
+					waiting++;
+				}
+			} finally {
+				lock.unlock();
+			}
+			if (committed) {
+				sink.success();
+			}
+		}).timeout(ackTimeout, Mono.defer(() -> {
+			quorumTimeouts.increment();
+			return Mono.error(new QuorumTimeoutException(quorum, ackTimeout.toMillis()));
+		}));
+	}
+
+	private void forget(long ingestPosition, MonoSink<Void> sink) {
+		lock.lock();
+		try {
+			List<MonoSink<Void>> sinks = waiters.get(ingestPosition);
+			if (sinks != null && sinks.remove(sink)) {
+				waiting--;
+				if (sinks.isEmpty()) {
+					waiters.remove(ingestPosition);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean acceptsIngest() {
+		return true;
+	}
+
+	/**
+	 * @return quorum, committed and next sequences, the requests waiting for the quorum and every follower's lag and
+	 *         throughput
+	 */
+	@Override
+	public Map<String, Object> getMetrics() {
+		List<Map<String, Object>> followerMetrics = followers.stream().map(FollowerLink::getMetrics).toList();
+		long waitingNow;
+		lock.lock();
+		try {
+			waitingNow = waiting;
+		} finally {
+			lock.unlock();
+		}
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("role", ReplicationSettings.Role.LEADER.label());
+		metrics.put("quorum", quorum);
+		metrics.put("nextSequence", logStore.nextSequence());
+		metrics.put("committedSequence", committedSequence);
+		metrics.put("quorumWaiting", waitingNow);
+		metrics.put("quorumTimeouts", quorumTimeouts.sum());
+		metrics.put("followersConnected",
+				followerMetrics.stream().filter(follower -> Boolean.TRUE.equals(follower.get("connected"))).count());
+		metrics.put("followers", followerMetrics);
+		return metrics;
+	}
+
+	@Override
+	public void close() {
+		followers.forEach(FollowerLink::close);
+	}
+}
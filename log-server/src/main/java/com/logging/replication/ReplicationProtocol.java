@@ -0,0 +1,114 @@
+package com.logging.replication;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import com.logging.compress.BlockCompressor;
+import com.logging.entity.LogEntry;
+import com.logging.storage.CompressedBlock;
+
+/**
+ * Wire format of the connection a leader keeps open to each of its followers <br/>
+ *
+ * Handshake: the leader sends <code>[int magic][int version][UTF compression]</code>, the follower answers
+ * <code>[int magic][long offset]</code>, the leader sequence it has stored up to, and the leader replies with the
+ * <code>[long start]</code> sequence it ships from, the offset unless the leader no longer stores it. <br/>
+ *
+ * The leader then streams frames without waiting for each answer:
+ * <code>[long first][long end][long leaderNext][int count][int rawLength][int length][length bytes]</code>, the
+ * entries stored under [first, end) as a compressed {@link CompressedBlock} and the leader's next sequence, which
+ * tells the follower how far behind it is. Entries evicted on the leader before being shipped are missing from their
+ * frame. The follower answers <code>[long end]</code> once the entries up to end are stored, acknowledging every frame
+ * before as well.
+ */
+final class ReplicationProtocol {
+
+	static final int MAGIC = 0x4C524550;
+	static final int VERSION = 1;
+
+	// Bound on a frame, compressed or not, protects the follower against a corrupt length
+	static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+	private ReplicationProtocol() {
+	}
+
+	/**
+	 * A frame as read by the follower
+	 *
+	 * @param first      leader sequence of the first entry
+	 * @param end        leader sequence right after the last entry
+	 * @param leaderNext leader sequence the next append gets
+	 * @param entries    the entries still stored on the leader, in sequence order
+	 * @param bytes      size on the wire
+	 */
+	record Frame(long first, long end, long leaderNext, List<LogEntry> entries, int bytes) {
+	}
+
+	/**
+	 * @return bytes written, buffered until the stream is flushed
+	 */
+	static int writeFrame(DataOutputStream out, BlockCompressor compressor, long first, long end, long leaderNext,
+			List<LogEntry> entries) throws IOException {
+		byte[] raw = entries.isEmpty() ? new byte[0]
+				: CompressedBlock.serialize(entries.toArray(LogEntry[]::new), 0, entries.size());
+		byte[] payload = compressor != null && raw.length > 0 ? compressor.compress(raw) : raw;
+		out.writeLong(first);
+		out.writeLong(end);
+		out.writeLong(leaderNext);
+		out.writeInt(entries.size());
+		out.writeInt(raw.length);
+		out.writeInt(payload.length);
+		out.write(payload);
+		return 36 + payload.length;
+	}
+
+	static Frame readFrame(DataInputStream in, BlockCompressor compressor) throws IOException {
+		long first = in.readLong();
+		long end = in.readLong();
+		long leaderNext = in.readLong();
+		int count = in.readInt();
+		int rawLength = in.readInt();
+		int length = in.readInt();
+		if (count < 0 || end - first < count || rawLength < 0 || rawLength > MAX_FRAME_BYTES || length < 0
+				|| length > MAX_FRAME_BYTES) {
+			throw new IOException("Corrupt replication frame header: " + first + ".." + end + ", " + count
+					+ " entries, " + length + " bytes");
+		}
+		byte[] payload = in.readNBytes(length);
+		if (payload.length < length) {
+			throw new IOException("Replication frame truncated");
+		}
+		if (count == 0) {
+			return new Frame(first, end, leaderNext, List.of(), 36 + length);
+		}
+		try {
+			byte[] raw = compressor != null ? compressor.decompress(payload, rawLength) : payload;
+			return new Frame(first, end, leaderNext, Arrays.asList(CompressedBlock.deserialize(raw, count)),
+					36 + length);
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt replication frame " + first + ".." + end + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param address host:port
+	 * @return unresolved, so that the name is resolved again on every connection
+	 * @throws IllegalArgumentException when the port is missing or invalid
+	 */
+	static InetSocketAddress parseAddress(String address) {
+		int colon = address.lastIndexOf(':');
+		try {
+			int port = colon > 0 ? Integer.parseInt(address.substring(colon + 1).trim()) : -1;
+			if (port > 0 && port <= 65535) {
+				return InetSocketAddress.createUnresolved(address.substring(0, colon).trim(), port);
+			}
+		} catch (NumberFormatException e) {
+			// Falls through
+		}
+		throw new IllegalArgumentException("Replication follower must be host:port, got " + address);
+	}
+}
@@ -0,0 +1,65 @@
+package com.logging.replication;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replication of the stored logs between log-server nodes
+ *
+ * @param role          standalone, leader or follower
+ * @param port          port a follower listens on for its leader, 0 for any free port
+ * @param followers     host:port of the followers of a leader
+ * @param quorum        copies, the leader's included, stored before ingest is acknowledged. 1 acknowledges on
+ *                      acceptance and replicates in the background.
+ * @param batchEntries  entries shipped per frame at most
+ * @param maxInFlight   frames sent to a follower and not acknowledged yet at most
+ * @param ackTimeoutMs  longest wait for the quorum before ingest answers 503
+ * @param compression   codec of the frames, see {@link com.logging.compress.BlockCompressor#forName(String)}
+ */
+public record ReplicationSettings(Role role, int port, List<String> followers, int quorum, int batchEntries,
+		int maxInFlight, long ackTimeoutMs, String compression) {
+
+	public static final ReplicationSettings STANDALONE = new ReplicationSettings(Role.STANDALONE, 9190, List.of(), 1,
+			1024, 8, 5_000, "lz4");
+
+	public enum Role {
+
+		STANDALONE, LEADER, FOLLOWER;
+
+		/**
+		 * @param name standalone, leader or follower
+		 * @return
+		 * @throws IllegalArgumentException for any other name
+		 */
+		public static Role forName(String name) {
+			for (Role role : values()) {
+				if (role.name().equalsIgnoreCase(name != null ? name.trim() : "")) {
+					return role;
+				}
+			}
+			throw new IllegalArgumentException(
+					"Unknown replication role: " + name + ", expected standalone, leader or follower");
+		}
+
+		public String label() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	public ReplicationSettings {
+		followers = followers != null ? List.copyOf(followers) : List.of();
+		if (role == Role.LEADER && followers.isEmpty()) {
+			throw new IllegalArgumentException("A replication leader needs at least one follower");
+		}
+		if (quorum < 1 || role == Role.LEADER && quorum > followers.size() + 1) {
+			throw new IllegalArgumentException(
+					"Quorum must be between 1 and " + (followers.size() + 1) + " copies, got " + quorum);
+		}
+		if (port < 0 || port > 65535) {
+			throw new IllegalArgumentException("Invalid replication port: " + port);
+		}
+		if (batchEntries < 1 || maxInFlight < 1) {
+			throw new IllegalArgumentException("Batch entries and max in flight must be positive");
+		}
+	}
+}
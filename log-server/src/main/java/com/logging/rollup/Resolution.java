@@ -0,0 +1,39 @@
+package com.logging.rollup;
+
+/**
+ * Bucket width of a rollup cube
+ */
+public enum Resolution {
+
+	SECOND("1s", 1_000), MINUTE("1m", 60_000), HOUR("1h", 3_600_000);
+
+	private final String label;
+	private final long millis;
+
+	Resolution(String label, long millis) {
+		this.label = label;
+		this.millis = millis;
+	}
+
+	public String label() {
+		return label;
+	}
+
+	public long millis() {
+		return millis;
+	}
+
+	/**
+	 * @param label 1s, 1m or 1h
+	 * @return
+	 * @throws IllegalArgumentException for any other label
+	 */
+	public static Resolution parse(String label) {
+		for (Resolution resolution : values()) {
+			if (resolution.label.equals(label)) {
+				return resolution;
+			}
+		}
+		throw new IllegalArgumentException("Unknown resolution: " + label + ", expected 1s, 1m or 1h");
+	}
+}
@@ -0,0 +1,126 @@
+package com.logging.rollup;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts per series over the last <code>slots</code> buckets of one {@link Resolution}, in fixed memory <br/>
+ *
+ * Every series has a ring of int counters, slot <code>bucket mod slots</code>. The bucket a slot currently counts is
+ * kept once for all series: the first log of a newer bucket clears the slot of every series and claims it, logs older
+ * than the ring are dropped. <br/>
+ *
+ * Single writer, concurrent readers. A reader checks the slot's bucket before and after reading it, so a slot cleared
+ * in between is never reported under the old bucket.
+ */
+final class RollupCube {
+
+	private static final long NO_BUCKET = Long.MIN_VALUE;
+
+	private final Resolution resolution;
+	private final int slots;
+	private final AtomicLongArray slotBuckets;
+	private final int[][] counts;
+	private int seriesCount;
+	private volatile long latestBucket = NO_BUCKET;
+
+	RollupCube(Resolution resolution, int slots, int maxSeries) {
+		this.resolution = resolution;
+		this.slots = slots;
+		this.slotBuckets = new AtomicLongArray(slots);
+		for (int slot = 0; slot < slots; slot++) {
+			slotBuckets.set(slot, NO_BUCKET);
+		}
+		this.counts = new int[maxSeries][];
+	}
+
+	Resolution resolution() {
+		return resolution;
+	}
+
+	int slots() {
+		return slots;
+	}
+
+	/**
+	 * @return most recent bucket counted, {@link Long#MIN_VALUE} before the first log
+	 */
+	long latestBucket() {
+		return latestBucket;
+	}
+
+	long bucketOf(long millis) {
+		return Math.floorDiv(millis, resolution.millis());
+	}
+
+	/**
+	 * Allocates the ring of the next series, before the series is published to readers
+	 */
+	void addSeries() {
+		counts[seriesCount++] = new int[slots];
+	}
+
+	/**
+	 * @param series
+	 * @param millis epoch millis of the log
+	 * @return false when the log is older than the ring
+	 */
+	boolean add(int series, long millis) {
+		long bucket = bucketOf(millis);
+		long latest = latestBucket;
+		if (latest != NO_BUCKET && bucket <= latest - slots) {
+			return false;
+		}
+		int slot = (int) Math.floorMod(bucket, (long) slots);
+		if (slotBuckets.get(slot) != bucket) {
+			// Within the ring a different bucket in the slot can only be an older one
+			slotBuckets.set(slot, NO_BUCKET);
+			int[][] rows = counts;
+			for (int i = 0; i < seriesCount; i++) {
+				rows[i][slot] = 0;
+			}
+			slotBuckets.set(slot, bucket);
+		}
+		counts[series][slot]++;
+		if (latest == NO_BUCKET || bucket > latest) {
+			latestBucket = bucket;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the counts of one bucket to the groups of the series
+	 *
+	 * @param bucket
+	 * @param groupOf group index of each series, -1 to skip it
+	 * @param totals  counts by group then by point
+	 * @param point   index of the bucket in totals
+	 * @param scratch one counter per group, left zeroed
+	 */
+	void sum(long bucket, int[] groupOf, long[][] totals, int point, long[] scratch) {
+		int slot = (int) Math.floorMod(bucket, (long) slots);
+		if (slotBuckets.get(slot) != bucket) {
+			return;
+		}
+		int[][] rows = counts;
+		for (int series = 0; series < groupOf.length; series++) {
+			int group = groupOf[series];
+			if (group >= 0) {
+				scratch[group] += rows[series][slot];
+			}
+		}
+		boolean unchanged = slotBuckets.get(slot) == bucket;
+		for (int group = 0; group < scratch.length; group++) {
+			if (unchanged) {
+				totals[group][point] += scratch[group];
+			}
+			scratch[group] = 0;
+		}
+	}
+
+	/**
+	 * @return heap bytes of the counters
+	 */
+	long bytes() {
+		return (long) seriesCount * slots * Integer.BYTES + (long) slots * Long.BYTES;
+	}
+}
@@ -0,0 +1,12 @@
+package com.logging.rollup;
+
+/**
+ * Dimensions a rollup counts logs by, severity in lower case
+ *
+ * @param category    event.category
+ * @param severity
+ * @param hostname
+ * @param blacklisted is.blacklisted
+ */
+record SeriesKey(String category, String severity, String hostname, Boolean blacklisted) {
+}
@@ -0,0 +1,270 @@
+package com.logging.rollup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.logging.codec.InstantText;
+import com.logging.entity.LogEntry;
+import com.logging.model.TimeSeries;
+import com.logging.model.TimeSeriesQuery;
+
+/**
+ * Pre-aggregated log counts for dashboards, per event.category, severity, hostname and is.blacklisted at 1s, 1m and 1h
+ * resolution <br/>
+ *
+ * Each distinct combination of the four dimensions is a series, counted in one {@link RollupCube} per resolution. The
+ * storage writer records every log as it is stored, a query only adds up the counters of the requested buckets, so its
+ * cost depends on the number of series and buckets and not on the number of logs. <br/>
+ *
+ * Memory is fixed: at most <code>maxSeries</code> series of <code>slots</code> int counters per resolution. Logs of
+ * combinations beyond the limit are counted in one overflow series whose dimensions are {@link #OVERFLOW}.
+ */
+public class TimeSeriesRollups {
+
+	public static final int DEFAULT_MAX_SERIES = 1024;
+	public static final int DEFAULT_SECOND_SLOTS = 600;
+	public static final int DEFAULT_MINUTE_SLOTS = 1440;
+	public static final int DEFAULT_HOUR_SLOTS = 720;
+
+	/**
+	 * Dimension value of the overflow series
+	 */
+	public static final String OVERFLOW = "_other";
+
+	/**
+	 * Buckets returned when the query gives no start
+	 */
+	private static final int DEFAULT_POINTS = 60;
+
+	private final int maxSeries;
+	private final RollupCube[] cubes;
+
+	// Series registry: the writer assigns ids, readers see the keys below seriesCount
+	private final Map<SeriesKey, Integer> seriesIds = new HashMap<>();
+	private final SeriesKey[] keys;
+	private volatile int seriesCount;
+	private int overflowSeries = -1;
+	private SeriesKey lastKey;
+	private int lastSeries;
+
+	// Metrics, written by the single writer
+	private volatile long overflowedLogs;
+	private volatile long lateLogs;
+
+	public TimeSeriesRollups() {
+		this(DEFAULT_MAX_SERIES, DEFAULT_SECOND_SLOTS, DEFAULT_MINUTE_SLOTS, DEFAULT_HOUR_SLOTS);
+	}
+
+	/**
+	 * @param maxSeries   distinct dimension combinations counted separately
+	 * @param secondSlots buckets kept at 1s resolution
+	 * @param minuteSlots buckets kept at 1m resolution
+	 * @param hourSlots   buckets kept at 1h resolution
+	 */
+	public TimeSeriesRollups(int maxSeries, int secondSlots, int minuteSlots, int hourSlots) {
+		if (maxSeries < 1 || secondSlots < 1 || minuteSlots < 1 || hourSlots < 1) {
+			throw new IllegalArgumentException("Rollup series and slots must be positive");
+		}
+		this.maxSeries = maxSeries;
+		this.keys = new SeriesKey[maxSeries];
+		this.cubes = new RollupCube[] { new RollupCube(Resolution.SECOND, secondSlots, maxSeries),
+				new RollupCube(Resolution.MINUTE, minuteSlots, maxSeries),
+				new RollupCube(Resolution.HOUR, hourSlots, maxSeries) };
+	}
+
+	/**
+	 * Counts a stored log, single writer only
+	 *
+	 * @param logEntry
+	 * @param millis   epoch millis the log is counted at, logs older than the ring of a resolution are not counted in it
+	 */
+	public void record(LogEntry logEntry, long millis) {
+		int series = seriesOf(logEntry);
+		boolean late = false;
+		for (RollupCube cube : cubes) {
+			late |= !cube.add(series, millis);
+		}
+		if (late) {
+			lateLogs = lateLogs + 1;
+		}
+	}
+
+	private int seriesOf(LogEntry logEntry) {
+		String severity = logEntry.getSeverity() != null ? logEntry.getSeverity().toLowerCase(Locale.ROOT) : null;
+		SeriesKey key = new SeriesKey(logEntry.getEventCategory(), severity, logEntry.getHostname(),
+				logEntry.getIsBlacklisted());
+		// Consecutive logs mostly come from the same source
+		if (key.equals(lastKey)) {
+			return lastSeries;
+		}
+		Integer series = seriesIds.get(key);
+		if (series == null) {
+			series = register(key);
+		}
+		lastKey = key;
+		lastSeries = series;
+		return series;
+	}
+
+	private int register(SeriesKey key) {
+		int count = seriesCount;
+		if (count == maxSeries - 1 || overflowSeries >= 0) {
+			// The last series is kept for the overflow
+			if (overflowSeries < 0) {
+				overflowSeries = addSeries(new SeriesKey(OVERFLOW, OVERFLOW, OVERFLOW, null));
+			}
+			overflowedLogs = overflowedLogs + 1;
+			return overflowSeries;
+		}
+		int series = addSeries(key);
+		seriesIds.put(key, series);
+		return series;
+	}
+
+	private int addSeries(SeriesKey key) {
+		int series = seriesCount;
+		keys[series] = key;
+		for (RollupCube cube : cubes) {
+			cube.addSeries();
+		}
+		seriesCount = series + 1;
+		return series;
+	}
+
+	/**
+	 * Sums the matching series per bucket, split by the grouped dimensions. The range is clipped to the buckets the
+	 * resolution still holds and to as many buckets as it keeps, groups without any log in it are left out.
+	 *
+	 * @param query
+	 * @return
+	 * @throws IllegalArgumentException on an unknown resolution or dimension
+	 */
+	public TimeSeries query(TimeSeriesQuery query) {
+		Resolution resolution = Resolution.parse(query.getResolution() != null ? query.getResolution() : "1m");
+		List<Dimension> groupBy = new ArrayList<>();
+		if (query.getGroupBy() != null) {
+			for (String name : query.getGroupBy()) {
+				groupBy.add(Dimension.parse(name));
+			}
+		}
+		RollupCube cube = cubes[resolution.ordinal()];
+		long latest = cube.latestBucket();
+		if (latest == Long.MIN_VALUE) {
+			return new TimeSeries(resolution.label(), List.of(), List.of());
+		}
+
+		long last = query.getTo() != null ? cube.bucketOf(query.getTo().toEpochMilli() - 1)
+				: Math.max(latest, cube.bucketOf(System.currentTimeMillis()));
+		long first = query.getFrom() != null ? cube.bucketOf(query.getFrom().toEpochMilli())
+				: last - DEFAULT_POINTS + 1;
+		first = Math.max(first, latest - cube.slots() + 1);
+		last = Math.min(last, first + cube.slots() - 1);
+		int points = (int) Math.max(last - first + 1, 0);
+
+		// Group of every matching series
+		int count = seriesCount;
+		int[] groupOf = new int[count];
+		Map<List<Object>, Integer> groups = new LinkedHashMap<>();
+		for (int series = 0; series < count; series++) {
+			SeriesKey key = keys[series];
+			if (!matches(key, query)) {
+				groupOf[series] = -1;
+				continue;
+			}
+			List<Object> values = new ArrayList<>(groupBy.size());
+			for (Dimension dimension : groupBy) {
+				values.add(dimension.valueOf(key));
+			}
+			groupOf[series] = groups.computeIfAbsent(values, k -> groups.size());
+		}
+
+		long[][] totals = new long[groups.size()][points];
+		long[] scratch = new long[groups.size()];
+		for (int point = 0; point < points; point++) {
+			cube.sum(first + point, groupOf, totals, point, scratch);
+		}
+
+		List<TimeSeries.Series> series = new ArrayList<>(groups.size());
+		for (Map.Entry<List<Object>, Integer> group : groups.entrySet()) {
+			Map<String, Object> key = new LinkedHashMap<>();
+			for (int i = 0; i < groupBy.size(); i++) {
+				key.put(groupBy.get(i).label, group.getKey().get(i));
+			}
+			long[] counts = totals[group.getValue()];
+			long total = Arrays.stream(counts).sum();
+			if (total > 0) {
+				series.add(new TimeSeries.Series(key, counts, total));
+			}
+		}
+		series.sort(Comparator.comparingLong(TimeSeries.Series::getTotal).reversed());
+
+		List<String> buckets = new ArrayList<>(points);
+		for (int point = 0; point < points; point++) {
+			buckets.add(InstantText.format((first + point) * resolution.millis()));
+		}
+		return new TimeSeries(resolution.label(), buckets, series);
+	}
+
+	private boolean matches(SeriesKey key, TimeSeriesQuery query) {
+		return (query.getService() == null || query.getService().equals(key.category()))
+				&& (query.getLevel() == null || query.getLevel().equalsIgnoreCase(key.severity()))
+				&& (query.getHostname() == null || query.getHostname().equals(key.hostname()))
+				&& (query.getIsBlacklisted() == null || query.getIsBlacklisted().equals(key.blacklisted()));
+	}
+
+	public Map<String, Object> getMetrics() {
+		long bytes = 0;
+		Map<String, Object> slots = new LinkedHashMap<>();
+		for (RollupCube cube : cubes) {
+			bytes += cube.bytes();
+			slots.put(cube.resolution().label(), cube.slots());
+		}
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("series", seriesCount);
+		metrics.put("maxSeries", maxSeries);
+		metrics.put("slots", slots);
+		metrics.put("bytes", bytes);
+		metrics.put("overflowedLogs", overflowedLogs);
+		metrics.put("lateLogs", lateLogs);
+		return metrics;
+	}
+
+	/**
+	 * Dimensions a query can group by, named after the <code>GET /logs</code> parameters
+	 */
+	private enum Dimension {
+
+		SERVICE("service"), LEVEL("level"), HOSTNAME("hostname"), BLACKLISTED("is.blacklisted");
+
+		private final String label;
+
+		Dimension(String label) {
+			this.label = label;
+		}
+
+		Object valueOf(SeriesKey key) {
+			return switch (this) {
+			case SERVICE -> key.category();
+			case LEVEL -> key.severity();
+			case HOSTNAME -> key.hostname();
+			case BLACKLISTED -> key.blacklisted();
+			};
+		}
+
+		static Dimension parse(String label) {
+			for (Dimension dimension : values()) {
+				if (dimension.label.equals(label)) {
+					return dimension;
+				}
+			}
+			throw new IllegalArgumentException(
+					"Unknown dimension: " + label + ", expected service, level, hostname or is.blacklisted");
+		}
+	}
+}
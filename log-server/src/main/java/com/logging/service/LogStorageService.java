@@ -1,8 +1,17 @@
 package com.logging.service;
 
+import java.util.List;
 import java.util.Map;
 
 import com.logging.entity.LogEntry;
+import com.logging.ingest.IngestCredit;
+import com.logging.ingest.IngestOffer;
+import com.logging.model.AggregateQuery;
+import com.logging.model.AggregateResult;
+import com.logging.model.LogQuery;
+import com.logging.model.LogRecord;
+import com.logging.model.TimeSeries;
+import com.logging.model.TimeSeriesQuery;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -10,20 +19,64 @@ import reactor.core.publisher.Mono;
 public interface LogStorageService {
 
 	/**
-	 * Ingest log to in memory log store
+	 * Ingest log to in memory log store. Completes once the log is accepted, it is stored asynchronously.
 	 * 
 	 * @param logEntry
-	 * @return
+	 * @return ingest position right after the log, for {@link #awaitQuorum(long)}, an
+	 *         {@link com.logging.ingest.IngestRejectedException} when the ingest buffer is full, a
+	 *         {@link com.logging.replication.NotLeaderException} on a replication follower
+	 */
+	Mono<Long> ingestLog(LogEntry logEntry);
+
+	/**
+	 * Ingest a batch of logs with a single hand-off to the storage writer. Entries are accepted in order until the
+	 * buffer is full, the remaining suffix is not stored and can be resubmitted by the caller.
+	 * 
+	 * @param logEntries
+	 * @return number of entries accepted, a prefix of logEntries, and the ingest position right after them, a
+	 *         {@link com.logging.replication.NotLeaderException} on a replication follower
 	 */
-	Mono<Void> ingestLog(LogEntry logEntry);
+	Mono<IngestOffer> ingestBatch(List<LogEntry> logEntries);
+
+	/**
+	 * Completes once the logs up to an ingest position are stored by the replication quorum, see
+	 * {@link com.logging.replication.ReplicationSettings#quorum()}. Completes right away without replication or with a
+	 * quorum of 1.
+	 * 
+	 * @param ingestPosition returned by {@link #ingestLog(LogEntry)} or {@link #ingestBatch(List)}, the request's own
+	 *                       logs rather than everything accepted since
+	 * @return a {@link com.logging.replication.QuorumTimeoutException} when the quorum does not acknowledge them in
+	 *         time, they are stored on this node nonetheless
+	 */
+	Mono<Void> awaitQuorum(long ingestPosition);
 
 	/**
 	 * Query logs with filters
 	 * 
 	 * Supported filters: - service: event.category (e.g., linux_login, windows_logout) - level: severity (e.g., error,
-	 * warn, info) - username: username field - is.blacklisted: boolean
+	 * warn, info) - username: username field - is.blacklisted: boolean - from / to: timestamp range
+	 * 
+	 * Options: - limit: max results - sort: sort field (timestamp) - order: asc (default) or desc
 	 * 
-	 * Options: - limit: max results - sort: sort field (timestamp)
+	 * @param query
+	 * @return matching logs, in timestamp order when sorted, otherwise in storage order
+	 */
+	default Flux<LogEntry> queryLogs(LogQuery query) {
+		return queryRecords(query).map(LogRecord::getEntry);
+	}
+
+	/**
+	 * Query logs, each result carrying the cursor that resumes the query after it. Passing the cursor of the last
+	 * result of a page in {@link LogQuery#setCursor(Long)} returns the next page without re-running the query from the
+	 * start.
+	 * 
+	 * @param query
+	 * @return matching logs with their cursors, in result order
+	 */
+	Flux<LogRecord> queryRecords(LogQuery query);
+
+	/**
+	 * Query logs with filters, see {@link #queryLogs(LogQuery)}
 	 * 
 	 * @param service
 	 * @param level
@@ -33,20 +86,69 @@ public interface LogStorageService {
 	 * @param sort
 	 * @return
 	 */
-	Flux<LogEntry> queryLogs(String service, String level, String username, Boolean isBlacklisted, Integer limit,
-			String sort);
+	default Flux<LogEntry> queryLogs(String service, String level, String username, Boolean isBlacklisted,
+			Integer limit, String sort) {
+		LogQuery query = new LogQuery();
+		query.setService(service);
+		query.setLevel(level);
+		query.setUsername(username);
+		query.setIsBlacklisted(isBlacklisted);
+		query.setLimit(limit);
+		query.setSort(sort);
+		return queryLogs(query);
+	}
 
 	/**
-	 * get metrics like -> totalLogsReceived, logsBySeverity and logsByCategory
+	 * Log counts per time bucket, answered from the rollups maintained at ingest without reading any log
 	 * 
-	 * @return
+	 * @param query
+	 * @return counts per bucket of each group of the grouped dimensions
 	 */
-	Mono<Map<String, Object>> getMetrics();
+	Mono<TimeSeries> queryTimeSeries(TimeSeriesQuery query);
+
+	/**
+	 * Counts, distinct counts and most frequent values of the logs matching the filters, per group of the grouped
+	 * fields, computed by a parallel scan of the matching logs
+	 * 
+	 * @param query
+	 * @return groups with the largest count first
+	 */
+	Mono<AggregateResult> aggregate(AggregateQuery query);
+
+	/**
+	 * Applies the retention policy now, evicting whole chunks from the oldest one. Also runs periodically in the
+	 * background.
+	 * 
+	 * @return number of logs evicted
+	 */
+	long enforceRetention();
 
 	/**
+	 * get metrics like -> totalLogsReceived, logsBySeverity, logsByCategory, latency histograms and the evicted and
+	 * retained volume
 	 * 
 	 * @return
 	 */
+	Mono<Map<String, Object>> getMetrics();
+
+	/**
+	 * @return logs that can be ingested right now, advertised to clients with every ingest response
+	 */
+	IngestCredit ingestCredit();
+
+	/**
+	 * Waits until every log accepted so far is stored and indexed, or dropped on a storage failure. Blocks the caller.
+	 */
+	void flush();
+
+	/**
+	 * Clears the latency histograms, so that a load test only measures its own run
+	 */
+	void resetLatencyMetrics();
+
+	/**
+	 * @return logs stored and not evicted by retention
+	 */
 	long getTotalLogs();
 
 }
@@ -1,129 +1,602 @@
 package com.logging.service.impl;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.stereotype.Service;
 
+import com.logging.aggregate.Aggregator;
 import com.logging.entity.LogEntry;
+import com.logging.ingest.IngestCredit;
+import com.logging.ingest.IngestOffer;
+import com.logging.ingest.IngestPipeline;
+import com.logging.ingest.IngestRejectedException;
+import com.logging.ingest.IngestSettings;
+import com.logging.index.LogIndex;
+import com.logging.index.TimeIndex;
+import com.logging.metrics.CounterGroup;
+import com.logging.metrics.LatencyHistogram;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.model.AggregateQuery;
+import com.logging.model.AggregateResult;
+import com.logging.model.LogQuery;
+import com.logging.model.LogRecord;
+import com.logging.model.TimeSeries;
+import com.logging.model.TimeSeriesQuery;
+import com.logging.replication.NotLeaderException;
+import com.logging.replication.Replication;
+import com.logging.replication.ReplicationFollower;
+import com.logging.replication.ReplicationLeader;
+import com.logging.replication.ReplicationSettings;
+import com.logging.rollup.TimeSeriesRollups;
 import com.logging.service.LogStorageService;
+import com.logging.storage.FilterScan;
+import com.logging.storage.LogStore;
+import com.logging.storage.RetentionPolicy;
+import com.logging.storage.StoredChunk;
 
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 import reactor.core.scheduler.Scheduler;
 
+@Slf4j
 @Service
-public class LogStorageServiceImpl implements LogStorageService {
+public class LogStorageServiceImpl implements LogStorageService, AutoCloseable {
 
-	// Thread-safe in-memory storage
-	private final Queue<LogEntry> logStore = new ConcurrentLinkedQueue<>();
+	// Smallest range of entries aggregated by a parallel partition
+	private static final long AGGREGATE_PARTITION_ENTRIES = 1 << 16;
+
+	// Storage engine, appended to by the storage writer only
+	private final LogStore logStore;
+
+	// Inverted indexes on the query filters, maintained with every append
+	private final LogIndex logIndex;
+
+	// Appends and evictions both write the store and the indexes, which take a single writer at a time
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	private final RetentionPolicy retentionPolicy;
+	private final ScheduledExecutorService retentionExecutor;
+	private volatile long evictedChunks;
+	private volatile long evictedEntries;
+	private volatile long evictedBytes;
 
 	private final Scheduler logProcessingScheduler;
 
-	// Metrics counters
-	private final AtomicLong totalLogsReceived = new AtomicLong(0);
-	private final Map<String, AtomicLong> categoryMetrics = new HashMap<>();
-	private final Map<String, AtomicLong> severityMetrics = new HashMap<>();
+	// Metrics, read concurrently. The log counters cover the retained logs and move under the write lock with the
+	// chunk counts.
+	private final MetricsRegistry metricsRegistry;
+	private final LongAdder totalLogsReceived;
+	private final CounterGroup categoryMetrics;
+	private final CounterGroup severityMetrics;
+
+	// Counts of each chunk of the store from the oldest, the last one being appended to, under the write lock. They are
+	// taken off the log counters when their chunk is evicted.
+	private final ArrayDeque<ChunkCounts> chunkCounts = new ArrayDeque<>();
+	private final LatencyHistogram appendLatency;
+
+	// Send to store latency of the logs carrying a sent.at timestamp
+	private final LatencyHistogram endToEndLatency;
+
+	// Per minute style counts for dashboards, recorded once the logs are counted
+	private final TimeSeriesRollups rollups;
+
+	// Ring buffer from the request threads to the storage writer thread, started once recovery is done
+	private final IngestPipeline<LogEntry> ingestPipeline;
 
-	// Event-driven approach: sink for reactive streams
-	private final Sinks.Many<LogEntry> logSink = Sinks.many().multicast().onBackpressureBuffer(1000); // Backpressure
-																										// with bounded
-																										// buffer
+	// Leader or follower side of replication, null when standalone
+	private final Replication replication;
 
-	public LogStorageServiceImpl(Scheduler logProcessingScheduler) {
+	public LogStorageServiceImpl(Scheduler logProcessingScheduler, LogStore logStore, MetricsRegistry metricsRegistry,
+			RetentionPolicy retentionPolicy, TimeSeriesRollups rollups, IngestSettings ingestSettings,
+			ReplicationSettings replicationSettings) {
 		this.logProcessingScheduler = logProcessingScheduler;
-		initializeSink();
+		this.logStore = logStore;
+		this.retentionPolicy = retentionPolicy;
+		this.rollups = rollups;
+		// Engines that scan their columns answer the filters themselves
+		this.logIndex = logStore instanceof FilterScan filterScan ? new LogIndex(filterScan) : new LogIndex();
+		this.metricsRegistry = metricsRegistry;
+		this.totalLogsReceived = metricsRegistry.counter("totalLogsReceived");
+		this.categoryMetrics = metricsRegistry.counterGroup("logsByCategory");
+		this.severityMetrics = metricsRegistry.counterGroup("logsBySeverity");
+		this.appendLatency = metricsRegistry.histogram("storageAppend", TimeUnit.NANOSECONDS);
+		this.endToEndLatency = metricsRegistry.histogram("endToEnd", TimeUnit.MICROSECONDS);
+		recover();
+		this.ingestPipeline = new IngestPipeline<>("log-storage-writer", ingestSettings, this::processAndStore);
+		// Once the pipeline runs, a follower stores what it is shipped through it
+		this.replication = switch (replicationSettings.role()) {
+		case LEADER -> new ReplicationLeader(replicationSettings, logStore, metricsRegistry);
+		case FOLLOWER -> new ReplicationFollower(replicationSettings, logStore.nextSequence(), this::applyReplicated);
+		case STANDALONE -> null;
+		};
+
+		if (retentionPolicy.isLimited() && retentionPolicy.checkIntervalMs() > 0) {
+			retentionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "log-retention");
+				thread.setDaemon(true);
+				return thread;
+			});
+			retentionExecutor.scheduleWithFixedDelay(this::enforceRetention, retentionPolicy.checkIntervalMs(),
+					retentionPolicy.checkIntervalMs(), TimeUnit.MILLISECONDS);
+		} else {
+			retentionExecutor = null;
+		}
+	}
+
+	/**
+	 * Rebuilds the counters and indexes from entries a durable store recovered on startup
+	 */
+	private void recover() {
+		for (StoredChunk chunk : logStore.sealedChunks()) {
+			chunkCounts.addLast(new ChunkCounts(chunk.firstSequence()));
+		}
+		chunkCounts.addLast(new ChunkCounts(logStore.activeChunkStart()));
+		Iterator<ChunkCounts> chunks = chunkCounts.iterator();
+		ChunkCounts counts = chunks.next();
+		ChunkCounts next = chunks.hasNext() ? chunks.next() : null;
+
+		long sequence = logStore.firstSequence();
+		Iterator<LogEntry> entries = logStore.iterator(sequence);
+		while (entries.hasNext()) {
+			LogEntry logEntry = entries.next();
+			while (next != null && sequence >= next.firstSequence) {
+				counts = next;
+				next = chunks.hasNext() ? chunks.next() : null;
+			}
+			if (logEntry != null) {
+				logIndex.add(sequence, logEntry);
+				count(counts, logEntry);
+				recordRollup(logEntry);
+			}
+			sequence++;
+		}
+		if (totalLogsReceived.sum() > 0) {
+			log.info("Recovered {} logs from storage", totalLogsReceived.sum());
+		}
 	}
 
-	private void initializeSink() {
-		// Subscribe to the sink and process logs asynchronously
-		logSink.asFlux().publishOn(logProcessingScheduler).subscribe(this::processAndStore);
+	/**
+	 * Publishes to the ring buffer on the calling thread, without waiting for the log to be stored
+	 */
+	@Override
+	public Mono<Long> ingestLog(LogEntry logEntry) {
+		return Mono.fromCallable(() -> {
+			if (replication != null && !replication.acceptsIngest()) {
+				throw new NotLeaderException();
+			}
+			IngestOffer offer = ingestPipeline.offer(List.of(logEntry));
+			if (offer.accepted() == 0) {
+				// Backpressure: the storage writer is a full ring behind
+				throw new IngestRejectedException();
+			}
+			return offer.position();
+		});
 	}
 
+	/**
+	 * Claims slots for the whole batch at once on the calling thread, or for the prefix that fits
+	 */
 	@Override
-	public Mono<Void> ingestLog(LogEntry logEntry) {
-		return Mono.fromRunnable(() -> {
-			// Non-blocking emit with overflow handling
-			Sinks.EmitResult result = logSink.tryEmitNext(logEntry);
-
-			if (result.isFailure()) {
-				if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
-					// Backpressure: queue is full
-					throw new RuntimeException("Log buffer overflow - backpressure activated");
+	public Mono<IngestOffer> ingestBatch(List<LogEntry> logEntries) {
+		return Mono.fromCallable(() -> {
+			if (replication != null && !replication.acceptsIngest()) {
+				throw new NotLeaderException();
+			}
+			return ingestPipeline.offer(logEntries);
+		});
+	}
+
+	@Override
+	public Mono<Void> awaitQuorum(long ingestPosition) {
+		return replication != null ? replication.awaitQuorum(ingestPosition) : Mono.empty();
+	}
+
+	/**
+	 * Hands the entries shipped by the leader to the storage writer, waiting for room in the ring rather than having
+	 * them rejected.
+	 *
+	 * @return ingest position right after the last entry
+	 */
+	private long applyReplicated(List<LogEntry> logEntries) throws InterruptedException {
+		int offered = 0;
+		long position = ingestPipeline.accepted();
+		while (offered < logEntries.size()) {
+			long credit = ingestPipeline.credit().credit();
+			if (credit == 0) {
+				LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
 				}
+				continue;
+			}
+			int count = (int) Math.min(credit, logEntries.size() - offered);
+			IngestOffer offer = ingestPipeline.offer(logEntries.subList(offered, offered + count));
+			if (offer.accepted() == 0) {
+				throw new IllegalStateException("Storage writer closed");
 			}
-		}).subscribeOn(logProcessingScheduler).then();
+			offered += offer.accepted();
+			position = offer.position();
+		}
+		return position;
 	}
 
-	private void processAndStore(LogEntry logEntry) {
-		// Store the log
-		logStore.add(logEntry);
+	/**
+	 * Stores a batch drained from the ring buffer on the storage writer thread, with one hold of the write lock
+	 * 
+	 * @return number of logs stored, a failed append only loses its own log
+	 */
+	private int processAndStore(List<LogEntry> logEntries) {
+		boolean[] stored = new boolean[logEntries.size()];
+		int count = 0;
+		long nextSequence;
+		writeLock.lock();
+		try {
+			for (int i = 0; i < stored.length; i++) {
+				LogEntry logEntry = logEntries.get(i);
+				try {
+					long start = System.nanoTime();
+					long sequence = logStore.append(logEntry);
+					appendLatency.recordSince(start);
+					logIndex.add(sequence, logEntry);
+					count(countsOf(sequence), logEntry);
+					stored[i] = true;
+					count++;
+				} catch (RuntimeException e) {
+					log.error("Failed to store log: {}", e.getMessage());
+				}
+			}
+			nextSequence = logStore.nextSequence();
+		} finally {
+			writeLock.unlock();
+		}
 
-		// Update metrics
-		totalLogsReceived.incrementAndGet();
+		long now = LatencyHistogram.currentTimeMicros();
+		for (int i = 0; i < stored.length; i++) {
+			LogEntry logEntry = logEntries.get(i);
+			if (stored[i]) {
+				recordRollup(logEntry);
+				if (logEntry.getSentAt() != null) {
+					endToEndLatency.record(now - logEntry.getSentAt());
+				}
+			}
+		}
+		// Acknowledged once counted too, so that a read after the ack sees them everywhere
+		if (replication != null) {
+			replication.onStored(ingestPipeline.drained() + logEntries.size(), nextSequence);
+		}
+		return count;
+	}
 
-		if (logEntry.getEventCategory() != null) {
-			categoryMetrics.computeIfAbsent(logEntry.getEventCategory(), k -> new AtomicLong(0)).incrementAndGet();
+	/**
+	 * @param sequence just appended, under the write lock
+	 * @return counts of the chunk holding it
+	 */
+	private ChunkCounts countsOf(long sequence) {
+		long activeStart = logStore.activeChunkStart();
+		ChunkCounts active = chunkCounts.peekLast();
+		if (active == null || active.firstSequence < activeStart) {
+			// The append sealed the chunk, before or after the entry depending on the engine
+			chunkCounts.addLast(new ChunkCounts(activeStart));
+		}
+		Iterator<ChunkCounts> newest = chunkCounts.descendingIterator();
+		ChunkCounts counts = newest.next();
+		while (counts.firstSequence > sequence && newest.hasNext()) {
+			counts = newest.next();
 		}
+		return counts;
+	}
+
+	/**
+	 * Counts a stored log in its chunk and in the totals at once, under the write lock, so that retention never takes
+	 * a chunk's counts off totals that do not hold them yet
+	 */
+	private void count(ChunkCounts counts, LogEntry logEntry) {
+		counts.add(logEntry);
+		totalLogsReceived.increment();
+		categoryMetrics.increment(logEntry.getEventCategory());
+		severityMetrics.increment(severityLabel(logEntry));
+	}
+
+	private void recordRollup(LogEntry logEntry) {
+		// Logs without a timestamp, or stamped ahead of the server clock, are counted as of now
+		long now = System.currentTimeMillis();
+		long timestamp = TimeIndex.parseMillis(logEntry.getTimestamp());
+		rollups.record(logEntry, timestamp != TimeIndex.UNKNOWN ? Math.min(timestamp, now) : now);
+	}
 
-		if (logEntry.getSeverity() != null) {
-			severityMetrics.computeIfAbsent(logEntry.getSeverity().toLowerCase(), k -> new AtomicLong(0))
-					.incrementAndGet();
+	/**
+	 * Evicts the oldest chunks the retention policy no longer keeps, one chunk per hold of the write lock so that
+	 * ingestion only ever waits for a single eviction. Runs every checkIntervalMs on the retention thread.
+	 */
+	@Override
+	public long enforceRetention() {
+		long evicted = 0;
+		while (true) {
+			writeLock.lock();
+			try {
+				StoredChunk oldest = logStore.oldestChunk();
+				long retained = logStore.nextSequence() - logStore.firstSequence();
+				if (oldest == null || !retentionPolicy.evicts(oldest, retained, logStore.storedBytes(),
+						System.currentTimeMillis())) {
+					break;
+				}
+				logStore.evictOldestChunk();
+				logIndex.trim(logStore.firstSequence());
+				while (chunkCounts.size() > 1 && chunkCounts.peekFirst().firstSequence < oldest.nextSequence()) {
+					ChunkCounts counts = chunkCounts.removeFirst();
+					totalLogsReceived.add(-counts.entries);
+					counts.categories.forEach((category, count) -> categoryMetrics.add(category, -count));
+					counts.severities.forEach((severity, count) -> severityMetrics.add(severity, -count));
+				}
+				evictedChunks = evictedChunks + 1;
+				evictedEntries = evictedEntries + oldest.entries();
+				evictedBytes = evictedBytes + oldest.bytes();
+				evicted += oldest.entries();
+			} catch (RuntimeException e) {
+				log.error("Failed to enforce retention: {}", e.getMessage());
+				break;
+			} finally {
+				writeLock.unlock();
+			}
 		}
+		if (evicted > 0) {
+			log.debug("Retention evicted {} logs, first stored sequence is now {}", evicted, logStore.firstSequence());
+		}
+		return evicted;
 	}
 
 	@Override
-	public Flux<LogEntry> queryLogs(String service, String level, String username, Boolean isBlacklisted, Integer limit,
-			String sort) {
-		return Flux.fromIterable(logStore).filter(log -> service == null || service.equals(log.getEventCategory()))
-				.filter(log -> level == null || level.equalsIgnoreCase(log.getSeverity()))
-				.filter(log -> username == null || username.equals(log.getUsername()))
-				.filter(log -> isBlacklisted == null || isBlacklisted.equals(log.getIsBlacklisted())).sort((l1, l2) -> {
-					if ("timestamp".equals(sort)) {
-						return compareTimestamps(l1.getTimestamp(), l2.getTimestamp());
+	public Flux<LogRecord> queryRecords(LogQuery query) {
+		return Flux.defer(() -> {
+			// Filters, time range and ordering are answered by the indexes, only results are read from the store
+			PrimitiveIterator.OfLong matches = logIndex.find(query);
+			Long cursor = query.getCursor();
+			Flux<LogRecord> records = matches == null
+					? Flux.fromIterable(() -> scan(cursor != null ? cursor + 1 : logStore.firstSequence()))
+					: Flux.fromIterable(() -> read(matches));
+			return records.take(query.getLimit() != null ? query.getLimit() : Long.MAX_VALUE);
+		}).subscribeOn(logProcessingScheduler);
+	}
+
+	/**
+	 * Every stored entry in storage order, skipping the ones evicted during the scan
+	 */
+	private Iterator<LogRecord> scan(long fromSequence) {
+		long start = Math.max(fromSequence, logStore.firstSequence());
+		Iterator<LogEntry> entries = logStore.iterator(start);
+		return new Iterator<>() {
+
+			private long sequence = start;
+			private LogRecord next = advance();
+
+			private LogRecord advance() {
+				while (entries.hasNext()) {
+					LogEntry logEntry = entries.next();
+					long current = sequence++;
+					if (logEntry != null) {
+						return new LogRecord(logEntry, current);
 					}
-					return 0;
-				}).take(limit != null ? limit : Long.MAX_VALUE).subscribeOn(logProcessingScheduler);
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public LogRecord next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				LogRecord current = next;
+				next = advance();
+				return current;
+			}
+		};
 	}
 
-	private int compareTimestamps(String t1, String t2) {
-		if (t1 == null && t2 == null) {
-			return 0;
-		}
-		if (t1 == null) {
-			return 1;
-		}
-		if (t2 == null) {
-			return -1;
-		}
-		return t1.compareTo(t2);
+	/**
+	 * Resolves sequences lazily against the store, skipping entries that are no longer stored
+	 */
+	private Iterator<LogRecord> read(PrimitiveIterator.OfLong sequences) {
+		return new Iterator<>() {
+
+			private LogRecord next = advance();
+
+			private LogRecord advance() {
+				while (sequences.hasNext()) {
+					long sequence = sequences.nextLong();
+					LogEntry logEntry = logStore.read(sequence);
+					if (logEntry != null) {
+						return new LogRecord(logEntry, sequence);
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public LogRecord next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				LogRecord current = next;
+				next = advance();
+				return current;
+			}
+		};
 	}
 
 	@Override
 	public Mono<Map<String, Object>> getMetrics() {
 		return Mono.fromCallable(() -> {
-			Map<String, Object> metrics = new HashMap<>();
-			metrics.put("totalLogsReceived", totalLogsReceived.get());
+			Map<String, Object> metrics = new HashMap<>(metricsRegistry.snapshot());
+			metrics.put("storage", logStore.getMetrics());
+			metrics.put("index", logIndex.getMetrics());
+			metrics.put("retention", getRetentionMetrics());
+			metrics.put("rollups", rollups.getMetrics());
+			metrics.put("ingest", ingestPipeline.getMetrics());
+			metrics.put("replication", replication != null ? replication.getMetrics()
+					: Map.of("role", ReplicationSettings.Role.STANDALONE.label()));
 
-			Map<String, Long> categoryMap = categoryMetrics.entrySet().stream()
-					.collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().get()));
-			metrics.put("logsByCategory", categoryMap);
+			return metrics;
+		}).subscribeOn(logProcessingScheduler);
+	}
 
-			Map<String, Long> severityMap = severityMetrics.entrySet().stream()
-					.collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().get()));
-			metrics.put("logsBySeverity", severityMap);
+	@Override
+	public Mono<TimeSeries> queryTimeSeries(TimeSeriesQuery query) {
+		return Mono.fromCallable(() -> rollups.query(query)).subscribeOn(logProcessingScheduler);
+	}
 
-			return metrics;
+	/**
+	 * Splits the stored range into up to one partition per core, of at least {@value #AGGREGATE_PARTITION_ENTRIES}
+	 * entries, aggregates them in parallel on the processing scheduler and merges the partials
+	 */
+	@Override
+	public Mono<AggregateResult> aggregate(AggregateQuery query) {
+		return Mono.fromCallable(() -> new Aggregator(query)).flatMap(aggregator -> {
+			LogQuery filters = query.toLogQuery();
+			long first = logStore.firstSequence();
+			long end;
+			// Entries below the end are indexed too
+			writeLock.lock();
+			try {
+				end = logStore.nextSequence();
+			} finally {
+				writeLock.unlock();
+			}
+			int partitions = Math.clamp((end - first) / AGGREGATE_PARTITION_ENTRIES, 1,
+					Runtime.getRuntime().availableProcessors());
+			long span = (end - first + partitions - 1) / partitions;
+			return Flux.range(0, partitions).parallel(partitions).runOn(logProcessingScheduler)
+					.map(partition -> aggregate(aggregator, filters, first + partition * span,
+							Math.min(end, first + (partition + 1) * span)))
+					.reduce(Aggregator.Partial::merge).map(partial -> aggregator.result(partial, partitions));
 		}).subscribeOn(logProcessingScheduler);
 	}
 
+	private Aggregator.Partial aggregate(Aggregator aggregator, LogQuery filters, long fromSequence, long toSequence) {
+		Aggregator.Partial partial = aggregator.newPartial();
+		PrimitiveIterator.OfLong matches = logIndex.match(filters, fromSequence, toSequence);
+		if (matches == null) {
+			// Every entry of the range, read in storage order
+			long sequence = Math.max(fromSequence, logStore.firstSequence());
+			Iterator<LogEntry> entries = logStore.iterator(sequence);
+			for (; sequence < toSequence && entries.hasNext(); sequence++) {
+				LogEntry logEntry = entries.next();
+				if (logEntry != null) {
+					partial.add(logEntry);
+				}
+			}
+			return partial;
+		}
+		while (matches.hasNext()) {
+			LogEntry logEntry = logStore.read(matches.nextLong());
+			if (logEntry != null) {
+				partial.add(logEntry);
+			}
+		}
+		return partial;
+	}
+
+	/**
+	 * Evicted volume since startup and the volume retained now. The log counters (totalLogsReceived, logsByCategory,
+	 * logsBySeverity) drop the logs of every evicted chunk.
+	 */
+	private Map<String, Object> getRetentionMetrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("maxAgeMs", retentionPolicy.maxAgeMs());
+		metrics.put("maxEntries", retentionPolicy.maxEntries());
+		metrics.put("maxBytes", retentionPolicy.maxBytes());
+		metrics.put("evictedChunks", evictedChunks);
+		metrics.put("evictedEntries", evictedEntries);
+		metrics.put("evictedBytes", evictedBytes);
+		metrics.put("retainedEntries", logStore.nextSequence() - logStore.firstSequence());
+		metrics.put("retainedBytes", logStore.storedBytes());
+		metrics.put("firstSequence", logStore.firstSequence());
+		return metrics;
+	}
+
+	@Override
+	public IngestCredit ingestCredit() {
+		return ingestPipeline.credit();
+	}
+
+	@Override
+	public void flush() {
+		ingestPipeline.flush();
+	}
+
+	@Override
+	public void resetLatencyMetrics() {
+		metricsRegistry.resetHistograms();
+	}
+
 	@Override
 	public long getTotalLogs() {
-		return totalLogsReceived.get();
+		return totalLogsReceived.sum();
+	}
+
+	/**
+	 * Stops replicating, stores the logs already accepted, then stops the storage writer and the retention task
+	 */
+	@Override
+	public void close() {
+		if (replication != null) {
+			replication.close();
+		}
+		ingestPipeline.close();
+		if (retentionExecutor != null) {
+			retentionExecutor.shutdown();
+		}
+	}
+
+	private static String severityLabel(LogEntry logEntry) {
+		return logEntry.getSeverity() != null ? logEntry.getSeverity().toLowerCase() : null;
+	}
+
+	/**
+	 * Logs of one store chunk per category and severity, labelled like the counters
+	 */
+	private static final class ChunkCounts {
+
+		private final long firstSequence;
+		private long entries;
+		private final Map<String, Long> categories = new HashMap<>();
+		private final Map<String, Long> severities = new HashMap<>();
+
+		ChunkCounts(long firstSequence) {
+			this.firstSequence = firstSequence;
+		}
+
+		void add(LogEntry logEntry) {
+			entries++;
+			if (logEntry.getEventCategory() != null) {
+				categories.merge(logEntry.getEventCategory(), 1L, Long::sum);
+			}
+			String severity = severityLabel(logEntry);
+			if (severity != null) {
+				severities.merge(severity, 1L, Long::sum);
+			}
+		}
 	}
 }
@@ -0,0 +1,579 @@
+package com.logging.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+import com.logging.codec.InstantText;
+import com.logging.entity.LogEntry;
+
+/**
+ * Storage engine keeping every field in its own off-heap column <br/>
+ *
+ * Rows are grouped in chunks of <code>chunkRows</code>, each chunk a single direct buffer laid out column after column:
+ * timestamp millis, receivedAt nanos, sentAt, message address, the category, source type, username, hostname and
+ * severity codes of a {@link LogDictionary}, message length and flags, 57 bytes per row. Raw messages are UTF-8 in
+ * direct pages of <code>pageBytes</code>. The heap holds the buffer objects and the dictionaries, not the rows, so GC
+ * cost does not grow with retention; capacity is bound by <code>-XX:MaxDirectMemorySize</code>. <br/>
+ *
+ * The single writer fills a row and publishes it with the volatile write of {@link #nextSequence}. {@link #scan}
+ * answers filters by comparing the code and flag columns 64 rows per bitmap word, branch free, and a {@link LogEntry}
+ * is only built for the rows that are read. Entries are lost on restart. <br/>
+ *
+ * Retention evicts a chunk at a time, with the message pages only its rows used. The buffers are released to the
+ * garbage collector, which frees the direct memory.
+ */
+public class ColumnarLogStore implements LogStore, FilterScan {
+
+	public static final int DEFAULT_CHUNK_ROWS = 1 << 16;
+	public static final int DEFAULT_PAGE_BYTES = 4 * 1024 * 1024;
+
+	private static final long NOT_CANONICAL = InstantText.NOT_CANONICAL;
+
+	// Flags column
+	private static final byte BLACKLIST_SET = 1;
+	private static final byte BLACKLISTED = 2;
+	private static final byte SENT_AT = 4;
+
+	// Message length column of messages that are not in the pages
+	private static final int NULL_MESSAGE = -1;
+	private static final int OVERSIZED_MESSAGE = -2;
+
+	/**
+	 * Rows compared per scan step, one bit each
+	 */
+	private static final int SCAN_ROWS = 4096;
+
+	private final int chunkShift;
+	private final int chunkMask;
+	private final int pageBytes;
+
+	// Byte offset of each column in a chunk
+	private final int timestampColumn;
+	private final int receivedAtColumn;
+	private final int sentAtColumn;
+	private final int messageAddressColumn;
+	private final int categoryColumn;
+	private final int sourceTypeColumn;
+	private final int usernameColumn;
+	private final int hostnameColumn;
+	private final int severityColumn;
+	private final int messageLengthColumn;
+	private final int flagsColumn;
+	private final int chunkBytes;
+
+	private volatile ByteBuffer[] chunks = new ByteBuffer[16];
+	private volatile ByteBuffer[] pages = new ByteBuffer[16];
+	private volatile long firstSequence = 0;
+	private volatile long nextSequence = 0;
+
+	private final LogDictionary dictionary = new LogDictionary();
+
+	// Rare values kept on the heap by sequence: timestamps that are not canonical, messages larger than a page
+	private final Map<Long, String> timestampTexts = new ConcurrentHashMap<>();
+	private final Map<Long, String> receivedAtTexts = new ConcurrentHashMap<>();
+	private final Map<Long, String> oversizedMessages = new ConcurrentHashMap<>();
+
+	// Writer position in the message pages
+	private int pageCount = 0;
+	private int pagePosition = 0;
+	private volatile long messageBytes;
+
+	// Full chunks, the oldest first, the first page each chunk may use and the pages already evicted
+	private final ArrayDeque<StoredChunk> storedChunks = new ArrayDeque<>();
+	private int[] chunkFirstPages = new int[16];
+	private int evictedPages = 0;
+	private long activeMessageBytes;
+	private volatile long offHeapBytes;
+
+	public ColumnarLogStore() {
+		this(DEFAULT_CHUNK_ROWS, DEFAULT_PAGE_BYTES);
+	}
+
+	/**
+	 * @param chunkRows rows per chunk, a power of two from 64 to 4M
+	 * @param pageBytes size of a message page, larger messages are kept on the heap
+	 */
+	public ColumnarLogStore(int chunkRows, int pageBytes) {
+		if (Integer.bitCount(chunkRows) != 1 || chunkRows < 64 || chunkRows > 1 << 22) {
+			throw new IllegalArgumentException("Chunk rows must be a power of two from 64 to " + (1 << 22));
+		}
+		if (pageBytes < 1024) {
+			throw new IllegalArgumentException("Page bytes must be at least 1024");
+		}
+		this.chunkShift = Integer.numberOfTrailingZeros(chunkRows);
+		this.chunkMask = chunkRows - 1;
+		this.pageBytes = pageBytes;
+
+		int offset = 0;
+		timestampColumn = offset;
+		offset += Long.BYTES * chunkRows;
+		receivedAtColumn = offset;
+		offset += Long.BYTES * chunkRows;
+		sentAtColumn = offset;
+		offset += Long.BYTES * chunkRows;
+		messageAddressColumn = offset;
+		offset += Long.BYTES * chunkRows;
+		categoryColumn = offset;
+		offset += Integer.BYTES * chunkRows;
+		sourceTypeColumn = offset;
+		offset += Integer.BYTES * chunkRows;
+		usernameColumn = offset;
+		offset += Integer.BYTES * chunkRows;
+		hostnameColumn = offset;
+		offset += Integer.BYTES * chunkRows;
+		severityColumn = offset;
+		offset += Integer.BYTES * chunkRows;
+		messageLengthColumn = offset;
+		offset += Integer.BYTES * chunkRows;
+		flagsColumn = offset;
+		offset += chunkRows;
+		chunkBytes = offset;
+	}
+
+	@Override
+	public long append(LogEntry logEntry) {
+		long sequence = nextSequence;
+		int chunkIndex = (int) (sequence >>> chunkShift);
+
+		ByteBuffer[] current = chunks;
+		if (chunkIndex == current.length) {
+			current = Arrays.copyOf(current, current.length * 2);
+			chunks = current;
+		}
+		ByteBuffer chunk = current[chunkIndex];
+		if (chunk == null) {
+			chunk = ByteBuffer.allocateDirect(chunkBytes).order(ByteOrder.nativeOrder());
+			current[chunkIndex] = chunk;
+			if (chunkIndex == chunkFirstPages.length) {
+				chunkFirstPages = Arrays.copyOf(chunkFirstPages, chunkIndex * 2);
+			}
+			// The first message of the chunk goes to the current page at the earliest
+			chunkFirstPages[chunkIndex] = Math.max(pageCount - 1, 0);
+			offHeapBytes = offHeapBytes + chunkBytes;
+		}
+		int row = (int) (sequence & chunkMask);
+
+		String timestamp = logEntry.getTimestamp();
+		long timestampMillis = timestamp != null ? InstantText.parse(timestamp) : NOT_CANONICAL;
+		if (timestampMillis == NOT_CANONICAL && timestamp != null) {
+			timestampTexts.put(sequence, timestamp);
+		}
+		long receivedAtNanos = dictionary.receivedAtNanos(logEntry.getReceivedAt());
+		if (receivedAtNanos == NOT_CANONICAL && logEntry.getReceivedAt() != null) {
+			receivedAtTexts.put(sequence, logEntry.getReceivedAt());
+		}
+
+		byte flags = 0;
+		if (logEntry.getIsBlacklisted() != null) {
+			flags |= logEntry.getIsBlacklisted() ? BLACKLIST_SET | BLACKLISTED : BLACKLIST_SET;
+		}
+		if (logEntry.getSentAt() != null) {
+			flags |= SENT_AT;
+		}
+
+		chunk.putLong(timestampColumn + row * Long.BYTES, timestampMillis);
+		chunk.putLong(receivedAtColumn + row * Long.BYTES, receivedAtNanos);
+		chunk.putLong(sentAtColumn + row * Long.BYTES, logEntry.getSentAt() != null ? logEntry.getSentAt() : 0);
+		putMessage(chunk, row, sequence, logEntry.getRawMessage());
+		chunk.putInt(categoryColumn + row * Integer.BYTES,
+				dictionary.eventCategories().encode(logEntry.getEventCategory()));
+		chunk.putInt(sourceTypeColumn + row * Integer.BYTES,
+				dictionary.eventSourceTypes().encode(logEntry.getEventSourceType()));
+		chunk.putInt(usernameColumn + row * Integer.BYTES, dictionary.usernames().encode(logEntry.getUsername()));
+		chunk.putInt(hostnameColumn + row * Integer.BYTES, dictionary.hostnames().encode(logEntry.getHostname()));
+		chunk.putInt(severityColumn + row * Integer.BYTES, dictionary.severities().encode(logEntry.getSeverity()));
+		chunk.put(flagsColumn + row, flags);
+
+		nextSequence = sequence + 1;
+		if (row == chunkMask) {
+			storedChunks.addLast(new StoredChunk(sequence - chunkMask, sequence + 1, chunkBytes + activeMessageBytes,
+					System.currentTimeMillis()));
+			activeMessageBytes = 0;
+		}
+		return sequence;
+	}
+
+	/**
+	 * Copies the message to the current page, starting a new one when it does not fit
+	 */
+	private void putMessage(ByteBuffer chunk, int row, long sequence, String message) {
+		long address = 0;
+		int length;
+		if (message == null) {
+			length = NULL_MESSAGE;
+		} else {
+			byte[] utf8 = message.getBytes(StandardCharsets.UTF_8);
+			if (utf8.length > pageBytes) {
+				oversizedMessages.put(sequence, message);
+				length = OVERSIZED_MESSAGE;
+			} else {
+				if (pageCount == 0 || pagePosition + utf8.length > pageBytes) {
+					ByteBuffer[] current = pages;
+					if (pageCount == current.length) {
+						current = Arrays.copyOf(current, current.length * 2);
+						pages = current;
+					}
+					current[pageCount++] = ByteBuffer.allocateDirect(pageBytes);
+					pagePosition = 0;
+					offHeapBytes = offHeapBytes + pageBytes;
+				}
+				pages[pageCount - 1].put(pagePosition, utf8);
+				address = (long) (pageCount - 1) << 32 | pagePosition;
+				pagePosition += utf8.length;
+				length = utf8.length;
+				messageBytes = messageBytes + length;
+				activeMessageBytes += length;
+			}
+		}
+		chunk.putLong(messageAddressColumn + row * Long.BYTES, address);
+		chunk.putInt(messageLengthColumn + row * Integer.BYTES, length);
+	}
+
+	@Override
+	public LogEntry read(long sequence) {
+		if (sequence < firstSequence || sequence >= nextSequence) {
+			return null;
+		}
+		ByteBuffer chunk = chunks[(int) (sequence >>> chunkShift)];
+		if (chunk == null) {
+			return null;
+		}
+		int row = (int) (sequence & chunkMask);
+
+		long receivedAt = chunk.getLong(receivedAtColumn + row * Long.BYTES);
+		LogEntry logEntry = new LogEntry(
+				receivedAt != NOT_CANONICAL ? InstantText.formatNanos(receivedAt) : receivedAtTexts.get(sequence));
+		long timestamp = chunk.getLong(timestampColumn + row * Long.BYTES);
+		logEntry.setTimestamp(
+				timestamp != NOT_CANONICAL ? InstantText.format(timestamp) : timestampTexts.get(sequence));
+		logEntry.setEventCategory(
+				dictionary.eventCategories().decode(chunk.getInt(categoryColumn + row * Integer.BYTES)));
+		logEntry.setEventSourceType(
+				dictionary.eventSourceTypes().decode(chunk.getInt(sourceTypeColumn + row * Integer.BYTES)));
+		logEntry.setUsername(dictionary.usernames().decode(chunk.getInt(usernameColumn + row * Integer.BYTES)));
+		logEntry.setHostname(dictionary.hostnames().decode(chunk.getInt(hostnameColumn + row * Integer.BYTES)));
+		logEntry.setSeverity(dictionary.severities().decode(chunk.getInt(severityColumn + row * Integer.BYTES)));
+		logEntry.setRawMessage(readMessage(chunk, row, sequence));
+
+		byte flags = chunk.get(flagsColumn + row);
+		if ((flags & BLACKLIST_SET) != 0) {
+			logEntry.setIsBlacklisted((flags & BLACKLISTED) != 0);
+		}
+		if ((flags & SENT_AT) != 0) {
+			logEntry.setSentAt(chunk.getLong(sentAtColumn + row * Long.BYTES));
+		}
+		// Evicted while it was read, its message or heap texts may be gone already
+		return sequence >= firstSequence ? logEntry : null;
+	}
+
+	private String readMessage(ByteBuffer chunk, int row, long sequence) {
+		int length = chunk.getInt(messageLengthColumn + row * Integer.BYTES);
+		if (length == NULL_MESSAGE) {
+			return null;
+		} else if (length == OVERSIZED_MESSAGE) {
+			return oversizedMessages.get(sequence);
+		}
+		long address = chunk.getLong(messageAddressColumn + row * Long.BYTES);
+		ByteBuffer page = pages[(int) (address >>> 32)];
+		if (page == null) {
+			return null;
+		}
+		byte[] utf8 = new byte[length];
+		page.get((int) address, utf8);
+		return new String(utf8, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public Iterator<LogEntry> iterator(long fromSequence) {
+		long end = nextSequence;
+		return new Iterator<>() {
+
+			private long sequence = Math.max(fromSequence, firstSequence());
+
+			@Override
+			public boolean hasNext() {
+				return sequence < end;
+			}
+
+			@Override
+			public LogEntry next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return read(sequence++);
+			}
+		};
+	}
+
+	@Override
+	public PrimitiveIterator.OfLong scan(String service, String level, String username, Boolean isBlacklisted,
+			long fromSequence) {
+		// Read first, the dictionaries then hold every code of the rows below it
+		long end = nextSequence;
+
+		// -1 matches any code, 0 is a value never stored and matches nothing
+		int category = service != null ? dictionary.eventCategories().find(service) : -1;
+		int user = username != null ? dictionary.usernames().find(username) : -1;
+		boolean[] severities = level != null ? severityCodes(level) : null;
+		if (category == 0 || user == 0 || severities != null && severities.length == 0) {
+			return LongStream.empty().iterator();
+		}
+		int flagsMask = isBlacklisted != null ? BLACKLIST_SET | BLACKLISTED : 0;
+		int flagsValue = isBlacklisted != null ? (isBlacklisted ? BLACKLIST_SET | BLACKLISTED : BLACKLIST_SET) : 0;
+		return new ColumnScan(Math.max(fromSequence, firstSequence()), end, category, user, severities, flagsMask,
+				flagsValue);
+	}
+
+	/**
+	 * @return flags by severity code of the severities equal to level ignoring case, empty when there is none
+	 */
+	private boolean[] severityCodes(String level) {
+		StringDictionary severities = dictionary.severities();
+		String normalized = level.toLowerCase(Locale.ROOT);
+		boolean[] codes = new boolean[severities.size() + 1];
+		boolean any = false;
+		for (int code = 1; code < codes.length; code++) {
+			codes[code] = normalized.equals(severities.decode(code).toLowerCase(Locale.ROOT));
+			any |= codes[code];
+		}
+		return any ? codes : new boolean[0];
+	}
+
+	/**
+	 * Filter evaluation over the columns, one window of {@link #SCAN_ROWS} rows at a time: every filter copies its column
+	 * of the window into an array with one bulk read and narrows a bitmap of the window, the sequences of the bits left
+	 * are returned
+	 */
+	private final class ColumnScan implements PrimitiveIterator.OfLong {
+
+		private final long from;
+		private final long end;
+		private final int category;
+		private final int user;
+		private final boolean[] severities;
+		private final int flagsMask;
+		private final int flagsValue;
+
+		private final long[] words = new long[SCAN_ROWS / Long.SIZE];
+		private final int[] codes = new int[SCAN_ROWS];
+		private final byte[] flags = new byte[SCAN_ROWS];
+		private long windowStart;
+		private long windowEnd;
+		private int wordCount;
+		private int word;
+		private long bits;
+
+		ColumnScan(long from, long end, int category, int user, boolean[] severities, int flagsMask, int flagsValue) {
+			this.from = from;
+			this.end = end;
+			this.category = category;
+			this.user = user;
+			this.severities = severities;
+			this.flagsMask = flagsMask;
+			this.flagsValue = flagsValue;
+			this.windowEnd = from & -Long.SIZE;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (bits == 0) {
+				if (++word < wordCount) {
+					bits = words[word];
+				} else if (windowEnd < end) {
+					fill(windowEnd);
+					word = -1;
+				} else {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public long nextLong() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int bit = Long.numberOfTrailingZeros(bits);
+			bits &= bits - 1;
+			return windowStart + (long) word * Long.SIZE + bit;
+		}
+
+		/**
+		 * Evaluates the window starting at start, a multiple of 64, up to the end of its chunk or of the scan
+		 */
+		private void fill(long start) {
+			ByteBuffer chunk = chunks[(int) (start >>> chunkShift)];
+			int row = (int) (start & chunkMask);
+			long remaining = (end - start + Long.SIZE - 1) & -Long.SIZE;
+			int rows = (int) Math.min(Math.min(SCAN_ROWS, chunkMask + 1 - row), remaining);
+
+			windowStart = start;
+			windowEnd = start + rows;
+			wordCount = rows / Long.SIZE;
+			if (chunk == null) {
+				// Evicted since the scan started
+				Arrays.fill(words, 0, wordCount, 0);
+				return;
+			}
+			Arrays.fill(words, 0, wordCount, -1L);
+			// Rows of the first and last words outside [from, end)
+			if (start < from) {
+				words[0] &= -1L << (from - start);
+			}
+			if (windowEnd > end) {
+				words[wordCount - 1] &= -1L >>> (windowEnd - end);
+			}
+
+			if (category >= 0) {
+				matchCode(readCodes(chunk, categoryColumn, row, rows), category);
+			}
+			if (user >= 0) {
+				matchCode(readCodes(chunk, usernameColumn, row, rows), user);
+			}
+			if (severities != null) {
+				matchCodes(readCodes(chunk, severityColumn, row, rows), severities);
+			}
+			if (flagsMask != 0) {
+				chunk.get(flagsColumn + row, flags, 0, rows);
+				matchFlags();
+			}
+		}
+
+		/**
+		 * @return the codes of an int column for the rows of the window, in {@link #codes}
+		 */
+		private int[] readCodes(ByteBuffer chunk, int column, int row, int rows) {
+			// Slices are big endian whatever the chunk's order
+			chunk.slice(column + row * Integer.BYTES, rows * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer()
+					.get(0, codes, 0, rows);
+			return codes;
+		}
+
+		private void matchCode(int[] values, int code) {
+			for (int w = 0, base = 0; w < wordCount; w++, base += Long.SIZE) {
+				if (words[w] == 0) {
+					continue;
+				}
+				long matches = 0;
+				for (int b = 0; b < Long.SIZE; b++) {
+					matches |= (values[base + b] == code ? 1L : 0L) << b;
+				}
+				words[w] &= matches;
+			}
+		}
+
+		private void matchCodes(int[] values, boolean[] accepted) {
+			for (int w = 0, base = 0; w < wordCount; w++, base += Long.SIZE) {
+				if (words[w] == 0) {
+					continue;
+				}
+				long matches = 0;
+				for (int b = 0; b < Long.SIZE; b++) {
+					// Rows past the end may hold codes added after the scan started, their bits are already cleared
+					int code = values[base + b];
+					matches |= (code < accepted.length && accepted[code] ? 1L : 0L) << b;
+				}
+				words[w] &= matches;
+			}
+		}
+
+		private void matchFlags() {
+			for (int w = 0, base = 0; w < wordCount; w++, base += Long.SIZE) {
+				if (words[w] == 0) {
+					continue;
+				}
+				long matches = 0;
+				for (int b = 0; b < Long.SIZE; b++) {
+					matches |= ((flags[base + b] & flagsMask) == flagsValue ? 1L : 0L) << b;
+				}
+				words[w] &= matches;
+			}
+		}
+	}
+
+	@Override
+	public long firstSequence() {
+		return firstSequence;
+	}
+
+	@Override
+	public long nextSequence() {
+		return nextSequence;
+	}
+
+	@Override
+	public StoredChunk oldestChunk() {
+		return storedChunks.peekFirst();
+	}
+
+	@Override
+	public List<StoredChunk> sealedChunks() {
+		return List.copyOf(storedChunks);
+	}
+
+	@Override
+	public long activeChunkStart() {
+		StoredChunk newest = storedChunks.peekLast();
+		return newest != null ? newest.nextSequence() : firstSequence();
+	}
+
+	@Override
+	public void evictOldestChunk() {
+		StoredChunk chunk = storedChunks.removeFirst();
+		long next = chunk.nextSequence();
+		firstSequence = next;
+		int chunkIndex = (int) (chunk.firstSequence() >>> chunkShift);
+		chunks[chunkIndex] = null;
+		long released = chunkBytes;
+
+		// Pages before the first one the next chunk may use only hold messages of evicted rows
+		int nextChunk = chunkIndex + 1;
+		int pageLimit = nextChunk < chunkFirstPages.length && chunks[nextChunk] != null ? chunkFirstPages[nextChunk]
+				: Math.max(pageCount - 1, 0);
+		ByteBuffer[] currentPages = pages;
+		for (; evictedPages < pageLimit; evictedPages++) {
+			currentPages[evictedPages] = null;
+			released += pageBytes;
+		}
+
+		timestampTexts.keySet().removeIf(sequence -> sequence < next);
+		receivedAtTexts.keySet().removeIf(sequence -> sequence < next);
+		oversizedMessages.keySet().removeIf(sequence -> sequence < next);
+		offHeapBytes = offHeapBytes - released;
+	}
+
+	@Override
+	public long storedBytes() {
+		return offHeapBytes;
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		long chunkCount = Arrays.stream(chunks).filter(chunk -> chunk != null).count();
+		long livePages = Arrays.stream(pages).filter(page -> page != null).count();
+
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("engine", "columnar");
+		metrics.put("entries", nextSequence - firstSequence);
+		metrics.put("chunks", chunkCount);
+		metrics.put("pages", livePages);
+		metrics.put("offHeapBytes", offHeapBytes);
+		metrics.put("messageBytes", messageBytes);
+		metrics.put("heapFallbacks", timestampTexts.size() + receivedAtTexts.size() + oversizedMessages.size());
+		metrics.put("dictionary", dictionary.getMetrics());
+		return metrics;
+	}
+}
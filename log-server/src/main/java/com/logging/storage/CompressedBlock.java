@@ -0,0 +1,98 @@
+package com.logging.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import com.logging.codec.LogBatchCodec;
+import com.logging.compress.BlockCompressor;
+import com.logging.entity.LogEntry;
+
+/**
+ * Serialized form of a sealed block of {@link InMemoryLogStore} <br/>
+ *
+ * Layout before compression: <code>[varint frame length][LogBatchCodec frame][receivedAt column]</code>. The frame
+ * already shares hostnames, categories and the like through its dictionary. receivedAt, which the frame does not carry,
+ * is one varint per entry, 0 when equal to the previous one (entries of a batch share it) and otherwise the UTF-8
+ * length + 1 followed by the text. The whole block then goes through the {@link BlockCompressor}, which removes the
+ * redundancy left in the raw messages. <br/>
+ *
+ * Replication ships batches of entries to followers in the same layout.
+ */
+public final class CompressedBlock {
+
+	private CompressedBlock() {
+	}
+
+	/**
+	 * @return uncompressed block of entries[from, from + count)
+	 */
+	public static byte[] serialize(LogEntry[] entries, int from, int count) {
+		List<LogEntry> block = Arrays.asList(entries).subList(from, from + count);
+		byte[] frame = LogBatchCodec.encode(block);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(frame.length + count * 2 + 64);
+		putVarint(out, frame.length);
+		out.write(frame, 0, frame.length);
+		String previous = null;
+		for (LogEntry entry : block) {
+			String receivedAt = entry.getReceivedAt();
+			if (receivedAt != null && receivedAt.equals(previous)) {
+				putVarint(out, 0);
+				continue;
+			}
+			byte[] utf8 = receivedAt != null ? receivedAt.getBytes(StandardCharsets.UTF_8) : new byte[0];
+			putVarint(out, utf8.length + 1);
+			out.write(utf8, 0, utf8.length);
+			previous = receivedAt;
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param raw   uncompressed block
+	 * @param count entries in the block
+	 * @return the entries in sequence order
+	 */
+	public static LogEntry[] deserialize(byte[] raw, int count) {
+		int[] position = { 0 };
+		int frameLength = (int) readVarint(raw, position);
+		List<LogEntry> decoded = LogBatchCodec.decode(raw, position[0], frameLength, () -> new LogEntry(null));
+		if (decoded.size() != count) {
+			throw new IllegalStateException("Block holds " + decoded.size() + " entries instead of " + count);
+		}
+		position[0] += frameLength;
+
+		LogEntry[] entries = decoded.toArray(LogEntry[]::new);
+		String previous = null;
+		for (LogEntry entry : entries) {
+			int length = (int) readVarint(raw, position);
+			if (length > 0) {
+				previous = length > 1 ? new String(raw, position[0], length - 1, StandardCharsets.UTF_8) : null;
+				position[0] += length - 1;
+			}
+			entry.setReceivedAt(previous);
+		}
+		return entries;
+	}
+
+	private static void putVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static long readVarint(byte[] raw, int[] position) {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = raw[position[0]++];
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+}
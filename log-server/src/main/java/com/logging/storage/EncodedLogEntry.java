@@ -0,0 +1,45 @@
+package com.logging.storage;
+
+import com.logging.codec.InstantText;
+
+/**
+ * Heap form of a {@link com.logging.entity.LogEntry} in {@link InMemoryLogStore}, built by {@link LogDictionary} <br/>
+ *
+ * Category, source type, username, hostname and severity are dictionary codes, timestamp and receivedAt are epoch
+ * millis and nanos. A retained entry costs this object and its raw message, instead of a LogEntry and eight strings.
+ * Timestamps that would not print back to the same text are kept as text, with {@link InstantText#NOT_CANONICAL} in
+ * place of the number.
+ */
+record EncodedLogEntry(int eventCategory, int eventSourceType, int username, int hostname, int severity,
+		long timestamp, long receivedAt, long sentAt, byte flags, String rawMessage, String timestampText,
+		String receivedAtText) {
+
+	static final byte BLACKLIST_SET = 1;
+	static final byte BLACKLISTED = 2;
+	static final byte SENT_AT = 4;
+
+	/**
+	 * Object header, five int codes, three longs, flags and three references, plus the chunk slot
+	 */
+	private static final int OBJECT_BYTES = 80;
+
+	/**
+	 * Header, hash and the reference to the byte array with its own header
+	 */
+	private static final int STRING_BYTES = 40;
+
+	boolean has(byte flag) {
+		return (flags & flag) != 0;
+	}
+
+	/**
+	 * @return approximate heap bytes of this entry and the strings only it references, Latin-1 text assumed
+	 */
+	int estimatedBytes() {
+		return OBJECT_BYTES + stringBytes(rawMessage) + stringBytes(timestampText) + stringBytes(receivedAtText);
+	}
+
+	private static int stringBytes(String value) {
+		return value != null ? STRING_BYTES + value.length() : 0;
+	}
+}
@@ -0,0 +1,23 @@
+package com.logging.storage;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * Storage engine able to answer the <code>GET /logs</code> filters by scanning its own columns, in which case
+ * {@link com.logging.index.LogIndex} keeps no posting lists for them
+ */
+public interface FilterScan {
+
+	/**
+	 * Sequences of the entries matching every given filter, null filters are ignored
+	 *
+	 * @param service       event.category
+	 * @param level         severity, case-insensitive
+	 * @param username
+	 * @param isBlacklisted
+	 * @param fromSequence  smallest sequence to return
+	 * @return ascending sequences among the entries appended before the call
+	 */
+	PrimitiveIterator.OfLong scan(String service, String level, String username, Boolean isBlacklisted,
+			long fromSequence);
+}
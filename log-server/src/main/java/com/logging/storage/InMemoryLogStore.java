@@ -0,0 +1,319 @@
+package com.logging.storage;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.logging.compress.BlockCompressor;
+import com.logging.entity.LogEntry;
+import com.logging.metrics.LatencyHistogram;
+
+/**
+ * Heap store keeping entries in fixed size chunks of references <br/>
+ *
+ * Unlike a linked queue it costs one reference per entry instead of a node object, and gives O(1) access by sequence.
+ * The single writer fills the current chunk and publishes each entry with the volatile write of
+ * {@link #nextSequence}, readers never see a partially appended entry. <br/>
+ *
+ * Entries are held as {@link EncodedLogEntry}: low cardinality fields as codes of a {@link LogDictionary}, timestamps
+ * as primitive longs. Reads rebuild a {@link LogEntry} that shares the dictionary strings. <br/>
+ *
+ * With a {@link BlockCompressor}, every full block of <code>blockEntries</code> entries is sealed: serialized as a
+ * {@link CompressedBlock}, compressed, and its entries released, so only the unsealed tail stays on the heap. Reads of
+ * sealed entries decompress their block, the most recently read blocks are kept decoded so that pages and scans pay it
+ * once per block. <br/>
+ *
+ * A chunk of 8192 entries is also the unit of retention: evicting it releases its entries or sealed blocks at once.
+ */
+public class InMemoryLogStore implements LogStore {
+
+	private static final int CHUNK_SHIFT = 13;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private static final int DECODED_CACHE_SIZE = 32;
+	private static final int MAX_BLOCK_BYTES = 256 * 1024 * 1024;
+
+	private volatile EncodedLogEntry[][] chunks = new EncodedLogEntry[16][];
+	private volatile long firstSequence = 0;
+	private volatile long nextSequence = 0;
+	private final LogDictionary dictionary = new LogDictionary();
+
+	// Sealed blocks, null without compression
+	private final BlockCompressor compressor;
+	private final int blockShift;
+	private final int blockMask;
+	private volatile byte[][] blocks = new byte[64][];
+	private volatile long sealedBlocks = 0;
+	private final AtomicReferenceArray<DecodedBlock> decoded = new AtomicReferenceArray<>(DECODED_CACHE_SIZE);
+
+	// Full chunks in append order, the oldest first, and the estimated bytes of the chunk being filled
+	private final ArrayDeque<StoredChunk> storedChunks = new ArrayDeque<>();
+	private long activeChunkBytes;
+	private volatile long storedBytes;
+
+	// Metrics, written by the single writer
+	private volatile long rawBytes;
+	private volatile long compressedBytes;
+	private final LatencyHistogram compressLatency = new LatencyHistogram(TimeUnit.MICROSECONDS);
+	private final LatencyHistogram decompressLatency = new LatencyHistogram(TimeUnit.MICROSECONDS);
+
+	/**
+	 * Keeps every entry on the heap, without compression
+	 */
+	public InMemoryLogStore() {
+		this(null, CHUNK_SIZE);
+	}
+
+	/**
+	 * @param compressor   codec of sealed blocks, null to keep every entry on the heap
+	 * @param blockEntries entries per sealed block, a power of two up to 8192
+	 */
+	public InMemoryLogStore(BlockCompressor compressor, int blockEntries) {
+		if (Integer.bitCount(blockEntries) != 1 || blockEntries > CHUNK_SIZE) {
+			throw new IllegalArgumentException("Block entries must be a power of two up to " + CHUNK_SIZE);
+		}
+		this.compressor = compressor;
+		this.blockShift = Integer.numberOfTrailingZeros(blockEntries);
+		this.blockMask = blockEntries - 1;
+	}
+
+	@Override
+	public long append(LogEntry logEntry) {
+		long sequence = nextSequence;
+		int chunkIndex = (int) (sequence >>> CHUNK_SHIFT);
+
+		EncodedLogEntry[][] current = chunks;
+		if (chunkIndex == current.length) {
+			EncodedLogEntry[][] grown = new EncodedLogEntry[current.length * 2][];
+			System.arraycopy(current, 0, grown, 0, current.length);
+			chunks = grown;
+			current = grown;
+		}
+		if (current[chunkIndex] == null) {
+			current[chunkIndex] = new EncodedLogEntry[CHUNK_SIZE];
+		}
+
+		EncodedLogEntry entry = dictionary.encode(logEntry);
+		current[chunkIndex][(int) (sequence & CHUNK_MASK)] = entry;
+		nextSequence = sequence + 1;
+		addStoredBytes(entry.estimatedBytes());
+
+		if (compressor != null && ((sequence + 1) & blockMask) == 0) {
+			seal(sequence >>> blockShift);
+		}
+		if (((sequence + 1) & CHUNK_MASK) == 0) {
+			storedChunks.addLast(new StoredChunk(sequence + 1 - CHUNK_SIZE, sequence + 1, activeChunkBytes,
+					System.currentTimeMillis()));
+			activeChunkBytes = 0;
+		}
+		return sequence;
+	}
+
+	/**
+	 * Compresses a full block, publishes it, then releases its entries
+	 */
+	private void seal(long block) {
+		long start = System.nanoTime();
+		int blockEntries = blockMask + 1;
+		long firstSequence = block << blockShift;
+		EncodedLogEntry[] chunk = chunks[(int) (firstSequence >>> CHUNK_SHIFT)];
+		int from = (int) (firstSequence & CHUNK_MASK);
+
+		LogEntry[] entries = new LogEntry[blockEntries];
+		long releasedBytes = 0;
+		for (int i = 0; i < blockEntries; i++) {
+			entries[i] = dictionary.decode(chunk[from + i]);
+			releasedBytes += chunk[from + i].estimatedBytes();
+		}
+		byte[] raw = CompressedBlock.serialize(entries, 0, blockEntries);
+		byte[] compressed = compressor.compress(raw);
+
+		byte[][] current = blocks;
+		if (block >= current.length) {
+			byte[][] grown = new byte[current.length * 2][];
+			System.arraycopy(current, 0, grown, 0, current.length);
+			blocks = grown;
+			current = grown;
+		}
+		current[(int) block] = compressed;
+		// The block just sealed is the most likely to be read next
+		decoded.set((int) (block & (DECODED_CACHE_SIZE - 1)), new DecodedBlock(block, entries));
+		rawBytes = rawBytes + raw.length;
+		compressedBytes = compressedBytes + compressed.length;
+		addStoredBytes(compressed.length - releasedBytes);
+		// Readers that see the block as sealed find it, readers that find a released entry wait for this write
+		sealedBlocks = block + 1;
+
+		if (from + blockEntries == CHUNK_SIZE) {
+			chunks[(int) (firstSequence >>> CHUNK_SHIFT)] = null;
+		} else {
+			for (int i = from; i < from + blockEntries; i++) {
+				chunk[i] = null;
+			}
+		}
+		compressLatency.recordSince(start);
+	}
+
+	private void addStoredBytes(long bytes) {
+		activeChunkBytes += bytes;
+		storedBytes = storedBytes + bytes;
+	}
+
+	@Override
+	public LogEntry read(long sequence) {
+		if (sequence < firstSequence || sequence >= nextSequence) {
+			return null;
+		}
+		long block = sequence >>> blockShift;
+		if (block >= sealedBlocks) {
+			EncodedLogEntry[] chunk = chunks[(int) (sequence >>> CHUNK_SHIFT)];
+			EncodedLogEntry entry = chunk != null ? chunk[(int) (sequence & CHUNK_MASK)] : null;
+			if (entry != null) {
+				return dictionary.decode(entry);
+			}
+			if (compressor == null) {
+				return null;
+			}
+			// Released by a seal running concurrently
+			while (block >= sealedBlocks) {
+				Thread.onSpinWait();
+			}
+		}
+		LogEntry[] entries = decode(block);
+		return entries != null ? entries[(int) (sequence & blockMask)] : null;
+	}
+
+	/**
+	 * @return entries of a sealed block, null once it has been evicted
+	 */
+	private LogEntry[] decode(long block) {
+		int slot = (int) (block & (DECODED_CACHE_SIZE - 1));
+		DecodedBlock cached = decoded.get(slot);
+		if (cached != null && cached.block == block) {
+			return cached.entries;
+		}
+
+		byte[] compressed = blocks[(int) block];
+		if (compressed == null) {
+			return null;
+		}
+		long start = System.nanoTime();
+		byte[] raw = compressor.decompress(compressed, MAX_BLOCK_BYTES);
+		LogEntry[] entries = CompressedBlock.deserialize(raw, blockMask + 1);
+		decompressLatency.recordSince(start);
+		decoded.set(slot, new DecodedBlock(block, entries));
+		return entries;
+	}
+
+	@Override
+	public Iterator<LogEntry> iterator(long fromSequence) {
+		long end = nextSequence;
+		return new Iterator<>() {
+
+			private long sequence = Math.max(fromSequence, firstSequence());
+
+			@Override
+			public boolean hasNext() {
+				return sequence < end;
+			}
+
+			@Override
+			public LogEntry next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return read(sequence++);
+			}
+		};
+	}
+
+	@Override
+	public long firstSequence() {
+		return firstSequence;
+	}
+
+	@Override
+	public long nextSequence() {
+		return nextSequence;
+	}
+
+	@Override
+	public StoredChunk oldestChunk() {
+		return storedChunks.peekFirst();
+	}
+
+	@Override
+	public List<StoredChunk> sealedChunks() {
+		return List.copyOf(storedChunks);
+	}
+
+	@Override
+	public long activeChunkStart() {
+		StoredChunk newest = storedChunks.peekLast();
+		return newest != null ? newest.nextSequence() : firstSequence();
+	}
+
+	@Override
+	public void evictOldestChunk() {
+		StoredChunk chunk = storedChunks.removeFirst();
+		// Readers check the first sequence before they look for the entry
+		firstSequence = chunk.nextSequence();
+		chunks[(int) (chunk.firstSequence() >>> CHUNK_SHIFT)] = null;
+		if (compressor != null) {
+			byte[][] current = blocks;
+			long end = chunk.nextSequence() >>> blockShift;
+			for (long block = chunk.firstSequence() >>> blockShift; block < end; block++) {
+				current[(int) block] = null;
+				int slot = (int) (block & (DECODED_CACHE_SIZE - 1));
+				DecodedBlock cached = decoded.get(slot);
+				if (cached != null && cached.block == block) {
+					decoded.compareAndSet(slot, cached, null);
+				}
+			}
+		}
+		storedBytes = storedBytes - chunk.bytes();
+	}
+
+	@Override
+	public long storedBytes() {
+		return storedBytes;
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("engine", "memory");
+		metrics.put("entries", nextSequence - firstSequence);
+		metrics.put("storedBytes", storedBytes);
+		metrics.put("dictionary", dictionary.getMetrics());
+		if (compressor != null) {
+			metrics.put("compression", getCompressionMetrics());
+		}
+		return metrics;
+	}
+
+	private Map<String, Object> getCompressionMetrics() {
+		long raw = rawBytes;
+		long compressed = compressedBytes;
+
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("codec", compressor.name());
+		metrics.put("sealedBlocks", sealedBlocks);
+		metrics.put("sealedEntries", sealedBlocks << blockShift);
+		metrics.put("rawBytes", raw);
+		metrics.put("compressedBytes", compressed);
+		metrics.put("ratio", compressed > 0 ? Math.round(raw * 100.0 / compressed) / 100.0 : 0);
+		metrics.put("compressTime", compressLatency.snapshot());
+		metrics.put("decompressTime", decompressLatency.snapshot());
+		return metrics;
+	}
+
+	private record DecodedBlock(long block, LogEntry[] entries) {
+	}
+}
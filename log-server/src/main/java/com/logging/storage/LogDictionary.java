@@ -0,0 +1,125 @@
+package com.logging.storage;
+
+import java.util.Map;
+
+import com.logging.codec.InstantText;
+import com.logging.entity.LogEntry;
+
+/**
+ * Field dictionaries of the heap stores, converting entries to {@link EncodedLogEntry} and back <br/>
+ *
+ * Single writer encodes, any thread decodes. Decoded entries share the dictionary strings.
+ */
+final class LogDictionary {
+
+	private static final long NOT_CANONICAL = InstantText.NOT_CANONICAL;
+
+	private final StringDictionary eventCategories = new StringDictionary();
+	private final StringDictionary eventSourceTypes = new StringDictionary();
+	private final StringDictionary usernames = new StringDictionary();
+	private final StringDictionary hostnames = new StringDictionary();
+	private final StringDictionary severities = new StringDictionary();
+
+	// Entries of a batch share the same receivedAt instance, parsed once
+	private String lastReceivedAt;
+	private long lastReceivedAtNanos = NOT_CANONICAL;
+
+	/**
+	 * Single writer only
+	 *
+	 * @param logEntry
+	 * @return compact form of logEntry, which is not referenced
+	 */
+	EncodedLogEntry encode(LogEntry logEntry) {
+		String timestamp = logEntry.getTimestamp();
+		long timestampMillis = timestamp != null ? InstantText.parse(timestamp) : NOT_CANONICAL;
+
+		String receivedAt = logEntry.getReceivedAt();
+		long receivedAtNanos = receivedAtNanos(receivedAt);
+
+		byte flags = 0;
+		if (logEntry.getIsBlacklisted() != null) {
+			flags |= EncodedLogEntry.BLACKLIST_SET;
+			if (logEntry.getIsBlacklisted()) {
+				flags |= EncodedLogEntry.BLACKLISTED;
+			}
+		}
+		if (logEntry.getSentAt() != null) {
+			flags |= EncodedLogEntry.SENT_AT;
+		}
+
+		return new EncodedLogEntry(eventCategories.encode(logEntry.getEventCategory()),
+				eventSourceTypes.encode(logEntry.getEventSourceType()), usernames.encode(logEntry.getUsername()),
+				hostnames.encode(logEntry.getHostname()), severities.encode(logEntry.getSeverity()), timestampMillis,
+				receivedAtNanos, logEntry.getSentAt() != null ? logEntry.getSentAt() : 0, flags,
+				logEntry.getRawMessage(), timestampMillis == NOT_CANONICAL ? timestamp : null,
+				receivedAtNanos == NOT_CANONICAL ? receivedAt : null);
+	}
+
+	/**
+	 * Single writer only
+	 *
+	 * @param receivedAt
+	 * @return epoch nanos of receivedAt, {@link InstantText#NOT_CANONICAL} when null or not canonical
+	 */
+	long receivedAtNanos(String receivedAt) {
+		if (receivedAt != lastReceivedAt) {
+			lastReceivedAtNanos = receivedAt != null ? InstantText.parseNanos(receivedAt) : NOT_CANONICAL;
+			lastReceivedAt = receivedAt;
+		}
+		return lastReceivedAtNanos;
+	}
+
+	/**
+	 * @param encoded
+	 * @return a new entry equal to the one encoded
+	 */
+	LogEntry decode(EncodedLogEntry encoded) {
+		LogEntry logEntry = new LogEntry(encoded.receivedAt() != NOT_CANONICAL
+				? InstantText.formatNanos(encoded.receivedAt())
+				: encoded.receivedAtText());
+		logEntry.setTimestamp(encoded.timestamp() != NOT_CANONICAL ? InstantText.format(encoded.timestamp())
+				: encoded.timestampText());
+		logEntry.setEventCategory(eventCategories.decode(encoded.eventCategory()));
+		logEntry.setEventSourceType(eventSourceTypes.decode(encoded.eventSourceType()));
+		logEntry.setUsername(usernames.decode(encoded.username()));
+		logEntry.setHostname(hostnames.decode(encoded.hostname()));
+		logEntry.setSeverity(severities.decode(encoded.severity()));
+		logEntry.setRawMessage(encoded.rawMessage());
+		if (encoded.has(EncodedLogEntry.BLACKLIST_SET)) {
+			logEntry.setIsBlacklisted(encoded.has(EncodedLogEntry.BLACKLISTED));
+		}
+		if (encoded.has(EncodedLogEntry.SENT_AT)) {
+			logEntry.setSentAt(encoded.sentAt());
+		}
+		return logEntry;
+	}
+
+	StringDictionary eventCategories() {
+		return eventCategories;
+	}
+
+	StringDictionary eventSourceTypes() {
+		return eventSourceTypes;
+	}
+
+	StringDictionary usernames() {
+		return usernames;
+	}
+
+	StringDictionary hostnames() {
+		return hostnames;
+	}
+
+	StringDictionary severities() {
+		return severities;
+	}
+
+	/**
+	 * @return distinct values per field
+	 */
+	Map<String, Object> getMetrics() {
+		return Map.of("categories", eventCategories.size(), "sourceTypes", eventSourceTypes.size(), "usernames",
+				usernames.size(), "hostnames", hostnames.size(), "severities", severities.size());
+	}
+}
@@ -0,0 +1,354 @@
+package com.logging.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One segment file of {@link SegmentLogStore} <br/>
+ *
+ * Layout: a sequence of records <code>[int length][int crc32c][length bytes payload]</code>. The record at relative
+ * position n holds sequence <code>baseSequence + n</code>. <br/>
+ *
+ * The active segment is mapped read-write at its full capacity and appended through the mapping, sealed and recovered
+ * segments are mapped read-only at their size. Every read goes through the mapping with absolute gets, so readers never
+ * touch a shared position and entry payloads live in the page cache instead of the heap. <br/>
+ *
+ * A sparse index (relative sequence to file position, one pair per <code>indexIntervalBytes</code>) bounds the scan
+ * needed to locate a record. It is kept in memory and written next to the segment when it is sealed.
+ */
+@Slf4j
+final class LogSegment {
+
+	static final String LOG_SUFFIX = ".log";
+	static final String INDEX_SUFFIX = ".index";
+	static final int RECORD_HEADER_BYTES = 8;
+
+	private static final int INDEX_MAGIC = 0x4C534958;
+
+	final long baseSequence;
+
+	private final Path file;
+	private final int indexIntervalBytes;
+
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Bytes of complete records, published before {@link #entryCount}
+	 */
+	private volatile int size;
+	private volatile int entryCount;
+	private int flushedSize;
+
+	// Sparse index, single writer, readers bound by indexSize
+	private volatile int[] indexRelative = new int[64];
+	private volatile int[] indexPosition = new int[64];
+	private volatile int indexSize;
+	private int lastIndexedPosition = -1;
+
+	private LogSegment(Path file, long baseSequence, int indexIntervalBytes) {
+		this.file = file;
+		this.baseSequence = baseSequence;
+		this.indexIntervalBytes = indexIntervalBytes;
+	}
+
+	static Path logFile(Path directory, long baseSequence) {
+		return directory.resolve(String.format("%020d%s", baseSequence, LOG_SUFFIX));
+	}
+
+	static long baseSequenceOf(Path file) {
+		String name = file.getFileName().toString();
+		return Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length()));
+	}
+
+	/**
+	 * Creates an empty active segment
+	 */
+	static LogSegment create(Path directory, long baseSequence, int capacity, int indexIntervalBytes)
+			throws IOException {
+		LogSegment segment = new LogSegment(logFile(directory, baseSequence), baseSequence, indexIntervalBytes);
+		segment.channel = FileChannel.open(segment.file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		segment.buffer = segment.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		return segment;
+	}
+
+	/**
+	 * Opens a sealed segment, from its index file when present and consistent, otherwise by scanning it
+	 */
+	static LogSegment openSealed(Path file, int indexIntervalBytes) throws IOException {
+		LogSegment segment = new LogSegment(file, baseSequenceOf(file), indexIntervalBytes);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			segment.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (!segment.loadIndex()) {
+			segment.scan();
+		}
+		segment.flushedSize = segment.size;
+		return segment;
+	}
+
+	/**
+	 * Opens the last segment for appending after a restart. Records are verified one by one, the file is truncated at
+	 * the first record that is incomplete or fails its checksum (a write torn by a crash) and then mapped again at full
+	 * capacity.
+	 *
+	 * @return recovered segment, ready for appends
+	 */
+	static LogSegment recoverActive(Path file, int capacity, int indexIntervalBytes) throws IOException {
+		LogSegment segment = new LogSegment(file, baseSequenceOf(file), indexIntervalBytes);
+		segment.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		long fileSize = segment.channel.size();
+		segment.buffer = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+
+		boolean torn = segment.scan();
+		if (torn) {
+			log.warn("Truncating torn tail of segment {} at position {}", file.getFileName(), segment.size);
+		}
+
+		segment.channel.truncate(segment.size);
+		segment.buffer = segment.channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, segment.size));
+		segment.flushedSize = segment.size;
+		return segment;
+	}
+
+	/**
+	 * Walks the records from the start, rebuilding size, entry count and sparse index
+	 *
+	 * @return true when the scan stopped at a torn record rather than at the end of the data
+	 */
+	private boolean scan() {
+		int limit = buffer.capacity();
+		int position = 0;
+		int count = 0;
+		CRC32C crc = new CRC32C();
+
+		while (position + RECORD_HEADER_BYTES <= limit) {
+			int length = buffer.getInt(position);
+			if (length == 0) {
+				// Zero filled preallocated space, clean end
+				break;
+			}
+			int checksum = buffer.getInt(position + 4);
+			if (length < 0 || length > limit - position - RECORD_HEADER_BYTES
+					|| checksum != checksum(crc, position + RECORD_HEADER_BYTES, length)) {
+				finishScan(position, count);
+				return true;
+			}
+			addIndexEntry(count, position);
+			position += RECORD_HEADER_BYTES + length;
+			count++;
+		}
+
+		finishScan(position, count);
+		return false;
+	}
+
+	private void finishScan(int position, int count) {
+		size = position;
+		entryCount = count;
+	}
+
+	private int checksum(CRC32C crc, int position, int length) {
+		crc.reset();
+		crc.update(buffer.slice(position, length));
+		return (int) crc.getValue();
+	}
+
+	boolean hasRoom(int recordBytes) {
+		return size + recordBytes <= buffer.capacity();
+	}
+
+	int size() {
+		return size;
+	}
+
+	int entryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Writes one record at the end of the segment, single writer only
+	 */
+	void append(byte[] payload, int checksum) {
+		int position = size;
+		buffer.putInt(position + 4, checksum);
+		buffer.put(position + RECORD_HEADER_BYTES, payload, 0, payload.length);
+		// Length last: a record is only valid for recovery once its length is in place
+		buffer.putInt(position, payload.length);
+
+		addIndexEntry(entryCount, position);
+		size = position + RECORD_HEADER_BYTES + payload.length;
+		entryCount = entryCount + 1;
+	}
+
+	private void addIndexEntry(int relative, int position) {
+		if (lastIndexedPosition >= 0 && position - lastIndexedPosition < indexIntervalBytes) {
+			return;
+		}
+		int slot = indexSize;
+		if (slot == indexRelative.length) {
+			indexRelative = Arrays.copyOf(indexRelative, slot * 2);
+			indexPosition = Arrays.copyOf(indexPosition, slot * 2);
+		}
+		indexRelative[slot] = relative;
+		indexPosition[slot] = position;
+		indexSize = slot + 1;
+		lastIndexedPosition = position;
+	}
+
+	/**
+	 * Binary search in the sparse index for the closest preceding entry, then walks forward record by record
+	 *
+	 * @param relative sequence relative to the base, must be below {@link #entryCount()}
+	 * @return file position of the record
+	 */
+	int positionOf(int relative) {
+		int entries = indexSize;
+		int[] relatives = indexRelative;
+		int[] positions = indexPosition;
+
+		int low = 0;
+		int high = entries - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (relatives[mid] <= relative) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		int current = relatives[low];
+		int position = positions[low];
+		while (current < relative) {
+			position += RECORD_HEADER_BYTES + buffer.getInt(position);
+			current++;
+		}
+		return position;
+	}
+
+	/**
+	 * @param position record position
+	 * @return payload copied out of the mapping
+	 */
+	byte[] readPayload(int position) {
+		int length = buffer.getInt(position);
+		byte[] payload = new byte[length];
+		buffer.get(position + RECORD_HEADER_BYTES, payload, 0, length);
+		return payload;
+	}
+
+	int nextPosition(int position) {
+		return position + RECORD_HEADER_BYTES + buffer.getInt(position);
+	}
+
+	/**
+	 * Forces the bytes appended since the previous flush to disk. One call covers every record appended in the
+	 * meantime, which is what makes the commit a group commit.
+	 *
+	 * @return true when anything was written
+	 */
+	boolean flush() {
+		int current = size;
+		if (current == flushedSize) {
+			return false;
+		}
+		buffer.force(flushedSize, current - flushedSize);
+		flushedSize = current;
+		return true;
+	}
+
+	/**
+	 * Flushes, persists the sparse index and shrinks the file to its content. The mapping stays valid for reads.
+	 */
+	void seal() throws IOException {
+		flush();
+		writeIndex();
+		if (channel != null) {
+			try {
+				channel.truncate(size);
+			} catch (IOException e) {
+				// Platforms that refuse to truncate a mapped file keep the zero filled tail, recovery stops at it
+				log.debug("Could not truncate sealed segment {}: {}", file.getFileName(), e.getMessage());
+			}
+			channel.close();
+			channel = null;
+		}
+	}
+
+	void close() throws IOException {
+		flush();
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	void delete() throws IOException {
+		close();
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(indexFile());
+	}
+
+	private Path indexFile() {
+		String name = file.getFileName().toString();
+		return file.resolveSibling(name.substring(0, name.length() - LOG_SUFFIX.length()) + INDEX_SUFFIX);
+	}
+
+	private void writeIndex() throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile())))) {
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(size);
+			out.writeInt(entryCount);
+			out.writeInt(indexSize);
+			for (int i = 0; i < indexSize; i++) {
+				out.writeInt(indexRelative[i]);
+				out.writeInt(indexPosition[i]);
+			}
+		}
+	}
+
+	private boolean loadIndex() throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile())))) {
+			int storedSize = in.readInt() == INDEX_MAGIC ? in.readInt() : -1;
+			if (storedSize < 0 || storedSize > buffer.capacity()) {
+				return false;
+			}
+			int count = in.readInt();
+			int entries = in.readInt();
+			int[] relatives = new int[Math.max(entries, 1)];
+			int[] positions = new int[Math.max(entries, 1)];
+			for (int i = 0; i < entries; i++) {
+				relatives[i] = in.readInt();
+				positions[i] = in.readInt();
+			}
+
+			indexRelative = relatives;
+			indexPosition = positions;
+			indexSize = entries;
+			lastIndexedPosition = entries > 0 ? positions[entries - 1] : -1;
+			size = storedSize;
+			entryCount = count;
+			return true;
+		} catch (NoSuchFileException e) {
+			return false;
+		} catch (IOException e) {
+			log.warn("Ignoring unreadable index of segment {}: {}", file.getFileName(), e.getMessage());
+			return false;
+		}
+	}
+}
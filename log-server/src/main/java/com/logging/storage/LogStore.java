@@ -0,0 +1,88 @@
+package com.logging.storage;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.logging.entity.LogEntry;
+
+/**
+ * Storage engine behind {@link com.logging.service.LogStorageService} <br/>
+ *
+ * Entries are addressed by a dense sequence number assigned on append. Appends come from a single writer thread (the
+ * ingest pipeline), reads may come from any thread concurrently and see every entry below {@link #nextSequence()}.
+ * <br/>
+ *
+ * Retention drops whole {@link StoredChunk}s from the start of the store, with the same exclusion as appends. A reader
+ * racing an eviction gets null for the entries that went away.
+ */
+public interface LogStore extends Closeable {
+
+	/**
+	 * Appends the entry, single writer only
+	 *
+	 * @param logEntry
+	 * @return sequence number assigned to the entry
+	 */
+	long append(LogEntry logEntry);
+
+	/**
+	 * @param sequence
+	 * @return entry stored under sequence, null if it was never or is no longer stored
+	 */
+	LogEntry read(long sequence);
+
+	/**
+	 * Sequential scan in append order
+	 *
+	 * @param fromSequence first sequence to return, clamped to {@link #firstSequence()}
+	 * @return iterator over the entries appended before this call, null for the ones evicted since
+	 */
+	Iterator<LogEntry> iterator(long fromSequence);
+
+	/**
+	 * @return lowest sequence still stored
+	 */
+	long firstSequence();
+
+	/**
+	 * @return sequence the next append will get
+	 */
+	long nextSequence();
+
+	/**
+	 * @return oldest chunk that can be evicted, null when only the chunk being appended to is left
+	 */
+	StoredChunk oldestChunk();
+
+	/**
+	 * @return chunks that can be evicted, from the oldest, the chunk being appended to excluded
+	 */
+	List<StoredChunk> sealedChunks();
+
+	/**
+	 * @return first sequence of the chunk being appended to, every stored sequence below it is in a sealed chunk
+	 */
+	long activeChunkStart();
+
+	/**
+	 * Drops the {@link #oldestChunk()} as a whole and moves {@link #firstSequence()} past it, single writer only
+	 */
+	void evictOldestChunk();
+
+	/**
+	 * @return bytes held by the stored entries, in the engine's own unit (heap estimate, off-heap or file bytes)
+	 */
+	long storedBytes();
+
+	/**
+	 * @return engine specific counters for /metrics
+	 */
+	Map<String, Object> getMetrics();
+
+	@Override
+	default void close() {
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.logging.storage;
+
+/**
+ * Limits on what a {@link LogStore} retains, a limit of 0 is unlimited <br/>
+ *
+ * Applied a whole {@link StoredChunk} at a time from the oldest one, and never to the chunk still being appended to,
+ * so retention is enforced to within one chunk.
+ *
+ * @param maxAgeMs        chunks whose last entry arrived longer ago are evicted
+ * @param maxEntries      oldest chunks are evicted while more entries are stored
+ * @param maxBytes        oldest chunks are evicted while {@link LogStore#storedBytes()} is larger
+ * @param checkIntervalMs delay between two runs of the background eviction
+ */
+public record RetentionPolicy(long maxAgeMs, long maxEntries, long maxBytes, long checkIntervalMs) {
+
+	public static final RetentionPolicy UNLIMITED = new RetentionPolicy(0, 0, 0, 0);
+
+	/**
+	 * @return true when any limit is set
+	 */
+	public boolean isLimited() {
+		return maxAgeMs > 0 || maxEntries > 0 || maxBytes > 0;
+	}
+
+	/**
+	 * @param oldest          oldest evictable chunk of the store
+	 * @param retainedEntries entries currently stored
+	 * @param retainedBytes   bytes currently stored
+	 * @param now             epoch millis
+	 * @return true when the chunk has to go
+	 */
+	public boolean evicts(StoredChunk oldest, long retainedEntries, long retainedBytes, long now) {
+		return maxAgeMs > 0 && now - oldest.lastAppendMillis() > maxAgeMs
+				|| maxEntries > 0 && retainedEntries > maxEntries
+				|| maxBytes > 0 && retainedBytes > maxBytes;
+	}
+}
@@ -0,0 +1,324 @@
+package com.logging.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logging.entity.LogEntry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durable append-only store made of rolling segment files <br/>
+ *
+ * - Appends are sequential: each entry is written as one length-prefixed, checksummed record at the end of the active
+ * {@link LogSegment}, which rolls to a new file once <code>segmentBytes</code> would be exceeded. <br/>
+ * - Group commit: a background flusher forces everything appended since its previous run to disk every
+ * <code>fsyncIntervalMs</code>, so one fsync covers all records of that interval. <br/>
+ * - Recovery: on startup sealed segments are reopened from their sparse index, the last segment is verified record by
+ * record and its torn tail, if any, is truncated. <br/>
+ * - Reads go through memory-mapped segments, the heap only holds the sparse indexes, so heap usage does not grow with
+ * the retained volume. <br/>
+ * - Retention deletes the oldest sealed segment files, a segment is the unit of eviction. <br/>
+ */
+@Slf4j
+public class SegmentLogStore implements LogStore {
+
+	private final Path directory;
+	private final int segmentBytes;
+	private final int indexIntervalBytes;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final CRC32C crc = new CRC32C();
+
+	private final ConcurrentSkipListMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+	private volatile LogSegment activeSegment;
+	private volatile long nextSequence;
+
+	// Sealed segments, the oldest first
+	private final ArrayDeque<StoredChunk> sealedSegments = new ArrayDeque<>();
+
+	/**
+	 * Serializes the flusher against segment rolls
+	 */
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final ScheduledExecutorService flusher;
+
+	// Metrics
+	private final AtomicLong fsyncCount = new AtomicLong(0);
+	private final AtomicLong bytesAppended = new AtomicLong(0);
+
+	public SegmentLogStore(Path directory, int segmentBytes, int indexIntervalBytes, long fsyncIntervalMs)
+			throws IOException {
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.indexIntervalBytes = indexIntervalBytes;
+
+		Files.createDirectories(directory);
+		recover();
+
+		flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "segment-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(this::flush, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	private void recover() throws IOException {
+		List<Path> files;
+		try (Stream<Path> listing = Files.list(directory)) {
+			files = listing.filter(file -> file.getFileName().toString().endsWith(LogSegment.LOG_SUFFIX)).sorted()
+					.toList();
+		}
+
+		for (int i = 0; i < files.size(); i++) {
+			Path file = files.get(i);
+			LogSegment segment;
+			if (i < files.size() - 1) {
+				segment = LogSegment.openSealed(file, indexIntervalBytes);
+				sealedSegments.addLast(storedChunk(segment, Files.getLastModifiedTime(file).toMillis()));
+			} else {
+				segment = LogSegment.recoverActive(file, segmentBytes, indexIntervalBytes);
+			}
+			segments.put(segment.baseSequence, segment);
+		}
+
+		if (segments.isEmpty()) {
+			activeSegment = LogSegment.create(directory, 0, segmentBytes, indexIntervalBytes);
+			segments.put(0L, activeSegment);
+		} else {
+			activeSegment = segments.lastEntry().getValue();
+		}
+		nextSequence = activeSegment.baseSequence + activeSegment.entryCount();
+
+		log.info("Segment store opened at {}: {} segments, sequences {} to {}", directory, segments.size(),
+				firstSequence(), nextSequence);
+	}
+
+	@Override
+	public long append(LogEntry logEntry) {
+		byte[] payload;
+		try {
+			payload = objectMapper.writeValueAsBytes(logEntry);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Unserializable log entry", e);
+		}
+
+		int recordBytes = LogSegment.RECORD_HEADER_BYTES + payload.length;
+		if (recordBytes > segmentBytes) {
+			throw new IllegalArgumentException("Log entry of " + recordBytes + " bytes exceeds the segment size");
+		}
+
+		LogSegment segment = activeSegment;
+		if (!segment.hasRoom(recordBytes)) {
+			segment = roll();
+		}
+
+		crc.reset();
+		crc.update(payload);
+		segment.append(payload, (int) crc.getValue());
+		bytesAppended.addAndGet(recordBytes);
+
+		long sequence = nextSequence;
+		nextSequence = sequence + 1;
+		return sequence;
+	}
+
+	private LogSegment roll() {
+		flushLock.lock();
+		try {
+			activeSegment.seal();
+			sealedSegments.addLast(storedChunk(activeSegment, System.currentTimeMillis()));
+			LogSegment segment = LogSegment.create(directory, nextSequence, segmentBytes, indexIntervalBytes);
+			segments.put(segment.baseSequence, segment);
+			activeSegment = segment;
+			return segment;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to roll segment", e);
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private static StoredChunk storedChunk(LogSegment segment, long lastAppendMillis) {
+		return new StoredChunk(segment.baseSequence, segment.baseSequence + segment.entryCount(), segment.size(),
+				lastAppendMillis);
+	}
+
+	/**
+	 * Group commit of the active segment, runs on the flusher thread
+	 */
+	public void flush() {
+		flushLock.lock();
+		try {
+			if (activeSegment.flush()) {
+				fsyncCount.incrementAndGet();
+			}
+		} catch (RuntimeException e) {
+			log.error("Failed to flush segment: {}", e.getMessage());
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry read(long sequence) {
+		if (sequence >= nextSequence) {
+			return null;
+		}
+		Map.Entry<Long, LogSegment> entry = segments.floorEntry(sequence);
+		if (entry == null) {
+			return null;
+		}
+		LogSegment segment = entry.getValue();
+		int relative = (int) (sequence - segment.baseSequence);
+		if (relative >= segment.entryCount()) {
+			return null;
+		}
+		return decode(segment.readPayload(segment.positionOf(relative)));
+	}
+
+	private LogEntry decode(byte[] payload) {
+		try {
+			return objectMapper.readValue(payload, LogEntry.class);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Corrupt log record", e);
+		}
+	}
+
+	@Override
+	public Iterator<LogEntry> iterator(long fromSequence) {
+		long end = nextSequence;
+		long start = Math.max(fromSequence, firstSequence());
+		return new Iterator<>() {
+
+			private long sequence = start;
+			private LogSegment segment;
+			private int position;
+
+			@Override
+			public boolean hasNext() {
+				return sequence < end;
+			}
+
+			@Override
+			public LogEntry next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				if (segment == null || sequence - segment.baseSequence >= segment.entryCount()) {
+					// First call or end of the current segment: locate the record through the sparse index
+					Map.Entry<Long, LogSegment> entry = segments.floorEntry(sequence);
+					if (entry == null) {
+						// Evicted since the iteration started
+						sequence++;
+						return null;
+					}
+					segment = entry.getValue();
+					position = segment.positionOf((int) (sequence - segment.baseSequence));
+				}
+				LogEntry logEntry = decode(segment.readPayload(position));
+				position = segment.nextPosition(position);
+				sequence++;
+				return logEntry;
+			}
+		};
+	}
+
+	@Override
+	public long firstSequence() {
+		return segments.isEmpty() ? 0 : segments.firstKey();
+	}
+
+	@Override
+	public long nextSequence() {
+		return nextSequence;
+	}
+
+	@Override
+	public StoredChunk oldestChunk() {
+		return sealedSegments.peekFirst();
+	}
+
+	@Override
+	public List<StoredChunk> sealedChunks() {
+		return List.copyOf(sealedSegments);
+	}
+
+	@Override
+	public long activeChunkStart() {
+		StoredChunk newest = sealedSegments.peekLast();
+		return newest != null ? newest.nextSequence() : firstSequence();
+	}
+
+	/**
+	 * Deletes the oldest sealed segment. Readers holding it keep reading through the mapping, which outlives the file
+	 * until it is garbage collected.
+	 */
+	@Override
+	public void evictOldestChunk() {
+		StoredChunk chunk = sealedSegments.removeFirst();
+		LogSegment segment = segments.remove(chunk.firstSequence());
+		try {
+			segment.delete();
+		} catch (IOException e) {
+			log.error("Failed to delete evicted segment {}: {}", chunk.firstSequence(), e.getMessage());
+		}
+	}
+
+	@Override
+	public long storedBytes() {
+		long storedBytes = 0;
+		for (LogSegment segment : segments.values()) {
+			storedBytes += segment.size();
+		}
+		return storedBytes;
+	}
+
+	@Override
+	public Map<String, Object> getMetrics() {
+		long storedBytes = storedBytes();
+
+		Map<String, Object> metrics = new HashMap<>();
+		metrics.put("engine", "segment");
+		metrics.put("entries", nextSequence - firstSequence());
+		metrics.put("segments", segments.size());
+		metrics.put("storedBytes", storedBytes);
+		metrics.put("bytesAppended", bytesAppended.get());
+		metrics.put("fsyncCount", fsyncCount.get());
+		return metrics;
+	}
+
+	@Override
+	public void close() {
+		flusher.shutdown();
+		flushLock.lock();
+		try {
+			for (LogSegment segment : segments.values()) {
+				segment.close();
+			}
+		} catch (IOException e) {
+			log.error("Error closing segment store: {}", e.getMessage());
+		} finally {
+			flushLock.unlock();
+		}
+	}
+}
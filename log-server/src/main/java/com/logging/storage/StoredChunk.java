@@ -0,0 +1,19 @@
+package com.logging.storage;
+
+/**
+ * Unit of eviction of a {@link LogStore}: a run of consecutive sequences that is dropped at once <br/>
+ *
+ * Sequences follow arrival order, so a chunk also covers a receive time window that ends at
+ * <code>lastAppendMillis</code>.
+ *
+ * @param firstSequence    first sequence of the chunk
+ * @param nextSequence     sequence following its last entry
+ * @param bytes            storage the chunk holds, as counted by {@link LogStore#storedBytes()}
+ * @param lastAppendMillis epoch millis of the append of its last entry
+ */
+public record StoredChunk(long firstSequence, long nextSequence, long bytes, long lastAppendMillis) {
+
+	public long entries() {
+		return nextSequence - firstSequence;
+	}
+}
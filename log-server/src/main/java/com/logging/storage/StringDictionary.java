@@ -0,0 +1,70 @@
+package com.logging.storage;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense int codes for the distinct values of a low cardinality field, code 0 stands for null <br/>
+ *
+ * The single writer encodes, any thread decodes a code it read from an entry published after it: the value is stored,
+ * and the values array republished, before the code is handed out. Any thread may also look codes up to filter on
+ * them.
+ */
+final class StringDictionary {
+
+	private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+	private volatile String[] values = new String[16];
+	private volatile int size = 1;
+
+	/**
+	 * Single writer only
+	 *
+	 * @param value
+	 * @return code of value, 0 for null
+	 */
+	int encode(String value) {
+		if (value == null) {
+			return 0;
+		}
+		Integer code = codes.get(value);
+		if (code != null) {
+			return code;
+		}
+
+		int next = size;
+		String[] current = values;
+		if (next == current.length) {
+			current = Arrays.copyOf(current, current.length * 2);
+		}
+		current[next] = value;
+		values = current;
+		size = next + 1;
+		codes.put(value, next);
+		return next;
+	}
+
+	/**
+	 * @param value
+	 * @return code of value, 0 when it was never encoded
+	 */
+	int find(String value) {
+		Integer code = codes.get(value);
+		return code != null ? code : 0;
+	}
+
+	/**
+	 * @param code returned by {@link #encode(String)}
+	 * @return the value, shared by every entry holding it
+	 */
+	String decode(int code) {
+		return values[code];
+	}
+
+	/**
+	 * @return distinct values, null excluded
+	 */
+	int size() {
+		return size - 1;
+	}
+}
@@ -0,0 +1,65 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.aggregate.Aggregator;
+import com.logging.entity.LogEntry;
+import com.logging.model.AggregateQuery;
+import com.logging.model.AggregateResult;
+
+class AggregatorTest {
+
+	@Test
+	void testSketchesMergedAcrossPartitionsFindTheHeavyHitters() {
+		AggregateQuery.Aggregation top = new AggregateQuery.Aggregation();
+		top.setType("top");
+		top.setField("username");
+		top.setSize(5);
+		top.setApproximate(true);
+		AggregateQuery.Aggregation distinct = new AggregateQuery.Aggregation();
+		distinct.setType("distinct");
+		distinct.setField("username");
+		distinct.setApproximate(true);
+		AggregateQuery query = new AggregateQuery();
+		query.setAggregations(List.of(top, distinct));
+		Aggregator aggregator = new Aggregator(query);
+
+		// user0 to user4 take half of the logs, in decreasing shares, 50000 other users share the rest
+		Map<String, Long> exact = new HashMap<>();
+		Aggregator.Partial[] partials = new Aggregator.Partial[4];
+		for (int p = 0; p < partials.length; p++) {
+			partials[p] = aggregator.newPartial();
+			for (int i = p; i < 400_000; i += partials.length) {
+				LogEntry log = new LogEntry();
+				log.setUsername(
+						i % 2 == 0 ? "user" + Integer.numberOfTrailingZeros(i / 2 + 1) % 5 : "other" + i % 100_000);
+				exact.merge(log.getUsername(), 1L, Long::sum);
+				partials[p].add(log);
+			}
+		}
+		Aggregator.Partial merged = partials[0].merge(partials[1]).merge(partials[2].merge(partials[3]));
+		AggregateResult result = aggregator.result(merged, partials.length);
+
+		assertEquals(400_000, result.getMatched());
+		AggregateResult.Group group = result.getGroups().get(0);
+		@SuppressWarnings("unchecked")
+		List<AggregateResult.TopValue> values = (List<AggregateResult.TopValue>) group.getAggregations()
+				.get("top(username)");
+		assertEquals(List.of("user0", "user1", "user2", "user3", "user4"),
+				values.stream().map(AggregateResult.TopValue::getValue).toList());
+		// Count-min estimates never undercount and stay within 0.27% of the total
+		for (AggregateResult.TopValue value : values) {
+			long count = exact.get(value.getValue());
+			assertTrue(value.getCount() >= count && value.getCount() - count <= 1_080, value + " for " + count);
+		}
+		long users = (Long) group.getAggregations().get("distinct(username)");
+		assertTrue(Math.abs(users - exact.size()) < exact.size() / 40, "HyperLogLog estimate " + users);
+	}
+}
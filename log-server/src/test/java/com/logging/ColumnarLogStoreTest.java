@@ -0,0 +1,145 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.entity.LogEntry;
+import com.logging.index.LogIndex;
+import com.logging.storage.ColumnarLogStore;
+
+class ColumnarLogStoreTest {
+
+	@Test
+	void testEntriesReadBackUnchangedAcrossChunksAndPages() {
+		ColumnarLogStore store = new ColumnarLogStore(64, 1024);
+		List<LogEntry> appended = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			appended.add(createLog(i));
+		}
+		// Fields left null, timestamps kept as text and a message larger than a page
+		appended.add(new LogEntry(null));
+		LogEntry odd = new LogEntry("received");
+		odd.setTimestamp("2026-01-15T11:00:00+01:00");
+		odd.setRawMessage("é".repeat(1_000));
+		appended.add(odd);
+		appended.forEach(store::append);
+
+		for (int i = 0; i < appended.size(); i++) {
+			assertEquals(appended.get(i), store.read(i), "sequence " + i);
+		}
+		assertNull(store.read(appended.size()));
+		Iterator<LogEntry> iterator = store.iterator(990);
+		for (int i = 990; i < appended.size(); i++) {
+			assertEquals(appended.get(i), iterator.next());
+		}
+		assertFalse(iterator.hasNext());
+		assertEquals(3, store.getMetrics().get("heapFallbacks"));
+		assertEquals(50, ((Map<?, ?>) store.getMetrics().get("dictionary")).get("usernames"));
+	}
+
+	@Test
+	void testScanMatchesTheFilters() {
+		ColumnarLogStore store = new ColumnarLogStore(1024, 4096);
+		List<LogEntry> appended = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			LogEntry log = createLog(i);
+			appended.add(log);
+			store.append(log);
+		}
+
+		String[] services = { null, "linux_logout", "windows_login" };
+		String[] levels = { null, "error", "INFO" };
+		String[] usernames = { null, "user7" };
+		Boolean[] blacklisted = { null, true, false };
+		for (String service : services) {
+			for (String level : levels) {
+				for (String username : usernames) {
+					for (Boolean isBlacklisted : blacklisted) {
+						for (long from : new long[] { 0, 37, 1_030, 4_999, 6_000 }) {
+							List<Long> expected = LongStream.range(from, appended.size())
+									.filter(sequence -> matches(appended.get((int) sequence), service, level,
+											username, isBlacklisted))
+									.boxed().toList();
+							String filters = service + " " + level + " " + username + " " + isBlacklisted + " " + from;
+							assertEquals(expected, toList(store.scan(service, level, username, isBlacklisted, from)),
+									filters);
+						}
+					}
+				}
+			}
+		}
+
+		// The index hands the filters over to the scan
+		LogIndex logIndex = new LogIndex(store);
+		for (int i = 0; i < appended.size(); i++) {
+			logIndex.add(i, appended.get(i));
+		}
+		assertEquals(100, toList(logIndex.find(null, null, "user7", null)).size());
+		assertNull(logIndex.find(null, null, null, null));
+	}
+
+	@Test
+	void testEvictionReleasesChunksAndPages() {
+		ColumnarLogStore store = new ColumnarLogStore(64, 1024);
+		for (int i = 0; i < 1_000; i++) {
+			store.append(createLog(i));
+		}
+		long offHeapBytes = store.storedBytes();
+		assertEquals(64, store.oldestChunk().entries());
+
+		for (int i = 0; i < 10; i++) {
+			store.evictOldestChunk();
+		}
+		assertEquals(640, store.firstSequence());
+		assertNull(store.read(639));
+		assertEquals(createLog(640), store.read(640));
+		assertEquals(createLog(999), store.read(999));
+		assertEquals(360L, store.getMetrics().get("entries"));
+		assertEquals(true, store.storedBytes() < offHeapBytes / 2);
+
+		// Scans start at the first stored row whatever the requested start
+		List<Long> errors = toList(store.scan(null, "error", null, null, 0));
+		assertEquals(LongStream.range(640, 1_000).filter(i -> i % 5 == 0).boxed().toList(), errors);
+		Iterator<LogEntry> iterator = store.iterator(0);
+		assertEquals(createLog(640), iterator.next());
+	}
+
+	private boolean matches(LogEntry log, String service, String level, String username, Boolean isBlacklisted) {
+		return (service == null || service.equals(log.getEventCategory()))
+				&& (level == null || level.equalsIgnoreCase(log.getSeverity()))
+				&& (username == null || username.equals(log.getUsername()))
+				&& (isBlacklisted == null || isBlacklisted.equals(log.getIsBlacklisted()));
+	}
+
+	private List<Long> toList(PrimitiveIterator.OfLong sequences) {
+		List<Long> list = new ArrayList<>();
+		sequences.forEachRemaining((long sequence) -> list.add(sequence));
+		return list;
+	}
+
+	private LogEntry createLog(int i) {
+		LogEntry log = new LogEntry(Instant.ofEpochSecond(1_768_471_200L + i / 100, i % 7 * 1_001L).toString());
+		log.setTimestamp(Instant.ofEpochMilli(1_768_471_200_000L + i * 7L).toString());
+		log.setEventCategory(i % 3 == 0 ? "linux_logout" : "linux_login");
+		log.setEventSourceType("linux");
+		log.setSeverity(i % 5 == 0 ? "ERROR" : i % 5 == 1 ? "info" : "INFO");
+		log.setUsername("user" + i % 50);
+		log.setHostname("web-0" + i % 4);
+		log.setRawMessage("<86>Jan 15 10:00:00 web-0" + i % 4
+				+ " sudo: pam_unix(sudo:session): session opened for user user" + i % 50 + " by (uid=0)");
+		log.setIsBlacklisted(i % 10 == 0 ? Boolean.TRUE : i % 10 == 1 ? null : Boolean.FALSE);
+		log.setSentAt(i % 2 == 0 ? 1_768_471_200_000_000L + i : null);
+		return log;
+	}
+}
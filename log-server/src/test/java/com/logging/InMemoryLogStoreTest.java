@@ -0,0 +1,117 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.compress.BlockCompressor;
+import com.logging.entity.LogEntry;
+import com.logging.storage.InMemoryLogStore;
+
+class InMemoryLogStoreTest {
+
+	@Test
+	void testSealedBlocksReadBackUnchanged() {
+		for (String codec : BlockCompressor.NAMES) {
+			InMemoryLogStore store = new InMemoryLogStore(BlockCompressor.forName(codec), 256);
+			List<LogEntry> appended = new ArrayList<>();
+			for (int i = 0; i < 1_000; i++) {
+				LogEntry log = createLog(i);
+				appended.add(log);
+				assertEquals(i, store.append(log));
+			}
+
+			// 3 sealed blocks and an unsealed tail
+			for (int i = 0; i < 1_000; i++) {
+				assertEquals(appended.get(i), store.read(i), codec + " sequence " + i);
+			}
+			assertNull(store.read(1_000));
+			List<LogEntry> scanned = new ArrayList<>();
+			store.iterator(500).forEachRemaining(scanned::add);
+			assertEquals(appended.subList(500, 1_000), scanned);
+
+			Map<?, ?> compression = (Map<?, ?>) store.getMetrics().get("compression");
+			assertEquals(3L, compression.get("sealedBlocks"));
+			assertTrue((double) compression.get("ratio") > 3, codec + " ratio " + compression.get("ratio"));
+		}
+	}
+
+	@Test
+	void testEntriesReadBackUnchangedFromDictionaryEncoding() {
+		InMemoryLogStore store = new InMemoryLogStore();
+		List<LogEntry> appended = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			appended.add(createLog(i));
+		}
+		// Fields left null, and timestamps that are kept as text
+		LogEntry sparse = new LogEntry(null);
+		sparse.setTimestamp("Jan 15 10:00:00");
+		appended.add(sparse);
+		LogEntry offset = new LogEntry("2026-01-15T10:00:00.123456789Z");
+		offset.setTimestamp("2026-01-15T11:00:00+01:00");
+		offset.setSeverity("info");
+		appended.add(offset);
+		appended.forEach(store::append);
+
+		for (int i = 0; i < appended.size(); i++) {
+			assertEquals(appended.get(i), store.read(i), "sequence " + i);
+		}
+		// Decoded entries share the dictionary strings
+		assertSame(store.read(0).getHostname(), store.read(4).getHostname());
+		Map<?, ?> dictionary = (Map<?, ?>) store.getMetrics().get("dictionary");
+		assertEquals(50, dictionary.get("usernames"));
+		assertEquals(2, dictionary.get("severities"));
+	}
+
+	@Test
+	void testReadersSeeEveryEntryWhileBlocksAreSealed() throws InterruptedException {
+		InMemoryLogStore store = new InMemoryLogStore(BlockCompressor.forName("lz4"), 64);
+		AtomicReference<String> failure = new AtomicReference<>();
+		Thread reader = new Thread(() -> {
+			while (store.nextSequence() < 20_000 && failure.get() == null) {
+				long sequence = store.nextSequence() - 1;
+				LogEntry log = sequence >= 0 ? store.read(sequence) : null;
+				if (sequence >= 0 && (log == null || !("user" + sequence % 50).equals(log.getUsername()))) {
+					failure.set("sequence " + sequence + " read " + log);
+				}
+			}
+		});
+		reader.start();
+		for (int i = 0; i < 20_000; i++) {
+			store.append(createLog(i));
+		}
+		reader.join();
+
+		assertNull(failure.get());
+		Iterator<LogEntry> iterator = store.iterator(0);
+		for (int i = 0; i < 20_000; i++) {
+			assertEquals("user" + i % 50, iterator.next().getUsername());
+		}
+	}
+
+	private LogEntry createLog(int i) {
+		// Entries of a batch share their receive time
+		LogEntry log = new LogEntry(Instant.ofEpochSecond(1_768_471_200L + i / 100).toString());
+		log.setTimestamp(Instant.ofEpochMilli(1_768_471_200_000L + i * 7L).toString());
+		log.setEventCategory(i % 3 == 0 ? "linux_logout" : "linux_login");
+		log.setEventSourceType("linux");
+		log.setSeverity("INFO");
+		log.setUsername("user" + i % 50);
+		log.setHostname("web-0" + i % 4);
+		log.setRawMessage("<86>Jan 15 10:00:00 web-0" + i % 4
+				+ " sudo: pam_unix(sudo:session): session opened for user user" + i % 50 + " by (uid=0)");
+		log.setIsBlacklisted(i % 10 == 0);
+		log.setSentAt(i % 2 == 0 ? 1_768_471_200_000_000L + i : null);
+		return log;
+	}
+}
@@ -0,0 +1,132 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.ingest.IngestOffer;
+import com.logging.ingest.IngestPipeline;
+import com.logging.ingest.IngestSettings;
+
+class IngestPipelineTest {
+
+	private static final int PRODUCERS = 4;
+	private static final int ENTRIES_PER_PRODUCER = 50_000;
+
+	@Test
+	void testConcurrentProducersAreCountedExactlyAndKeepTheirOrder() throws InterruptedException {
+		for (String waitStrategy : new String[] { "blocking", "sleeping", "yielding", "busy-spin" }) {
+			// Entries are producer * ENTRIES_PER_PRODUCER + index, checked in order per producer by the writer
+			long[] last = new long[PRODUCERS];
+			Arrays.fill(last, -1);
+			AtomicInteger outOfOrder = new AtomicInteger();
+			AtomicInteger largestBatch = new AtomicInteger();
+			IngestPipeline<Integer> pipeline = new IngestPipeline<>("test-writer",
+					new IngestSettings(1024, 64, waitStrategy), batch -> {
+						largestBatch.accumulateAndGet(batch.size(), Math::max);
+						for (int entry : batch) {
+							int producer = entry / ENTRIES_PER_PRODUCER;
+							if (entry <= last[producer]) {
+								outOfOrder.incrementAndGet();
+							}
+							last[producer] = entry;
+						}
+						// Slower than the producers, so that the ring fills up
+						LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(20));
+						return batch.size();
+					});
+
+			long[] accepted = new long[PRODUCERS];
+			List<Thread> producers = new ArrayList<>();
+			for (int p = 0; p < PRODUCERS; p++) {
+				int producer = p;
+				producers.add(Thread.ofPlatform().start(() -> {
+					int base = producer * ENTRIES_PER_PRODUCER;
+					for (int i = 0; i < ENTRIES_PER_PRODUCER;) {
+						if (i % 20 == 0) {
+							List<Integer> batch = new ArrayList<>();
+							for (int j = i; j < i + 10; j++) {
+								batch.add(base + j);
+							}
+							accepted[producer] += pipeline.offer(batch).accepted();
+							i += 10;
+						} else {
+							accepted[producer] += pipeline.offer(base + i) ? 1 : 0;
+							i++;
+						}
+					}
+				}));
+			}
+			for (Thread producer : producers) {
+				producer.join();
+			}
+			pipeline.flush();
+
+			Map<String, Object> metrics = pipeline.getMetrics();
+			long total = Arrays.stream(accepted).sum();
+			assertEquals(total, metrics.get("accepted"), waitStrategy);
+			assertEquals((long) PRODUCERS * ENTRIES_PER_PRODUCER, total + (Long) metrics.get("rejected"), waitStrategy);
+			assertEquals(total, metrics.get("processed"), waitStrategy);
+			assertEquals(0L, metrics.get("pending"), waitStrategy);
+			assertEquals(0, outOfOrder.get(), waitStrategy);
+			assertTrue(largestBatch.get() <= 64, waitStrategy);
+			pipeline.close();
+		}
+	}
+
+	@Test
+	void testFullRingRejectsAndFailedEntriesAreDropped() {
+		CountDownLatch stalled = new CountDownLatch(1);
+		IngestPipeline<Integer> pipeline = new IngestPipeline<>("test-writer", new IngestSettings(8, 4, "blocking"),
+				batch -> {
+					try {
+						stalled.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					if (batch.contains(-2)) {
+						throw new IllegalStateException("Storage failure");
+					}
+					// Negative entries fail alone
+					return (int) batch.stream().filter(entry -> entry >= 0).count();
+				});
+
+		// The writer holds the first slot until the handler returns
+		assertTrue(pipeline.offer(-1));
+		LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+		List<Integer> batch = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			batch.add(i);
+		}
+		assertEquals(new IngestOffer(7, 8), pipeline.offer(batch));
+		assertFalse(pipeline.offer(100));
+		stalled.countDown();
+		pipeline.flush();
+
+		assertTrue(pipeline.offer(-2));
+		pipeline.flush();
+		Map<String, Object> metrics = pipeline.getMetrics();
+		assertEquals(9L, metrics.get("accepted"));
+		assertEquals(4L, metrics.get("rejected"));
+		// -1, then a batch with -2 that failed as a whole
+		assertEquals(2L, metrics.get("dropped"));
+		assertEquals(7L, metrics.get("processed"));
+
+		pipeline.close();
+		assertFalse(pipeline.offer(200));
+		assertEquals(0, pipeline.offer(List.of(201, 202)).accepted());
+		assertEquals(7L, pipeline.getMetrics().get("rejected"));
+		assertEquals(9L, pipeline.getMetrics().get("accepted"));
+	}
+}
@@ -0,0 +1,243 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.function.IntPredicate;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.entity.LogEntry;
+import com.logging.index.LogIndex;
+import com.logging.index.PostingList;
+import com.logging.model.LogQuery;
+import com.logging.storage.ColumnarLogStore;
+
+class LogIndexTest {
+
+	@Test
+	void testPostingListAdvanceAcrossBlocks() {
+		PostingList postings = new PostingList();
+		for (int i = 0; i < 5000; i++) {
+			postings.add(i * 3L);
+		}
+
+		assertEquals(5000, postings.size());
+		assertEquals(3000L, postings.get(1000));
+		assertEquals(1000, postings.advance(3000, 0, postings.size()));
+		assertEquals(1001, postings.advance(3001, 0, postings.size()));
+		assertEquals(5000, postings.advance(20000, 10, postings.size()));
+	}
+
+	@Test
+	void testFindIntersectsFilters() {
+		LogIndex index = new LogIndex();
+		for (int i = 0; i < 3000; i++) {
+			String severity = i % 2 == 0 ? "ERROR" : "INFO";
+			index.add(i, createLog(i % 3 == 0 ? "login.audit" : "auth.service", severity, "user" + (i % 10), i % 5 == 0));
+		}
+
+		assertNull(index.find(null, null, null, null));
+		assertEquals(sequences(0, 3000, i -> i % 6 == 0), collect(index.find("login.audit", "error", null, null)));
+		assertEquals(sequences(0, 3000, i -> i % 30 == 0), collect(index.find("login.audit", "ERROR", "user0", true)));
+		assertEquals(sequences(0, 3000, i -> i % 10 == 7 && i % 5 != 0), collect(index.find(null, null, "user7", false)));
+		assertFalse(index.find("unknown.service", null, null, null).hasNext());
+	}
+
+	@Test
+	void testTimeOrderedQueries() {
+		LogIndex index = new LogIndex();
+		Instant start = Instant.parse("2025-01-16T12:00:00Z");
+		// Arrival order is not timestamp order: odd sequences are 10 seconds late
+		for (int i = 0; i < 2000; i++) {
+			LogEntry log = createLog("auth.service", i % 4 == 0 ? "ERROR" : "INFO", "user" + i, false);
+			log.setTimestamp(start.plusMillis(i * 10L + (i % 2 == 1 ? -10_000 : 0)).toString());
+			index.add(i, log);
+		}
+		LogEntry untimed = createLog("auth.service", "INFO", "untimed", false);
+		untimed.setTimestamp("not a timestamp");
+		index.add(2000, untimed);
+
+		LogQuery newest = new LogQuery();
+		newest.setSort("timestamp");
+		newest.setOrder("desc");
+		assertEquals(List.of(1998L, 1996L, 1994L), collect(index.find(newest)).subList(0, 3));
+
+		LogQuery oldest = new LogQuery();
+		oldest.setSort("timestamp");
+		List<Long> ascending = collect(index.find(oldest));
+		assertEquals(2001, ascending.size());
+		assertEquals(List.of(1L, 3L), ascending.subList(0, 2));
+		assertEquals(2000L, ascending.get(2000));
+
+		LogQuery range = new LogQuery();
+		range.setFrom(start);
+		range.setTo(start.plusMillis(100));
+		// A time range is served from the time index, in timestamp order
+		assertEquals(List.of(0L, 1001L, 2L, 1003L, 4L, 1005L, 6L, 1007L, 8L, 1009L), collect(index.find(range)));
+
+		LogQuery latestErrors = new LogQuery();
+		latestErrors.setLevel("error");
+		latestErrors.setOrder("desc");
+		latestErrors.setLimit(3);
+		// Walked lazily, the limit is applied by the caller
+		assertEquals(List.of(1996L, 1992L, 1988L), collect(index.find(latestErrors)).subList(0, 3));
+
+		latestErrors.setTo(start.plusMillis(19_885));
+		assertEquals(List.of(1988L, 1984L, 1980L), collect(index.find(latestErrors)).subList(0, 3));
+	}
+
+	@Test
+	void testFullTextQueries() {
+		List<LogEntry> logs = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			LogEntry log = createLog("auth.service", i % 2 == 0 ? "ERROR" : "INFO", "user" + (i % 50), false);
+			log.setRawMessage("<86>Jan 15 10:00:00 web-0" + i % 4
+					+ " sudo: pam_unix(sudo:session): session opened for user user" + i % 50 + " by (uid="
+					+ (i % 7 == 0 ? 0 : 1000 + i % 7) + ")");
+			logs.add(log);
+		}
+		ColumnarLogStore store = new ColumnarLogStore(1024, 4096);
+		logs.forEach(store::append);
+
+		// Posting lists and column scan filters alike
+		for (LogIndex index : new LogIndex[] { new LogIndex(), new LogIndex(store) }) {
+			for (int i = 0; i < logs.size(); i++) {
+				index.add(i, logs.get(i));
+			}
+
+			assertEquals(sequences(0, 3000, i -> i % 50 == 7), collect(find(index, "USER7", null)));
+			assertEquals(sequences(0, 3000, i -> i % 7 == 0), collect(find(index, "uid=0", null)));
+			assertEquals(sequences(0, 3000, i -> i % 7 == 0), collect(find(index, "\"by uid 0\"", null)));
+			assertEquals(List.of(), collect(find(index, "\"0 uid\"", null)));
+			assertEquals(sequences(0, 3000, i -> i % 4 == 1), collect(find(index, "web-01*", null)));
+			assertEquals(sequences(0, 3000, i -> i % 50 == 1 || i % 50 / 10 == 1),
+					collect(find(index, "user1*", null)));
+			assertEquals(3000, collect(find(index, "pam_unix sess*", null)).size());
+			assertEquals(List.of(), collect(find(index, "uid=0 missing", null)));
+
+			// Intersected with the structured filters
+			assertEquals(sequences(0, 3000, i -> i % 7 == 0 && i % 4 == 2),
+					collect(find(index, "uid=0 web-02", "error")));
+			LogQuery page = new LogQuery();
+			page.setQ("uid=0");
+			page.setUsername("user21");
+			page.setCursor(371L);
+			assertEquals(sequences(372, 3000, i -> i % 350 == 21), collect(index.find(page)));
+
+			assertThrows(IllegalArgumentException.class, () -> find(index, " =* \"\" ", null));
+
+			// Retention drops whole blocks of postings, the rest of the trimmed ones are skipped
+			index.trim(1500);
+			assertEquals(sequences(1500, 3000, i -> i % 7 == 0), collect(find(index, "uid=0", null)));
+		}
+	}
+
+	@Test
+	void testFilteredTimeOrderPagesMatchTheFullOrder() {
+		List<LogEntry> logs = new ArrayList<>();
+		long[] millis = new long[4000];
+		Instant start = Instant.parse("2025-01-16T12:00:00Z");
+		for (int i = 0; i < 4000; i++) {
+			LogEntry log = createLog(i % 50 == 0 ? "login.audit" : "auth.service", i % 3 == 0 ? "ERROR" : "INFO",
+					"user" + i % 5, false);
+			log.setRawMessage("session opened for user" + i % 5 + (i % 2 == 0 ? " by root" : ""));
+			// Spread over 400 buckets, each seventh entry arriving a few seconds late
+			millis[i] = i % 17 == 0 ? Long.MAX_VALUE : i * 100L - (i % 7 == 0 ? 3_000 : 0);
+			log.setTimestamp(millis[i] == Long.MAX_VALUE ? "untimed" : start.plusMillis(millis[i]).toString());
+			logs.add(log);
+		}
+		ColumnarLogStore store = new ColumnarLogStore(1024, 4096);
+		logs.forEach(store::append);
+
+		for (LogIndex index : new LogIndex[] { new LogIndex(), new LogIndex(store) }) {
+			for (int i = 0; i < logs.size(); i++) {
+				index.add(i, logs.get(i));
+			}
+			for (boolean descending : new boolean[] { false, true }) {
+				// Common filters walk the buckets, the first page of rare ones is ranked
+				LogQuery common = new LogQuery();
+				common.setLevel("error");
+				common.setQ("root");
+				LogQuery rare = new LogQuery();
+				rare.setService("login.audit");
+				for (LogQuery query : new LogQuery[] { common, rare }) {
+					query.setSort("timestamp");
+					query.setOrder(descending ? "desc" : "asc");
+					List<Long> expected = timeOrder(
+							query == common ? sequences(0, 4000, i -> i % 6 == 0) : sequences(0, 4000, i -> i % 50 == 0),
+							millis, descending);
+					assertEquals(expected, collect(index.find(query)));
+
+					List<Long> paged = new ArrayList<>();
+					query.setLimit(30);
+					while (true) {
+						PrimitiveIterator.OfLong results = index.find(query);
+						List<Long> page = new ArrayList<>();
+						while (page.size() < 30 && results.hasNext()) {
+							page.add(results.nextLong());
+						}
+						if (page.isEmpty()) {
+							break;
+						}
+						paged.addAll(page);
+						query.setCursor(page.get(page.size() - 1));
+					}
+					assertEquals(expected, paged);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Timestamp order, equal timestamps in sequence order reversed when descending, untimed entries last in arrival
+	 * order
+	 */
+	private List<Long> timeOrder(List<Long> sequences, long[] millis, boolean descending) {
+		Comparator<Long> byTime = Comparator.comparingLong(sequence -> millis[sequence.intValue()]);
+		Comparator<Long> order = byTime.thenComparing(Comparator.naturalOrder());
+		List<Long> timed = new ArrayList<>(sequences.stream().filter(s -> millis[s.intValue()] != Long.MAX_VALUE)
+				.sorted(descending ? order.reversed() : order).toList());
+		sequences.stream().filter(s -> millis[s.intValue()] == Long.MAX_VALUE).forEach(timed::add);
+		return timed;
+	}
+
+	private PrimitiveIterator.OfLong find(LogIndex index, String q, String level) {
+		LogQuery query = new LogQuery();
+		query.setQ(q);
+		query.setLevel(level);
+		return index.find(query);
+	}
+
+	private List<Long> collect(PrimitiveIterator.OfLong sequences) {
+		List<Long> result = new ArrayList<>();
+		sequences.forEachRemaining((long sequence) -> result.add(sequence));
+		return result;
+	}
+
+	private List<Long> sequences(int from, int to, IntPredicate predicate) {
+		List<Long> result = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			if (predicate.test(i)) {
+				result.add((long) i);
+			}
+		}
+		return result;
+	}
+
+	private LogEntry createLog(String category, String severity, String username, boolean blacklisted) {
+		LogEntry log = new LogEntry();
+		log.setEventCategory(category);
+		log.setSeverity(severity);
+		log.setUsername(username);
+		log.setIsBlacklisted(blacklisted);
+		return log;
+	}
+}
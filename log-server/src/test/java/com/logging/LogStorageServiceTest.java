@@ -1,40 +1,73 @@
 package com.logging;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import com.logging.compress.BlockCompressor;
 import com.logging.entity.LogEntry;
+import com.logging.ingest.IngestOffer;
+import com.logging.ingest.IngestSettings;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.model.AggregateQuery;
+import com.logging.model.AggregateResult;
+import com.logging.model.LogQuery;
+import com.logging.model.LogRecord;
+import com.logging.replication.ReplicationSettings;
+import com.logging.rollup.TimeSeriesRollups;
 import com.logging.service.LogStorageService;
 import com.logging.service.impl.LogStorageServiceImpl;
+import com.logging.storage.InMemoryLogStore;
+import com.logging.storage.RetentionPolicy;
+import com.logging.storage.SegmentLogStore;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
+import tools.jackson.databind.json.JsonMapper;
 
 class LogStorageServiceTest {
 
-	private LogStorageService logStorageService;
+	private LogStorageServiceImpl logStorageService;
 
 	@BeforeEach
 	void setUp() {
 		Scheduler scheduler = Schedulers.immediate();
-		logStorageService = new LogStorageServiceImpl(scheduler);
+		logStorageService = new LogStorageServiceImpl(scheduler, new InMemoryLogStore(), new MetricsRegistry(),
+				RetentionPolicy.UNLIMITED, new TimeSeriesRollups(), IngestSettings.DEFAULT,
+				ReplicationSettings.STANDALONE);
+	}
+
+	@AfterEach
+	void tearDown() {
+		logStorageService.close();
 	}
 
 	@Test
 	void testIngestLog() {
 		LogEntry logEntry = createSampleLog("linux_login", "INFO", "testuser", false);
 
-		Mono<Void> result = logStorageService.ingestLog(logEntry);
+		Mono<Long> result = logStorageService.ingestLog(logEntry);
 
-		StepVerifier.create(result).verifyComplete();
+		// Ingest position right after the log
+		StepVerifier.create(result).expectNext(1L).verifyComplete();
 
 		// Wait for async processing
 		try {
@@ -46,6 +79,34 @@ class LogStorageServiceTest {
 		assertEquals(1, logStorageService.getTotalLogs());
 	}
 
+	@Test
+	void testJsonEntriesGetTheirReceiveTime() {
+		LogEntry logEntry = JsonMapper.builder().build().readValue(
+				"{\"timestamp\":\"2025-01-16T12:00:00Z\",\"event.category\":\"linux_login\"}", LogEntry.class);
+
+		assertEquals("linux_login", logEntry.getEventCategory());
+		assertNotNull(logEntry.getReceivedAt());
+	}
+
+	@Test
+	void testIngestBatch() {
+		List<LogEntry> batch = List.of(createSampleLog("linux_login", "INFO", "user1", false),
+				createSampleLog("linux_logout", "INFO", "user1", false),
+				createSampleLog("windows_login", "ERROR", "user2", true));
+
+		StepVerifier.create(logStorageService.ingestBatch(batch)).expectNext(new IngestOffer(3, 3)).verifyComplete();
+
+		try {
+			Thread.sleep(200);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		assertEquals(3, logStorageService.getTotalLogs());
+		StepVerifier.create(logStorageService.queryLogs(null, null, "user1", null, null, null)).expectNextCount(2)
+				.verifyComplete();
+	}
+
 	@Test
 	void testQueryLogsByService() {
 		LogEntry log1 = createSampleLog("linux_login", "INFO", "user1", false);
@@ -126,6 +187,224 @@ class LogStorageServiceTest {
 		StepVerifier.create(results).expectNextCount(5).verifyComplete();
 	}
 
+	@Test
+	void testCursorPagination() {
+		List<LogEntry> batch = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			LogEntry log = createSampleLog(i % 2 == 0 ? "linux_login" : "linux_logout", "INFO", "user" + i, false);
+			// Timestamps repeat so that pages also have to resume inside runs of equal timestamps
+			log.setTimestamp(Instant.parse("2025-01-16T12:00:00Z").plusSeconds(i % 7).toString());
+			batch.add(log);
+		}
+		logStorageService.ingestBatch(batch).block();
+
+		try {
+			Thread.sleep(200);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		for (String order : new String[] { null, "asc", "desc" }) {
+			for (String service : new String[] { null, "linux_login" }) {
+				LogQuery query = new LogQuery();
+				query.setService(service);
+				query.setOrder(order);
+				List<String> all = usernames(logStorageService.queryRecords(query).collectList().block());
+				assertEquals(service == null ? 60 : 30, all.size());
+
+				List<String> paged = new ArrayList<>();
+				query.setLimit(7);
+				List<LogRecord> page;
+				do {
+					page = logStorageService.queryRecords(query).collectList().block();
+					paged.addAll(usernames(page));
+					if (!page.isEmpty()) {
+						query.setCursor(page.get(page.size() - 1).getCursor());
+					}
+				} while (page.size() == 7);
+
+				assertEquals(all, paged, "order=" + order + ", service=" + service);
+			}
+		}
+	}
+
+	private List<String> usernames(List<LogRecord> records) {
+		return records.stream().map(record -> record.getEntry().getUsername()).toList();
+	}
+
+	@Test
+	void testRetentionEvictsWholeChunks() {
+		InMemoryLogStore store = new InMemoryLogStore(BlockCompressor.forName("lz4"), 512);
+		LogStorageServiceImpl service = new LogStorageServiceImpl(Schedulers.immediate(), store,
+				new MetricsRegistry(), new RetentionPolicy(0, 10_000, 0, 0), new TimeSeriesRollups(),
+				IngestSettings.DEFAULT, ReplicationSettings.STANDALONE);
+		for (int i = 0; i < 20_000; i += 500) {
+			List<LogEntry> batch = new ArrayList<>();
+			for (int j = i; j < i + 500; j++) {
+				LogEntry log = createSampleLog("linux_login", j % 4 == 0 ? "ERROR" : "INFO", "user" + j % 10, false);
+				log.setTimestamp(Instant.parse("2025-01-16T12:00:00Z").plusMillis(j * 10L).toString());
+				batch.add(log);
+			}
+			assertEquals(500, service.ingestBatch(batch).block().accepted());
+		}
+		service.flush();
+
+		// Two chunks of 8192 go, the store is then under the limit
+		assertEquals(16_384, service.enforceRetention());
+		assertEquals(0, service.enforceRetention());
+		assertEquals(16_384, store.firstSequence());
+		// The counters follow the retained logs
+		assertEquals(3_616, service.getTotalLogs());
+
+		Map<String, Object> metrics = service.getMetrics().block();
+		assertEquals(Map.of("linux_login", 3_616L), metrics.get("logsByCategory"));
+		assertEquals(Map.of("error", 904L, "info", 2_712L), metrics.get("logsBySeverity"));
+		@SuppressWarnings("unchecked")
+		Map<String, Object> retention = (Map<String, Object>) metrics.get("retention");
+		assertEquals(2L, retention.get("evictedChunks"));
+		assertEquals(16_384L, retention.get("evictedEntries"));
+		assertEquals(3_616L, retention.get("retainedEntries"));
+		assertEquals(store.storedBytes(), retention.get("retainedBytes"));
+
+		// Filters, time order and plain scans only return what is still stored
+		LogQuery byUser = new LogQuery();
+		byUser.setUsername("user3");
+		byUser.setLevel("error");
+		assertEquals(0, service.queryLogs(byUser).count().block());
+		byUser.setLevel(null);
+		assertEquals(361, service.queryLogs(byUser).count().block());
+
+		LogQuery oldest = new LogQuery();
+		oldest.setOrder("asc");
+		oldest.setLimit(2);
+		List<LogRecord> page = service.queryRecords(oldest).collectList().block();
+		assertEquals(List.of(16_384L, 16_385L), page.stream().map(LogRecord::getCursor).toList());
+		assertEquals(3_616, service.queryLogs(new LogQuery()).count().block());
+
+		// A cursor left behind by eviction still resumes a scan, not a time ordered page
+		LogQuery scan = new LogQuery();
+		scan.setCursor(100L);
+		assertEquals(3_616, service.queryLogs(scan).count().block());
+		oldest.setCursor(100L);
+		assertThrows(IllegalArgumentException.class, () -> service.queryLogs(oldest).blockLast());
+	}
+
+	@Test
+	void testRecoveredCountersFollowRetention(@TempDir Path directory) throws IOException {
+		List<LogEntry> batch = new ArrayList<>();
+		for (int i = 0; i < 2_000; i++) {
+			batch.add(createSampleLog(i % 2 == 0 ? "linux_login" : "windows_event", i % 4 == 0 ? "ERROR" : "INFO",
+					"user" + i % 10, false));
+		}
+		SegmentLogStore store = new SegmentLogStore(directory, 32 * 1024, 4096, 10);
+		LogStorageServiceImpl service = new LogStorageServiceImpl(Schedulers.immediate(), store, new MetricsRegistry(),
+				RetentionPolicy.UNLIMITED, new TimeSeriesRollups(), IngestSettings.DEFAULT,
+				ReplicationSettings.STANDALONE);
+		service.ingestBatch(batch).block();
+		service.close();
+		store.close();
+
+		// Counted again per segment on recovery, then dropped with each evicted segment
+		SegmentLogStore reopened = new SegmentLogStore(directory, 32 * 1024, 4096, 10);
+		LogStorageServiceImpl recovered = new LogStorageServiceImpl(Schedulers.immediate(), reopened,
+				new MetricsRegistry(), new RetentionPolicy(0, 1_000, 0, 0), new TimeSeriesRollups(),
+				IngestSettings.DEFAULT, ReplicationSettings.STANDALONE);
+		try {
+			assertEquals(2_000, recovered.getTotalLogs());
+			long evicted = recovered.enforceRetention();
+			assertTrue(evicted >= 1_000, "evicted " + evicted);
+			long first = reopened.firstSequence();
+			assertEquals(2_000 - first, recovered.getTotalLogs());
+
+			Map<String, Object> metrics = recovered.getMetrics().block();
+			long errors = LongStream.range(first, 2_000).filter(i -> i % 4 == 0).count();
+			long logins = LongStream.range(first, 2_000).filter(i -> i % 2 == 0).count();
+			assertEquals(Map.of("error", errors, "info", 2_000 - first - errors), metrics.get("logsBySeverity"));
+			assertEquals(Map.of("linux_login", logins, "windows_event", 2_000 - first - logins),
+					metrics.get("logsByCategory"));
+		} finally {
+			recovered.close();
+			reopened.close();
+		}
+	}
+
+	@Test
+	void testAggregateMatchesAFullScan() {
+		Instant start = Instant.parse("2025-01-16T12:00:00Z");
+		List<LogEntry> logs = new ArrayList<>();
+		for (int i = 0; i < 140_000; i += 500) {
+			List<LogEntry> batch = new ArrayList<>();
+			for (int j = i; j < i + 500; j++) {
+				LogEntry log = createSampleLog(j % 3 == 0 ? "linux_logout" : "linux_login", j % 4 == 0 ? "ERROR" : "INFO",
+						"user" + j % 5000, j % 50 == 0);
+				log.setTimestamp(start.plusMillis(j * 10L).toString());
+				log.setHostname("host" + (j % 10 < 6 ? 0 : j % 10 < 9 ? 1 : 2));
+				log.setRawMessage("session opened for user " + log.getUsername());
+				batch.add(log);
+			}
+			logs.addAll(batch);
+			assertEquals(500, logStorageService.ingestBatch(batch).block().accepted());
+			// More logs than the ring holds, stored before the next batch instead of rejected
+			logStorageService.flush();
+		}
+
+		AggregateQuery byCategory = new AggregateQuery();
+		byCategory.setGroupBy(List.of("service"));
+		byCategory.setAggregations(List.of(aggregation("distinct", "username", false),
+				aggregation("distinct", "username", true), aggregation("top", "hostname", false)));
+		AggregateResult result = logStorageService.aggregate(byCategory).block();
+		assertEquals(140_000, result.getMatched());
+		assertEquals(Math.min(2, Runtime.getRuntime().availableProcessors()), result.getPartitions());
+		assertEquals(2, result.getTotalGroups());
+
+		AggregateResult.Group logins = result.getGroups().get(0);
+		assertEquals(Map.of("event.category", "linux_login"), logins.getKey());
+		assertEquals(count(logs, log -> log.getEventCategory().equals("linux_login")), logins.getCount());
+		assertEquals(5000L, logins.getAggregations().get("distinct(username)"));
+		long approximate = (Long) logins.getAggregations().get("approximate");
+		assertTrue(Math.abs(approximate - 5000) < 150, "HyperLogLog estimate " + approximate);
+		assertEquals(List.of(
+				new AggregateResult.TopValue("host0",
+						count(logs, log -> log.getEventCategory().equals("linux_login") && log.getHostname().equals("host0"))),
+				new AggregateResult.TopValue("host1",
+						count(logs, log -> log.getEventCategory().equals("linux_login") && log.getHostname().equals("host1")))),
+				logins.getAggregations().get("top(hostname)"));
+
+		// Filters, full-text query and time range, a single group
+		AggregateQuery filtered = new AggregateQuery();
+		filtered.setLevel("error");
+		filtered.setQ("\"opened for\" user42*");
+		filtered.setFrom(start.plusMillis(100_000));
+		filtered.setTo(start.plusMillis(400_000));
+		filtered.setAggregations(List.of(aggregation("count", null, false)));
+		result = logStorageService.aggregate(filtered).block();
+		long expected = count(logs, log -> log.getSeverity().equals("ERROR") && log.getUsername().startsWith("user42")
+				&& Instant.parse(log.getTimestamp()).isAfter(start.plusMillis(99_999))
+				&& Instant.parse(log.getTimestamp()).isBefore(start.plusMillis(400_000)));
+		assertEquals(expected, result.getMatched());
+		assertEquals(1, result.getGroups().size());
+		assertEquals(Map.of("count", expected), result.getGroups().get(0).getAggregations());
+
+		byCategory.setGroupBy(List.of("unknown"));
+		assertThrows(IllegalArgumentException.class, () -> logStorageService.aggregate(byCategory).block());
+	}
+
+	private AggregateQuery.Aggregation aggregation(String type, String field, boolean approximate) {
+		AggregateQuery.Aggregation aggregation = new AggregateQuery.Aggregation();
+		aggregation.setType(type);
+		aggregation.setField(field);
+		aggregation.setSize(2);
+		aggregation.setApproximate(approximate);
+		if (approximate) {
+			aggregation.setName("approximate");
+		}
+		return aggregation;
+	}
+
+	private long count(List<LogEntry> logs, Predicate<LogEntry> predicate) {
+		return logs.stream().filter(predicate).count();
+	}
+
 	@Test
 	void testGetMetrics() {
 		LogEntry log1 = createSampleLog("linux_login", "INFO", "user1", false);
@@ -156,6 +435,12 @@ class LogStorageServiceTest {
 			Map<String, Long> severityMap = (Map<String, Long>) m.get("logsBySeverity");
 			assertEquals(2L, severityMap.get("info"));
 			assertEquals(1L, severityMap.get("error"));
+
+			@SuppressWarnings("unchecked")
+			Map<String, Object> ingest = (Map<String, Object>) m.get("ingest");
+			assertEquals(3L, ingest.get("accepted"));
+			assertEquals(3L, ingest.get("processed"));
+			assertEquals(0L, ingest.get("rejected"));
 		}).verifyComplete();
 	}
 
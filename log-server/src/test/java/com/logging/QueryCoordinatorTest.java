@@ -0,0 +1,179 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.logging.controller.ClusterController;
+import com.logging.coordinator.MergedPage;
+import com.logging.coordinator.QueryCoordinator;
+import com.logging.model.LogQuery;
+
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
+
+class QueryCoordinatorTest {
+
+	private static final String NODE_A = "http://node-a";
+	private static final String NODE_B = "http://node-b";
+	private static final String NODE_DOWN = "http://node-down";
+	private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+	private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+	// Rows of each node in sequence order, seconds after START or null for no timestamp
+	private final Map<String, List<Row>> nodeRows = Map.of(
+			NODE_A, List.of(new Row("a1", 1), new Row("a2", 4), new Row("a3", 7), new Row("a4", 10),
+					new Row("a5", null), new Row("a6", null)),
+			NODE_B, List.of(new Row("b1", 2), new Row("b2", 4), new Row("b3", 8), new Row("b4", null)));
+
+	@Test
+	void testRowsAreMergedInTimestampOrderWithUntimedRowsLast() {
+		QueryCoordinator coordinator = coordinator(List.of(NODE_A, NODE_B));
+
+		MergedPage ascending = coordinator.queryLogs(query(null, "asc"), null).block();
+		// Ties keep node order, untimed rows keep each node's order
+		assertEquals(List.of("a1", "b1", "a2", "b2", "a3", "b3", "a4", "a5", "a6", "b4"), ids(ascending));
+		assertNull(ascending.nextCursor());
+		assertEquals(List.of(), ascending.failedNodes());
+
+		MergedPage descending = coordinator.queryLogs(query(null, "desc"), null).block();
+		assertEquals(List.of("a4", "b3", "a3", "a2", "b2", "b1", "a1", "a5", "a6", "b4"), ids(descending));
+	}
+
+	@Test
+	void testMergedCursorPagesThroughEveryNode() {
+		QueryCoordinator coordinator = coordinator(List.of(NODE_A, NODE_B));
+
+		for (String order : List.of("asc", "desc")) {
+			List<String> full = ids(coordinator.queryLogs(query(null, order), null).block());
+			List<String> paged = new ArrayList<>();
+			List<String> cursors = new ArrayList<>();
+			String cursor = null;
+			do {
+				MergedPage page = coordinator.queryLogs(query(3, order), cursor).block();
+				paged.addAll(ids(page));
+				cursor = page.nextCursor();
+				cursors.add(cursor);
+			} while (cursor != null);
+
+			assertEquals(full, paged, order);
+			// 10 rows in pages of 3, a node cursor only moves with the rows it contributed
+			assertEquals(4, cursors.size(), order);
+			if (order.equals("asc")) {
+				assertEquals(List.of("1,0", "2,2", "5,2"), cursors.subList(0, 3));
+			}
+		}
+	}
+
+	@Test
+	void testFailingShardIsLeftOutAndReported() {
+		QueryCoordinator coordinator = coordinator(List.of(NODE_A, NODE_DOWN, NODE_B));
+
+		MergedPage page = coordinator.queryLogs(query(4, "asc"), null).block();
+		assertEquals(List.of("a1", "b1", "a2", "b2"), ids(page));
+		assertEquals(List.of(NODE_DOWN), page.failedNodes());
+		// The failed node keeps an empty position and is asked again from its start
+		assertEquals("1,,1", page.nextCursor());
+
+		WebTestClient client = WebTestClient.bindToController(new ClusterController(coordinator)).build();
+		client.get().uri("/cluster/logs?limit=4&cursor=1,,1").exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals("X-Failed-Shards", NODE_DOWN)
+				.expectHeader().valueEquals("X-Next-Cursor", "4,,2")
+				.expectBody().jsonPath("$[*].id").isEqualTo(List.of("a3", "b3", "a4", "a5"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testMetricsTotalsSumOnlyCounters() {
+		QueryCoordinator coordinator = coordinator(List.of(NODE_A, NODE_DOWN, NODE_B));
+
+		Map<String, Object> metrics = coordinator.getMetrics().block();
+		assertEquals(3, metrics.get("shards"));
+		assertEquals(2, metrics.get("shardsUp"));
+		assertEquals(Map.of("totalLogsReceived", 10L), metrics.get("totals"));
+		List<Map<String, Object>> nodes = (List<Map<String, Object>>) metrics.get("nodes");
+		assertEquals(List.of(NODE_A, NODE_DOWN, NODE_B), nodes.stream().map(node -> node.get("node")).toList());
+	}
+
+	private QueryCoordinator coordinator(List<String> nodes) {
+		WebClient webClient = WebClient.builder().exchangeFunction(this::exchange).build();
+		return new QueryCoordinator(nodes, webClient, Duration.ofSeconds(5));
+	}
+
+	/**
+	 * Serves <code>GET /logs</code> and <code>GET /metrics</code> like a node: timed rows sorted by timestamp, untimed
+	 * rows last in sequence order, and a cursor that resumes after a row
+	 */
+	private Mono<ClientResponse> exchange(ClientRequest request) {
+		String node = request.url().getScheme() + "://" + request.url().getHost();
+		List<Row> rows = nodeRows.get(node);
+		if (rows == null) {
+			return Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+		}
+		if (request.url().getPath().equals("/metrics")) {
+			Map<String, Object> metrics = Map.of("totalLogsReceived", rows.size(), "ingestPerSecond", 2.5,
+					"storage", Map.of("bytes", 1_000));
+			return Mono.just(ClientResponse.create(HttpStatus.OK)
+					.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+					.body(jsonMapper.writeValueAsString(metrics)).build());
+		}
+
+		MultiValueMap<String, String> parameters = UriComponentsBuilder.fromUri(request.url()).build()
+				.getQueryParams();
+		Comparator<Integer> bySeconds = "desc".equals(parameters.getFirst("order")) ? Comparator.reverseOrder()
+				: Comparator.naturalOrder();
+		List<Row> sorted = rows.stream().sorted(Comparator.comparing(Row::seconds, Comparator.nullsLast(bySeconds)))
+				.toList();
+		int from = parameters.containsKey("cursor") ? Integer.parseInt(parameters.getFirst("cursor")) + 1 : 0;
+		int to = parameters.containsKey("limit")
+				? Math.min(sorted.size(), from + Integer.parseInt(parameters.getFirst("limit")))
+				: sorted.size();
+
+		StringBuilder body = new StringBuilder();
+		for (int i = from; i < to; i++) {
+			Map<String, Object> row = new LinkedHashMap<>();
+			row.put("id", sorted.get(i).id());
+			if (sorted.get(i).seconds() != null) {
+				row.put("timestamp", START.plusSeconds(sorted.get(i).seconds()).toString());
+			}
+			row.put("cursor", i);
+			body.append(jsonMapper.writeValueAsString(row)).append('\n');
+		}
+		return Mono.just(ClientResponse.create(HttpStatus.OK)
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE).body(body.toString()).build());
+	}
+
+	private static LogQuery query(Integer limit, String order) {
+		LogQuery query = new LogQuery();
+		query.setLimit(limit);
+		query.setOrder(order);
+		return query;
+	}
+
+	private static List<String> ids(MergedPage page) {
+		return page.entries().stream().map(entry -> (String) entry.get("id")).toList();
+	}
+
+	private record Row(String id, Integer seconds) {
+	}
+}
@@ -0,0 +1,200 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.logging.codec.IngestHeaders;
+import com.logging.concurrent.ExecutionMode;
+import com.logging.controller.LogController;
+import com.logging.entity.LogEntry;
+import com.logging.ingest.IngestOffer;
+import com.logging.ingest.IngestSettings;
+import com.logging.metrics.MetricsRegistry;
+import com.logging.metrics.PinnedThreadMonitor;
+import com.logging.model.LogQuery;
+import com.logging.replication.NotLeaderException;
+import com.logging.replication.QuorumTimeoutException;
+import com.logging.replication.ReplicationSettings;
+import com.logging.rollup.TimeSeriesRollups;
+import com.logging.service.impl.LogStorageServiceImpl;
+import com.logging.storage.InMemoryLogStore;
+import com.logging.storage.LogStore;
+import com.logging.storage.RetentionPolicy;
+import com.logging.storage.SegmentLogStore;
+
+import reactor.core.scheduler.Schedulers;
+
+class ReplicationTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void testIngestIsAcknowledgedOnceTheQuorumStoredIt() {
+		LogStorageServiceImpl follower = service(new InMemoryLogStore(), follower(0));
+		LogStorageServiceImpl leader = service(new InMemoryLogStore(), leader(port(follower), 5_000));
+		try {
+			for (int i = 0; i < 10; i++) {
+				IngestOffer offer = leader.ingestBatch(logs(i * 300, 300)).block();
+				assertEquals(new IngestOffer(300, (i + 1) * 300), offer);
+				leader.awaitQuorum(offer.position()).block();
+				// Stored on the follower before the leader acknowledged
+				assertEquals((i + 1) * 300, follower.getTotalLogs());
+			}
+
+			List<LogEntry> replicated = follower.queryLogs(new LogQuery()).collectList().block();
+			List<LogEntry> stored = leader.queryLogs(new LogQuery()).collectList().block();
+			assertEquals(stored, replicated);
+			assertEquals(30, follower.queryLogs("linux_login", null, "user7", null, null, null).count().block());
+
+			Map<String, Object> leaderMetrics = replication(leader);
+			Map<String, Object> followerLink = followers(leaderMetrics).get(0);
+			assertEquals(3000L, leaderMetrics.get("committedSequence"));
+			assertEquals(true, followerLink.get("connected"));
+			assertEquals(0L, followerLink.get("lagEntries"));
+			assertEquals(3000L, followerLink.get("entriesSent"));
+			assertEquals(0L, replication(follower).get("lagEntries"));
+
+			assertThrows(NotLeaderException.class, () -> follower.ingestLog(logs(0, 1).get(0)).block());
+		} finally {
+			leader.close();
+			follower.close();
+		}
+	}
+
+	@Test
+	void testLaggingFollowerCatchesUpFromItsOffset() throws IOException {
+		SegmentLogStore followerStore = new SegmentLogStore(directory, 64 * 1024, 512, 10);
+		LogStorageServiceImpl follower = service(followerStore, follower(0));
+		int port = port(follower);
+		LogStorageServiceImpl leader = service(new InMemoryLogStore(), leader(port, 1_000));
+		try {
+			long replicated = leader.ingestBatch(logs(0, 500)).block().position();
+			leader.awaitQuorum(replicated).block();
+
+			follower.close();
+			followerStore.close();
+			// Stored by the leader alone
+			long stored = leader.ingestBatch(logs(500, 500)).block().position();
+			assertThrows(QuorumTimeoutException.class, () -> leader.awaitQuorum(stored).block());
+			// A request waits on its own logs only, not on the ones accepted after them
+			leader.awaitQuorum(replicated).block();
+
+			followerStore = new SegmentLogStore(directory, 64 * 1024, 512, 10);
+			follower = service(followerStore, follower(port));
+			assertEquals(500, follower.getTotalLogs());
+			// Once the leader reconnected
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (follower.getTotalLogs() < 1000 && System.nanoTime() < deadline) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+			}
+			assertEquals(1000, follower.getTotalLogs());
+			leader.awaitQuorum(leader.ingestLog(logs(1000, 1).get(0)).block()).block();
+
+			assertEquals(1001, follower.getTotalLogs());
+			assertEquals(1001, followerStore.nextSequence());
+			assertEquals("user0", followerStore.read(1000).getUsername());
+			Map<String, Object> followerMetrics = replication(follower);
+			assertEquals(0L, followerMetrics.get("resyncs"));
+			// Only the logs it missed were shipped again
+			assertEquals(501L, followerMetrics.get("entriesReceived"));
+			assertEquals(1L, followers(replication(leader)).get(0).get("reconnects"));
+			assertTrue((Long) replication(leader).get("quorumTimeouts") >= 1);
+		} finally {
+			leader.close();
+			follower.close();
+			followerStore.close();
+		}
+	}
+
+	@Test
+	void testIngestWithoutQuorumAnswersStoredNotReplicated() {
+		LogStorageServiceImpl follower = service(new InMemoryLogStore(), follower(0));
+		int port = port(follower);
+		// Nothing acknowledges any more
+		follower.close();
+		LogStorageServiceImpl leader = service(new InMemoryLogStore(), leader(port, 200));
+		WebTestClient client = WebTestClient.bindToController(
+				new LogController(leader, PinnedThreadMonitor.start(ExecutionMode.of(false), Duration.ofMillis(20))))
+				.build();
+		try {
+			// Stored on the leader, a retry would store the logs twice
+			client.post().uri("/ingest/batch").contentType(MediaType.APPLICATION_JSON).bodyValue(logs(0, 10))
+					.exchange()
+					.expectStatus().isAccepted()
+					.expectHeader().valueEquals(IngestHeaders.REPLICATION, IngestHeaders.REPLICATION_PENDING)
+					.expectBody().jsonPath("$.accepted").isEqualTo(10);
+			client.post().uri("/ingest").contentType(MediaType.APPLICATION_JSON).bodyValue(logs(10, 1).get(0))
+					.exchange()
+					.expectStatus().isAccepted()
+					.expectHeader().valueEquals(IngestHeaders.REPLICATION, IngestHeaders.REPLICATION_PENDING);
+
+			leader.flush();
+			assertEquals(11, leader.getTotalLogs());
+			assertEquals(2L, replication(leader).get("quorumTimeouts"));
+		} finally {
+			leader.close();
+		}
+	}
+
+	private static LogStorageServiceImpl service(LogStore store, ReplicationSettings replicationSettings) {
+		return new LogStorageServiceImpl(Schedulers.immediate(), store, new MetricsRegistry(), RetentionPolicy.UNLIMITED,
+				new TimeSeriesRollups(), IngestSettings.DEFAULT, replicationSettings);
+	}
+
+	private static ReplicationSettings follower(int port) {
+		return new ReplicationSettings(ReplicationSettings.Role.FOLLOWER, port, List.of(), 1, 1024, 8, 5_000, "lz4");
+	}
+
+	private static ReplicationSettings leader(int followerPort, long ackTimeoutMs) {
+		// Small frames, so that several are in flight
+		return new ReplicationSettings(ReplicationSettings.Role.LEADER, 0, List.of("localhost:" + followerPort), 2, 64,
+				4, ackTimeoutMs, "lz4");
+	}
+
+	private static int port(LogStorageServiceImpl follower) {
+		return (Integer) replication(follower).get("port");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> replication(LogStorageServiceImpl service) {
+		return (Map<String, Object>) service.getMetrics().block().get("replication");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Map<String, Object>> followers(Map<String, Object> leaderMetrics) {
+		return (List<Map<String, Object>>) leaderMetrics.get("followers");
+	}
+
+	private static List<LogEntry> logs(int from, int count) {
+		List<LogEntry> logs = new ArrayList<>();
+		for (int i = from; i < from + count; i++) {
+			LogEntry log = new LogEntry();
+			log.setTimestamp("2025-01-16T12:00:00Z");
+			log.setEventCategory("linux_login");
+			log.setEventSourceType("linux");
+			log.setSeverity(i % 5 == 0 ? "ERROR" : "INFO");
+			log.setUsername("user" + i % 100);
+			log.setHostname("host" + i % 7);
+			log.setRawMessage("Accepted password for user" + i % 100 + " seq " + i);
+			log.setIsBlacklisted(false);
+			logs.add(log);
+		}
+		return logs;
+	}
+}
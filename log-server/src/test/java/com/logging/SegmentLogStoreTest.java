@@ -0,0 +1,155 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.logging.entity.LogEntry;
+import com.logging.storage.SegmentLogStore;
+import com.logging.storage.StoredChunk;
+
+class SegmentLogStoreTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void testAppendAndReadAcrossSegments() throws IOException {
+		try (SegmentLogStore store = open()) {
+			for (int i = 0; i < 500; i++) {
+				assertEquals(i, store.append(createLog("user" + i)));
+			}
+
+			assertEquals(500, store.nextSequence());
+			assertEquals("user0", store.read(0).getUsername());
+			assertEquals("user257", store.read(257).getUsername());
+			assertEquals("user499", store.read(499).getUsername());
+			assertNull(store.read(500));
+			assertEquals(500, usernames(store, 0).size());
+			assertEquals(List.of("user498", "user499"), usernames(store, 498));
+		}
+
+		assertEquals(true, segmentFiles().size() > 1);
+	}
+
+	@Test
+	void testReopenRecoversEntries() throws IOException {
+		try (SegmentLogStore store = open()) {
+			for (int i = 0; i < 300; i++) {
+				store.append(createLog("user" + i));
+			}
+		}
+
+		try (SegmentLogStore store = open()) {
+			assertEquals(300, store.nextSequence());
+			assertEquals("user123", store.read(123).getUsername());
+
+			assertEquals(300, store.append(createLog("after-restart")));
+			assertEquals("after-restart", store.read(300).getUsername());
+		}
+	}
+
+	@Test
+	void testRecoveryTruncatesTornTail() throws IOException {
+		try (SegmentLogStore store = open()) {
+			for (int i = 0; i < 10; i++) {
+				store.append(createLog("user" + i));
+			}
+		}
+
+		// Simulate a crash in the middle of a record: a header announcing more bytes than were written
+		Path last = segmentFiles().get(segmentFiles().size() - 1);
+		try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+			ByteBuffer torn = ByteBuffer.allocate(20).putInt(500).putInt(42).put(new byte[12]).flip();
+			channel.write(torn, channel.size());
+		}
+
+		try (SegmentLogStore store = open()) {
+			assertEquals(10, store.nextSequence());
+			assertEquals("user9", store.read(9).getUsername());
+			assertEquals(10, store.append(createLog("next")));
+		}
+
+		try (SegmentLogStore store = open()) {
+			assertEquals(11, store.nextSequence());
+			assertEquals("next", store.read(10).getUsername());
+		}
+	}
+
+	@Test
+	void testEvictionDeletesOldestSegments() throws IOException {
+		try (SegmentLogStore store = open()) {
+			for (int i = 0; i < 500; i++) {
+				store.append(createLog("user" + i));
+			}
+			int files = segmentFiles().size();
+			long bytes = store.storedBytes();
+			StoredChunk oldest = store.oldestChunk();
+			assertEquals(0, oldest.firstSequence());
+
+			store.evictOldestChunk();
+			assertEquals(oldest.nextSequence(), store.firstSequence());
+			assertEquals(bytes - oldest.bytes(), store.storedBytes());
+			assertEquals(files - 1, segmentFiles().size());
+			assertNull(store.read(0));
+			assertEquals("user499", store.read(499).getUsername());
+			assertEquals(500 - oldest.nextSequence(), usernames(store, 0).size());
+
+			// The active segment is never evicted
+			while (store.oldestChunk() != null) {
+				store.evictOldestChunk();
+			}
+			assertEquals(1, segmentFiles().size());
+		}
+
+		try (SegmentLogStore store = open()) {
+			assertEquals(500, store.nextSequence());
+			assertEquals("user499", store.read(499).getUsername());
+			assertNull(store.read(store.firstSequence() - 1));
+		}
+	}
+
+	private SegmentLogStore open() throws IOException {
+		// Small segments and index interval to exercise rolling and index lookups
+		return new SegmentLogStore(directory, 16 * 1024, 512, 10);
+	}
+
+	private List<Path> segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.toString().endsWith(".log")).sorted().toList();
+		}
+	}
+
+	private List<String> usernames(SegmentLogStore store, long from) {
+		List<String> usernames = new ArrayList<>();
+		Iterator<LogEntry> entries = store.iterator(from);
+		entries.forEachRemaining(entry -> usernames.add(entry.getUsername()));
+		return usernames;
+	}
+
+	private LogEntry createLog(String username) {
+		LogEntry log = new LogEntry();
+		log.setTimestamp("2025-01-16T12:00:00Z");
+		log.setEventCategory("linux_login");
+		log.setEventSourceType("linux");
+		log.setSeverity("INFO");
+		log.setUsername(username);
+		log.setHostname("testhost");
+		log.setRawMessage("<86> testhost sudo: pam_unix(sudo:session): session opened for user " + username);
+		log.setIsBlacklisted(false);
+		return log;
+	}
+}
@@ -0,0 +1,111 @@
+package com.logging;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.logging.entity.LogEntry;
+import com.logging.model.TimeSeries;
+import com.logging.model.TimeSeriesQuery;
+import com.logging.rollup.TimeSeriesRollups;
+
+class TimeSeriesRollupsTest {
+
+	private static final long START = Instant.parse("2026-01-15T10:00:00Z").toEpochMilli();
+
+	@Test
+	void testCountsPerBucketMatchTheLogs() {
+		TimeSeriesRollups rollups = new TimeSeriesRollups();
+		// One log every 7 seconds for 2 hours, over 4 hosts
+		Map<String, long[]> expected = new HashMap<>();
+		for (int i = 0; i < 1_029; i++) {
+			long millis = START + i * 7_000L;
+			LogEntry log = createLog("web-0" + i % 4, i % 3 == 0 ? "ERROR" : "INFO");
+			rollups.record(log, millis);
+			if (i % 3 == 0) {
+				expected.computeIfAbsent(log.getHostname(), k -> new long[120])[(int) ((millis - START) / 60_000)]++;
+			}
+		}
+
+		TimeSeriesQuery query = new TimeSeriesQuery();
+		query.setResolution("1m");
+		query.setFrom(Instant.ofEpochMilli(START));
+		query.setTo(Instant.ofEpochMilli(START + 120 * 60_000L));
+		query.setLevel("error");
+		query.setGroupBy(List.of("hostname"));
+		TimeSeries timeSeries = rollups.query(query);
+
+		assertEquals(120, timeSeries.getBuckets().size());
+		assertEquals("2026-01-15T10:00:00Z", timeSeries.getBuckets().get(0));
+		assertEquals(4, timeSeries.getSeries().size());
+		for (TimeSeries.Series series : timeSeries.getSeries()) {
+			long[] counts = expected.get((String) series.getKey().get("hostname"));
+			assertArrayEquals(counts, series.getCounts());
+			assertEquals(Arrays.stream(counts).sum(), series.getTotal());
+		}
+
+		// The 1h rollup holds the same logs, the 1s rollup only its last 600 seconds
+		query.setResolution("1h");
+		query.setGroupBy(List.of());
+		query.setLevel(null);
+		TimeSeries hourly = rollups.query(query);
+		assertEquals(1, hourly.getSeries().size());
+		assertEquals(1_029, hourly.getSeries().get(0).getTotal());
+
+		query.setResolution("1s");
+		assertEquals(600, rollups.query(query).getBuckets().size());
+		assertEquals(86, rollups.query(query).getSeries().get(0).getTotal());
+
+		query.setGroupBy(List.of("username"));
+		assertThrows(IllegalArgumentException.class, () -> rollups.query(query));
+	}
+
+	@Test
+	void testSeriesBeyondTheLimitShareTheOverflowSeries() {
+		TimeSeriesRollups rollups = new TimeSeriesRollups(4, 60, 60, 24);
+		for (int i = 0; i < 10; i++) {
+			rollups.record(createLog("host" + i, "INFO"), START);
+		}
+		rollups.record(createLog("host0", "INFO"), START);
+
+		TimeSeriesQuery query = new TimeSeriesQuery();
+		query.setResolution("1h");
+		query.setFrom(Instant.ofEpochMilli(START));
+		query.setTo(Instant.ofEpochMilli(START + 3_600_000L));
+		query.setGroupBy(List.of("hostname"));
+		assertEquals(List.of(TimeSeriesRollups.OVERFLOW, "host0", "host1", "host2"), hostnames(rollups.query(query)));
+		assertEquals(4, rollups.getMetrics().get("series"));
+		assertEquals(7L, rollups.getMetrics().get("overflowedLogs"));
+
+		// Two days later the 24 hour ring has moved on, logs of the first hour are no longer counted
+		rollups.record(createLog("host1", "INFO"), START + 2 * 86_400_000L);
+		rollups.record(createLog("host0", "INFO"), START);
+		query.setFrom(Instant.ofEpochMilli(START - 86_400_000L));
+		query.setTo(Instant.ofEpochMilli(START + 3 * 86_400_000L));
+		TimeSeries timeSeries = rollups.query(query);
+		assertEquals(24, timeSeries.getBuckets().size());
+		assertEquals(List.of("host1"), hostnames(timeSeries));
+		assertEquals(1L, rollups.getMetrics().get("lateLogs"));
+	}
+
+	private List<Object> hostnames(TimeSeries timeSeries) {
+		return timeSeries.getSeries().stream().map(series -> series.getKey().get("hostname")).toList();
+	}
+
+	private LogEntry createLog(String hostname, String severity) {
+		LogEntry log = new LogEntry();
+		log.setEventCategory("linux_login");
+		log.setSeverity(severity);
+		log.setHostname(hostname);
+		log.setIsBlacklisted(false);
+		return log;
+	}
+}